@@ -0,0 +1,71 @@
+package org.weather.metricsapi.cli;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.stereotype.Component;
+import org.weather.metricsapi.config.ImportProperties;
+import org.weather.metricsapi.dto.admin.v1.ImportReport;
+import org.weather.metricsapi.service.imports.v1.BulkImportService;
+import org.weather.metricsapi.service.imports.v1.ImportFormat;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Command-line entry point for bulk import, in the same jar as the API:
+ * <pre>
+ * java -jar metrics-api.jar --spring.main.web-application-type=none \
+ *      --weather.import.files=site-a.csv,site-b.ndjson
+ * </pre>
+ * Imports each file in turn, prints its report and exits (status 1 if any row or chunk failed).
+ */
+@Component
+@ConditionalOnProperty(name = "weather.import.files")
+public class ImportCommand implements ApplicationRunner {
+
+    private static final Logger log = LoggerFactory.getLogger(ImportCommand.class);
+
+    private final BulkImportService service;
+    private final ImportProperties props;
+    private final ConfigurableApplicationContext context;
+
+    public ImportCommand(BulkImportService service, ImportProperties props, ConfigurableApplicationContext context) {
+        this.service = service;
+        this.props = props;
+        this.context = context;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) throws IOException {
+        boolean clean = true;
+        for (String file : props.files()) {
+            Path path = Path.of(file.trim());
+            ImportFormat format = ImportFormat.fromFileName(path.getFileName().toString());
+
+            ImportReport report;
+            try (InputStream in = Files.newInputStream(path)) {
+                report = service.importStream(path.toString(), format, in);
+            }
+
+            System.out.printf("%s: %d rows loaded (%d snapshots, %d values), %d rejected, %d duplicates, "
+                            + "%d failed chunks, %.0f rows/s in %d ms%n",
+                    path, report.rowsAccepted(), report.snapshotsInserted(), report.valuesInserted(),
+                    report.rowsRejected(), report.duplicatesSkipped(), report.chunksFailed(),
+                    report.rowsPerSecond(), report.elapsedMillis());
+            if (report.errors() != null) {
+                report.errors().forEach(e -> System.out.printf("  line %d: %s%n", e.line(), e.message()));
+            }
+            clean &= report.rowsRejected() == 0 && report.chunksFailed() == 0;
+        }
+
+        int status = clean ? 0 : 1;
+        log.info("Import command finished with status {}", status);
+        System.exit(SpringApplication.exit(context, () -> status));
+    }
+}
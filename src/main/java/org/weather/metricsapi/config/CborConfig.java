@@ -0,0 +1,20 @@
+package org.weather.metricsapi.config;
+
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+
+/**
+ * Lets every JSON endpoint also read and write {@code application/cbor}, chosen by
+ * Content-Type and Accept. The mapper comes from Boot's builder, so CBOR payloads use
+ * the same DTOs, Jackson settings and validation as JSON.
+ */
+@Configuration
+public class CborConfig {
+    @Bean
+    MappingJackson2CborHttpMessageConverter cborHttpMessageConverter(Jackson2ObjectMapperBuilder builder) {
+        return new MappingJackson2CborHttpMessageConverter(builder.factory(new CBORFactory()).build());
+    }
+}
@@ -0,0 +1,52 @@
+package org.weather.metricsapi.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+import java.time.Duration;
+
+/**
+ * Fetch query limits. Ranges longer than one {@code chunk} (a UTC day, or a calendar month)
+ * are split into chunks that are read in parallel by {@code parallelism} threads shared by
+ * all requests, with up to {@code queueCapacity} chunks waiting. A query that has not
+ * finished within {@code timeout} is cancelled. With {@code coalesce}, identical queries
+ * arriving while one is running wait for its result instead of running again.
+ */
+@ConfigurationProperties(prefix = "weather.fetch")
+public record FetchProperties(
+        @DefaultValue("366") int maxRangeDays,
+        @DefaultValue("month") Chunk chunk,
+        @DefaultValue("4") int parallelism,
+        @DefaultValue("200") int queueCapacity,
+        @DefaultValue("30s") Duration timeout,
+        @DefaultValue("true") boolean coalesce,
+        @DefaultValue Cache cache,
+        @DefaultValue HotWindow hotWindow
+) {
+    public enum Chunk { DAY, MONTH }
+
+    /**
+     * Results of up to {@code maxEntries} recent queries. Entries are dropped when a write
+     * they cover commits; those reaching into days that have not settled also expire after
+     * {@code liveTtl}, in case another instance wrote them.
+     */
+    public record Cache(
+            @DefaultValue("true") boolean enabled,
+            @DefaultValue("10000") int maxEntries,
+            @DefaultValue("30s") Duration liveTtl
+    ) {}
+
+    /**
+     * The last {@code days} UTC days of readings (today included) held in memory, at most
+     * {@code maxReadingsPerDay} distinct timestamps per sensor and day. A day entering the
+     * window is loaded from the database at the next check, at most {@code checkInterval}
+     * later, and reloaded after a bulk write to it; until then it is read from the database.
+     * Off by default: it only records this instance's writes, so it may only be enabled where
+     * one instance writes.
+     */
+    public record HotWindow(
+            @DefaultValue("false") boolean enabled,
+            @DefaultValue("2") int days,
+            @DefaultValue("2880") int maxReadingsPerDay,
+            @DefaultValue("1m") Duration checkInterval
+    ) {}
+}
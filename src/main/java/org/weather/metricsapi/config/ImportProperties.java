@@ -0,0 +1,17 @@
+package org.weather.metricsapi.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+import java.util.List;
+
+/**
+ * Bulk import (historical backfill) settings. {@code files} is only set when the jar is
+ * launched as the import CLI.
+ */
+@ConfigurationProperties(prefix = "weather.import")
+public record ImportProperties(
+        @DefaultValue("20000") int chunkRows,
+        @DefaultValue("4") int parallelism,
+        @DefaultValue("100") int maxReportedErrors,
+        List<String> files
+) {}
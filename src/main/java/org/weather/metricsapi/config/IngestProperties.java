@@ -0,0 +1,48 @@
+package org.weather.metricsapi.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+import java.time.Duration;
+
+@ConfigurationProperties(prefix = "weather.ingest")
+public record IngestProperties(
+        @DefaultValue Async async,
+        @DefaultValue GroupCommit groupCommit,
+        @DefaultValue Stream stream
+) {
+    /**
+     * Write-behind mode: readings are queued in memory, acknowledged with 202 and
+     * flushed to the database in batches by a background thread.
+     */
+    public record Async(
+            @DefaultValue("false") boolean enabled,
+            @DefaultValue("10000") int queueCapacity,
+            @DefaultValue("500") int flushSize,
+            @DefaultValue("200ms") Duration flushInterval,
+            @DefaultValue("50ms") Duration offerTimeout,
+            @DefaultValue("30s") Duration shutdownTimeout
+    ) {}
+
+    /**
+     * Synchronous group commit: concurrent updates arriving within {@code maxWait} (or until
+     * {@code maxBatchSize} are waiting) share one transaction, and each caller is answered
+     * only after that transaction commits.
+     */
+    public record GroupCommit(
+            @DefaultValue("false") boolean enabled,
+            @DefaultValue("256") int maxBatchSize,
+            @DefaultValue("2ms") Duration maxWait,
+            @DefaultValue("10s") Duration timeout
+    ) {}
+
+    /**
+     * Streaming NDJSON uploads: parsed readings are written every {@code batchSize} lines,
+     * or once {@code flushInterval} has passed since the oldest unwritten line arrived.
+     */
+    public record Stream(
+            @DefaultValue("500") int batchSize,
+            @DefaultValue("1s") Duration flushInterval,
+            @DefaultValue("4096") int maxLineLength,
+            @DefaultValue("100") int maxReportedErrors
+    ) {}
+}
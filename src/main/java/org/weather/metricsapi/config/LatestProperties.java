@@ -0,0 +1,15 @@
+package org.weather.metricsapi.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+import java.time.Duration;
+
+/**
+ * The in-memory index behind {@code /v1/latest}. On startup it is filled with the latest
+ * reading of every (sensor, metric) within {@code lookback}; a sensor that has been silent
+ * for longer only shows up again once it reports. {@code 0} starts with an empty index.
+ */
+@ConfigurationProperties(prefix = "weather.latest")
+public record LatestProperties(
+        @DefaultValue("7d") Duration lookback
+) {}
@@ -0,0 +1,27 @@
+package org.weather.metricsapi.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+import java.time.Duration;
+
+/**
+ * Time partitioning of {@code snapshots}, {@code reading_values} and {@code readings}.
+ * <p>
+ * Partitions are {@code interval} wide and aligned to UTC days (weeks start on Monday).
+ * {@code premake} partitions beyond the current one are kept ready. With a
+ * {@code retention} set, partitions that end before {@code now - retention} are dropped or,
+ * with {@code expired=detach}, detached and left for archiving.
+ */
+@ConfigurationProperties(prefix = "weather.partitions")
+public record PartitionProperties(
+        @DefaultValue("true") boolean enabled,
+        @DefaultValue("week") Interval interval,
+        @DefaultValue("4") int premake,
+        Duration retention,
+        @DefaultValue("detach") Expired expired,
+        @DefaultValue("1h") Duration checkInterval
+) {
+    public enum Interval { DAY, WEEK }
+
+    public enum Expired { DROP, DETACH }
+}
@@ -0,0 +1,16 @@
+package org.weather.metricsapi.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+import java.time.Duration;
+
+/**
+ * Hourly and daily rollups. A day is rolled up once it has been over for {@code settle},
+ * long enough for readings stamped just before midnight to have been committed.
+ */
+@ConfigurationProperties(prefix = "weather.rollups")
+public record RollupProperties(
+        @DefaultValue("true") boolean enabled,
+        @DefaultValue("10m") Duration settle,
+        @DefaultValue("5m") Duration checkInterval
+) {}
@@ -0,0 +1,43 @@
+package org.weather.metricsapi.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+/**
+ * Storage layout for readings.
+ * <p>
+ * {@code narrow} is the original {@code snapshots}/{@code reading_values} pair (one row per
+ * metric); {@code wide} is {@code readings}, one row per (sensor, ts) with a nullable column
+ * per metric. Moving between them is a cutover: write {@code dual}, backfill, switch
+ * {@code read}, then stop writing the old layout. Reading a layout that is not being written
+ * is refused at startup.
+ */
+@ConfigurationProperties(prefix = "weather.storage")
+public record StorageProperties(
+        @DefaultValue("narrow") Write write,
+        @DefaultValue("narrow") Layout read
+) {
+    public enum Layout { NARROW, WIDE }
+
+    public enum Write { NARROW, DUAL, WIDE }
+
+    public StorageProperties {
+        if ((read == Layout.WIDE && write == Write.NARROW) || (read == Layout.NARROW && write == Write.WIDE)) {
+            throw new IllegalArgumentException(
+                    "weather.storage.read=" + read.name().toLowerCase() + " needs that layout to be written, "
+                            + "but weather.storage.write=" + write.name().toLowerCase());
+        }
+    }
+
+    public boolean writesNarrow() {
+        return write != Write.WIDE;
+    }
+
+    public boolean writesWide() {
+        return write != Write.NARROW;
+    }
+
+    public boolean readsWide() {
+        return read == Layout.WIDE;
+    }
+}
@@ -0,0 +1,45 @@
+package org.weather.metricsapi.controller.admin.v1;
+
+import jakarta.servlet.http.HttpServletRequest;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.weather.metricsapi.dto.admin.v1.ImportReport;
+import org.weather.metricsapi.service.imports.v1.BulkImportService;
+import org.weather.metricsapi.service.imports.v1.ImportFormat;
+import java.io.IOException;
+
+@RestController
+@RequestMapping("/api/weather/metrics/v1/admin")
+public class ImportController {
+
+    private static final Logger log = LoggerFactory.getLogger(ImportController.class);
+
+    private final BulkImportService service;
+
+    public ImportController(BulkImportService service) {
+        this.service = service;
+    }
+
+    /**
+     * Streams the request body (CSV or NDJSON, chosen by Content-Type) straight into the
+     * bulk loader; the file is never buffered whole in memory.
+     */
+    @PostMapping(value = "/import", consumes = {"text/csv", "application/x-ndjson"})
+    public ResponseEntity<ImportReport> importReadings(
+            @RequestParam(value = "source", required = false) String source,
+            HttpServletRequest request) throws IOException {
+
+        ImportFormat format = ImportFormat.fromContentType(request.getContentType());
+        String name = source != null ? source : "upload";
+
+        log.info("Received bulk import: source={}, format={}", name, format);
+
+        ImportReport report = service.importStream(name, format, request.getInputStream());
+
+        log.info("Bulk import completed: source={}, rowsAccepted={}", name, report.rowsAccepted());
+
+        return ResponseEntity.ok(report);
+    }
+}
@@ -0,0 +1,39 @@
+package org.weather.metricsapi.controller.admin.v1;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.weather.metricsapi.dto.admin.v1.BackfillReport;
+import org.weather.metricsapi.service.storage.v1.WideBackfillService;
+import java.time.LocalDate;
+
+@RestController
+@RequestMapping("/api/weather/metrics/v1/admin/storage")
+public class StorageController {
+
+    private static final Logger log = LoggerFactory.getLogger(StorageController.class);
+
+    private final WideBackfillService service;
+
+    public StorageController(WideBackfillService service) {
+        this.service = service;
+    }
+
+    /**
+     * Copies narrow-layout readings between {@code startDate} and {@code endDate} (inclusive,
+     * UTC days) into the wide layout, skipping readings it already holds.
+     */
+    @PostMapping("/backfill")
+    public ResponseEntity<BackfillReport> backfill(
+            @RequestParam("startDate") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
+            @RequestParam("endDate") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate) {
+
+        log.info("Received wide backfill: {} to {}", startDate, endDate);
+
+        BackfillReport report = service.backfill(startDate, endDate);
+
+        return ResponseEntity.ok(report);
+    }
+}
@@ -1,14 +1,20 @@
 package org.weather.metricsapi.controller.fetch.v1;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.weather.metricsapi.dto.fetch.v1.FetchRequest;
 import org.weather.metricsapi.dto.fetch.v1.FetchResponse;
 import org.weather.metricsapi.service.fetch.v1.FetchService;
 
+import java.io.IOException;
+
 @RestController
 @RequestMapping("/api/weather/metrics/v1")
 public class FetchController {
@@ -16,9 +22,11 @@ public class FetchController {
     private static final Logger log = LoggerFactory.getLogger(FetchController.class);
 
     private final FetchService service;
+    private final ObjectMapper objectMapper;
 
-    public FetchController(FetchService service) {
+    public FetchController(FetchService service, ObjectMapper objectMapper) {
         this.service = service;
+        this.objectMapper = objectMapper;
     }
 
     @PostMapping("/fetch")
@@ -34,4 +42,23 @@ public class FetchController {
 
         return ResponseEntity.ok(response);
     }
-}
\ No newline at end of file
+
+    /**
+     * The same query as {@code /fetch}, for fleet-wide queries: sensor results are written
+     * as they are read rather than collected first. JSON only.
+     */
+    @PostMapping(value = "/fetch/stream", produces = MediaType.APPLICATION_JSON_VALUE)
+    public void queryStream(@Valid @RequestBody FetchRequest request, HttpServletResponse response) throws IOException {
+
+        log.info("Streaming fetch request");
+        log.debug("Streaming fetch request {}", request);
+
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        // not closed on failure: an error found before anything was written still gets an error response
+        JsonGenerator generator = objectMapper.getFactory().createGenerator(response.getOutputStream());
+        service.stream(request, generator);
+        generator.close();
+
+        log.info("Streaming fetch query completed");
+    }
+}
@@ -0,0 +1,31 @@
+package org.weather.metricsapi.controller.latest.v1;
+
+import jakarta.validation.Valid;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.weather.metricsapi.dto.latest.v1.LatestRequest;
+import org.weather.metricsapi.dto.latest.v1.LatestResponse;
+import org.weather.metricsapi.service.latest.v1.LatestService;
+
+@RestController
+@RequestMapping("/api/weather/metrics/v1")
+public class LatestController {
+
+    private static final Logger log = LoggerFactory.getLogger(LatestController.class);
+
+    private final LatestService service;
+
+    public LatestController(LatestService service) {
+        this.service = service;
+    }
+
+    @PostMapping("/latest")
+    public ResponseEntity<LatestResponse> latest(@Valid @RequestBody LatestRequest request) {
+
+        log.debug("Latest request for {} sensors", request.sensorId().size());
+
+        return ResponseEntity.ok(service.query(request));
+    }
+}
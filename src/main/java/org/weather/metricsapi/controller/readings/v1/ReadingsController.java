@@ -0,0 +1,48 @@
+package org.weather.metricsapi.controller.readings.v1;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.validation.Valid;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.*;
+import org.weather.metricsapi.dto.readings.v1.ReadingsRequest;
+import org.weather.metricsapi.service.readings.v1.ReadingsService;
+
+import java.io.IOException;
+
+@RestController
+@RequestMapping("/api/weather/metrics/v1")
+public class ReadingsController {
+
+    private static final Logger log = LoggerFactory.getLogger(ReadingsController.class);
+
+    private final ReadingsService service;
+    private final ObjectMapper objectMapper;
+
+    public ReadingsController(ReadingsService service, ObjectMapper objectMapper) {
+        this.service = service;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * One page of raw readings, written as it is read. Pass the page's {@code nextCursor}
+     * as {@code cursor} for the next one. JSON only.
+     */
+    @PostMapping(value = "/readings", produces = MediaType.APPLICATION_JSON_VALUE)
+    public void readings(@Valid @RequestBody ReadingsRequest request, HttpServletResponse response) throws IOException {
+
+        log.info("Readings request");
+        log.debug("Readings request {}", request);
+
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        // not closed on failure: an error found before anything was written still gets an error response
+        JsonGenerator generator = objectMapper.getFactory().createGenerator(response.getOutputStream());
+        service.page(request, generator);
+        generator.close();
+
+        log.info("Readings page completed");
+    }
+}
@@ -0,0 +1,36 @@
+package org.weather.metricsapi.controller.series.v1;
+
+import jakarta.validation.Valid;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.weather.metricsapi.dto.series.v1.SeriesRequest;
+import org.weather.metricsapi.dto.series.v1.SeriesResponse;
+import org.weather.metricsapi.service.series.v1.SeriesService;
+
+@RestController
+@RequestMapping("/api/weather/metrics/v1")
+public class SeriesController {
+
+    private static final Logger log = LoggerFactory.getLogger(SeriesController.class);
+
+    private final SeriesService service;
+
+    public SeriesController(SeriesService service) {
+        this.service = service;
+    }
+
+    @PostMapping("/series")
+    public ResponseEntity<SeriesResponse> series(@Valid @RequestBody SeriesRequest request) {
+
+        log.info("Series request");
+        log.debug("Series request {}", request);
+
+        SeriesResponse response = service.query(request);
+
+        log.info("Series query completed");
+
+        return ResponseEntity.ok(response);
+    }
+}
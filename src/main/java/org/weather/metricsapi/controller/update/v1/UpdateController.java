@@ -1,16 +1,28 @@
 package org.weather.metricsapi.controller.update.v1;
 
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.weather.metricsapi.dto.update.v1.BatchUpdateRequest;
+import org.weather.metricsapi.dto.update.v1.BatchUpdateResponse;
+import org.weather.metricsapi.dto.update.v1.StreamUpdateResponse;
+import org.weather.metricsapi.dto.update.v1.UpdateAcceptedResponse;
 import org.weather.metricsapi.dto.update.v1.UpdateRequest;
 import org.weather.metricsapi.dto.update.v1.UpdateResponse;
+import org.weather.metricsapi.service.update.v1.GroupCommitter;
+import org.weather.metricsapi.service.update.v1.IngestBuffer;
+import org.weather.metricsapi.service.update.v1.StreamIngestService;
 import org.weather.metricsapi.service.update.v1.UpdateService;
 
+import java.io.IOException;
 import java.time.Clock;
 import java.time.Instant;
+import java.util.List;
 
 @RestController
 @RequestMapping("/api/weather/metrics/v1")
@@ -19,25 +31,113 @@ public class UpdateController {
     private static final Logger log = LoggerFactory.getLogger(UpdateController.class);
 
     private final UpdateService service;
+    private final StreamIngestService streamService;
+    private final ObjectProvider<IngestBuffer> buffer;
+    private final ObjectProvider<GroupCommitter> groupCommitter;
     private final Clock clock;
 
-    public UpdateController(UpdateService service, Clock clock) {
+    public UpdateController(UpdateService service,
+                            StreamIngestService streamService,
+                            ObjectProvider<IngestBuffer> buffer,
+                            ObjectProvider<GroupCommitter> groupCommitter,
+                            Clock clock) {
         this.service = service;
+        this.streamService = streamService;
+        this.buffer = buffer;
+        this.groupCommitter = groupCommitter;
         this.clock = clock;
     }
 
+    /**
+     * Clients opt into write-behind with {@code Prefer: respond-async}, alone or among other
+     * preferences ({@code Prefer: respond-async, wait=5}). When async mode is disabled the
+     * preference is ignored and the reading is written synchronously.
+     */
     @PostMapping("/update")
-    public ResponseEntity<UpdateResponse> ingest(@Valid @RequestBody UpdateRequest req) {
+    public ResponseEntity<?> ingest(@Valid @RequestBody UpdateRequest req,
+                                    @RequestHeader(value = "Prefer", required = false) List<String> prefer) {
+        IngestBuffer ingestBuffer = buffer.getIfAvailable();
+        if (ingestBuffer != null && prefersAsync(prefer)) {
+            return ingestAsync(ingestBuffer, req);
+        }
 
         log.info("Received update request");
         log.debug("Update request {}", req);
 
         Instant ts = Instant.now(clock);
-        UpdateResponse resp = service.ingest(ts, req);
+        GroupCommitter committer = groupCommitter.getIfAvailable();
+        UpdateResponse resp = committer != null
+                ? committer.ingest(ts, req)
+                : service.ingest(ts, req);
 
         log.info("Successfully ingested");
         log.debug("Update response: {}", resp);
 
         return ResponseEntity.ok(resp);
     }
-}
\ No newline at end of file
+
+    private ResponseEntity<UpdateAcceptedResponse> ingestAsync(IngestBuffer ingestBuffer, UpdateRequest req) {
+
+        log.info("Received async update request");
+        log.debug("Async update request {}", req);
+
+        Instant ts = Instant.now(clock);
+        UpdateAcceptedResponse resp = ingestBuffer.enqueue(ts, req);
+
+        log.debug("Update queued: {}", resp);
+
+        return ResponseEntity.status(HttpStatus.ACCEPTED)
+                .header("Preference-Applied", "respond-async")
+                .body(resp);
+    }
+
+    /**
+     * Whether any {@code Prefer} header names {@code respond-async} (RFC 7240): each header
+     * holds comma-separated preferences, each a token optionally followed by {@code =value}
+     * and {@code ;parameters}.
+     */
+    static boolean prefersAsync(List<String> prefer) {
+        if (prefer == null) {
+            return false;
+        }
+        for (String header : prefer) {
+            for (String preference : header.split(",")) {
+                String token = preference.split("[=;]", 2)[0].trim();
+                if (token.equalsIgnoreCase("respond-async")) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    @PostMapping("/update/batch")
+    public ResponseEntity<BatchUpdateResponse> ingestBatch(@Valid @RequestBody BatchUpdateRequest req) {
+
+        log.info("Received batch update request with {} items", req.items().size());
+
+        Instant ts = Instant.now(clock);
+        BatchUpdateResponse resp = service.ingestBatch(ts, req.items());
+
+        log.info("Batch ingested: saved={}, rejected={}", resp.saved(), resp.rejected());
+        log.debug("Batch update response: {}", resp);
+
+        return ResponseEntity.ok(resp);
+    }
+
+    /**
+     * Long-lived NDJSON upload, one update per line. Lines are parsed and written in rolling
+     * batches as they arrive; the summary is returned when the client ends the body.
+     */
+    @PostMapping(value = "/update/stream", consumes = "application/x-ndjson")
+    public ResponseEntity<StreamUpdateResponse> ingestStream(HttpServletRequest request) throws IOException {
+
+        log.info("Received streaming update request");
+
+        StreamUpdateResponse resp = streamService.ingest(request.getInputStream());
+
+        log.info("Stream ingested: accepted={}, rejected={}", resp.accepted(), resp.rejected());
+
+        return ResponseEntity.ok(resp);
+    }
+}
@@ -0,0 +1,11 @@
+package org.weather.metricsapi.dto.admin.v1;
+
+import java.time.LocalDate;
+
+public record BackfillReport(
+        LocalDate startDate,
+        LocalDate endDate,
+        int days,
+        long rowsInserted,
+        long elapsedMillis
+) {}
@@ -0,0 +1,28 @@
+package org.weather.metricsapi.dto.admin.v1;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import java.util.List;
+
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record ImportReport(
+        String source,
+        String format,
+        long linesRead,
+        long rowsAccepted,
+        long rowsRejected,
+        long snapshotsInserted,
+        long valuesInserted,
+        long duplicatesSkipped,
+        int chunksLoaded,
+        int chunksFailed,
+        long elapsedMillis,
+        double rowsPerSecond,
+        double valuesPerSecond,
+        List<LineError> errors
+) {
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public record LineError(
+            long line,
+            String message
+    ) {}
+}
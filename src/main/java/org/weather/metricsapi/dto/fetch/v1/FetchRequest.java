@@ -1,6 +1,10 @@
 package org.weather.metricsapi.dto.fetch.v1;
 
 import com.fasterxml.jackson.annotation.JsonFormat;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
 import jakarta.validation.constraints.NotEmpty;
 import jakarta.validation.constraints.NotNull;
 import jakarta.validation.constraints.Pattern;
@@ -17,14 +21,59 @@ public record FetchRequest(
         @Size(max = 20, message = "Maximum 20 metrics can be queried at once")
         List<@NotNull(message = "Metric name cannot be null") String> metrics,
 
-        @NotNull(message = "Statistic type is required")
-        @Pattern(regexp = "^(min|max|sum|average)$",
-                message = "Statistic must be one of: min, max, sum, average")
+        @Pattern(regexp = STATISTIC_PATTERN, message = STATISTIC_MESSAGE)
         String statistic,
 
+        // several statistics from one scan, instead of statistic
+        @Size(max = 10, message = "Maximum 10 statistics can be requested at once")
+        List<@NotNull(message = "Statistic cannot be null")
+             @Pattern(regexp = STATISTIC_PATTERN, message = STATISTIC_MESSAGE) String> statistics,
+
         @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "yyyy-MM-dd")
         LocalDate startDate,
 
         @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "yyyy-MM-dd")
-        LocalDate endDate
-) {}
\ No newline at end of file
+        LocalDate endDate,
+
+        // ranks sensors by one metric's statistic instead of ordering them by name
+        @Valid
+        OrderBy orderBy,
+
+        @Min(value = 1, message = "limit must be at least 1")
+        @Max(value = 1000, message = "limit must not exceed 1000")
+        Integer limit
+) {
+    static final String STATISTIC_PATTERN = "^(min|max|sum|average|count|median|p50|p75|p90|p95|p99)$";
+    static final String STATISTIC_MESSAGE =
+            "Statistic must be one of: min, max, sum, average, count, median, p50, p75, p90, p95, p99";
+
+    public FetchRequest(List<String> sensorId, List<String> metrics, String statistic,
+                        LocalDate startDate, LocalDate endDate) {
+        this(sensorId, metrics, statistic, null, startDate, endDate);
+    }
+
+    public FetchRequest(List<String> sensorId, List<String> metrics, String statistic, List<String> statistics,
+                        LocalDate startDate, LocalDate endDate) {
+        this(sensorId, metrics, statistic, statistics, startDate, endDate, null, null);
+    }
+
+    /**
+     * The metric and statistic sensors are ranked by. The statistic may be left out when the
+     * request names only one; the direction defaults to {@code desc}, highest first.
+     */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public record OrderBy(
+            @NotNull(message = "orderBy.metric is required")
+            String metric,
+
+            @Pattern(regexp = STATISTIC_PATTERN, message = STATISTIC_MESSAGE)
+            String statistic,
+
+            @Pattern(regexp = "^(asc|desc)$", message = "orderBy.direction must be one of: asc, desc")
+            String direction
+    ) {
+        public boolean descending() {
+            return !"asc".equals(direction);
+        }
+    }
+}
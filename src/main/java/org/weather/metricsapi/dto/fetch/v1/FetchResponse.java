@@ -18,8 +18,23 @@ public record FetchResponse(
             LocalDate startDate,
             LocalDate endDate,
             int totalSensors,
-            int totalDataPoints
-    ) {}
+            long totalDataPoints,
+            List<String> statistics,
+            // the ranking, resolved, when the request asked for one
+            FetchRequest.OrderBy orderBy,
+            Integer limit
+    ) {
+        public QueryInfo(List<String> sensorId, List<String> metrics, String statistic, LocalDate startDate,
+                         LocalDate endDate, int totalSensors, long totalDataPoints) {
+            this(sensorId, metrics, statistic, startDate, endDate, totalSensors, totalDataPoints, null);
+        }
+
+        public QueryInfo(List<String> sensorId, List<String> metrics, String statistic, LocalDate startDate,
+                         LocalDate endDate, int totalSensors, long totalDataPoints, List<String> statistics) {
+            this(sensorId, metrics, statistic, startDate, endDate, totalSensors, totalDataPoints, statistics,
+                    null, null);
+        }
+    }
 
     @JsonInclude(JsonInclude.Include.NON_NULL)
     public record SensorResult(
@@ -32,6 +47,12 @@ public record FetchResponse(
             String metric,
             String statistic,
             Double value,
-            Integer dataPoints
-    ) {}
+            Long dataPoints,
+            // one entry per requested statistic when the request named several
+            Map<String, Number> values
+    ) {
+        public MetricStatistic(String metric, String statistic, Double value, Long dataPoints) {
+            this(metric, statistic, value, dataPoints, null);
+        }
+    }
 }
\ No newline at end of file
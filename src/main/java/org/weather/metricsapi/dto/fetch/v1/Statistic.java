@@ -0,0 +1,71 @@
+package org.weather.metricsapi.dto.fetch.v1;
+
+import java.util.Locale;
+
+/**
+ * A statistic a fetch can compute per sensor and metric. Percentiles are estimated from
+ * quantile sketches, within 1% of the exact value (see {@code QuantileSketch}).
+ */
+public enum Statistic {
+    MIN,
+    MAX,
+    SUM,
+    AVERAGE,
+    COUNT,
+    MEDIAN(0.5),
+    P50(0.5),
+    P75(0.75),
+    P90(0.9),
+    P95(0.95),
+    P99(0.99);
+
+    private final Double quantile;
+
+    Statistic() {
+        this.quantile = null;
+    }
+
+    Statistic(double quantile) {
+        this.quantile = quantile;
+    }
+
+    /**
+     * @return the name used in requests and responses
+     */
+    public String key() {
+        return name().toLowerCase(Locale.ROOT);
+    }
+
+    public static Statistic fromKey(String key) {
+        if (key != null) {
+            for (Statistic statistic : values()) {
+                if (statistic.key().equalsIgnoreCase(key)) {
+                    return statistic;
+                }
+            }
+        }
+        throw new IllegalArgumentException(
+                "Statistic must be one of: min, max, sum, average, count, median, p50, p75, p90, p95, p99");
+    }
+
+    /**
+     * @return whether computing this statistic needs the sum of the values
+     */
+    public boolean needsSum() {
+        return this == SUM || this == AVERAGE;
+    }
+
+    /**
+     * @return whether this statistic is a percentile, read from quantile sketches
+     */
+    public boolean needsSketch() {
+        return quantile != null;
+    }
+
+    /**
+     * @return the quantile of a percentile statistic, {@code null} for the others
+     */
+    public Double quantile() {
+        return quantile;
+    }
+}
@@ -0,0 +1,16 @@
+package org.weather.metricsapi.dto.latest.v1;
+
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+import java.util.List;
+
+public record LatestRequest(
+        @NotEmpty(message = "At least one sensor must be specified")
+        @Size(max = 10000, message = "Maximum 10000 sensors can be queried at once")
+        List<@NotNull(message = "sensorId cannot be null") String> sensorId,
+
+        // all metrics when omitted
+        @Size(max = 20, message = "Maximum 20 metrics can be queried at once")
+        List<@NotNull(message = "Metric name cannot be null") String> metrics
+) {}
@@ -0,0 +1,32 @@
+package org.weather.metricsapi.dto.latest.v1;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record LatestResponse(
+        QueryInfo query,
+        List<SensorLatest> sensors
+) {
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public record QueryInfo(
+            List<String> metrics,
+            int requestedSensors,
+            int totalSensors
+    ) {}
+
+    /**
+     * The latest reading of each requested metric the sensor has reported, by metric name.
+     */
+    public record SensorLatest(
+            String sensorId,
+            Map<String, Reading> metrics
+    ) {}
+
+    public record Reading(
+            Instant ts,
+            double value
+    ) {}
+}
@@ -0,0 +1,34 @@
+package org.weather.metricsapi.dto.readings.v1;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Pattern;
+import jakarta.validation.constraints.Size;
+import java.time.LocalDate;
+import java.util.List;
+
+public record ReadingsRequest(
+        @Size(max = 100, message = "Maximum 100 sensors can be queried at once")
+        List<@Pattern(regexp = "^[a-zA-Z0-9_-]+$",
+                message = "sensorId must contain only alphanumeric characters, hyphens, and underscores") String> sensorId,
+
+        @Size(max = 20, message = "Maximum 20 metrics can be queried at once")
+        List<@NotNull(message = "Metric name cannot be null") String> metrics,
+
+        @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "yyyy-MM-dd")
+        LocalDate startDate,
+
+        @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "yyyy-MM-dd")
+        LocalDate endDate,
+
+        @Min(value = 1, message = "limit must be at least 1")
+        @Max(value = 10000, message = "limit must not exceed 10000")
+        Integer limit,
+
+        // nextCursor of the previous page; omitted for the first
+        @Size(max = 64, message = "Invalid cursor")
+        @Pattern(regexp = "^[A-Za-z0-9_-]+$", message = "Invalid cursor")
+        String cursor
+) {}
@@ -0,0 +1,21 @@
+package org.weather.metricsapi.dto.readings.v1;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * One page of raw readings. {@code nextCursor} is absent on the last page.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record ReadingsResponse(
+        List<Reading> readings,
+        String nextCursor
+) {
+    public record Reading(
+            String sensorId,
+            String metric,
+            Instant ts,
+            double value
+    ) {}
+}
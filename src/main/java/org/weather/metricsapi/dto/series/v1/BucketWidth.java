@@ -0,0 +1,39 @@
+package org.weather.metricsapi.dto.series.v1;
+
+import java.time.Duration;
+
+/**
+ * The bucket widths a series can be aggregated into. Each divides a day, so buckets
+ * starting at midnight UTC line up with calendar days.
+ */
+public enum BucketWidth {
+    ONE_MINUTE("1m", Duration.ofMinutes(1)),
+    FIVE_MINUTES("5m", Duration.ofMinutes(5)),
+    ONE_HOUR("1h", Duration.ofHours(1)),
+    ONE_DAY("1d", Duration.ofDays(1));
+
+    private final String key;
+    private final Duration duration;
+
+    BucketWidth(String key, Duration duration) {
+        this.key = key;
+        this.duration = duration;
+    }
+
+    public String key() {
+        return key;
+    }
+
+    public Duration duration() {
+        return duration;
+    }
+
+    public static BucketWidth fromKey(String key) {
+        for (BucketWidth width : values()) {
+            if (width.key.equals(key)) {
+                return width;
+            }
+        }
+        throw new IllegalArgumentException("Bucket must be one of: 1m, 5m, 1h, 1d");
+    }
+}
@@ -0,0 +1,41 @@
+package org.weather.metricsapi.dto.series.v1;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Pattern;
+import jakarta.validation.constraints.Size;
+import java.time.LocalDate;
+import java.util.List;
+
+public record SeriesRequest(
+        @Size(max = 100, message = "Maximum 100 sensors can be queried at once")
+        List<@Pattern(regexp = "^[a-zA-Z0-9_-]+$",
+                message = "sensorId must contain only alphanumeric characters, hyphens, and underscores") String> sensorId,
+
+        @NotEmpty(message = "At least one metric must be specified")
+        @Size(max = 20, message = "Maximum 20 metrics can be queried at once")
+        List<@NotNull(message = "Metric name cannot be null") String> metrics,
+
+        @NotNull(message = "Statistic type is required")
+        @Pattern(regexp = "^(min|max|sum|average|count)$",
+                message = "Statistic must be one of: min, max, sum, average, count")
+        String statistic,
+
+        @NotNull(message = "Bucket width is required")
+        @Pattern(regexp = "^(1m|5m|1h|1d)$", message = "Bucket must be one of: 1m, 5m, 1h, 1d")
+        String bucket,
+
+        @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "yyyy-MM-dd")
+        LocalDate startDate,
+
+        @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "yyyy-MM-dd")
+        LocalDate endDate,
+
+        // downsample each series with LTTB to at most this many points
+        @Min(value = 3, message = "maxPoints must be at least 3")
+        @Max(value = 10000, message = "maxPoints must not exceed 10000")
+        Integer maxPoints
+) {}
@@ -0,0 +1,45 @@
+package org.weather.metricsapi.dto.series.v1;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.List;
+
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record SeriesResponse(
+        QueryInfo query,
+        List<Series> series
+) {
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public record QueryInfo(
+            List<String> sensorId,
+            List<String> metrics,
+            String statistic,
+            String bucket,
+            LocalDate startDate,
+            LocalDate endDate,
+            Integer maxPoints,
+            int totalSeries,
+            long totalDataPoints
+    ) {}
+
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public record Series(
+            String sensorId,
+            String metric,
+            // buckets in the range, before any downsampling
+            int buckets,
+            long dataPoints,
+            List<Point> points
+    ) {}
+
+    /**
+     * One bucket, identified by its start. A bucket without readings has no value and
+     * {@code dataPoints} 0.
+     */
+    public record Point(
+            Instant ts,
+            Double value,
+            long dataPoints
+    ) {}
+}
@@ -0,0 +1,15 @@
+package org.weather.metricsapi.dto.update.v1;
+
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+import java.util.List;
+
+/**
+ * Items are validated one by one by the service so that a bad item is reported
+ * in its own result instead of failing the whole batch.
+ */
+public record BatchUpdateRequest(
+        @NotEmpty(message = "At least one item must be provided")
+        @Size(max = 1000, message = "Maximum 1000 items can be submitted at once")
+        List<UpdateRequest> items
+) {}
@@ -0,0 +1,32 @@
+package org.weather.metricsapi.dto.update.v1;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record BatchUpdateResponse(
+        Instant timestamp,
+        int received,
+        int saved,
+        int rejected,
+        List<ItemResult> results
+) {
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public record ItemResult(
+            int index,
+            String sensorId,
+            String status,
+            Integer savedCount,
+            Map<String, String> errors
+    ) {
+        public static ItemResult saved(int index, String sensorId, int savedCount) {
+            return new ItemResult(index, sensorId, "saved", savedCount, null);
+        }
+
+        public static ItemResult rejected(int index, String sensorId, Map<String, String> errors) {
+            return new ItemResult(index, sensorId, "rejected", null, errors);
+        }
+    }
+}
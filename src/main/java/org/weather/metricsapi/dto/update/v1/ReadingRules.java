@@ -0,0 +1,176 @@
+package org.weather.metricsapi.dto.update.v1;
+
+import jakarta.validation.constraints.DecimalMax;
+import jakarta.validation.constraints.DecimalMin;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Pattern;
+import jakarta.validation.constraints.Size;
+import java.lang.reflect.Field;
+import java.lang.reflect.RecordComponent;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The constraints declared on {@link UpdateRequest} and {@link Metrics}, read once from
+ * their annotations so that high-volume paths (bulk import, streaming ingest) can check
+ * rows with plain comparisons instead of running Bean Validation per row.
+ * Messages are the same ones the API returns for a rejected update.
+ */
+public final class ReadingRules {
+
+    public record MetricRule(
+            String metric,
+            boolean required,
+            String requiredMessage,
+            double min,
+            boolean minInclusive,
+            String minMessage,
+            double max,
+            boolean maxInclusive,
+            String maxMessage
+    ) {
+        /**
+         * @return the violation message, or {@code null} if the value is acceptable
+         */
+        public String check(Double value) {
+            if (value == null) {
+                return required ? requiredMessage : null;
+            }
+            double v = value;
+            if (Double.isNaN(v) || (minInclusive ? v < min : v <= min)) {
+                return minMessage;
+            }
+            if (maxInclusive ? v > max : v >= max) {
+                return maxMessage;
+            }
+            return null;
+        }
+    }
+
+    private static final List<MetricRule> METRICS;
+    private static final Map<String, MetricRule> BY_NAME;
+    private static final Map<String, Integer> INDEX;
+    private static final String SENSOR_ID_BLANK_MESSAGE;
+    private static final java.util.regex.Pattern SENSOR_ID_PATTERN;
+    private static final String SENSOR_ID_PATTERN_MESSAGE;
+    private static final int SENSOR_ID_MIN;
+    private static final int SENSOR_ID_MAX;
+    private static final String SENSOR_ID_SIZE_MESSAGE;
+    private static final String METRICS_REQUIRED_MESSAGE;
+
+    static {
+        List<MetricRule> rules = new ArrayList<>();
+        for (RecordComponent component : Metrics.class.getRecordComponents()) {
+            Field field = field(Metrics.class, component.getName());
+            NotNull notNull = field.getAnnotation(NotNull.class);
+            DecimalMin min = field.getAnnotation(DecimalMin.class);
+            DecimalMax max = field.getAnnotation(DecimalMax.class);
+            rules.add(new MetricRule(
+                    component.getName(),
+                    notNull != null,
+                    notNull != null ? notNull.message() : null,
+                    min != null ? Double.parseDouble(min.value()) : Double.NEGATIVE_INFINITY,
+                    min == null || min.inclusive(),
+                    min != null ? min.message() : null,
+                    max != null ? Double.parseDouble(max.value()) : Double.POSITIVE_INFINITY,
+                    max == null || max.inclusive(),
+                    max != null ? max.message() : null
+            ));
+        }
+        METRICS = Collections.unmodifiableList(rules);
+
+        Map<String, MetricRule> byName = new LinkedHashMap<>();
+        rules.forEach(rule -> byName.put(rule.metric(), rule));
+        BY_NAME = Collections.unmodifiableMap(byName);
+
+        Map<String, Integer> index = new LinkedHashMap<>();
+        rules.forEach(rule -> index.put(rule.metric(), index.size()));
+        INDEX = Collections.unmodifiableMap(index);
+
+        Field sensorId = field(UpdateRequest.class, "sensorId");
+        SENSOR_ID_BLANK_MESSAGE = sensorId.getAnnotation(NotBlank.class).message();
+        Pattern pattern = sensorId.getAnnotation(Pattern.class);
+        Size size = sensorId.getAnnotation(Size.class);
+        SENSOR_ID_PATTERN = java.util.regex.Pattern.compile(pattern.regexp());
+        SENSOR_ID_PATTERN_MESSAGE = pattern.message();
+        SENSOR_ID_MIN = size.min();
+        SENSOR_ID_MAX = size.max();
+        SENSOR_ID_SIZE_MESSAGE = size.message();
+        METRICS_REQUIRED_MESSAGE = field(UpdateRequest.class, "metrics").getAnnotation(NotNull.class).message();
+    }
+
+    private ReadingRules() {}
+
+    /**
+     * @return one rule per {@link Metrics} component, in declaration order
+     */
+    public static List<MetricRule> metrics() {
+        return METRICS;
+    }
+
+    /**
+     * @return the rule for the named metric, or {@code null} if it is not a known metric
+     */
+    public static MetricRule metric(String name) {
+        return BY_NAME.get(name);
+    }
+
+    /**
+     * @return the position of the named metric in {@link #metrics()}, or -1 if it is not a known metric
+     */
+    public static int index(String name) {
+        return INDEX.getOrDefault(name, -1);
+    }
+
+    /**
+     * @return the violation message, or {@code null} if the sensor id is acceptable
+     */
+    public static String checkSensorId(String sensorId) {
+        if (sensorId == null || sensorId.isBlank()) {
+            return SENSOR_ID_BLANK_MESSAGE;
+        }
+        if (sensorId.length() < SENSOR_ID_MIN || sensorId.length() > SENSOR_ID_MAX) {
+            return SENSOR_ID_SIZE_MESSAGE;
+        }
+        if (!SENSOR_ID_PATTERN.matcher(sensorId).matches()) {
+            return SENSOR_ID_PATTERN_MESSAGE;
+        }
+        return null;
+    }
+
+    /**
+     * @return the message for an update without a {@code metrics} object
+     */
+    public static String metricsRequiredMessage() {
+        return METRICS_REQUIRED_MESSAGE;
+    }
+
+    /**
+     * Builds {@link Metrics} from values indexed like {@link #metrics()}.
+     */
+    public static Metrics toMetrics(Double[] values) {
+        return new Metrics(values[0], values[1], values[2], values[3],
+                values[4], values[5], values[6], values[7]);
+    }
+
+    /**
+     * The inverse of {@link #toMetrics}: values indexed like {@link #metrics()}, {@code null}
+     * where a metric was not sent.
+     */
+    public static Double[] values(Metrics m) {
+        return new Double[]{m.temperature(), m.humidity(), m.pressure(), m.windSpeed(),
+                m.windDirection(), m.rainfall(), m.uvIndex(), m.aqi()};
+    }
+
+    private static Field field(Class<?> type, String name) {
+        try {
+            return type.getDeclaredField(name);
+        } catch (NoSuchFieldException e) {
+            throw new IllegalStateException("Missing field " + type.getSimpleName() + "." + name, e);
+        }
+    }
+}
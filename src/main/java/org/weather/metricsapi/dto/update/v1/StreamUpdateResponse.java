@@ -0,0 +1,20 @@
+package org.weather.metricsapi.dto.update.v1;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import java.util.List;
+
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record StreamUpdateResponse(
+        long linesRead,
+        long accepted,
+        long rejected,
+        long savedCount,
+        int batches,
+        long elapsedMillis,
+        List<LineError> errors
+) {
+    public record LineError(
+            long line,
+            String message
+    ) {}
+}
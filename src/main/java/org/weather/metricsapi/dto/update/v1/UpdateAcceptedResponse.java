@@ -0,0 +1,9 @@
+package org.weather.metricsapi.dto.update.v1;
+
+import java.time.Instant;
+
+public record UpdateAcceptedResponse(
+        String sensorId,
+        Instant timestamp,
+        int queuedCount
+) {}
@@ -8,5 +8,6 @@ public enum ErrorCodes {
     UNSUPPORTED_MEDIA_TYPE,
     CONFLICT,
     DATA_UNAVAILABLE,
+    SERVICE_UNAVAILABLE,
     INTERNAL_ERROR
 }
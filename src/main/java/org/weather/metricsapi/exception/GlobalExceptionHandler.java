@@ -3,6 +3,7 @@ package org.weather.metricsapi.exception;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.slf4j.MDC;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.http.converter.HttpMessageNotReadableException;
@@ -118,7 +119,7 @@ public class GlobalExceptionHandler {
 
         ApiError apiError = ApiError.of(
                 ErrorCodes.UNSUPPORTED_MEDIA_TYPE.name(),
-                "Content-Type not supported. Please use application/json",
+                "Content-Type not supported. Please use application/json or application/cbor",
                 traceId,
                 details
         );
@@ -145,6 +146,46 @@ public class GlobalExceptionHandler {
         return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(apiError);
     }
 
+    @ExceptionHandler(IngestUnavailableException.class)
+    public ResponseEntity<ApiError> handleIngestUnavailable(
+            IngestUnavailableException ex,
+            WebRequest request) {
+
+        String traceId = getTraceId();
+
+        log.warn("Ingest unavailable [traceId={}]: {}", traceId, ex.getMessage());
+
+        ApiError apiError = ApiError.of(
+                ErrorCodes.SERVICE_UNAVAILABLE.name(),
+                ex.getMessage(),
+                traceId,
+                null
+        );
+
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .body(apiError);
+    }
+
+    @ExceptionHandler(QueryUnavailableException.class)
+    public ResponseEntity<ApiError> handleQueryUnavailable(
+            QueryUnavailableException ex,
+            WebRequest request) {
+
+        String traceId = getTraceId();
+
+        log.warn("Query unavailable [traceId={}]: {}", traceId, ex.getMessage());
+
+        ApiError apiError = ApiError.of(
+                ErrorCodes.SERVICE_UNAVAILABLE.name(),
+                ex.getMessage(),
+                traceId,
+                null
+        );
+
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(apiError);
+    }
+
     @ExceptionHandler(Exception.class)
     public ResponseEntity<ApiError> handleGenericException(
             Exception ex,
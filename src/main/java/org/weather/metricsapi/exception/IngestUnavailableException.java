@@ -0,0 +1,13 @@
+package org.weather.metricsapi.exception;
+
+/**
+ * Thrown when a reading cannot be taken in right now: the write-behind buffer is full,
+ * a background writer is shutting down, or a group commit did not pick the reading up
+ * in time. Mapped to 503 so clients back off and retry.
+ */
+public class IngestUnavailableException extends RuntimeException {
+
+    public IngestUnavailableException(String message) {
+        super(message);
+    }
+}
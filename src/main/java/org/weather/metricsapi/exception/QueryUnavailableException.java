@@ -0,0 +1,12 @@
+package org.weather.metricsapi.exception;
+
+/**
+ * Thrown when a query cannot be answered right now: it did not finish within the fetch
+ * timeout, or too many chunks of other queries are already waiting. Mapped to 503.
+ */
+public class QueryUnavailableException extends RuntimeException {
+
+    public QueryUnavailableException(String message) {
+        super(message);
+    }
+}
@@ -7,13 +7,12 @@ import java.util.UUID;
 @Entity
 @Table(name = "reading_values",
         indexes = {
-                @Index(name = "idx_values_sensor_ts", columnList = "sensor_id,ts"),
-                @Index(name = "idx_values_metric_ts", columnList = "metric,ts"),
-                @Index(name = "idx_values_sensor_metric_ts", columnList = "sensor_id,metric,ts")
+                // also includes value, and ts has a BRIN index: see V7__covering_indexes.sql
+                @Index(name = "idx_values_sensor_metric_ts", columnList = "sensor_key,metric_key,ts")
         },
         uniqueConstraints = {
-                @UniqueConstraint(name = "uk_snapshot_metric", columnNames = {"snapshot_id", "metric"}),
-                @UniqueConstraint(name = "uk_sensor_ts_metric", columnNames = {"sensor_id", "ts", "metric"})
+                @UniqueConstraint(name = "uk_snapshot_metric", columnNames = {"snapshot_id", "metric_key"}),
+                @UniqueConstraint(name = "uk_sensor_ts_metric", columnNames = {"sensor_key", "ts", "metric_key"})
         })
 public class ReadingValue {
 
@@ -23,14 +22,16 @@ public class ReadingValue {
     @Column(name = "snapshot_id", nullable = false)
     private UUID snapshotId;
 
-    @Column(name = "sensor_id", nullable = false)
-    private String sensorId;
+    // key into sensors, see DictionaryRepo
+    @Column(name = "sensor_key", nullable = false)
+    private Integer sensorKey;
 
     @Column(name = "ts", nullable = false)
     private Instant ts;
 
-    @Column(name = "metric", nullable = false)
-    private String metric;
+    // key into metrics, see DictionaryRepo
+    @Column(name = "metric_key", nullable = false)
+    private Short metricKey;
 
     @Column(name = "value", nullable = false)
     private Double value;
@@ -39,12 +40,12 @@ public class ReadingValue {
     public void setId(UUID id) { this.id = id; }
     public UUID getSnapshotId() { return snapshotId; }
     public void setSnapshotId(UUID snapshotId) { this.snapshotId = snapshotId; }
-    public String getSensorId() { return sensorId; }
-    public void setSensorId(String sensorId) { this.sensorId = sensorId; }
+    public Integer getSensorKey() { return sensorKey; }
+    public void setSensorKey(Integer sensorKey) { this.sensorKey = sensorKey; }
     public Instant getTs() { return ts; }
     public void setTs(Instant ts) { this.ts = ts; }
-    public String getMetric() { return metric; }
-    public void setMetric(String metric) { this.metric = metric; }
+    public Short getMetricKey() { return metricKey; }
+    public void setMetricKey(Short metricKey) { this.metricKey = metricKey; }
     public Double getValue() { return value; }
     public void setValue(Double value) { this.value = value; }
 }
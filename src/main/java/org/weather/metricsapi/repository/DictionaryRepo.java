@@ -0,0 +1,160 @@
+package org.weather.metricsapi.repository;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Integer keys for sensor ids ({@code sensors}) and metric names ({@code metrics}), which
+ * {@code reading_values} stores instead of the text.
+ * <p>
+ * Both directions are cached in concurrent maps, so once a name has been seen lookups are
+ * lock-free and never touch the database. Entries never change once created, so the cache
+ * needs no invalidation. New names are inserted in their own transaction and cached only
+ * after it commits: a key handed out here always exists, even if the caller's transaction
+ * later rolls back.
+ */
+@Repository
+public class DictionaryRepo {
+
+    private final Dictionary sensors;
+    private final Dictionary metrics;
+
+    public DictionaryRepo(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager) {
+        TransactionTemplate requiresNew = new TransactionTemplate(transactionManager);
+        requiresNew.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.sensors = new Dictionary("sensors", jdbcTemplate, requiresNew);
+        this.metrics = new Dictionary("metrics", jdbcTemplate, requiresNew);
+    }
+
+    /**
+     * @return the key for the sensor, registering it if it is new
+     */
+    public int sensorKey(String sensorId) {
+        return sensors.resolve(List.of(sensorId)).get(sensorId);
+    }
+
+    /**
+     * @return keys for all the sensors, registering new ones with a single round trip
+     */
+    public Map<String, Integer> sensorKeys(Collection<String> sensorIds) {
+        return sensors.resolve(sensorIds);
+    }
+
+    /**
+     * @return keys for the sensors that exist; unknown sensors are left out
+     */
+    public Map<String, Integer> findSensorKeys(Collection<String> sensorIds) {
+        return sensors.find(sensorIds);
+    }
+
+    public String sensorName(int key) {
+        return sensors.name(key);
+    }
+
+    /**
+     * @return the key for the metric, registering it if it is new
+     */
+    public short metricKey(String metric) {
+        return metrics.resolve(List.of(metric)).get(metric).shortValue();
+    }
+
+    /**
+     * @return keys for the metrics that exist; unknown metrics are left out
+     */
+    public Map<String, Short> findMetricKeys(Collection<String> metricNames) {
+        Map<String, Short> keys = new HashMap<>();
+        metrics.find(metricNames).forEach((name, key) -> keys.put(name, key.shortValue()));
+        return keys;
+    }
+
+    public String metricName(short key) {
+        return metrics.name(key);
+    }
+
+    private static final class Dictionary {
+
+        private final JdbcTemplate jdbcTemplate;
+        private final TransactionTemplate requiresNew;
+        private final String insertSql;
+        private final String selectByNameSql;
+        private final String selectByIdSql;
+        private final Map<String, Integer> keys = new ConcurrentHashMap<>();
+        private final Map<Integer, String> names = new ConcurrentHashMap<>();
+
+        Dictionary(String table, JdbcTemplate jdbcTemplate, TransactionTemplate requiresNew) {
+            this.jdbcTemplate = jdbcTemplate;
+            this.requiresNew = requiresNew;
+            // sorted so concurrent inserts of overlapping names take row locks in the same order
+            this.insertSql = "insert into " + table + " (name) select n from unnest(?::text[]) n order by n "
+                    + "on conflict (name) do nothing";
+            this.selectByNameSql = "select id, name from " + table + " where name = any(?::text[])";
+            this.selectByIdSql = "select name from " + table + " where id = ?";
+        }
+
+        Map<String, Integer> resolve(Collection<String> requested) {
+            Map<String, Integer> found = new HashMap<>();
+            Set<String> missing = cached(requested, found);
+            if (!missing.isEmpty()) {
+                String[] array = missing.toArray(String[]::new);
+                // the select is a separate statement so it sees rows committed by a concurrent insert
+                requiresNew.executeWithoutResult(status -> jdbcTemplate.update(insertSql, (Object) array));
+                found.putAll(load(array));
+            }
+            return found;
+        }
+
+        Map<String, Integer> find(Collection<String> requested) {
+            Map<String, Integer> found = new HashMap<>();
+            Set<String> missing = cached(requested, found);
+            if (!missing.isEmpty()) {
+                found.putAll(load(missing.toArray(String[]::new)));
+            }
+            return found;
+        }
+
+        String name(int key) {
+            String name = names.get(key);
+            if (name == null) {
+                name = jdbcTemplate.queryForObject(selectByIdSql, String.class, key);
+                keys.put(name, key);
+                names.put(key, name);
+            }
+            return name;
+        }
+
+        private Set<String> cached(Collection<String> requested, Map<String, Integer> found) {
+            Set<String> missing = new HashSet<>();
+            for (String name : requested) {
+                Integer key = keys.get(name);
+                if (key != null) {
+                    found.put(name, key);
+                } else {
+                    missing.add(name);
+                }
+            }
+            return missing;
+        }
+
+        private Map<String, Integer> load(String[] requested) {
+            Map<String, Integer> loaded = new HashMap<>();
+            jdbcTemplate.query(selectByNameSql, rs -> {
+                int key = rs.getInt(1);
+                String name = rs.getString(2);
+                keys.put(name, key);
+                names.put(key, name);
+                loaded.put(name, key);
+            }, (Object) requested);
+            return loaded;
+        }
+    }
+}
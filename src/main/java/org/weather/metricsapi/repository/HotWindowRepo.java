@@ -0,0 +1,79 @@
+package org.weather.metricsapi.repository;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Repository;
+import org.weather.metricsapi.dto.update.v1.ReadingRules;
+import java.sql.PreparedStatement;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.stream.Collectors;
+
+/**
+ * Reads every raw reading of a time range, to fill the in-memory hot window of recent days.
+ */
+@Repository
+public class HotWindowRepo {
+
+    /** Receives one metric value of a reading. */
+    @FunctionalInterface
+    public interface ReadingHandler {
+        /**
+         * @param metric the metric's position in {@link ReadingRules#metrics()}
+         */
+        void reading(int sensorKey, Instant ts, int metric, double value);
+    }
+
+    private static final int FETCH_SIZE = 10_000;
+
+    private static final String NARROW = "select v.sensor_key, v.ts, m.name, v.value "
+            + "from reading_values v join metrics m on m.id = v.metric_key where v.ts >= ? and v.ts < ?";
+
+    private static final String WIDE = "select sensor_key, ts, "
+            + ReadingRules.metrics().stream()
+                    .map(rule -> WideReadingRepo.column(rule.metric()))
+                    .collect(Collectors.joining(", "))
+            + " from readings where ts >= ? and ts < ?";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public HotWindowRepo(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Passes every metric value with {@code ts} in {@code [from, to)} to {@code handler}, in
+     * no particular order. Values of metrics outside {@link ReadingRules#metrics()} are
+     * skipped. Must run in a transaction: the driver only fetches a result in pieces when
+     * autocommit is off.
+     *
+     * @param wide read the wide layout instead of the narrow one
+     */
+    public void forEachReading(Instant from, Instant to, boolean wide, ReadingHandler handler) {
+        int metrics = ReadingRules.metrics().size();
+        jdbcTemplate.query(connection -> {
+            PreparedStatement ps = connection.prepareStatement(wide ? WIDE : NARROW);
+            ps.setFetchSize(FETCH_SIZE);
+            ps.setObject(1, from.atOffset(ZoneOffset.UTC));
+            ps.setObject(2, to.atOffset(ZoneOffset.UTC));
+            return ps;
+        }, (RowCallbackHandler) rs -> {
+            int sensorKey = rs.getInt(1);
+            Instant ts = rs.getObject(2, OffsetDateTime.class).toInstant();
+            if (!wide) {
+                int metric = ReadingRules.index(rs.getString(3));
+                if (metric >= 0) {
+                    handler.reading(sensorKey, ts, metric, rs.getDouble(4));
+                }
+                return;
+            }
+            for (int i = 0; i < metrics; i++) {
+                double value = rs.getDouble(3 + i);
+                if (!rs.wasNull()) {
+                    handler.reading(sensorKey, ts, i, value);
+                }
+            }
+        });
+    }
+}
@@ -0,0 +1,57 @@
+package org.weather.metricsapi.repository;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Repository;
+import org.weather.metricsapi.dto.update.v1.ReadingRules;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Reads the latest reading of each (sensor, metric), to fill the in-memory latest index.
+ */
+@Repository
+public class LatestRepo {
+
+    public record Latest(String sensorId, String metric, Instant ts, double value) {}
+
+    private static final String NARROW =
+            "select s.name, m.name, l.ts, l.value from ("
+                    + "select distinct on (sensor_key, metric_key) sensor_key, metric_key, ts, value "
+                    + "from reading_values where ts >= ? order by sensor_key, metric_key, ts desc) l "
+                    + "join sensors s on s.id = l.sensor_key join metrics m on m.id = l.metric_key";
+
+    private static final String WIDE;
+
+    static {
+        List<String> metrics = ReadingRules.metrics().stream().map(ReadingRules.MetricRule::metric).toList();
+        List<String> labels = metrics.stream().map(metric -> "'" + metric + "'").toList();
+        WIDE = "select s.name, l.metric, l.ts, l.value from ("
+                + "select distinct on (sensor_key, u.metric) sensor_key, u.metric, ts, u.value from readings "
+                + WideReadingRepo.unpivot(metrics, labels)
+                + " where ts >= ? and u.value is not null order by sensor_key, u.metric, ts desc) l "
+                + "join sensors s on s.id = l.sensor_key";
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public LatestRepo(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Passes the latest reading of every (sensor, metric) with one at or after
+     * {@code since} to {@code action}, streaming rather than collecting them.
+     *
+     * @param wide read the wide layout instead of the narrow one
+     */
+    public void forEachLatest(Instant since, boolean wide, Consumer<Latest> action) {
+        jdbcTemplate.query(wide ? WIDE : NARROW,
+                (RowCallbackHandler) rs -> action.accept(new Latest(rs.getString(1), rs.getString(2),
+                        rs.getObject(3, OffsetDateTime.class).toInstant(), rs.getDouble(4))),
+                since.atOffset(ZoneOffset.UTC));
+    }
+}
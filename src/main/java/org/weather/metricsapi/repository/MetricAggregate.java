@@ -0,0 +1,48 @@
+package org.weather.metricsapi.repository;
+
+import org.weather.metricsapi.dto.fetch.v1.Statistic;
+import org.weather.metricsapi.util.QuantileSketch;
+import java.math.BigDecimal;
+import java.math.MathContext;
+
+/**
+ * One aggregated (sensor, metric) cell of a fetch, whichever layout or rollup it was read
+ * from. It holds partials rather than final statistics: the minimum, maximum, exact sum and
+ * quantile sketch over the cell's data points, each {@code null} if it was not asked for.
+ * Cells covering different days are {@link #combine combined} before a statistic is
+ * {@link #value taken}.
+ */
+public record MetricAggregate(int sensorKey, String metric, BigDecimal min, BigDecimal max, BigDecimal sum,
+                              QuantileSketch sketch, long dataPoints) {
+
+    public MetricAggregate(int sensorKey, String metric, BigDecimal min, BigDecimal max, BigDecimal sum,
+                           long dataPoints) {
+        this(sensorKey, metric, min, max, sum, null, dataPoints);
+    }
+
+    public MetricAggregate combine(MetricAggregate other) {
+        return new MetricAggregate(sensorKey, metric,
+                min == null ? other.min : other.min == null ? min : min.min(other.min),
+                max == null ? other.max : other.max == null ? max : max.max(other.max),
+                sum == null ? other.sum : other.sum == null ? sum : sum.add(other.sum),
+                sketch == null ? other.sketch : other.sketch == null ? sketch : sketch.merge(other.sketch),
+                dataPoints + other.dataPoints);
+    }
+
+    /**
+     * @return the statistic over all data points of the cell
+     */
+    public Number value(Statistic statistic) {
+        if (statistic.needsSketch()) {
+            return sketch.quantile(statistic.quantile());
+        }
+        return switch (statistic) {
+            case MIN -> min.doubleValue();
+            case MAX -> max.doubleValue();
+            case SUM -> sum.doubleValue();
+            case AVERAGE -> sum.divide(BigDecimal.valueOf(dataPoints), MathContext.DECIMAL128).doubleValue();
+            case COUNT -> dataPoints;
+            default -> throw new IllegalArgumentException("Unsupported statistic: " + statistic);
+        };
+    }
+}
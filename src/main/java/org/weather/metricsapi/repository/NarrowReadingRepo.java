@@ -0,0 +1,97 @@
+package org.weather.metricsapi.repository;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Repository;
+import org.weather.metricsapi.dto.fetch.v1.Statistic;
+import org.weather.metricsapi.util.QuantileSketch;
+import java.math.BigDecimal;
+import java.sql.PreparedStatement;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Aggregates of the narrow layout ({@code reading_values}): one row per (sensor, ts, metric).
+ * <p>
+ * Every query is one of eight fixed texts, chosen by whether a sum is needed, whether
+ * percentiles are, and whether sensors are filtered. Sensor and metric keys are bound as one
+ * array each, so lists of any length share a text, and with it the driver's server-side
+ * prepared statement and the plan PostgreSQL caches for it.
+ */
+@Repository
+public class NarrowReadingRepo {
+
+    private static final String[] STATEMENTS = new String[8];
+
+    static {
+        for (int shape = 0; shape < STATEMENTS.length; shape++) {
+            boolean sum = (shape & 1) != 0;
+            boolean sketch = (shape & 2) != 0;
+            boolean sensors = (shape & 4) != 0;
+            // min and max cost next to nothing, so they are always computed
+            STATEMENTS[shape] = "select sensor_key, metric_key, min(value), max(value), "
+                    // numeric(value): a sum of doubles would depend on the order rows are added in
+                    + (sum ? "sum(value::numeric)" : "null::numeric")
+                    + (sketch ? ", sketch_key(value)" : ", 0")
+                    + ", count(*) from reading_values where ts >= ? and ts < ? and metric_key = any(?)"
+                    + (sensors ? " and sensor_key = any(?)" : "")
+                    + " group by sensor_key, metric_key" + (sketch ? ", sketch_key(value)" : "");
+        }
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final DictionaryRepo dictionary;
+
+    public NarrowReadingRepo(JdbcTemplate jdbcTemplate, DictionaryRepo dictionary) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.dictionary = dictionary;
+    }
+
+    /**
+     * @return the text {@link #aggregate} runs for the given shape
+     */
+    static String statement(boolean sum, boolean sketch, boolean sensors) {
+        return STATEMENTS[(sum ? 1 : 0) | (sketch ? 2 : 0) | (sensors ? 4 : 0)];
+    }
+
+    /**
+     * Aggregates readings with {@code ts} in {@code [start, end)} in one grouped scan,
+     * computing only the partials the statistics need. For percentiles the scan also groups by
+     * sketch key, returning one partial per bucket for {@link MetricAggregate#combine} to merge.
+     *
+     * @param sensorKeys sensors to include, or {@code null} for all
+     */
+    public List<MetricAggregate> aggregate(Set<Statistic> statistics, Collection<Integer> sensorKeys,
+                                           Collection<Short> metricKeys, Instant start, Instant end) {
+        boolean min = statistics.contains(Statistic.MIN);
+        boolean max = statistics.contains(Statistic.MAX);
+        boolean sum = statistics.stream().anyMatch(Statistic::needsSum);
+        boolean sketch = statistics.stream().anyMatch(Statistic::needsSketch);
+        String sql = statement(sum, sketch, sensorKeys != null);
+
+        List<MetricAggregate> results = new ArrayList<>();
+        jdbcTemplate.query(connection -> {
+            PreparedStatement ps = connection.prepareStatement(sql);
+            ps.setObject(1, start.atOffset(ZoneOffset.UTC));
+            ps.setObject(2, end.atOffset(ZoneOffset.UTC));
+            ps.setArray(3, connection.createArrayOf("smallint", metricKeys.toArray()));
+            if (sensorKeys != null) {
+                ps.setArray(4, connection.createArrayOf("integer", sensorKeys.toArray()));
+            }
+            return ps;
+        }, (RowCallbackHandler) rs -> {
+            long dataPoints = rs.getLong(7);
+            results.add(new MetricAggregate(rs.getInt(1), dictionary.metricName(rs.getShort(2)),
+                    min ? BigDecimal.valueOf(rs.getDouble(3)) : null,
+                    max ? BigDecimal.valueOf(rs.getDouble(4)) : null,
+                    sum ? rs.getBigDecimal(5) : null,
+                    sketch ? QuantileSketch.of(rs.getInt(6), dataPoints) : null,
+                    dataPoints));
+        });
+        return results;
+    }
+}
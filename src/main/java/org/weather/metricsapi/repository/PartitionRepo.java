@@ -0,0 +1,123 @@
+package org.weather.metricsapi.repository;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+
+/**
+ * Catalog queries and DDL for the range-partitioned tables. Table names are built by
+ * {@code PartitionManager} and always quoted here, never taken from input.
+ */
+@Repository
+public class PartitionRepo {
+
+    public record Partition(String name, Instant from, Instant to) {
+
+        public boolean overlaps(Instant start, Instant end) {
+            return from.isBefore(end) && to.isAfter(start);
+        }
+    }
+
+    // the bound expression reads "FOR VALUES FROM ('...') TO ('...')"; casting in SQL keeps
+    // the parsing in the session time zone the text was rendered in
+    private static final String PARTITIONS =
+            "select c.relname, b[1]::timestamptz, b[2]::timestamptz "
+                    + "from pg_inherits i "
+                    + "join pg_class c on c.oid = i.inhrelid "
+                    + "cross join lateral regexp_match(pg_get_expr(c.relpartbound, c.oid), "
+                    + "'FROM \\(''([^'']+)''\\) TO \\(''([^'']+)''\\)') b "
+                    + "where i.inhparent = ?::regclass and b is not null "
+                    + "order by 2";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public PartitionRepo(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * @return the range partitions of the table, by start; the default partition is left out
+     */
+    public List<Partition> partitions(String parent) {
+        return jdbcTemplate.query(PARTITIONS, (rs, i) -> new Partition(
+                rs.getString(1),
+                rs.getObject(2, OffsetDateTime.class).toInstant(),
+                rs.getObject(3, OffsetDateTime.class).toInstant()), parent);
+    }
+
+    /**
+     * @return the start of every {@code unit} ({@code day} or {@code week}, UTC) that has rows
+     * in the table's default partition
+     */
+    public List<Instant> unitsInDefault(String parent, String unit) {
+        return jdbcTemplate.queryForList(
+                "select distinct date_trunc(?, ts, 'UTC') from " + quote(parent + "_default") + " order by 1",
+                OffsetDateTime.class, unit).stream()
+                .map(OffsetDateTime::toInstant)
+                .toList();
+    }
+
+    public boolean exists(String table) {
+        return Boolean.TRUE.equals(jdbcTemplate.queryForObject(
+                "select to_regclass(?) is not null", Boolean.class, quote(table)));
+    }
+
+    /**
+     * Creates a standalone table shaped like the parent and moves into it any rows of the
+     * default partition that fall in {@code [from, to)}, ready for {@link #attach}. Indexes
+     * and constraints are added by the attach.
+     */
+    public int prepare(String parent, String table, Instant from, Instant to) {
+        jdbcTemplate.execute("create table " + quote(table) + " (like " + quote(parent) + " including defaults)");
+        String inRange = " where ts >= ? and ts < ?";
+        String defaultPartition = quote(parent + "_default");
+        int moved = jdbcTemplate.update("insert into " + quote(table) + " select * from " + defaultPartition + inRange,
+                from.atOffset(ZoneOffset.UTC), to.atOffset(ZoneOffset.UTC));
+        if (moved > 0) {
+            jdbcTemplate.update("delete from " + defaultPartition + inRange,
+                    from.atOffset(ZoneOffset.UTC), to.atOffset(ZoneOffset.UTC));
+        }
+        return moved;
+    }
+
+    public void attach(String parent, String table, Instant from, Instant to) {
+        jdbcTemplate.execute("alter table " + quote(parent) + " attach partition " + quote(table)
+                + " for values from ('" + from + "') to ('" + to + "')");
+    }
+
+    public void detach(String parent, String table) {
+        jdbcTemplate.execute("alter table " + quote(parent) + " detach partition " + quote(table));
+    }
+
+    /**
+     * Drops the foreign keys a detached partition kept, so it no longer pins rows of the
+     * tables it referenced.
+     */
+    public void dropForeignKeys(String table) {
+        List<String> constraints = jdbcTemplate.queryForList(
+                "select conname from pg_constraint where conrelid = ?::regclass and contype = 'f'",
+                String.class, quote(table));
+        for (String constraint : constraints) {
+            jdbcTemplate.execute("alter table " + quote(table) + " drop constraint " + quote(constraint));
+        }
+    }
+
+    public void drop(String table) {
+        jdbcTemplate.execute("drop table " + quote(table));
+    }
+
+    /**
+     * Serialises partition maintenance across application instances until the surrounding
+     * transaction ends.
+     */
+    public void lock() {
+        jdbcTemplate.query("select pg_advisory_xact_lock(hashtext('weather.partitions'))", rs -> {});
+    }
+
+    private static String quote(String identifier) {
+        return '"' + identifier.replace("\"", "\"\"") + '"';
+    }
+}
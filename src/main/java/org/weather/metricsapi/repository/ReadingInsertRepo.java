@@ -0,0 +1,55 @@
+package org.weather.metricsapi.repository;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.weather.metricsapi.model.ReadingValue;
+import org.weather.metricsapi.model.Snapshot;
+import java.time.ZoneOffset;
+import java.util.List;
+
+/**
+ * Insert-only write path for snapshots and reading values.
+ * <p>
+ * Rows are always new, so this bypasses {@code save()}/{@code em.merge} (which issues a
+ * SELECT per entity) and sends each table's rows as a single JDBC batch.
+ */
+@Repository
+public class ReadingInsertRepo {
+
+    private static final String INSERT_SNAPSHOT =
+            "insert into snapshots (id, sensor_id, ts) values (?, ?, ?)";
+
+    private static final String INSERT_VALUE =
+            "insert into reading_values (id, snapshot_id, sensor_key, ts, metric_key, value) values (?, ?, ?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public ReadingInsertRepo(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    public void insertSnapshots(List<Snapshot> snapshots) {
+        if (snapshots.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate(INSERT_SNAPSHOT, snapshots, snapshots.size(), (ps, s) -> {
+            ps.setObject(1, s.getId());
+            ps.setString(2, s.getSensorId());
+            ps.setObject(3, s.getTs().atOffset(ZoneOffset.UTC));
+        });
+    }
+
+    public void insertValues(List<ReadingValue> values) {
+        if (values.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate(INSERT_VALUE, values, values.size(), (ps, rv) -> {
+            ps.setObject(1, rv.getId());
+            ps.setObject(2, rv.getSnapshotId());
+            ps.setInt(3, rv.getSensorKey());
+            ps.setObject(4, rv.getTs().atOffset(ZoneOffset.UTC));
+            ps.setShort(5, rv.getMetricKey());
+            ps.setDouble(6, rv.getValue());
+        });
+    }
+}
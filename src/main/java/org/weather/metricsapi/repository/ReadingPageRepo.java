@@ -0,0 +1,105 @@
+package org.weather.metricsapi.repository;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Repository;
+import java.sql.PreparedStatement;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.Collection;
+
+/**
+ * Pages of raw narrow readings ({@code reading_values}) in the order of the covering index
+ * {@code idx_values_sensor_metric_ts}: by sensor key, then metric key, then {@code ts}.
+ * <p>
+ * A page starts after the {@link Position} the previous one ended on, with a row comparison
+ * the index can seek to, so a page costs the same however far into the readings it is.
+ * Every query is one of four fixed texts, chosen by whether it reads one sensor or all of
+ * them and whether metrics are filtered. There is no text for a list of sensors, which is
+ * read one sensor at a time: with {@code sensor_key = any(?)} PostgreSQL 16 may read the
+ * matches out of order and sort them all, whatever the limit. A metric filter is applied to the rows the scan passes
+ * rather than used to seek, for the same reason, so a page may also pass over readings of
+ * the sensor's other metrics. Only partitions overlapping the time range are read.
+ */
+@Repository
+public class ReadingPageRepo {
+
+    /** Where a page ended: the index key of its last reading. */
+    public record Position(int sensorKey, short metricKey, Instant ts) {
+
+        /** Before every reading. */
+        public static final Position START = new Position(0, (short) 0, Instant.EPOCH);
+    }
+
+    /** Receives one reading of a page. */
+    @FunctionalInterface
+    public interface ReadingHandler {
+        void reading(int sensorKey, short metricKey, Instant ts, double value);
+    }
+
+    // rows are buffered this many at a time instead of the whole page
+    private static final int FETCH_SIZE = 1000;
+
+    private static final String[] STATEMENTS = new String[4];
+
+    static {
+        for (int shape = 0; shape < STATEMENTS.length; shape++) {
+            boolean sensor = (shape & 1) != 0;
+            boolean metrics = (shape & 2) != 0;
+            STATEMENTS[shape] = "select sensor_key, metric_key, ts, value from reading_values "
+                    + "where (sensor_key, metric_key, ts) > (?, ?, ?) and ts >= ? and ts < ?"
+                    + (sensor ? " and sensor_key = ?" : "")
+                    // compared as integer to keep it a filter rather than an index condition
+                    + (metrics ? " and metric_key::integer = any(?)" : "")
+                    + " order by sensor_key, metric_key, ts limit ?";
+        }
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public ReadingPageRepo(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * @return the text {@link #page} runs for the given shape
+     */
+    static String statement(boolean sensor, boolean metrics) {
+        return STATEMENTS[(sensor ? 1 : 0) | (metrics ? 2 : 0)];
+    }
+
+    /**
+     * Passes up to {@code limit} readings after {@code after} with {@code ts} in
+     * {@code [start, end)} to {@code handler}, in index order, as they are read. Must run in
+     * a transaction: the driver only fetches a result in pieces when autocommit is off. An
+     * exception thrown by {@code handler} ends the query.
+     *
+     * @param sensorKey  the sensor to read, or {@code null} for all
+     * @param metricKeys metrics to include, or {@code null} for all
+     */
+    public void page(Integer sensorKey, Collection<Short> metricKeys, Instant start, Instant end,
+                     Position after, int limit, ReadingHandler handler) {
+        String sql = statement(sensorKey != null, metricKeys != null);
+        jdbcTemplate.query(connection -> {
+            PreparedStatement ps = connection.prepareStatement(sql);
+            ps.setFetchSize(FETCH_SIZE);
+            int i = 1;
+            ps.setInt(i++, after.sensorKey());
+            ps.setShort(i++, after.metricKey());
+            ps.setObject(i++, after.ts().atOffset(ZoneOffset.UTC));
+            ps.setObject(i++, start.atOffset(ZoneOffset.UTC));
+            ps.setObject(i++, end.atOffset(ZoneOffset.UTC));
+            if (sensorKey != null) {
+                ps.setInt(i++, sensorKey);
+            }
+            if (metricKeys != null) {
+                ps.setArray(i++, connection.createArrayOf("integer",
+                        metricKeys.stream().map(Short::intValue).toArray()));
+            }
+            ps.setInt(i, limit);
+            return ps;
+        }, (RowCallbackHandler) rs -> handler.reading(rs.getInt(1), rs.getShort(2),
+                rs.getObject(3, OffsetDateTime.class).toInstant(), rs.getDouble(4)));
+    }
+}
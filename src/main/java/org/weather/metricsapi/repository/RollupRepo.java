@@ -0,0 +1,221 @@
+package org.weather.metricsapi.repository;
+
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementSetter;
+import org.springframework.stereotype.Repository;
+import org.weather.metricsapi.dto.update.v1.ReadingRules;
+import org.weather.metricsapi.util.QuantileSketch;
+import java.sql.Array;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Hourly ({@code rollup_hourly}) and daily ({@code rollup_daily}) min/max/sum/count and
+ * quantile sketch per sensor and metric, and the bookkeeping of which days they are complete for
+ * ({@code rollup_days}).
+ */
+@Repository
+public class RollupRepo {
+
+    // groups by sketch key first, then folds each hour's buckets into its sketch arrays
+    private static final String HOURLY =
+            "insert into rollup_hourly (bucket, sensor_key, metric_key, min, max, sum, count, sketch_keys, sketch_counts) "
+                    + "select bucket, sensor_key, metric_key, min(min), max(max), sum(sum), sum(count), "
+                    + "array_agg(key order by key), array_agg(count::integer order by key) "
+                    + "from (select date_trunc('hour', ts, 'UTC') as bucket, sensor_key, metric_key, "
+                    + "sketch_key(value) as key, min(value) as min, max(value) as max, "
+                    + "sum(value::numeric) as sum, count(*) as count "
+                    + "from (%s) as r group by 1, 2, 3, 4) as k "
+                    + "group by bucket, sensor_key, metric_key";
+
+    private static final String NARROW_SOURCE =
+            "select ts, sensor_key, metric_key, value from reading_values where ts >= ? and ts < ?";
+
+    static final String DAILY_FROM_HOURLY =
+            "with h as (select * from rollup_hourly where bucket >= ? and bucket < ?), "
+                    + "b as (select sensor_key, metric_key, u.key, sum(u.count) as count "
+                    + "from h cross join lateral unnest(h.sketch_keys, h.sketch_counts) as u(key, count) "
+                    + "group by 1, 2, 3), "
+                    + "s as (select sensor_key, metric_key, array_agg(key order by key) as keys, "
+                    + "array_agg(count::integer order by key) as counts from b group by 1, 2) "
+                    + "insert into rollup_daily (day, sensor_key, metric_key, min, max, sum, count, sketch_keys, sketch_counts) "
+                    + "select ?, h.sensor_key, h.metric_key, min(h.min), max(h.max), sum(h.sum), sum(h.count), "
+                    + "s.keys, s.counts "
+                    + "from h join s on s.sensor_key = h.sensor_key and s.metric_key = h.metric_key "
+                    + "group by h.sensor_key, h.metric_key, s.keys, s.counts";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final DictionaryRepo dictionary;
+
+    public RollupRepo(JdbcTemplate jdbcTemplate, DictionaryRepo dictionary) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.dictionary = dictionary;
+    }
+
+    /**
+     * @return the days in {@code [from, to]} whose rollups are complete
+     */
+    public Set<LocalDate> rolledUpDays(LocalDate from, LocalDate to) {
+        return new HashSet<>(jdbcTemplate.queryForList(
+                "select day from rollup_days where day between ? and ? and rolled_at is not null",
+                LocalDate.class, from, to));
+    }
+
+    /**
+     * @return the text {@link #aggregate} runs for the totals, or with {@code buckets} for the
+     *         merged sketch buckets
+     */
+    static String statement(boolean buckets, boolean sensors) {
+        String filter = " from rollup_daily"
+                + (buckets ? " cross join lateral unnest(sketch_keys, sketch_counts) as u(key, count)" : "")
+                + " where day = any(?) and metric_key = any(?)" + (sensors ? " and sensor_key = any(?)" : "");
+        return buckets
+                ? "select sensor_key, metric_key, u.key, sum(u.count)" + filter + " group by 1, 2, 3"
+                : "select sensor_key, metric_key, min(min), max(max), sum(sum), sum(count)" + filter
+                        + " group by sensor_key, metric_key";
+    }
+
+    /**
+     * Combines the daily rollups of the given days into one partial per sensor and metric.
+     *
+     * @param sensorKeys sensors to include, or {@code null} for all
+     * @param sketches   whether to merge the quantile sketches too
+     */
+    public List<MetricAggregate> aggregate(Collection<Integer> sensorKeys, Collection<Short> metricKeys,
+                                           Collection<LocalDate> days, boolean sketches) {
+        PreparedStatementSetter parameters = ps -> {
+            Connection connection = ps.getConnection();
+            ps.setArray(1, connection.createArrayOf("date", days.stream().map(Date::valueOf).toArray()));
+            ps.setArray(2, connection.createArrayOf("smallint", metricKeys.toArray()));
+            if (sensorKeys != null) {
+                ps.setArray(3, connection.createArrayOf("integer", sensorKeys.toArray()));
+            }
+        };
+
+        Map<List<Integer>, Map<Integer, Long>> buckets = new HashMap<>();
+        if (sketches) {
+            jdbcTemplate.query(statement(true, sensorKeys != null), parameters,
+                    rs -> {
+                        buckets.computeIfAbsent(List.of(rs.getInt(1), (int) rs.getShort(2)), k -> new HashMap<>())
+                                .put(rs.getInt(3), rs.getLong(4));
+                    });
+        }
+
+        List<MetricAggregate> results = new ArrayList<>();
+        jdbcTemplate.query(statement(false, sensorKeys != null), parameters, rs -> {
+            Map<Integer, Long> counts = buckets.get(List.of(rs.getInt(1), (int) rs.getShort(2)));
+            results.add(new MetricAggregate(rs.getInt(1), dictionary.metricName(rs.getShort(2)),
+                    rs.getBigDecimal(3), rs.getBigDecimal(4), rs.getBigDecimal(5),
+                    counts != null ? QuantileSketch.of(counts) : null, rs.getLong(6)));
+        });
+        return results;
+    }
+
+    /**
+     * Adds rows for the days in {@code [from, to]} not known yet, waiting to be rolled up.
+     */
+    public void register(LocalDate from, LocalDate to) {
+        jdbcTemplate.update("insert into rollup_days (day) "
+                + "select d::date from generate_series(?::date, ?::date, interval '1 day') d "
+                + "on conflict (day) do nothing", from, to);
+    }
+
+    /**
+     * Marks the days as waiting to be rolled up again, after readings were written into them.
+     * Runs in the writer's transaction: a roll-up of the same day in progress either sees the
+     * new readings or is followed by this mark. Rows are locked in day order so concurrent
+     * writers cannot deadlock on them.
+     */
+    public void invalidate(Connection connection, Collection<LocalDate> days) throws SQLException {
+        Array array = connection.createArrayOf("date", days.stream().sorted().map(Date::valueOf).toArray());
+        try (PreparedStatement register = connection.prepareStatement(
+                "insert into rollup_days (day) select unnest(?::date[]) order by 1 on conflict (day) do nothing");
+             PreparedStatement clear = connection.prepareStatement(
+                     "update rollup_days set rolled_at = null where day in (select day from rollup_days "
+                             + "where day = any(?) and rolled_at is not null order by day for update)")) {
+            register.setArray(1, array);
+            register.executeUpdate();
+            clear.setArray(1, array);
+            clear.executeUpdate();
+        }
+    }
+
+    /**
+     * {@link #invalidate(Connection, Collection)} on the connection of the current Spring
+     * transaction, for writers that do not manage their own connection.
+     */
+    public void invalidate(Collection<LocalDate> days) {
+        jdbcTemplate.execute((ConnectionCallback<Void>) connection -> {
+            invalidate(connection, days);
+            return null;
+        });
+    }
+
+    /**
+     * @return the day of the oldest raw reading, or {@code null} if there is none
+     */
+    public LocalDate firstReadingDay(boolean wide) {
+        return jdbcTemplate.queryForObject(
+                "select (min(ts) at time zone 'UTC')::date from " + (wide ? "readings" : "reading_values"),
+                LocalDate.class);
+    }
+
+    public LocalDate lastKnownDay() {
+        return jdbcTemplate.queryForObject("select max(day) from rollup_days", LocalDate.class);
+    }
+
+    /**
+     * @return days before {@code before} waiting to be rolled up, oldest first
+     */
+    public List<LocalDate> pendingDays(LocalDate before) {
+        return jdbcTemplate.queryForList(
+                "select day from rollup_days where rolled_at is null and day < ? order by day",
+                LocalDate.class, before);
+    }
+
+    /**
+     * Recomputes one day's hourly and daily rollups from the raw readings and marks the day
+     * complete. Must run in a transaction; the day's {@code rollup_days} row stays locked
+     * until it commits so a concurrent {@link #invalidate} is not lost.
+     */
+    public void rollUp(LocalDate day, boolean wide) {
+        jdbcTemplate.query("select day from rollup_days where day = ? for update", rs -> {}, day);
+
+        var from = day.atStartOfDay(ZoneOffset.UTC).toOffsetDateTime();
+        var to = day.plusDays(1).atStartOfDay(ZoneOffset.UTC).toOffsetDateTime();
+        jdbcTemplate.update("delete from rollup_hourly where bucket >= ? and bucket < ?", from, to);
+        jdbcTemplate.update(HOURLY.formatted(wide ? wideSource() : NARROW_SOURCE), from, to);
+        jdbcTemplate.update("delete from rollup_daily where day = ?", day);
+        jdbcTemplate.update(DAILY_FROM_HOURLY, from, to, day);
+        jdbcTemplate.update("insert into rollup_days (day, rolled_at) values (?, now()) "
+                + "on conflict (day) do update set rolled_at = excluded.rolled_at", day);
+    }
+
+    /**
+     * Removes rollups of days before {@code day}, once their raw readings have expired.
+     */
+    public void deleteBefore(LocalDate day) {
+        jdbcTemplate.update("delete from rollup_hourly where bucket < ?", day.atStartOfDay(ZoneOffset.UTC).toOffsetDateTime());
+        jdbcTemplate.update("delete from rollup_daily where day < ?", day);
+        jdbcTemplate.update("delete from rollup_days where day < ?", day);
+    }
+
+    // a metric with no value in a row gets no row, as in the narrow layout
+    private String wideSource() {
+        List<String> metrics = ReadingRules.metrics().stream().map(ReadingRules.MetricRule::metric).toList();
+        List<String> keys = metrics.stream().map(metric -> dictionary.metricKey(metric) + "::smallint").toList();
+        return WideReadingRepo.narrowSource(metrics, keys);
+    }
+}
@@ -0,0 +1,129 @@
+package org.weather.metricsapi.repository;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Repository;
+import org.weather.metricsapi.dto.fetch.v1.Statistic;
+import org.weather.metricsapi.dto.series.v1.BucketWidth;
+import java.math.BigDecimal;
+import java.sql.PreparedStatement;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Buckets readings by time in the database. With gap filling each (sensor, metric) that has a
+ * reading in the range gets one row per bucket, including buckets without readings, so callers
+ * never have to fill gaps themselves.
+ */
+@Repository
+public class SeriesRepo {
+
+    /**
+     * One bucket of one series; {@code value} is {@code null} where the bucket has no readings.
+     */
+    public record Bucket(int sensorKey, short metricKey, Instant start, Double value, long dataPoints) {}
+
+    /** Receives one bucket, in order of sensor key, metric key and bucket. */
+    @FunctionalInterface
+    public interface BucketHandler {
+        void bucket(Bucket bucket);
+    }
+
+    // rows are buffered this many at a time instead of the whole result
+    private static final int FETCH_SIZE = 1000;
+
+    // %1$s: the readings, as (ts, sensor_key, metric_key, value); %2$s: the statistic
+    private static final String AGGREGATE =
+            "with src as (%1$s), "
+                    + "agg as (select sensor_key, metric_key, date_bin(?::interval, ts, ?::timestamptz) as bucket, "
+                    + "%2$s as value, count(*) as data_points from src group by 1, 2, 3)";
+
+    private static final String BUCKETS = AGGREGATE
+            + " select sensor_key, metric_key, bucket, value, data_points from agg order by 1, 2, 3";
+
+    private static final String SERIES = AGGREGATE
+            + ", pairs as (select distinct sensor_key, metric_key from agg) "
+            + "select p.sensor_key, p.metric_key, g.bucket, a.value, coalesce(a.data_points, 0) "
+            + "from pairs p cross join generate_series(?::timestamptz, ?::timestamptz, ?::interval) as g(bucket) "
+            + "left join agg a on a.sensor_key = p.sensor_key and a.metric_key = p.metric_key "
+            + "and a.bucket = g.bucket "
+            + "order by 1, 2, 3";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public SeriesRepo(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Aggregates readings in {@code [start, end)} into buckets of {@code width} aligned to
+     * {@code start} and streams them to {@code handler} ordered by sensor key, metric key and
+     * bucket, so a caller can finish each series before the next one arrives. Sums and
+     * averages are taken over {@code numeric}, as fetches are. Must run in a transaction for
+     * the rows to be fetched in batches.
+     *
+     * @param sensorKeys sensors to include, or {@code null} for all
+     * @param metricKeys the metrics to include, by name
+     * @param wide       read the wide layout instead of the narrow one
+     * @param fillGaps   also return the buckets without readings
+     */
+    public void buckets(Statistic statistic, BucketWidth width, Collection<Integer> sensorKeys,
+                        Map<String, Short> metricKeys, Instant start, Instant end, boolean wide, boolean fillGaps,
+                        BucketHandler handler) {
+        String source;
+        if (wide) {
+            List<String> metrics = List.copyOf(metricKeys.keySet());
+            List<String> keys = metrics.stream().map(metric -> metricKeys.get(metric) + "::smallint").toList();
+            source = WideReadingRepo.narrowSource(metrics, keys);
+        } else {
+            source = "select ts, sensor_key, metric_key, value from reading_values "
+                    + "where ts >= ? and ts < ? and metric_key = any(?)";
+        }
+        if (sensorKeys != null) {
+            source += " and sensor_key = any(?)";
+        }
+        String sql = (fillGaps ? SERIES : BUCKETS).formatted(source, aggregate(statistic));
+        String interval = width.duration().getSeconds() + " seconds";
+
+        jdbcTemplate.query(connection -> {
+            PreparedStatement ps = connection.prepareStatement(sql);
+            ps.setFetchSize(FETCH_SIZE);
+            int i = 1;
+            ps.setObject(i++, start.atOffset(ZoneOffset.UTC));
+            ps.setObject(i++, end.atOffset(ZoneOffset.UTC));
+            if (!wide) {
+                ps.setArray(i++, connection.createArrayOf("smallint", metricKeys.values().toArray()));
+            }
+            if (sensorKeys != null) {
+                ps.setArray(i++, connection.createArrayOf("integer", sensorKeys.toArray()));
+            }
+            ps.setString(i++, interval);
+            ps.setObject(i++, start.atOffset(ZoneOffset.UTC));
+            if (fillGaps) {
+                ps.setObject(i++, start.atOffset(ZoneOffset.UTC));
+                ps.setObject(i++, end.minus(width.duration()).atOffset(ZoneOffset.UTC));
+                ps.setString(i, interval);
+            }
+            return ps;
+        }, (RowCallbackHandler) rs -> {
+            BigDecimal value = rs.getBigDecimal(4);
+            handler.bucket(new Bucket(rs.getInt(1), rs.getShort(2), rs.getObject(3, OffsetDateTime.class).toInstant(),
+                    value != null ? value.doubleValue() : null, rs.getLong(5)));
+        });
+    }
+
+    private static String aggregate(Statistic statistic) {
+        return switch (statistic) {
+            case MIN -> "min(value)";
+            case MAX -> "max(value)";
+            case SUM -> "sum(value::numeric)";
+            case AVERAGE -> "avg(value::numeric)";
+            case COUNT -> "count(*)";
+            default -> throw new IllegalArgumentException("Statistic must be one of: min, max, sum, average, count");
+        };
+    }
+}
@@ -0,0 +1,164 @@
+package org.weather.metricsapi.repository;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.weather.metricsapi.dto.fetch.v1.Statistic;
+import org.weather.metricsapi.util.QuantileSketch;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * Fetch partials for a whole fleet as one forward-only result, ordered by sensor name, so a
+ * caller can finish each sensor and let it go before the next one arrives.
+ * <p>
+ * The rows are the same partials {@code FetchService} reads one query at a time: one set per
+ * run of raw days from whichever layout is read, and one from {@code rollup_daily} for
+ * rolled-up days. A sensor's rows arrive together, in no particular order of metric, and
+ * must be {@link MetricAggregate#combine combined} per metric.
+ */
+@Repository
+public class StreamingAggregateRepo {
+
+    /** Days {@code [from, to)} to read from raw readings. */
+    public record RawRange(Instant from, Instant to) {}
+
+    // rows are buffered this many at a time instead of the whole result
+    private static final int FETCH_SIZE = 1000;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final DictionaryRepo dictionary;
+
+    public StreamingAggregateRepo(JdbcTemplate jdbcTemplate, DictionaryRepo dictionary) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.dictionary = dictionary;
+    }
+
+    /**
+     * Hands each partial to {@code consumer} as it is read. Must run in a transaction: the
+     * driver only fetches a result in pieces when autocommit is off. An exception thrown by
+     * {@code consumer} ends the query.
+     *
+     * @param sensorKeys sensors to include, or {@code null} for all
+     * @param metricKeys the metrics to include, by name
+     * @param wide       read raw days from the wide layout instead of the narrow one
+     */
+    public void stream(Set<Statistic> statistics, Collection<Integer> sensorKeys, Map<String, Short> metricKeys,
+                       Collection<LocalDate> rolledUpDays, List<RawRange> rawRanges, boolean wide,
+                       Consumer<MetricAggregate> consumer) {
+        if (rolledUpDays.isEmpty() && rawRanges.isEmpty()) {
+            return;
+        }
+        Query query = query(statistics, sensorKeys, metricKeys, rolledUpDays, rawRanges, wide);
+
+        jdbcTemplate.query(connection -> {
+            PreparedStatement ps = connection.prepareStatement(query.sql());
+            ps.setFetchSize(FETCH_SIZE);
+            query.bind(connection, ps);
+            return ps;
+        }, rs -> {
+            int sketchKey = rs.getInt(6);
+            boolean hasSketch = !rs.wasNull();
+            consumer.accept(new MetricAggregate(rs.getInt(1), dictionary.metricName(rs.getShort(2)),
+                    rs.getBigDecimal(3), rs.getBigDecimal(4), rs.getBigDecimal(5),
+                    hasSketch ? QuantileSketch.of(sketchKey, rs.getLong(7)) : null, rs.getLong(8)));
+        });
+    }
+
+    /**
+     * @return the text {@link #stream} runs for the same arguments, with the parameters it binds;
+     *         at least one of {@code rolledUpDays} and {@code rawRanges} must be non-empty
+     */
+    static Query query(Set<Statistic> statistics, Collection<Integer> sensorKeys, Map<String, Short> metricKeys,
+                       Collection<LocalDate> rolledUpDays, List<RawRange> rawRanges, boolean wide) {
+        boolean min = statistics.contains(Statistic.MIN);
+        boolean max = statistics.contains(Statistic.MAX);
+        boolean sum = statistics.stream().anyMatch(Statistic::needsSum);
+        boolean sketch = statistics.stream().anyMatch(Statistic::needsSketch);
+        String sensorFilter = sensorKeys != null ? " and sensor_key = any(?)" : "";
+
+        List<String> branches = new ArrayList<>();
+        List<Binder> binders = new ArrayList<>();
+        for (RawRange range : rawRanges) {
+            String source;
+            if (wide) {
+                List<String> metrics = List.copyOf(metricKeys.keySet());
+                source = WideReadingRepo.narrowSource(metrics,
+                        metrics.stream().map(metric -> metricKeys.get(metric) + "::smallint").toList());
+            } else {
+                source = "select ts, sensor_key, metric_key, value from reading_values "
+                        + "where ts >= ? and ts < ? and metric_key = any(?)";
+            }
+            branches.add("select sensor_key, metric_key, "
+                    + (min ? "min(value)" : "null::double precision") + ", "
+                    + (max ? "max(value)" : "null::double precision") + ", "
+                    + (sum ? "sum(value::numeric)" : "null::numeric") + ", "
+                    + (sketch ? "sketch_key(value)" : "null::integer") + ", count(*), count(*) "
+                    + "from (" + source + sensorFilter + ") r group by 1, 2" + (sketch ? ", 6" : ""));
+            binders.add((connection, ps, i) -> {
+                ps.setObject(i++, range.from().atOffset(ZoneOffset.UTC));
+                ps.setObject(i++, range.to().atOffset(ZoneOffset.UTC));
+                if (!wide) {
+                    ps.setArray(i++, connection.createArrayOf("smallint", metricKeys.values().toArray()));
+                }
+                return bindSensors(connection, ps, i, sensorKeys);
+            });
+        }
+
+        if (!rolledUpDays.isEmpty()) {
+            String filter = " where day = any(?) and metric_key = any(?)" + sensorFilter;
+            Binder rollupBinder = (connection, ps, i) -> {
+                ps.setArray(i++, connection.createArrayOf("date", rolledUpDays.stream().map(Date::valueOf).toArray()));
+                ps.setArray(i++, connection.createArrayOf("smallint", metricKeys.values().toArray()));
+                return bindSensors(connection, ps, i, sensorKeys);
+            };
+            branches.add("select sensor_key, metric_key, min, max, sum, null::integer, 0::bigint, count "
+                    + "from rollup_daily" + filter);
+            binders.add(rollupBinder);
+            if (sketch) {
+                // buckets carry no data points of their own: the row above counts them
+                branches.add("select sensor_key, metric_key, null::double precision, null::double precision, "
+                        + "null::numeric, u.key, u.count::bigint, 0::bigint from rollup_daily "
+                        + "cross join lateral unnest(sketch_keys, sketch_counts) as u(key, count)" + filter);
+                binders.add(rollupBinder);
+            }
+        }
+
+        return new Query("select p.* from (" + String.join(" union all ", branches) + ") as p "
+                + "join sensors s on s.id = p.sensor_key order by s.name collate \"C\"", binders);
+    }
+
+    private static int bindSensors(Connection connection, PreparedStatement ps, int i,
+                                   Collection<Integer> sensorKeys) throws SQLException {
+        if (sensorKeys != null) {
+            ps.setArray(i++, connection.createArrayOf("integer", sensorKeys.toArray()));
+        }
+        return i;
+    }
+
+    /** One union statement and the binders of its branches, in order. */
+    record Query(String sql, List<Binder> binders) {
+
+        void bind(Connection connection, PreparedStatement ps) throws SQLException {
+            int i = 1;
+            for (Binder binder : binders) {
+                i = binder.bind(connection, ps, i);
+            }
+        }
+    }
+
+    /** Binds one branch's parameters from index {@code i}, returning the next free index. */
+    interface Binder {
+        int bind(Connection connection, PreparedStatement ps, int i) throws SQLException;
+    }
+}
@@ -0,0 +1,231 @@
+package org.weather.metricsapi.repository;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.weather.metricsapi.dto.fetch.v1.Statistic;
+import org.weather.metricsapi.dto.update.v1.Metrics;
+import org.weather.metricsapi.dto.update.v1.ReadingRules;
+import org.weather.metricsapi.util.QuantileSketch;
+import java.sql.Array;
+import java.sql.PreparedStatement;
+import java.sql.Types;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * The wide layout ({@code readings}): one row per (sensor, ts) with a nullable
+ * {@code double precision} column per metric, named after the metric in snake case.
+ * <p>
+ * Column names come only from {@link ReadingRules#metrics()}, never from request input, so
+ * they are safe to splice into SQL.
+ */
+@Repository
+public class WideReadingRepo {
+
+    public record Row(int sensorKey, Instant ts, Metrics metrics) {}
+
+    private static final Map<String, String> COLUMNS;
+
+    static {
+        Map<String, String> columns = new LinkedHashMap<>();
+        ReadingRules.metrics().forEach(rule -> columns.put(rule.metric(), toColumn(rule.metric())));
+        COLUMNS = Collections.unmodifiableMap(columns);
+    }
+
+    private static final String COLUMN_LIST = String.join(", ", COLUMNS.values());
+
+    private static final String INSERT = "insert into readings (sensor_key, ts, " + COLUMN_LIST + ") values (?, ?, "
+            + COLUMNS.values().stream().map(c -> "?").collect(Collectors.joining(", ")) + ")";
+
+    // idempotent: readings already in the wide table are left alone
+    private static final String BACKFILL = "insert into readings (sensor_key, ts, " + COLUMN_LIST + ") "
+            + "select v.sensor_key, v.ts, "
+            + COLUMNS.keySet().stream()
+                    .map(metric -> "max(v.value) filter (where m.name = '" + metric + "')")
+                    .collect(Collectors.joining(", "))
+            + " from reading_values v join metrics m on m.id = v.metric_key "
+            + "where v.ts >= ? and v.ts < ? group by v.sensor_key, v.ts "
+            + "on conflict (sensor_key, ts) do nothing";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public WideReadingRepo(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * @return the {@code readings} column holding the metric
+     * @throws IllegalArgumentException if the metric is unknown
+     */
+    public static String column(String metric) {
+        String column = COLUMNS.get(metric);
+        if (column == null) {
+            throw new IllegalArgumentException("Unknown metric: " + metric);
+        }
+        return column;
+    }
+
+    /**
+     * @return the text {@link #aggregate} runs for the statistics and metrics
+     */
+    static String statement(Set<Statistic> statistics, boolean sensors, List<String> metrics) {
+        boolean min = statistics.contains(Statistic.MIN);
+        boolean max = statistics.contains(Statistic.MAX);
+        boolean sum = statistics.stream().anyMatch(Statistic::needsSum);
+        if (statistics.stream().anyMatch(Statistic::needsSketch)) {
+            return "select sensor_key, u.metric, sketch_key(u.value)"
+                    + (min ? ", min(u.value)" : ", null")
+                    + (max ? ", max(u.value)" : ", null")
+                    + (sum ? ", sum(u.value::numeric)" : ", null")
+                    + ", count(*) from readings "
+                    + unpivot(metrics, metrics.stream().map(metric -> "'" + column(metric) + "'").toList())
+                    + " where ts >= ? and ts < ? and u.value is not null"
+                    + (sensors ? " and sensor_key = any(?)" : "")
+                    + " group by 1, 2, 3";
+        }
+
+        StringBuilder sql = new StringBuilder("select sensor_key");
+        for (String metric : metrics) {
+            String column = column(metric);
+            // every metric gets four columns; partials not needed are left null
+            sql.append(min ? ", min(" + column + ")" : ", null")
+                    .append(max ? ", max(" + column + ")" : ", null")
+                    .append(sum ? ", sum(" + column + "::numeric)" : ", null")
+                    .append(", count(").append(column).append(')');
+        }
+        sql.append(" from readings where ts >= ? and ts < ?");
+        if (sensors) {
+            sql.append(" and sensor_key = any(?)");
+        }
+        return sql.append(" group by sensor_key").toString();
+    }
+
+    public void insert(List<Row> rows) {
+        if (rows.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate(INSERT, rows, rows.size(), (ps, row) -> {
+            ps.setInt(1, row.sensorKey());
+            ps.setObject(2, row.ts().atOffset(ZoneOffset.UTC));
+            Double[] values = ReadingRules.values(row.metrics());
+            for (int i = 0; i < values.length; i++) {
+                if (values[i] != null) {
+                    ps.setDouble(3 + i, values[i]);
+                } else {
+                    ps.setNull(3 + i, Types.DOUBLE);
+                }
+            }
+        });
+    }
+
+    /**
+     * Aggregates each requested metric per sensor over {@code [start, end)} in one scan,
+     * computing only the partials the statistics need. Percentiles need values bucketed by
+     * sketch key, which one row per sensor cannot give; the metric columns are then unpivoted
+     * and grouped by sensor, metric and bucket, and the caller combines the buckets.
+     * {@code COUNT(column)} skips nulls, so data points match the narrow layout's row counts,
+     * and a (sensor, metric) pair with no values is left out as it would be there. Sums are
+     * taken over {@code numeric} so they can be added to other partial sums exactly.
+     *
+     * @param sensorKeys sensors to include, or {@code null} for all
+     */
+    public List<MetricAggregate> aggregate(Set<Statistic> statistics, Collection<Integer> sensorKeys,
+                                           List<String> metrics, Instant start, Instant end) {
+        String sql = statement(statistics, sensorKeys != null, metrics);
+        if (statistics.stream().anyMatch(Statistic::needsSketch)) {
+            return aggregateBuckets(sql, sensorKeys, metrics, start, end);
+        }
+
+        List<MetricAggregate> results = new ArrayList<>();
+        jdbcTemplate.query(connection -> {
+            PreparedStatement ps = connection.prepareStatement(sql);
+            ps.setObject(1, start.atOffset(ZoneOffset.UTC));
+            ps.setObject(2, end.atOffset(ZoneOffset.UTC));
+            if (sensorKeys != null) {
+                Array keys = connection.createArrayOf("integer", sensorKeys.toArray());
+                ps.setArray(3, keys);
+            }
+            return ps;
+        }, rs -> {
+            int sensorKey = rs.getInt(1);
+            for (int i = 0; i < metrics.size(); i++) {
+                int first = 2 + 4 * i;
+                long dataPoints = rs.getLong(first + 3);
+                if (dataPoints > 0) {
+                    results.add(new MetricAggregate(sensorKey, metrics.get(i), rs.getBigDecimal(first),
+                            rs.getBigDecimal(first + 1), rs.getBigDecimal(first + 2), dataPoints));
+                }
+            }
+        });
+        return results;
+    }
+
+    private List<MetricAggregate> aggregateBuckets(String sql, Collection<Integer> sensorKeys,
+                                                   List<String> metrics, Instant start, Instant end) {
+        Map<String, String> metricsByColumn = metrics.stream()
+                .collect(Collectors.toMap(WideReadingRepo::column, metric -> metric, (a, b) -> a));
+        List<MetricAggregate> results = new ArrayList<>();
+        jdbcTemplate.query(connection -> {
+            PreparedStatement ps = connection.prepareStatement(sql);
+            ps.setObject(1, start.atOffset(ZoneOffset.UTC));
+            ps.setObject(2, end.atOffset(ZoneOffset.UTC));
+            if (sensorKeys != null) {
+                ps.setArray(3, connection.createArrayOf("integer", sensorKeys.toArray()));
+            }
+            return ps;
+        }, rs -> {
+            long dataPoints = rs.getLong(7);
+            results.add(new MetricAggregate(rs.getInt(1), metricsByColumn.get(rs.getString(2)),
+                    rs.getBigDecimal(4), rs.getBigDecimal(5), rs.getBigDecimal(6),
+                    QuantileSketch.of(rs.getInt(3), dataPoints), dataPoints));
+        });
+        return results;
+    }
+
+    /**
+     * Turns each row of {@code readings} into one row per metric column, as {@code u(metric, value)}.
+     *
+     * @param labels the {@code u.metric} expression for each metric
+     */
+    static String unpivot(List<String> metrics, List<String> labels) {
+        List<String> rows = new ArrayList<>(metrics.size());
+        for (int i = 0; i < metrics.size(); i++) {
+            rows.add("(" + labels.get(i) + ", " + column(metrics.get(i)) + ")");
+        }
+        return "cross join lateral (values " + String.join(", ", rows) + ") as u(metric, value)";
+    }
+
+    /**
+     * Reads {@code readings} as narrow rows {@code (ts, sensor_key, metric_key, value)}, one per
+     * metric value present, taking {@code ts >= ? and ts < ?} as its first two parameters.
+     *
+     * @param keys the {@code metric_key} expression for each metric
+     */
+    static String narrowSource(List<String> metrics, List<String> keys) {
+        return "select ts, sensor_key, u.metric as metric_key, u.value from readings "
+                + unpivot(metrics, keys)
+                + " where ts >= ? and ts < ? and u.value is not null";
+    }
+
+    /**
+     * Copies narrow-layout readings with {@code ts} in {@code [from, to)} into the wide table,
+     * skipping any that are already there.
+     *
+     * @return the number of wide rows inserted
+     */
+    public int backfill(Instant from, Instant to) {
+        return jdbcTemplate.update(BACKFILL, from.atOffset(ZoneOffset.UTC), to.atOffset(ZoneOffset.UTC));
+    }
+
+    private static String toColumn(String metric) {
+        return metric.replaceAll("([a-z])([A-Z])", "$1_$2").toLowerCase();
+    }
+}
@@ -0,0 +1,189 @@
+package org.weather.metricsapi.service.fetch.v1;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.weather.metricsapi.config.FetchProperties;
+import org.weather.metricsapi.exception.QueryUnavailableException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Reads a long fetch range as chunks in parallel.
+ * <p>
+ * {@link #plan} splits the range into UTC days or calendar months; {@link #run} reads every
+ * chunk on a fixed pool shared by all requests, each in its own read-only transaction, and
+ * returns all their partials for the caller to combine. The whole query shares one
+ * deadline: each chunk's transaction times out at the deadline, so its statements are
+ * cancelled by the database, and once the deadline passes or any chunk fails, chunks not
+ * yet finished are cancelled and chunks still queued never start. A range of a single chunk
+ * is {@link #read} on the calling thread, under the same deadline.
+ */
+@Component
+public class ChunkedQueryEngine implements SmartLifecycle {
+
+    private static final Logger log = LoggerFactory.getLogger(ChunkedQueryEngine.class);
+
+    // stop after the web server has stopped taking requests, before the datasource closes
+    private static final int PHASE = SmartLifecycle.DEFAULT_PHASE - 4096;
+
+    /** Days {@code first} to {@code last}, inclusive. */
+    public record DayRange(LocalDate first, LocalDate last) {}
+
+    private final FetchProperties props;
+    private final PlatformTransactionManager transactionManager;
+
+    private volatile ThreadPoolExecutor pool;
+
+    public ChunkedQueryEngine(FetchProperties props, PlatformTransactionManager transactionManager) {
+        this.props = props;
+        this.transactionManager = transactionManager;
+    }
+
+    /**
+     * @return the range split at UTC day or calendar month boundaries, in order
+     */
+    public static List<DayRange> plan(LocalDate first, LocalDate last, FetchProperties.Chunk chunk) {
+        List<DayRange> chunks = new ArrayList<>();
+        for (LocalDate start = first; !start.isAfter(last); ) {
+            LocalDate end = chunk == FetchProperties.Chunk.DAY
+                    ? start
+                    : start.withDayOfMonth(start.lengthOfMonth());
+            if (end.isAfter(last)) {
+                end = last;
+            }
+            chunks.add(new DayRange(start, end));
+            start = end.plusDays(1);
+        }
+        return chunks;
+    }
+
+    /**
+     * Runs {@code query} once per chunk and returns everything the chunks returned, in
+     * chunk order.
+     *
+     * @throws QueryUnavailableException if the chunks did not all finish within the fetch
+     *                                   timeout, or there is no room to queue them
+     */
+    public <T> List<T> run(List<DayRange> chunks, Function<DayRange, List<T>> query) {
+        ThreadPoolExecutor executor = pool;
+        if (executor == null) {
+            throw new QueryUnavailableException("Query engine is not running");
+        }
+        long deadline = System.nanoTime() + props.timeout().toNanos();
+        List<Future<List<T>>> futures = new ArrayList<>(chunks.size());
+        try {
+            for (DayRange chunk : chunks) {
+                futures.add(executor.submit(() -> runChunk(chunk, query, deadline)));
+            }
+            List<T> results = new ArrayList<>();
+            for (Future<List<T>> future : futures) {
+                results.addAll(future.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS));
+            }
+            return results;
+        } catch (RejectedExecutionException e) {
+            log.warn("Fetch chunk queue is full, rejecting query of {} chunks", chunks.size());
+            throw new QueryUnavailableException("Too many queries in progress, retry later");
+        } catch (TimeoutException e) {
+            log.warn("Query of {} chunks did not finish within {}", chunks.size(), props.timeout());
+            throw new QueryUnavailableException("Query did not finish within " + props.timeout().toSeconds() + "s");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new QueryUnavailableException("Interrupted while waiting for query");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                if (System.nanoTime() - deadline >= 0) {
+                    // most likely the statement timeout of a chunk that was still running
+                    log.warn("Query chunk failed after the deadline: {}", cause.getMessage());
+                    throw new QueryUnavailableException("Query did not finish within " + props.timeout().toSeconds() + "s");
+                }
+                throw cause;
+            }
+            throw new IllegalStateException(e.getCause());
+        } finally {
+            // no-op for finished chunks; queued ones are dropped, running ones interrupted
+            futures.forEach(future -> future.cancel(true));
+        }
+    }
+
+    /**
+     * Runs {@code query} on the calling thread in a read-only transaction that times out
+     * after the fetch timeout.
+     *
+     * @throws QueryUnavailableException if it did not finish within the fetch timeout
+     */
+    public <T> T read(Supplier<T> query) {
+        long deadline = System.nanoTime() + props.timeout().toNanos();
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+        tx.setReadOnly(true);
+        tx.setTimeout((int) Math.max(1, props.timeout().toSeconds()));
+        try {
+            return tx.execute(status -> query.get());
+        } catch (RuntimeException e) {
+            if (System.nanoTime() - deadline >= 0) {
+                log.warn("Query failed after the deadline: {}", e.getMessage());
+                throw new QueryUnavailableException("Query did not finish within " + props.timeout().toSeconds() + "s");
+            }
+            throw e;
+        }
+    }
+
+    private <T> List<T> runChunk(DayRange chunk, Function<DayRange, List<T>> query, long deadline) {
+        long remaining = deadline - System.nanoTime();
+        if (remaining <= 0) {
+            throw new QueryUnavailableException("Query deadline passed before chunk " + chunk + " started");
+        }
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+        tx.setReadOnly(true);
+        tx.setTimeout((int) Math.max(1, TimeUnit.NANOSECONDS.toSeconds(remaining)));
+        return tx.execute(status -> query.apply(chunk));
+    }
+
+    @Override
+    public void start() {
+        AtomicInteger counter = new AtomicInteger();
+        ThreadFactory threads = runnable -> {
+            Thread thread = new Thread(runnable, "fetch-chunk-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+        pool = new ThreadPoolExecutor(props.parallelism(), props.parallelism(), 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(props.queueCapacity()), threads);
+        log.info("Chunked query engine started: chunk={}, parallelism={}, timeout={}",
+                props.chunk(), props.parallelism(), props.timeout());
+    }
+
+    @Override
+    public void stop() {
+        ThreadPoolExecutor executor = pool;
+        pool = null;
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return pool != null;
+    }
+
+    @Override
+    public int getPhase() {
+        return PHASE;
+    }
+}
@@ -0,0 +1,331 @@
+package org.weather.metricsapi.service.fetch.v1;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+import org.weather.metricsapi.config.FetchProperties;
+import org.weather.metricsapi.config.RollupProperties;
+import org.weather.metricsapi.dto.fetch.v1.Statistic;
+import org.weather.metricsapi.exception.QueryUnavailableException;
+import org.weather.metricsapi.repository.MetricAggregate;
+import org.weather.metricsapi.util.Transactions;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.Collection;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * Results of recent fetch queries, bounded to {@code maxEntries} and evicted least recently
+ * used first.
+ * <p>
+ * Entries are dropped as soon as a write that they cover commits: ingest reports the
+ * sensors and days it wrote, bulk imports and backfills the days they loaded. A range whose last day has settled (see {@code weather.rollups.settle}) only changes
+ * through such writes, so it is kept until it is evicted or invalidated. A range reaching
+ * into the current day also expires after {@code liveTtl}, which bounds how stale it can
+ * get when other instances write to the same database.
+ * <p>
+ * A result is only stored if no write to its days committed while it was being computed,
+ * so a query that raced a write never caches what it read before that write.
+ * <p>
+ * With {@code weather.fetch.coalesce}, a query arriving while an identical one is being
+ * computed waits for that result instead of reading the database again, whether or not
+ * results are cached. A write covering the running query detaches it, so queries arriving
+ * after the write start a read of their own.
+ */
+@Component
+public class FetchCache {
+
+    /**
+     * A fetch query reduced to what its result depends on: sensors ({@code null} for all)
+     * and metrics sorted and without duplicates, the statistics to compute and the
+     * resolved, inclusive day range.
+     */
+    public record Key(List<String> sensors, List<String> metrics, Set<Statistic> statistics,
+                      LocalDate start, LocalDate end) {
+
+        public static Key of(Collection<String> sensors, Collection<String> metrics,
+                             Set<Statistic> statistics, LocalDate start, LocalDate end) {
+            return new Key(
+                    sensors == null || sensors.isEmpty() ? null : sensors.stream().distinct().sorted().toList(),
+                    metrics.stream().distinct().sorted().toList(),
+                    EnumSet.copyOf(statistics),
+                    start,
+                    end);
+        }
+
+        boolean covers(LocalDate day) {
+            return !day.isBefore(start) && !day.isAfter(end);
+        }
+
+        boolean includesAny(Set<String> sensorIds) {
+            return sensors == null || sensors.stream().anyMatch(sensorIds::contains);
+        }
+    }
+
+    private record Entry(List<MetricAggregate> value, Instant expires) {}
+
+    private final FetchProperties.Cache props;
+    private final boolean coalesce;
+    private final Duration timeout;
+    private final RollupProperties rollups;
+    private final Clock clock;
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter coalesced;
+    private final Counter evicted;
+    private final Counter invalidated;
+    private final Counter expired;
+
+    // guarded by this
+    private final LinkedHashMap<Key, Entry> entries;
+    // entries by last day, so a write only looks at entries reaching its day
+    private final NavigableMap<LocalDate, Set<Key>> byEnd = new TreeMap<>();
+    // bumped after every committed write to a day; a computed result is stored only if its days did not move
+    private final NavigableMap<LocalDate, Long> versions = new TreeMap<>();
+    // bumped whenever old readings are removed, which is rare enough not to track by day
+    private long expirations;
+    // queries being computed, for identical queries to wait on
+    private final Map<Key, CompletableFuture<List<MetricAggregate>>> inFlight = new HashMap<>();
+
+    public FetchCache(FetchProperties properties, RollupProperties rollups, Clock clock, MeterRegistry registry) {
+        this.props = properties.cache();
+        this.coalesce = properties.coalesce();
+        this.timeout = properties.timeout();
+        this.rollups = rollups;
+        this.clock = clock;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true);
+        this.hits = Counter.builder("weather.fetch.cache.requests")
+                .tag("result", "hit")
+                .description("Fetch queries answered from the cache")
+                .register(registry);
+        this.misses = Counter.builder("weather.fetch.cache.requests")
+                .tag("result", "miss")
+                .description("Fetch queries that had to be read from the database")
+                .register(registry);
+        this.coalesced = Counter.builder("weather.fetch.cache.requests")
+                .tag("result", "coalesced")
+                .description("Fetch queries that waited for an identical query already running")
+                .register(registry);
+        this.evicted = Counter.builder("weather.fetch.cache.evictions")
+                .tag("cause", "size")
+                .description("Cached results dropped to stay within max-entries")
+                .register(registry);
+        this.invalidated = Counter.builder("weather.fetch.cache.evictions")
+                .tag("cause", "write")
+                .description("Cached results dropped because a write covered them")
+                .register(registry);
+        this.expired = Counter.builder("weather.fetch.cache.evictions")
+                .tag("cause", "expired")
+                .description("Cached results of live ranges dropped after live-ttl, or whose readings expired")
+                .register(registry);
+        Gauge.builder("weather.fetch.cache.size", this, FetchCache::size)
+                .description("Fetch results held in the cache")
+                .register(registry);
+    }
+
+    /**
+     * @return the cached result for {@code key}, the result of an identical query already
+     * running, or else the result of {@code loader}, which is stored unless a write to the
+     * key's days committed while it ran
+     * @throws QueryUnavailableException if the running query it waited for did not finish
+     *                                   within the fetch timeout
+     */
+    public List<MetricAggregate> get(Key key, Supplier<List<MetricAggregate>> loader) {
+        if (!props.enabled() && !coalesce) {
+            misses.increment();
+            return loader.get();
+        }
+
+        CompletableFuture<List<MetricAggregate>> load = new CompletableFuture<>();
+        CompletableFuture<List<MetricAggregate>> running;
+        long version;
+        synchronized (this) {
+            Entry entry = props.enabled() ? entries.get(key) : null;
+            if (entry != null && (entry.expires() == null || clock.instant().isBefore(entry.expires()))) {
+                hits.increment();
+                return entry.value();
+            }
+            if (entry != null) {
+                remove(key);
+                expired.increment();
+            }
+            running = coalesce ? inFlight.putIfAbsent(key, load) : null;
+            version = version(key);
+        }
+        if (running != null) {
+            coalesced.increment();
+            return await(running);
+        }
+
+        misses.increment();
+        try {
+            List<MetricAggregate> value = List.copyOf(loader.get());
+            synchronized (this) {
+                if (props.enabled() && version(key) == version) {
+                    put(key, new Entry(value, expires(key)));
+                }
+            }
+            load.complete(value);
+            return value;
+        } catch (RuntimeException e) {
+            load.completeExceptionally(e);
+            throw e;
+        } finally {
+            synchronized (this) {
+                inFlight.remove(key, load);
+            }
+        }
+    }
+
+    /**
+     * Drops entries, and detaches running queries, covering any of {@code sensorsByDay}'s
+     * sensors on that day, once the current transaction commits (at once if there is none).
+     */
+    public void written(Map<LocalDate, Set<String>> sensorsByDay) {
+        if ((!props.enabled() && !coalesce) || sensorsByDay.isEmpty()) {
+            return;
+        }
+        Transactions.afterCommit(() -> {
+            synchronized (this) {
+                sensorsByDay.forEach((day, sensors) -> drop(day, key -> key.includesAny(sensors)));
+            }
+        });
+    }
+
+    /**
+     * Drops entries, and detaches running queries, covering any of {@code days} for every
+     * sensor, once the current transaction commits (at once if there is none).
+     */
+    public void written(Collection<LocalDate> days) {
+        if ((!props.enabled() && !coalesce) || days.isEmpty()) {
+            return;
+        }
+        Set<LocalDate> copy = Set.copyOf(days);
+        Transactions.afterCommit(() -> {
+            synchronized (this) {
+                copy.forEach(day -> drop(day, key -> true));
+            }
+        });
+    }
+
+    /**
+     * Drops entries starting before {@code day}, whose readings have been removed.
+     */
+    public void removedBefore(LocalDate day) {
+        if (!props.enabled() && !coalesce) {
+            return;
+        }
+        Transactions.afterCommit(() -> {
+            synchronized (this) {
+                expirations++;
+                inFlight.keySet().removeIf(key -> key.start().isBefore(day));
+                Iterator<Key> keys = entries.keySet().iterator();
+                while (keys.hasNext()) {
+                    Key key = keys.next();
+                    if (key.start().isBefore(day)) {
+                        keys.remove();
+                        unindex(key);
+                        expired.increment();
+                    }
+                }
+            }
+        });
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    private void drop(LocalDate day, Predicate<Key> matches) {
+        versions.merge(day, 1L, Long::sum);
+        inFlight.keySet().removeIf(key -> key.covers(day) && matches.test(key));
+        for (Set<Key> keys : byEnd.tailMap(day, true).values()) {
+            Iterator<Key> it = keys.iterator();
+            while (it.hasNext()) {
+                Key key = it.next();
+                if (key.covers(day) && matches.test(key)) {
+                    it.remove();
+                    entries.remove(key);
+                    invalidated.increment();
+                }
+            }
+        }
+        byEnd.tailMap(day, true).values().removeIf(Set::isEmpty);
+    }
+
+    private List<MetricAggregate> await(CompletableFuture<List<MetricAggregate>> running) {
+        try {
+            return running.get(timeout.toNanos(), TimeUnit.NANOSECONDS);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException(e.getCause());
+        } catch (TimeoutException e) {
+            throw new QueryUnavailableException("Query did not finish within " + timeout.toSeconds() + "s");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new QueryUnavailableException("Interrupted while waiting for query");
+        }
+    }
+
+    private long version(Key key) {
+        long sum = expirations;
+        for (long v : versions.subMap(key.start(), true, key.end(), true).values()) {
+            sum += v;
+        }
+        return sum;
+    }
+
+    private void put(Key key, Entry entry) {
+        if (entries.put(key, entry) == null) {
+            byEnd.computeIfAbsent(key.end(), day -> new HashSet<>()).add(key);
+        }
+        while (entries.size() > props.maxEntries()) {
+            Key eldest = entries.keySet().iterator().next();
+            remove(eldest);
+            evicted.increment();
+        }
+    }
+
+    private void remove(Key key) {
+        entries.remove(key);
+        unindex(key);
+    }
+
+    private void unindex(Key key) {
+        Set<Key> keys = byEnd.get(key.end());
+        if (keys != null && keys.remove(key) && keys.isEmpty()) {
+            byEnd.remove(key.end());
+        }
+    }
+
+    /**
+     * @return when an entry for {@code key} stops being served, or {@code null} if its range
+     * has settled and only a write can change it
+     */
+    private Instant expires(Key key) {
+        Instant now = clock.instant();
+        LocalDate settled = LocalDate.ofInstant(now.minus(rollups.settle()), ZoneOffset.UTC);
+        return key.end().isBefore(settled) ? null : now.plus(props.liveTtl());
+    }
+}
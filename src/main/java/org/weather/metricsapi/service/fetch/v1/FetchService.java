@@ -1,14 +1,25 @@
 package org.weather.metricsapi.service.fetch.v1;
 
-import jakarta.persistence.EntityManager;
-import jakarta.persistence.Tuple;
-import jakarta.persistence.TypedQuery;
+import com.fasterxml.jackson.core.JsonGenerator;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+import org.weather.metricsapi.config.FetchProperties;
+import org.weather.metricsapi.config.RollupProperties;
+import org.weather.metricsapi.config.StorageProperties;
 import org.weather.metricsapi.dto.fetch.v1.FetchRequest;
 import org.weather.metricsapi.dto.fetch.v1.FetchResponse;
+import org.weather.metricsapi.dto.fetch.v1.Statistic;
+import org.weather.metricsapi.dto.update.v1.ReadingRules;
+import org.weather.metricsapi.exception.QueryUnavailableException;
+import org.weather.metricsapi.repository.DictionaryRepo;
+import org.weather.metricsapi.repository.MetricAggregate;
+import org.weather.metricsapi.repository.NarrowReadingRepo;
+import org.weather.metricsapi.repository.RollupRepo;
+import org.weather.metricsapi.repository.StreamingAggregateRepo;
+import org.weather.metricsapi.repository.WideReadingRepo;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.time.*;
 import java.util.*;
 import java.util.stream.Collectors;
@@ -17,64 +28,204 @@ import java.util.stream.Collectors;
 public class FetchService {
 
     private static final Logger log = LoggerFactory.getLogger(FetchService.class);
-    private final EntityManager entityManager;
+    private final NarrowReadingRepo narrowRepo;
+    private final DictionaryRepo dictionary;
+    private final WideReadingRepo wideRepo;
+    private final RollupRepo rollupRepo;
+    private final StreamingAggregateRepo streamingRepo;
+    private final StorageProperties storage;
+    private final RollupProperties rollups;
+    private final FetchProperties props;
+    private final ChunkedQueryEngine engine;
+    private final FetchCache cache;
+    private final HotWindow hotWindow;
     private final Clock clock;
-    private static final Set<String> VALID_STATISTICS = Set.of("min", "max", "sum", "average");
 
-    public FetchService(EntityManager entityManager, Clock clock) {
-        this.entityManager = entityManager;
+    public FetchService(NarrowReadingRepo narrowRepo, DictionaryRepo dictionary, WideReadingRepo wideRepo,
+                        RollupRepo rollupRepo, StreamingAggregateRepo streamingRepo, StorageProperties storage,
+                        RollupProperties rollups, FetchProperties props, ChunkedQueryEngine engine,
+                        FetchCache cache, HotWindow hotWindow, Clock clock) {
+        this.narrowRepo = narrowRepo;
+        this.dictionary = dictionary;
+        this.wideRepo = wideRepo;
+        this.rollupRepo = rollupRepo;
+        this.streamingRepo = streamingRepo;
+        this.storage = storage;
+        this.rollups = rollups;
+        this.props = props;
+        this.engine = engine;
+        this.cache = cache;
+        this.hotWindow = hotWindow;
         this.clock = clock;
     }
 
-    @Transactional(readOnly = true)
+    /**
+     * Answers from {@link FetchCache} when it can. Otherwise the range is read in read-only
+     * transactions of its own, one per chunk, rather than in one around the whole call, so
+     * a request waiting for its chunks or for an identical query does not hold a connection.
+     * <p>
+     * A request with {@code orderBy} is answered in two steps: the ranking metric alone is
+     * read for every sensor in scope and the best {@code limit} sensors are kept, then the
+     * requested metrics are read for just those sensors (see {@link #rank}).
+     */
     public FetchResponse query(FetchRequest request) {
         log.debug("Processing fetch query: {}", request);
 
-        validateStatistic(request.statistic());
+        List<Statistic> statistics = resolveStatistics(request);
+        Ranking ranking = resolveRanking(request, statistics);
 
-        LocalDate endDate = request.endDate() != null
-                ? request.endDate()
-                : LocalDate.now(clock);
-        LocalDate startDate = request.startDate() != null
-                ? request.startDate()
-                : endDate.minusDays(7);
+        LocalDate endDate = resolveEndDate(request);
+        LocalDate startDate = resolveStartDate(request, endDate);
 
         log.debug("Resolved date range: {} to {}", startDate, endDate);
 
         validateDateRange(startDate, endDate);
-        Instant startInstant = startDate.atStartOfDay(ZoneId.of("UTC")).toInstant();
-        Instant endInstant = endDate.plusDays(1).atStartOfDay(ZoneId.of("UTC")).toInstant();
 
-        String aggregateFunction = getAggregateFunction(request.statistic());
-        log.debug("Executing query with aggregate function: {}", aggregateFunction);
+        log.debug("Executing query for statistics: {}", statistics);
 
-        List<Tuple> rawResults = executeQuery(
-                request.sensorId(),
-                request.metrics(),
-                aggregateFunction,
-                startInstant,
-                endInstant
-        );
+        // partials do not depend on the order of the request's lists, so equivalent requests share an entry
+        Set<Statistic> statisticSet = EnumSet.copyOf(statistics);
+        List<MetricAggregate> rawResults;
+        List<String> rankedSensors = null;
+        if (ranking == null) {
+            rawResults = cache.get(
+                    FetchCache.Key.of(request.sensorId(), request.metrics(), statisticSet, startDate, endDate),
+                    () -> executeQuery(request.sensorId(), request.metrics(), statisticSet, startDate, endDate)
+            );
+        } else {
+            List<MetricAggregate> top = rank(request.sensorId(), ranking, startDate, endDate);
+            rankedSensors = top.stream().map(result -> dictionary.sensorName(result.sensorKey())).toList();
+            if (top.isEmpty() || ranking.covers(request.metrics(), statisticSet)) {
+                rawResults = top;
+            } else {
+                List<String> sensorIds = rankedSensors;
+                rawResults = cache.get(
+                        FetchCache.Key.of(sensorIds, request.metrics(), statisticSet, startDate, endDate),
+                        () -> executeQuery(sensorIds, request.metrics(), statisticSet, startDate, endDate)
+                );
+            }
+        }
 
         log.debug("Query returned {} raw result rows", rawResults.size());
 
         Map<String, Map<String, FetchResponse.MetricStatistic>> groupedResults = groupResultsBySensor(
                 rawResults,
-                request.statistic()
+                request.statistic(),
+                statistics
         );
 
-        List<FetchResponse.SensorResult> sensorResults = groupedResults.entrySet().stream()
-                .map(entry -> new FetchResponse.SensorResult(entry.getKey(), entry.getValue()))
-                .collect(Collectors.toList());
-
-        int totalDataPoints = rawResults.stream()
-                .mapToInt(t -> ((Number) t.get("dataPoints")).intValue())
+        List<FetchResponse.SensorResult> sensorResults = rankedSensors == null
+                ? groupedResults.entrySet().stream()
+                        .map(entry -> new FetchResponse.SensorResult(entry.getKey(), entry.getValue()))
+                        .collect(Collectors.toList())
+                : rankedSensors.stream()
+                        .filter(groupedResults::containsKey)
+                        .map(sensorId -> new FetchResponse.SensorResult(sensorId, groupedResults.get(sensorId)))
+                        .collect(Collectors.toList());
+
+        long totalDataPoints = rawResults.stream()
+                .mapToLong(MetricAggregate::dataPoints)
                 .sum();
 
         log.info("Fetch query successful: {} sensors, {} metrics, {} data points processed",
                 sensorResults.size(), request.metrics().size(), totalDataPoints);
 
-        FetchResponse.QueryInfo queryInfo = new FetchResponse.QueryInfo(
+        FetchResponse.QueryInfo queryInfo = queryInfo(request, statistics, ranking, startDate, endDate,
+                sensorResults.size(), totalDataPoints);
+
+        return new FetchResponse(queryInfo, sensorResults);
+    }
+
+    /**
+     * Answers the same query as {@link #query}, writing each sensor's result to
+     * {@code generator} as soon as its rows have been read. Rows come from one forward-only
+     * result ordered by sensor, so only the sensor being written is held in memory, however
+     * many sensors the query covers. The response has the shape of {@link FetchResponse}
+     * with {@code results} first; {@code query} follows because its totals are only known
+     * at the end.
+     * <p>
+     * The request is validated before anything is written. A failure to write, such as the
+     * client going away, ends the database query, and so does passing the fetch timeout:
+     * the rows are read through {@link ChunkedQueryEngine#read}, and the deadline is checked
+     * again for every row, as the statement timeout stops covering a cursor once its first
+     * rows have arrived.
+     *
+     * @throws QueryUnavailableException if the query did not finish within the fetch timeout
+     */
+    public void stream(FetchRequest request, JsonGenerator generator) throws IOException {
+        log.debug("Processing streaming fetch query: {}", request);
+
+        List<Statistic> statistics = resolveStatistics(request);
+        if (request.orderBy() != null || request.limit() != null) {
+            // a ranking is only known once every sensor has been read, which is what streaming avoids
+            throw new IllegalArgumentException("orderBy and limit are not supported when streaming");
+        }
+        LocalDate endDate = resolveEndDate(request);
+        LocalDate startDate = resolveStartDate(request, endDate);
+        validateDateRange(startDate, endDate);
+
+        generator.writeStartObject();
+        generator.writeArrayFieldStart("results");
+
+        SensorStream sensors = new SensorStream(generator, request.statistic(), statistics);
+        long deadline = System.nanoTime() + props.timeout().toNanos();
+        try {
+            engine.read(() -> {
+                readStream(request, statistics, startDate, endDate, sensors, deadline);
+                return null;
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+
+        generator.writeEndArray();
+        generator.writeObjectField("query", queryInfo(request, statistics, null, startDate, endDate,
+                sensors.count, sensors.dataPoints));
+        generator.writeEndObject();
+        generator.flush();
+
+        log.info("Streaming fetch query successful: {} sensors, {} metrics, {} data points processed",
+                sensors.count, request.metrics().size(), sensors.dataPoints);
+    }
+
+    private void readStream(FetchRequest request, List<Statistic> statistics, LocalDate startDate, LocalDate endDate,
+                            SensorStream sensors, long deadline) {
+        boolean filterSensors = request.sensorId() != null && !request.sensorId().isEmpty();
+        Collection<Integer> sensorKeys = filterSensors
+                ? dictionary.findSensorKeys(request.sensorId()).values()
+                : null;
+        Map<String, Short> metricKeys = new LinkedHashMap<>(dictionary.findMetricKeys(request.metrics()));
+        if (storage.readsWide()) {
+            // the wide layout only has columns for known metrics
+            metricKeys.keySet().removeIf(metric -> ReadingRules.metric(metric) == null);
+        }
+
+        if ((!filterSensors || !sensorKeys.isEmpty()) && !metricKeys.isEmpty()) {
+            Set<LocalDate> rolledUp = rollups.enabled()
+                    ? rollupRepo.rolledUpDays(startDate, endDate)
+                    : Set.of();
+            List<StreamingAggregateRepo.RawRange> rawRanges = rawRuns(startDate, endDate, rolledUp).stream()
+                    .map(run -> new StreamingAggregateRepo.RawRange(
+                            run.from().atStartOfDay(ZoneOffset.UTC).toInstant(),
+                            run.to().atStartOfDay(ZoneOffset.UTC).toInstant()))
+                    .toList();
+            streamingRepo.stream(EnumSet.copyOf(statistics), sensorKeys, metricKeys, rolledUp, rawRanges,
+                    storage.readsWide(), partial -> {
+                        if (System.nanoTime() - deadline >= 0) {
+                            log.warn("Streaming fetch query did not finish within {}", props.timeout());
+                            throw new QueryUnavailableException(
+                                    "Query did not finish within " + props.timeout().toSeconds() + "s");
+                        }
+                        sensors.add(partial);
+                    });
+        }
+        sensors.finish();
+    }
+
+    private FetchResponse.QueryInfo queryInfo(FetchRequest request, List<Statistic> statistics, Ranking ranking,
+                                              LocalDate startDate, LocalDate endDate,
+                                              int totalSensors, long totalDataPoints) {
+        return new FetchResponse.QueryInfo(
                 request.sensorId() != null && !request.sensorId().isEmpty()
                         ? request.sensorId()
                         : null,
@@ -82,22 +233,93 @@ public class FetchService {
                 request.statistic(),
                 startDate,
                 endDate,
-                sensorResults.size(),
-                totalDataPoints
+                totalSensors,
+                totalDataPoints,
+                request.statistic() != null ? null : statistics.stream().map(Statistic::key).toList(),
+                ranking == null ? null : new FetchRequest.OrderBy(ranking.metric(), ranking.statistic().key(),
+                        ranking.descending() ? "desc" : "asc"),
+                ranking == null ? null : ranking.limit()
         );
+    }
 
-        return new FetchResponse(queryInfo, sensorResults);
+    private LocalDate resolveEndDate(FetchRequest request) {
+        return request.endDate() != null
+                ? request.endDate()
+                : LocalDate.now(clock);
     }
 
-    private void validateStatistic(String statistic) {
-        if (statistic == null || !VALID_STATISTICS.contains(statistic.toLowerCase())) {
-            log.warn("Invalid statistic requested: {}", statistic);
-            throw new IllegalArgumentException(
-                    "Statistic must be one of: min, max, sum, average"
-            );
+    private static LocalDate resolveStartDate(FetchRequest request, LocalDate endDate) {
+        return request.startDate() != null
+                ? request.startDate()
+                : endDate.minusDays(7);
+    }
+
+    /**
+     * A request names either one {@code statistic} or a list of {@code statistics}; either
+     * way every statistic is computed from the same scan.
+     */
+    private List<Statistic> resolveStatistics(FetchRequest request) {
+        boolean single = request.statistic() != null;
+        boolean multiple = request.statistics() != null && !request.statistics().isEmpty();
+        if (single == multiple) {
+            log.warn("Invalid statistics requested: statistic={}, statistics={}", request.statistic(), request.statistics());
+            throw new IllegalArgumentException(single
+                    ? "Specify either statistic or statistics, not both"
+                    : "Statistic type is required");
+        }
+        List<String> keys = single ? List.of(request.statistic()) : request.statistics();
+        List<Statistic> statistics = new ArrayList<>(keys.size());
+        for (String key : keys) {
+            Statistic statistic = Statistic.fromKey(key);
+            if (!statistics.contains(statistic)) {
+                statistics.add(statistic);
+            }
+        }
+        return statistics;
+    }
+
+    /** Sensors ranked by one metric's statistic, keeping the best {@code limit} if one is set. */
+    private record Ranking(String metric, Statistic statistic, boolean descending, Integer limit) {
+
+        /**
+         * @return whether the ranking's own partials already answer a request for these
+         *         metrics and statistics
+         */
+        boolean covers(List<String> metrics, Set<Statistic> statistics) {
+            return Set.copyOf(metrics).equals(Set.of(metric)) && statistics.equals(Set.of(statistic));
         }
     }
 
+    /**
+     * The ranking statistic must be one the request computes; it may be left out when there
+     * is only one.
+     */
+    private Ranking resolveRanking(FetchRequest request, List<Statistic> statistics) {
+        FetchRequest.OrderBy orderBy = request.orderBy();
+        if (orderBy == null) {
+            if (request.limit() != null) {
+                throw new IllegalArgumentException("limit requires orderBy");
+            }
+            return null;
+        }
+        if (!request.metrics().contains(orderBy.metric())) {
+            log.warn("Invalid ranking metric: {} is not in {}", orderBy.metric(), request.metrics());
+            throw new IllegalArgumentException("orderBy.metric must be one of the requested metrics");
+        }
+        Statistic statistic;
+        if (orderBy.statistic() != null) {
+            statistic = Statistic.fromKey(orderBy.statistic());
+            if (!statistics.contains(statistic)) {
+                throw new IllegalArgumentException("orderBy.statistic must be one of the requested statistics");
+            }
+        } else if (statistics.size() == 1) {
+            statistic = statistics.get(0);
+        } else {
+            throw new IllegalArgumentException("orderBy.statistic is required when several statistics are requested");
+        }
+        return new Ranking(orderBy.metric(), statistic, orderBy.descending(), request.limit());
+    }
+
     private void validateDateRange(LocalDate start, LocalDate end) {
         if (start.isAfter(end)) {
             log.warn("Invalid date range: start={} is after end={}", start, end);
@@ -109,83 +331,302 @@ public class FetchService {
             log.warn("Date range too short: {} days", daysBetween);
             throw new IllegalArgumentException("Date range must be at least 1 day");
         }
-        if (daysBetween > 31) {
+        if (daysBetween > props.maxRangeDays()) {
             log.warn("Date range too long: {} days", daysBetween);
-            throw new IllegalArgumentException("Date range must not exceed 31 days");
+            throw new IllegalArgumentException("Date range must not exceed " + props.maxRangeDays() + " days");
         }
     }
 
-    private String getAggregateFunction(String statistic) {
-        return switch (statistic.toLowerCase()) {
-            case "min" -> "MIN";
-            case "max" -> "MAX";
-            case "sum" -> "SUM";
-            case "average" -> "AVG";
-            default -> throw new IllegalArgumentException("Invalid statistic: " + statistic);
-        };
+    /**
+     * Filters and groups on the dictionary keys. Names are resolved through
+     * {@link DictionaryRepo}; a sensor or metric it does not know has no readings.
+     * <p>
+     * Days held by the {@link HotWindow} are answered from memory, so a range within it
+     * needs no database read at all. Of the other days, a range longer than one chunk
+     * ({@code weather.fetch.chunk}) is read chunk by chunk in parallel by the
+     * {@link ChunkedQueryEngine}, and the chunks' partials are combined like those of a
+     * single range. A single chunk is read on the calling thread.
+     */
+    private List<MetricAggregate> executeQuery(
+            List<String> sensorId,
+            List<String> metrics,
+            Set<Statistic> statistics,
+            LocalDate startDate,
+            LocalDate endDate
+    ) {
+        boolean filterSensors = sensorId != null && !sensorId.isEmpty();
+        Collection<Integer> sensorKeys = filterSensors
+                ? dictionary.findSensorKeys(sensorId).values()
+                : null;
+        if (filterSensors && sensorKeys.isEmpty()) {
+            log.debug("No known sensors in request, skipping query");
+            return List.of();
+        }
+
+        Map<String, Short> knownMetrics = dictionary.findMetricKeys(metrics);
+        Collection<Short> metricKeys = knownMetrics.values();
+        if (metricKeys.isEmpty()) {
+            log.debug("No known metrics in request, skipping query");
+            return List.of();
+        }
+
+        HotWindow.Read hot = hotWindow.read(sensorKeys, knownMetrics.keySet(), statistics, startDate, endDate);
+        if (hot.covers(startDate, endDate)) {
+            log.debug("Answered {} to {} from the hot window", startDate, endDate);
+            return combine(hot.partials());
+        }
+
+        List<ChunkedQueryEngine.DayRange> chunks = ChunkedQueryEngine.plan(startDate, endDate, props.chunk()).stream()
+                .filter(chunk -> !hot.covers(chunk.first(), chunk.last()))
+                .toList();
+        List<MetricAggregate> partials = new ArrayList<>(hot.partials());
+        if (chunks.size() == 1) {
+            ChunkedQueryEngine.DayRange chunk = chunks.get(0);
+            partials.addAll(engine.read(() -> readRange(sensorKeys, metrics, metricKeys, statistics,
+                    chunk.first(), chunk.last(), hot.days())));
+        } else {
+            log.debug("Reading {} to {} as {} chunks", startDate, endDate, chunks.size());
+            partials.addAll(engine.run(chunks, chunk -> readRange(sensorKeys, metrics, metricKeys, statistics,
+                    chunk.first(), chunk.last(), hot.days())));
+        }
+        return combine(partials);
     }
 
-    private List<Tuple> executeQuery(
-            List<String> sensorId,
+    /**
+     * Days whose rollups are complete are answered from {@code rollup_daily}; every run of
+     * other days (normally just today) is read from whichever layout
+     * {@code weather.storage.read} selects. The partial results are then combined per
+     * (sensor, metric). Sums are exact on both paths, so the answer does not depend on how
+     * the range was split. Days in {@code hotDays} were answered from memory and are skipped.
+     */
+    private List<MetricAggregate> readRange(
+            Collection<Integer> sensorKeys,
             List<String> metrics,
-            String aggregateFunction,
-            Instant startInstant,
-            Instant endInstant
+            Collection<Short> metricKeys,
+            Set<Statistic> statistics,
+            LocalDate startDate,
+            LocalDate endDate,
+            Set<LocalDate> hotDays
     ) {
-        StringBuilder jpql = new StringBuilder();
-        jpql.append("SELECT rv.sensorId AS sensorId, ")
-                .append("rv.metric AS metric, ")
-                .append(aggregateFunction).append("(rv.value) AS value, ")
-                .append("COUNT(rv.id) AS dataPoints ")
-                .append("FROM ReadingValue rv ")
-                .append("WHERE rv.ts >= :startDate AND rv.ts < :endDate ");
+        Set<LocalDate> rolledUp = rollups.enabled()
+                ? new HashSet<>(rollupRepo.rolledUpDays(startDate, endDate))
+                : new HashSet<>();
+        rolledUp.removeAll(hotDays);
+        List<MetricAggregate> partials = new ArrayList<>();
+        if (!rolledUp.isEmpty()) {
+            log.debug("Reading {} rolled-up days from rollups", rolledUp.size());
+            partials.addAll(rollupRepo.aggregate(sensorKeys, metricKeys, rolledUp,
+                    statistics.stream().anyMatch(Statistic::needsSketch)));
+        }
+
+        Set<LocalDate> skipped = new HashSet<>(rolledUp);
+        skipped.addAll(hotDays);
+        for (DayRun run : rawRuns(startDate, endDate, skipped)) {
+            partials.addAll(queryRaw(sensorKeys, metrics, metricKeys, statistics, run.from(), run.to()));
+        }
+
+        return combine(partials);
+    }
 
-        if (sensorId != null && !sensorId.isEmpty()) {
-            jpql.append("AND rv.sensorId IN :sensorId ");
+    /** Days {@code [from, to)}. */
+    private record DayRun(LocalDate from, LocalDate to) {}
+
+    /**
+     * @return the runs of consecutive days in {@code [startDate, endDate]} not in {@code skipped}
+     */
+    private static List<DayRun> rawRuns(LocalDate startDate, LocalDate endDate, Set<LocalDate> skipped) {
+        List<DayRun> runs = new ArrayList<>();
+        LocalDate runStart = null;
+        for (LocalDate day = startDate; !day.isAfter(endDate); day = day.plusDays(1)) {
+            if (!skipped.contains(day)) {
+                runStart = runStart == null ? day : runStart;
+            } else if (runStart != null) {
+                runs.add(new DayRun(runStart, day));
+                runStart = null;
+            }
         }
+        if (runStart != null) {
+            runs.add(new DayRun(runStart, endDate.plusDays(1)));
+        }
+        return runs;
+    }
 
-        jpql.append("AND rv.metric IN :metrics ")
-                .append("GROUP BY rv.sensorId, rv.metric ")
-                .append("ORDER BY rv.sensorId, rv.metric");
+    /**
+     * Aggregates raw readings of the days in {@code [from, to)} from whichever layout
+     * {@code weather.storage.read} selects, in one grouped scan.
+     *
+     * @param sensorKeys sensors to include, or {@code null} for all
+     */
+    private List<MetricAggregate> queryRaw(
+            Collection<Integer> sensorKeys,
+            List<String> metrics,
+            Collection<Short> metricKeys,
+            Set<Statistic> statistics,
+            LocalDate from,
+            LocalDate to
+    ) {
+        Instant startInstant = from.atStartOfDay(ZoneId.of("UTC")).toInstant();
+        Instant endInstant = to.atStartOfDay(ZoneId.of("UTC")).toInstant();
+
+        if (storage.readsWide()) {
+            // in ReadingRules order, so each set of metrics always gets the same statement text
+            List<String> columns = ReadingRules.metrics().stream()
+                    .map(ReadingRules.MetricRule::metric)
+                    .filter(metrics::contains)
+                    .toList();
+            log.debug("Querying wide layout: metrics={}, sensorKeys={}", columns, sensorKeys);
+            return wideRepo.aggregate(statistics, sensorKeys, columns, startInstant, endInstant);
+        }
 
-        log.debug("Executing JPQL: {}", jpql.toString());
-        log.debug("Parameters: startDate={}, endDate={}, metrics={}, sensorId={}",
-                startInstant, endInstant, metrics, sensorId);
+        log.debug("Querying narrow layout: metricKeys={}, sensorKeys={}", metricKeys, sensorKeys);
+        return narrowRepo.aggregate(statistics, sensorKeys, metricKeys, startInstant, endInstant);
+    }
 
-        TypedQuery<Tuple> query = entityManager.createQuery(jpql.toString(), Tuple.class);
-        query.setParameter("startDate", startInstant);
-        query.setParameter("endDate", endInstant);
-        query.setParameter("metrics", metrics);
+    /**
+     * Reads the ranking metric alone for {@code sensorId} (all sensors if empty), through the
+     * cache like any other query, and picks the best sensors with a heap bounded by the
+     * limit. Partials of the same (sensor, metric) may come from rollups, the hot window and
+     * several chunks, so the value a sensor is ranked by is only known once they have been
+     * combined; it is cheap next to reading all requested metrics for the whole fleet and
+     * building, then serializing, a result for every sensor. Sensors without readings of the
+     * metric are not ranked. Ties are broken by sensor name.
+     *
+     * @return the ranking metric's partial of each sensor kept, best first
+     */
+    private List<MetricAggregate> rank(List<String> sensorId, Ranking ranking,
+                                       LocalDate startDate, LocalDate endDate) {
+        List<String> metric = List.of(ranking.metric());
+        Set<Statistic> statistic = EnumSet.of(ranking.statistic());
+        List<MetricAggregate> candidates = cache.get(
+                FetchCache.Key.of(sensorId, metric, statistic, startDate, endDate),
+                () -> executeQuery(sensorId, metric, statistic, startDate, endDate)
+        );
 
-        if (sensorId != null && !sensorId.isEmpty()) {
-            query.setParameter("sensorId", sensorId);
+        Comparator<Ranked> byValue = Comparator.comparingDouble(Ranked::value);
+        Comparator<Ranked> best = (ranking.descending() ? byValue.reversed() : byValue)
+                .thenComparing(Ranked::sensorId);
+        int limit = ranking.limit() != null ? ranking.limit() : candidates.size();
+        // the worst of those kept on top, to be dropped when a better one arrives
+        PriorityQueue<Ranked> kept = new PriorityQueue<>(Math.max(1, Math.min(limit, candidates.size()) + 1),
+                best.reversed());
+        for (MetricAggregate candidate : candidates) {
+            kept.add(new Ranked(candidate, candidate.value(ranking.statistic()).doubleValue(),
+                    dictionary.sensorName(candidate.sensorKey())));
+            if (kept.size() > limit) {
+                kept.poll();
+            }
         }
 
-        return query.getResultList();
+        log.debug("Ranked {} sensors by {} {}, keeping {}", candidates.size(), ranking.metric(),
+                ranking.statistic().key(), kept.size());
+        return kept.stream()
+                .sorted(best)
+                .map(Ranked::aggregate)
+                .toList();
     }
 
+    private record Ranked(MetricAggregate aggregate, double value, String sensorId) {}
+
+    /**
+     * Combines partials of the same (sensor, metric).
+     */
+    static List<MetricAggregate> combine(List<MetricAggregate> partials) {
+        Map<Integer, Map<String, MetricAggregate>> combined = new LinkedHashMap<>();
+        for (MetricAggregate partial : partials) {
+            combined.computeIfAbsent(partial.sensorKey(), k -> new LinkedHashMap<>())
+                    .merge(partial.metric(), partial, MetricAggregate::combine);
+        }
+        return combined.values().stream()
+                .flatMap(metrics -> metrics.values().stream())
+                .toList();
+    }
+
+    /**
+     * A single {@code statistic} is returned as {@code value}, as it always was; a list of
+     * {@code statistics} is returned as {@code values}, keyed by statistic in request order.
+     */
     private Map<String, Map<String, FetchResponse.MetricStatistic>> groupResultsBySensor(
-            List<Tuple> results,
-            String statistic
+            List<MetricAggregate> results,
+            String statistic,
+            List<Statistic> statistics
     ) {
-        Map<String, Map<String, FetchResponse.MetricStatistic>> grouped = new LinkedHashMap<>();
+        // keys carry no order, so sort by name here to keep results ordered by sensor and metric
+        Map<String, Map<String, FetchResponse.MetricStatistic>> grouped = new TreeMap<>();
 
-        for (Tuple tuple : results) {
-            String sensorId = tuple.get("sensorId", String.class);
-            String metric = tuple.get("metric", String.class);
-            Double value = tuple.get("value", Double.class);
-            Integer dataPoints = ((Number) tuple.get("dataPoints")).intValue();
-
-            grouped.computeIfAbsent(sensorId, k -> new LinkedHashMap<>())
-                    .put(metric, new FetchResponse.MetricStatistic(
-                            metric,
-                            statistic,
-                            value,
-                            dataPoints
-                    ));
+        for (MetricAggregate result : results) {
+            grouped.computeIfAbsent(dictionary.sensorName(result.sensorKey()), k -> new TreeMap<>())
+                    .put(result.metric(), toMetricStatistic(result, statistic, statistics));
         }
 
         log.debug("Grouped results into {} sensors", grouped.size());
         return grouped;
     }
-}
\ No newline at end of file
+
+    private static FetchResponse.MetricStatistic toMetricStatistic(MetricAggregate result, String statistic,
+                                                                   List<Statistic> statistics) {
+        Double value = null;
+        Map<String, Number> values = null;
+        if (statistic != null) {
+            value = result.value(statistics.get(0)).doubleValue();
+        } else {
+            values = new LinkedHashMap<>();
+            for (Statistic each : statistics) {
+                values.put(each.key(), result.value(each));
+            }
+        }
+        return new FetchResponse.MetricStatistic(
+                result.metric(),
+                statistic,
+                value,
+                result.dataPoints(),
+                values
+        );
+    }
+
+    /**
+     * Combines the partials of one sensor at a time, writing the sensor out when partials of
+     * the next one arrive.
+     */
+    private final class SensorStream {
+
+        private final JsonGenerator generator;
+        private final String statistic;
+        private final List<Statistic> statistics;
+        private final Map<String, MetricAggregate> metrics = new TreeMap<>();
+        private int sensorKey;
+        private int count;
+        private long dataPoints;
+
+        SensorStream(JsonGenerator generator, String statistic, List<Statistic> statistics) {
+            this.generator = generator;
+            this.statistic = statistic;
+            this.statistics = statistics;
+        }
+
+        void add(MetricAggregate partial) {
+            if (!metrics.isEmpty() && partial.sensorKey() != sensorKey) {
+                finish();
+            }
+            sensorKey = partial.sensorKey();
+            metrics.merge(partial.metric(), partial, MetricAggregate::combine);
+        }
+
+        void finish() {
+            if (metrics.isEmpty()) {
+                return;
+            }
+            Map<String, FetchResponse.MetricStatistic> results = new LinkedHashMap<>();
+            for (MetricAggregate result : metrics.values()) {
+                results.put(result.metric(), toMetricStatistic(result, statistic, statistics));
+                dataPoints += result.dataPoints();
+            }
+            try {
+                generator.writeObject(new FetchResponse.SensorResult(dictionary.sensorName(sensorKey), results));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            count++;
+            metrics.clear();
+        }
+    }
+}
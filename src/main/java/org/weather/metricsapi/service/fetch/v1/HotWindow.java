@@ -0,0 +1,523 @@
+package org.weather.metricsapi.service.fetch.v1;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.weather.metricsapi.config.FetchProperties;
+import org.weather.metricsapi.config.StorageProperties;
+import org.weather.metricsapi.dto.fetch.v1.Statistic;
+import org.weather.metricsapi.dto.update.v1.ReadingRules;
+import org.weather.metricsapi.repository.HotWindowRepo;
+import org.weather.metricsapi.repository.MetricAggregate;
+import org.weather.metricsapi.util.QuantileSketch;
+import org.weather.metricsapi.util.Transactions;
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.math.RoundingMode;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The raw readings of the last {@code weather.fetch.hot-window.days} UTC days, held in
+ * memory so fetches of recent days need not scan them in the database.
+ * <p>
+ * Each sensor has a ring of day slots, one per day of the window, reused as days roll over.
+ * A slot holds the day's distinct timestamps in order as a {@code long[]} of epoch
+ * microseconds, and one {@code double[]} per metric the sensor reported that day, with NaN
+ * where a reading lacks the metric. Nothing is boxed, and writing a reading that is already
+ * there just overwrites it, so a reading may arrive both from ingest and from loading its
+ * day without being counted twice. A slot grows by doubling up to
+ * {@code maxReadingsPerDay}; a sensor with more readings than that in a day turns the whole
+ * day back over to the database.
+ * <p>
+ * A day is answered from memory only once it is <em>hot</em>: loaded from the database in
+ * the background after entering the window, with every reading ingested since recorded on
+ * commit. A bulk write to a day makes it cold until it has been loaded again. A read checks
+ * that the days it used were still hot when it finished, so it never mixes a day with a
+ * reload of it.
+ * <p>
+ * Only writes made by this instance are recorded; with several instances writing, each
+ * would miss the others' readings, so the window must then be disabled.
+ */
+@Component
+public class HotWindow implements SmartLifecycle {
+
+    private static final Logger log = LoggerFactory.getLogger(HotWindow.class);
+
+    // stop after the web server has stopped taking requests, before the datasource closes
+    private static final int PHASE = SmartLifecycle.DEFAULT_PHASE - 4096;
+
+    private static final int METRICS = ReadingRules.metrics().size();
+    private static final int INITIAL_CAPACITY = 16;
+    private static final int READ_ATTEMPTS = 3;
+    // float8::numeric keeps 15 significant digits
+    private static final MathContext NUMERIC = new MathContext(15, RoundingMode.HALF_EVEN);
+
+    /**
+     * The days of a fetch range answered from memory, and the partials of those days.
+     */
+    public record Read(Set<LocalDate> days, List<MetricAggregate> partials) {
+
+        static final Read NONE = new Read(Set.of(), List.of());
+
+        /**
+         * @return whether every day of {@code [first, last]} was answered from memory
+         */
+        public boolean covers(LocalDate first, LocalDate last) {
+            for (LocalDate day = first; !day.isAfter(last); day = day.plusDays(1)) {
+                if (!days.contains(day)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    /**
+     * What is known about one day of the window. Every state is created with a new
+     * {@code generation}, so two states are equal only if they are the same state.
+     */
+    private record DayState(boolean hot, boolean overflowed, long generation) {}
+
+    private final HotWindowRepo repo;
+    private final FetchProperties.HotWindow props;
+    private final StorageProperties storage;
+    private final TransactionTemplate tx;
+    private final Clock clock;
+    private final Counter overflows;
+    private final ConcurrentHashMap<Integer, Sensor> sensors = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<LocalDate, DayState> days = new ConcurrentHashMap<>();
+    private final AtomicLong generations = new AtomicLong();
+
+    private volatile boolean running;
+    private ScheduledExecutorService scheduler;
+
+    public HotWindow(HotWindowRepo repo, FetchProperties fetch, StorageProperties storage,
+                     PlatformTransactionManager transactionManager, Clock clock, MeterRegistry registry) {
+        this.repo = repo;
+        this.props = fetch.hotWindow();
+        this.storage = storage;
+        this.tx = new TransactionTemplate(transactionManager);
+        this.tx.setReadOnly(true);
+        this.clock = clock;
+        this.overflows = Counter.builder("weather.fetch.hot.overflows")
+                .description("Days turned over to the database because a sensor had too many readings")
+                .register(registry);
+        Gauge.builder("weather.fetch.hot.days", days, hot -> hot.values().stream().filter(DayState::hot).count())
+                .description("Days answered from memory")
+                .register(registry);
+    }
+
+    /**
+     * Records one reading, with {@code values} indexed like {@link ReadingRules#metrics()}
+     * and {@code null} for metrics it does not carry. Call only once it has committed.
+     * Readings of days outside the window are ignored.
+     */
+    public void record(int sensorKey, Instant ts, Double[] values) {
+        if (!props.enabled()) {
+            return;
+        }
+        long micros = micros(ts);
+        LocalDate day = day(micros);
+        if (day.isBefore(oldest()) || day.isAfter(LocalDate.now(clock))) {
+            return;
+        }
+        days.computeIfAbsent(day, d -> newState(false, false));
+        for (int i = 0; i < METRICS; i++) {
+            if (values[i] != null) {
+                put(sensorKey, day, micros, i, values[i]);
+            }
+        }
+    }
+
+    /**
+     * Makes the days cold, once the current transaction commits, and loads them again. Call
+     * for days written other than through {@link #record}, before dropping cached fetches of
+     * them, so a fetch run in between cannot read the days from memory as they were.
+     */
+    public void written(Collection<LocalDate> written) {
+        if (!props.enabled()) {
+            return;
+        }
+        Transactions.afterCommit(() -> {
+            boolean cooled = false;
+            for (LocalDate day : written) {
+                DayState state;
+                while ((state = days.get(day)) != null && !state.overflowed()) {
+                    if (days.replace(day, state, newState(false, false))) {
+                        cooled = true;
+                        break;
+                    }
+                }
+            }
+            ScheduledExecutorService loader = scheduler;
+            if (cooled && loader != null) {
+                loader.execute(this::refreshQuietly);
+            }
+        });
+    }
+
+    /**
+     * Aggregates the readings in memory of the hot days in {@code [first, last]}, computing
+     * only the partials the statistics need, exactly as the database would: min and max as
+     * the values themselves, the sum over each value as {@code numeric}, and sketch buckets
+     * from {@link QuantileSketch#key}.
+     *
+     * @param sensorKeys sensors to include, or {@code null} for all
+     * @param metrics    metric names; if one is not in {@link ReadingRules#metrics()}, no day
+     *                   is answered from memory
+     */
+    public Read read(Collection<Integer> sensorKeys, Collection<String> metrics, Set<Statistic> statistics,
+                     LocalDate first, LocalDate last) {
+        if (!props.enabled()) {
+            return Read.NONE;
+        }
+        int[] positions = metrics.stream().distinct().mapToInt(ReadingRules::index).toArray();
+        if (Arrays.stream(positions).anyMatch(position -> position < 0)) {
+            return Read.NONE;
+        }
+        for (int attempt = 0; attempt < READ_ATTEMPTS; attempt++) {
+            Map<LocalDate, DayState> used = new HashMap<>();
+            LocalDate from = first.isBefore(oldest()) ? oldest() : first;
+            for (LocalDate day = from; !day.isAfter(last); day = day.plusDays(1)) {
+                DayState state = days.get(day);
+                if (state != null && state.hot()) {
+                    used.put(day, state);
+                }
+            }
+            if (used.isEmpty()) {
+                return Read.NONE;
+            }
+            List<MetricAggregate> partials = aggregate(sensorKeys, positions, statistics, used.keySet());
+            if (used.entrySet().stream().allMatch(entry -> entry.getValue().equals(days.get(entry.getKey())))) {
+                return new Read(Set.copyOf(used.keySet()), partials);
+            }
+        }
+        log.debug("Hot days kept changing while reading {} to {}, reading them from the database", first, last);
+        return Read.NONE;
+    }
+
+    /**
+     * Drops the days that left the window and loads every day in it that is not hot.
+     *
+     * @return the number of days loaded
+     */
+    public synchronized int refresh() {
+        LocalDate today = LocalDate.now(clock);
+        LocalDate oldest = oldest();
+        days.keySet().removeIf(day -> day.isBefore(oldest));
+        long oldestEpochDay = oldest.toEpochDay();
+        sensors.values().forEach(sensor -> sensor.drop(oldestEpochDay));
+
+        int loaded = 0;
+        for (LocalDate day = oldest; !day.isAfter(today); day = day.plusDays(1)) {
+            DayState state = days.computeIfAbsent(day, d -> newState(false, false));
+            if (!state.hot() && !state.overflowed()) {
+                load(day, state);
+                loaded++;
+            }
+        }
+        return loaded;
+    }
+
+    private void refreshQuietly() {
+        try {
+            refresh();
+        } catch (RuntimeException e) {
+            log.error("Loading the hot window failed, retrying in {}: {}", props.checkInterval(), e.getMessage(), e);
+        }
+    }
+
+    private void load(LocalDate day, DayState state) {
+        long start = System.nanoTime();
+        long[] values = {0};
+        tx.executeWithoutResult(status -> repo.forEachReading(
+                day.atStartOfDay(ZoneOffset.UTC).toInstant(),
+                day.plusDays(1).atStartOfDay(ZoneOffset.UTC).toInstant(),
+                storage.readsWide(),
+                (sensorKey, ts, metric, value) -> {
+                    put(sensorKey, day, micros(ts), metric, value);
+                    values[0]++;
+                }));
+        // a write or an overflow since the load began leaves the day cold
+        if (days.replace(day, state, newState(true, false))) {
+            log.info("Hot window loaded {}: values={}, took={}ms",
+                    day, values[0], TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        }
+    }
+
+    private void put(int sensorKey, LocalDate day, long micros, int metric, double value) {
+        Sensor sensor = sensors.computeIfAbsent(sensorKey, key -> new Sensor());
+        if (!sensor.put(day.toEpochDay(), micros, metric, value)) {
+            overflow(day);
+        }
+    }
+
+    private void overflow(LocalDate day) {
+        DayState state;
+        while ((state = days.get(day)) != null && !state.overflowed()) {
+            if (days.replace(day, state, newState(false, true))) {
+                overflows.increment();
+                log.warn("A sensor has more than {} readings on {}, reading the day from the database",
+                        props.maxReadingsPerDay(), day);
+                return;
+            }
+        }
+    }
+
+    private List<MetricAggregate> aggregate(Collection<Integer> sensorKeys, int[] positions,
+                                            Set<Statistic> statistics, Set<LocalDate> hotDays) {
+        long[] epochDays = hotDays.stream().mapToLong(LocalDate::toEpochDay).toArray();
+        boolean sum = statistics.stream().anyMatch(Statistic::needsSum);
+        boolean sketch = statistics.stream().anyMatch(Statistic::needsSketch);
+        Cell[] cells = new Cell[positions.length];
+        List<MetricAggregate> partials = new ArrayList<>();
+
+        Collection<Integer> keys = sensorKeys != null ? new HashSet<>(sensorKeys) : sensors.keySet();
+        for (int sensorKey : keys) {
+            Sensor sensor = sensors.get(sensorKey);
+            if (sensor == null) {
+                continue;
+            }
+            for (int i = 0; i < cells.length; i++) {
+                cells[i] = new Cell(sum, sketch);
+            }
+            sensor.accumulate(epochDays, positions, cells);
+            for (int i = 0; i < cells.length; i++) {
+                if (cells[i].count > 0) {
+                    partials.add(cells[i].toAggregate(sensorKey, ReadingRules.metrics().get(positions[i]).metric(),
+                            statistics));
+                }
+            }
+        }
+        return partials;
+    }
+
+    private LocalDate oldest() {
+        return LocalDate.now(clock).minusDays(props.days() - 1);
+    }
+
+    private DayState newState(boolean hot, boolean overflowed) {
+        return new DayState(hot, overflowed, generations.incrementAndGet());
+    }
+
+    /**
+     * @return {@code ts} in epoch microseconds, rounded as the database stores it
+     */
+    private static long micros(Instant ts) {
+        return ts.getEpochSecond() * 1_000_000 + (ts.getNano() + 500) / 1_000;
+    }
+
+    private static LocalDate day(long micros) {
+        return LocalDate.ofEpochDay(Math.floorDiv(micros, 86_400_000_000L));
+    }
+
+    /**
+     * @return {@code value} as PostgreSQL casts a {@code double precision} to {@code numeric}
+     */
+    static BigDecimal numeric(double value) {
+        BigDecimal shortest = BigDecimal.valueOf(value);
+        return shortest.precision() <= NUMERIC.getPrecision() ? shortest : new BigDecimal(value).round(NUMERIC);
+    }
+
+    /** The window's day slots of one sensor. */
+    private final class Sensor {
+
+        private final Slot[] slots = new Slot[props.days()];
+
+        /**
+         * @return {@code false} if the day's slot is full
+         */
+        synchronized boolean put(long epochDay, long micros, int metric, double value) {
+            int index = (int) Math.floorMod(epochDay, (long) slots.length);
+            Slot slot = slots[index];
+            if (slot == null || slot.epochDay < epochDay) {
+                slot = new Slot(epochDay, Math.min(INITIAL_CAPACITY, props.maxReadingsPerDay()));
+                slots[index] = slot;
+            } else if (slot.epochDay > epochDay) {
+                // the day has left the window
+                return true;
+            }
+            return slot.put(micros, metric, value, props.maxReadingsPerDay());
+        }
+
+        synchronized void accumulate(long[] epochDays, int[] positions, Cell[] cells) {
+            for (long epochDay : epochDays) {
+                Slot slot = slots[(int) Math.floorMod(epochDay, (long) slots.length)];
+                if (slot == null || slot.epochDay != epochDay) {
+                    continue;
+                }
+                for (int i = 0; i < positions.length; i++) {
+                    double[] values = slot.values[positions[i]];
+                    if (values != null) {
+                        for (int j = 0; j < slot.size; j++) {
+                            cells[i].add(values[j]);
+                        }
+                    }
+                }
+            }
+        }
+
+        synchronized void drop(long oldestEpochDay) {
+            for (int i = 0; i < slots.length; i++) {
+                if (slots[i] != null && slots[i].epochDay < oldestEpochDay) {
+                    slots[i] = null;
+                }
+            }
+        }
+    }
+
+    /** One sensor's readings of one day, ordered by timestamp. */
+    private static final class Slot {
+
+        private final long epochDay;
+        private long[] ts;
+        // by metric position, allocated on the first value of the metric
+        private final double[][] values = new double[METRICS][];
+        private int size;
+
+        Slot(long epochDay, int capacity) {
+            this.epochDay = epochDay;
+            this.ts = new long[capacity];
+        }
+
+        /**
+         * @return {@code false} if the timestamp is new and the slot already holds {@code max}
+         */
+        boolean put(long micros, int metric, double value, int max) {
+            // readings mostly arrive in order: try the end first
+            int index = size == 0 || ts[size - 1] < micros ? -size - 1 : Arrays.binarySearch(ts, 0, size, micros);
+            if (index < 0) {
+                if (size == max) {
+                    return false;
+                }
+                index = -index - 1;
+                if (size == ts.length) {
+                    grow(Math.min(max, ts.length * 2));
+                }
+                System.arraycopy(ts, index, ts, index + 1, size - index);
+                ts[index] = micros;
+                for (double[] column : values) {
+                    if (column != null) {
+                        System.arraycopy(column, index, column, index + 1, size - index);
+                        column[index] = Double.NaN;
+                    }
+                }
+                size++;
+            }
+            if (values[metric] == null) {
+                values[metric] = new double[ts.length];
+                Arrays.fill(values[metric], Double.NaN);
+            }
+            values[metric][index] = value;
+            return true;
+        }
+
+        private void grow(int capacity) {
+            ts = Arrays.copyOf(ts, capacity);
+            for (int i = 0; i < values.length; i++) {
+                if (values[i] != null) {
+                    int used = values[i].length;
+                    values[i] = Arrays.copyOf(values[i], capacity);
+                    Arrays.fill(values[i], used, capacity, Double.NaN);
+                }
+            }
+        }
+    }
+
+    /** The partials of one (sensor, metric) being accumulated. */
+    private static final class Cell {
+
+        private final boolean sum;
+        private final Map<Integer, Long> buckets;
+        private double min = Double.POSITIVE_INFINITY;
+        private double max = Double.NEGATIVE_INFINITY;
+        private BigDecimal total = BigDecimal.ZERO;
+        private long count;
+
+        Cell(boolean sum, boolean sketch) {
+            this.sum = sum;
+            this.buckets = sketch ? new HashMap<>() : null;
+        }
+
+        void add(double value) {
+            if (Double.isNaN(value)) {
+                return;
+            }
+            min = Math.min(min, value);
+            max = Math.max(max, value);
+            if (sum) {
+                total = total.add(numeric(value));
+            }
+            if (buckets != null) {
+                buckets.merge(QuantileSketch.key(value), 1L, Long::sum);
+            }
+            count++;
+        }
+
+        MetricAggregate toAggregate(int sensorKey, String metric, Set<Statistic> statistics) {
+            return new MetricAggregate(sensorKey, metric,
+                    statistics.contains(Statistic.MIN) ? BigDecimal.valueOf(min) : null,
+                    statistics.contains(Statistic.MAX) ? BigDecimal.valueOf(max) : null,
+                    sum ? total : null,
+                    buckets != null ? QuantileSketch.of(buckets) : null,
+                    count);
+        }
+    }
+
+    @Override
+    public void start() {
+        running = true;
+        if (!props.enabled()) {
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "hot-window-loader");
+            thread.setDaemon(true);
+            return thread;
+        });
+        // until a day is loaded it is read from the database: keep loading off the startup path
+        scheduler.scheduleWithFixedDelay(this::refreshQuietly, 0, props.checkInterval().toMillis(),
+                TimeUnit.MILLISECONDS);
+        log.info("Hot window started: days={}, maxReadingsPerDay={}", props.days(), props.maxReadingsPerDay());
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    @Override
+    public int getPhase() {
+        return PHASE;
+    }
+}
@@ -0,0 +1,371 @@
+package org.weather.metricsapi.service.imports.v1;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Service;
+import org.weather.metricsapi.config.ImportProperties;
+import org.weather.metricsapi.config.StorageProperties;
+import org.weather.metricsapi.dto.admin.v1.ImportReport;
+import org.weather.metricsapi.dto.update.v1.ReadingRules;
+import org.weather.metricsapi.repository.DictionaryRepo;
+import org.weather.metricsapi.repository.RollupRepo;
+import org.weather.metricsapi.repository.WideReadingRepo;
+import org.weather.metricsapi.service.fetch.v1.FetchCache;
+import org.weather.metricsapi.service.fetch.v1.HotWindow;
+import org.weather.metricsapi.service.latest.v1.LatestIndex;
+import org.weather.metricsapi.service.storage.v1.PartitionManager;
+import javax.sql.DataSource;
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bulk loader for historical backfill.
+ * <p>
+ * The input is read line by line on the calling thread, checked against {@link ReadingRules}
+ * and rendered into chunks of COPY text. Chunks are loaded in parallel on a bounded pool;
+ * each one is a single transaction that {@code COPY}s into temporary staging tables and then
+ * moves the rows into {@code snapshots}/{@code reading_values} with
+ * {@code ON CONFLICT DO NOTHING}, so re-running a partially loaded file is safe. When the
+ * wide layout is written ({@code weather.storage.write=dual|wide}) the staged values are also
+ * pivoted into {@code readings}; with {@code wide} alone the report counts wide rows as
+ * snapshots. Unlike the update API, rows carry their own timestamps.
+ */
+@Service
+public class BulkImportService {
+
+    private static final Logger log = LoggerFactory.getLogger(BulkImportService.class);
+
+    private static final String CREATE_STAGING_SNAPSHOTS =
+            "create temp table import_snapshots (id uuid, sensor_id text, ts timestamptz) on commit drop";
+    private static final String CREATE_STAGING_VALUES =
+            "create temp table import_values (id uuid, snapshot_id uuid, sensor_key integer, ts timestamptz, "
+                    + "metric_key smallint, value double precision) on commit drop";
+    private static final String COPY_SNAPSHOTS =
+            "copy import_snapshots (id, sensor_id, ts) from stdin with (format csv)";
+    private static final String COPY_VALUES =
+            "copy import_values (id, snapshot_id, sensor_key, ts, metric_key, value) from stdin with (format csv)";
+    private static final String MOVE_SNAPSHOTS =
+            "insert into snapshots (id, sensor_id, ts) select id, sensor_id, ts from import_snapshots "
+                    + "on conflict (sensor_id, ts) do nothing";
+    // values only follow snapshots inserted by this chunk; readings already stored are skipped whole
+    private static final String MOVE_VALUES =
+            "insert into reading_values (id, snapshot_id, sensor_key, ts, metric_key, value) "
+                    + "select v.id, v.snapshot_id, v.sensor_key, v.ts, v.metric_key, v.value "
+                    + "from import_values v join snapshots s on s.id = v.snapshot_id and s.ts = v.ts "
+                    + "on conflict do nothing";
+
+    private final DataSource dataSource;
+    private final DictionaryRepo dictionary;
+    private final ObjectMapper objectMapper;
+    private final ImportProperties props;
+    private final StorageProperties storage;
+    private final ObjectProvider<PartitionManager> partitions;
+    private final RollupRepo rollups;
+    private final FetchCache fetchCache;
+    private final LatestIndex latestIndex;
+    private final HotWindow hotWindow;
+
+    public BulkImportService(DataSource dataSource, DictionaryRepo dictionary, ObjectMapper objectMapper,
+                             ImportProperties props, StorageProperties storage,
+                             ObjectProvider<PartitionManager> partitions, RollupRepo rollups, FetchCache fetchCache,
+                             LatestIndex latestIndex, HotWindow hotWindow) {
+        this.dataSource = dataSource;
+        this.dictionary = dictionary;
+        this.objectMapper = objectMapper;
+        this.props = props;
+        this.storage = storage;
+        this.partitions = partitions;
+        this.rollups = rollups;
+        this.fetchCache = fetchCache;
+        this.latestIndex = latestIndex;
+        this.hotWindow = hotWindow;
+    }
+
+    public ImportReport importStream(String source, ImportFormat format, InputStream in) throws IOException {
+        log.info("Starting bulk import: source={}, format={}, chunkRows={}, parallelism={}",
+                source, format, props.chunkRows(), props.parallelism());
+
+        long start = System.nanoTime();
+        Progress progress = new Progress(props.maxReportedErrors());
+        ExecutorService pool = Executors.newFixedThreadPool(props.parallelism(), loaderThreads());
+        // at most parallelism + 1 chunks loading or queued, plus the one being filled,
+        // so memory stays bounded whatever the file size
+        Semaphore slots = new Semaphore(props.parallelism() + 1);
+
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8))) {
+            RowParser parser = format == ImportFormat.NDJSON ? new NdjsonRowParser(objectMapper) : null;
+            short[] metricKeys = metricKeys();
+            String moveWide = moveWide(metricKeys);
+            ImportChunk chunk = new ImportChunk(metricKeys);
+            String line;
+            long lineNo = 0;
+
+            while ((line = reader.readLine()) != null) {
+                lineNo++;
+                if (line.isBlank()) {
+                    continue;
+                }
+                if (parser == null) {
+                    parser = new CsvRowParser(line);
+                    continue;
+                }
+                progress.linesRead.incrementAndGet();
+
+                String error = accept(parser, line, lineNo, chunk);
+                if (error != null) {
+                    progress.reject(lineNo, error);
+                    continue;
+                }
+                if (chunk.rows() >= props.chunkRows()) {
+                    submit(pool, slots, chunk, moveWide, progress);
+                    chunk = new ImportChunk(metricKeys);
+                }
+            }
+            if (chunk.rows() > 0) {
+                submit(pool, slots, chunk, moveWide, progress);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Import interrupted", e);
+        } finally {
+            pool.shutdown();
+            awaitQuietly(pool);
+        }
+
+        ImportReport report = progress.report(source, format, System.nanoTime() - start);
+        log.info("Bulk import finished: source={}, rows={}, rejected={}, snapshots={}, values={}, "
+                        + "duplicates={}, failedChunks={}, elapsed={}ms, rows/s={}",
+                source, report.rowsAccepted(), report.rowsRejected(), report.snapshotsInserted(),
+                report.valuesInserted(), report.duplicatesSkipped(), report.chunksFailed(),
+                report.elapsedMillis(), Math.round(report.rowsPerSecond()));
+        return report;
+    }
+
+    private short[] metricKeys() {
+        List<ReadingRules.MetricRule> rules = ReadingRules.metrics();
+        short[] keys = new short[rules.size()];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = dictionary.metricKey(rules.get(i).metric());
+        }
+        return keys;
+    }
+
+    /**
+     * Pivots the staged values into {@code readings}, one row per (sensor, ts); readings
+     * already there are skipped. Returns the rows and the metric values inserted.
+     */
+    private static String moveWide(short[] metricKeys) {
+        List<String> columns = ReadingRules.metrics().stream()
+                .map(rule -> WideReadingRepo.column(rule.metric()))
+                .toList();
+        StringBuilder pivot = new StringBuilder();
+        for (int i = 0; i < metricKeys.length; i++) {
+            pivot.append(", max(v.value) filter (where v.metric_key = ").append(metricKeys[i]).append(')');
+        }
+        String columnList = String.join(", ", columns);
+        return "with moved as (insert into readings (sensor_key, ts, " + columnList + ") "
+                + "select v.sensor_key, v.ts" + pivot + " from import_values v group by v.sensor_key, v.ts "
+                + "on conflict (sensor_key, ts) do nothing returning " + columnList + ") "
+                + "select count(*), coalesce(sum(num_nonnulls(" + columnList + ")), 0) from moved";
+    }
+
+    private String accept(RowParser parser, String line, long lineNo, ImportChunk chunk) {
+        ImportRow row;
+        try {
+            row = parser.parse(line);
+        } catch (IllegalArgumentException e) {
+            return e.getMessage();
+        }
+
+        String error = ReadingRules.checkSensorId(row.sensorId());
+        if (error != null) {
+            return "sensorId: " + error;
+        }
+        List<ReadingRules.MetricRule> rules = ReadingRules.metrics();
+        for (int i = 0; i < rules.size(); i++) {
+            error = rules.get(i).check(row.values()[i]);
+            if (error != null) {
+                return rules.get(i).metric() + ": " + error;
+            }
+        }
+        // a new sensor is registered here, so chunks only ever reference existing keys
+        chunk.add(lineNo, row, dictionary.sensorKey(row.sensorId()));
+        return null;
+    }
+
+    private void submit(ExecutorService pool, Semaphore slots, ImportChunk chunk, String moveWide,
+                        Progress progress) throws InterruptedException {
+        slots.acquire();
+        pool.execute(() -> {
+            try {
+                long[] inserted = load(chunk, moveWide);
+                progress.loaded(chunk, inserted[0], inserted[1]);
+            } catch (SQLException | IOException | RuntimeException e) {
+                log.error("Failed to load import chunk lines {}-{}: {}",
+                        chunk.firstLine(), chunk.lastLine(), e.getMessage(), e);
+                progress.failed(chunk, e);
+            } finally {
+                slots.release();
+            }
+        });
+    }
+
+    private long[] load(ImportChunk chunk, String moveWide) throws SQLException, IOException {
+        // historical rows would otherwise pile up in the default partitions
+        partitions.ifAvailable(manager -> manager.ensure(chunk.days()));
+        try (Connection connection = dataSource.getConnection()) {
+            connection.setAutoCommit(false);
+            try (Statement statement = connection.createStatement()) {
+                CopyManager copy = connection.unwrap(PGConnection.class).getCopyAPI();
+                statement.execute(CREATE_STAGING_VALUES);
+                copy.copyIn(COPY_VALUES, new ByteArrayInputStream(chunk.valueCopyData()));
+
+                long snapshots = 0;
+                long values = 0;
+                if (storage.writesNarrow()) {
+                    statement.execute(CREATE_STAGING_SNAPSHOTS);
+                    copy.copyIn(COPY_SNAPSHOTS, new ByteArrayInputStream(chunk.snapshotCopyData()));
+                    snapshots = statement.executeUpdate(MOVE_SNAPSHOTS);
+                    values = statement.executeUpdate(MOVE_VALUES);
+                }
+                if (storage.writesWide()) {
+                    try (ResultSet moved = statement.executeQuery(moveWide)) {
+                        moved.next();
+                        if (!storage.writesNarrow()) {
+                            snapshots = moved.getLong(1);
+                            values = moved.getLong(2);
+                        }
+                    }
+                }
+                // rollups of these days no longer include every reading
+                rollups.invalidate(connection, chunk.days());
+                connection.commit();
+                hotWindow.written(chunk.days());
+                fetchCache.written(chunk.days());
+                chunk.recordLatest(latestIndex);
+
+                log.debug("Loaded import chunk lines {}-{}: snapshots={}, values={}",
+                        chunk.firstLine(), chunk.lastLine(), snapshots, values);
+                return new long[]{snapshots, values};
+            } catch (SQLException | IOException | RuntimeException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(true);
+            }
+        }
+    }
+
+    private static ThreadFactory loaderThreads() {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, "bulk-import-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    private static void awaitQuietly(ExecutorService pool) {
+        try {
+            while (!pool.awaitTermination(1, TimeUnit.MINUTES)) {
+                log.info("Waiting for import chunks to finish loading");
+            }
+        } catch (InterruptedException e) {
+            pool.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static final class Progress {
+
+        final AtomicLong linesRead = new AtomicLong();
+        final AtomicLong rowsAccepted = new AtomicLong();
+        final AtomicLong rowsRejected = new AtomicLong();
+        final AtomicLong snapshotsInserted = new AtomicLong();
+        final AtomicLong valuesInserted = new AtomicLong();
+        final AtomicLong duplicates = new AtomicLong();
+        final AtomicInteger chunksLoaded = new AtomicInteger();
+        final AtomicInteger chunksFailed = new AtomicInteger();
+        final List<ImportReport.LineError> errors = Collections.synchronizedList(new ArrayList<>());
+        final int maxErrors;
+
+        Progress(int maxErrors) {
+            this.maxErrors = maxErrors;
+        }
+
+        void reject(long line, String message) {
+            rowsRejected.incrementAndGet();
+            addError(line, message);
+        }
+
+        void loaded(ImportChunk chunk, long snapshots, long values) {
+            rowsAccepted.addAndGet(chunk.rows());
+            snapshotsInserted.addAndGet(snapshots);
+            valuesInserted.addAndGet(values);
+            duplicates.addAndGet(chunk.rows() - snapshots);
+            chunksLoaded.incrementAndGet();
+        }
+
+        void failed(ImportChunk chunk, Exception e) {
+            chunksFailed.incrementAndGet();
+            rowsRejected.addAndGet(chunk.rows());
+            addError(chunk.firstLine(), "lines " + chunk.firstLine() + "-" + chunk.lastLine()
+                    + " could not be loaded: " + e.getMessage());
+        }
+
+        private void addError(long line, String message) {
+            synchronized (errors) {
+                if (errors.size() < maxErrors) {
+                    errors.add(new ImportReport.LineError(line, message));
+                }
+            }
+        }
+
+        ImportReport report(String source, ImportFormat format, long elapsedNanos) {
+            double seconds = Math.max(elapsedNanos / 1e9, 1e-9);
+            List<ImportReport.LineError> sorted;
+            synchronized (errors) {
+                sorted = new ArrayList<>(errors);
+            }
+            sorted.sort((a, b) -> Long.compare(a.line(), b.line()));
+            return new ImportReport(
+                    source,
+                    format.name().toLowerCase(),
+                    linesRead.get(),
+                    rowsAccepted.get(),
+                    rowsRejected.get(),
+                    snapshotsInserted.get(),
+                    valuesInserted.get(),
+                    duplicates.get(),
+                    chunksLoaded.get(),
+                    chunksFailed.get(),
+                    TimeUnit.NANOSECONDS.toMillis(elapsedNanos),
+                    rowsAccepted.get() / seconds,
+                    valuesInserted.get() / seconds,
+                    sorted.isEmpty() ? null : sorted
+            );
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package org.weather.metricsapi.service.imports.v1;
+
+import org.weather.metricsapi.dto.update.v1.ReadingRules;
+import java.util.List;
+
+/**
+ * Parses CSV with a header line naming the columns: {@code sensorId}, {@code timestamp} and
+ * any subset of the metric names, in any order. Empty cells mean the metric is absent.
+ */
+final class CsvRowParser implements RowParser {
+
+    private static final int SENSOR = -1;
+    private static final int TIMESTAMP = -2;
+
+    private final int[] columns;
+
+    CsvRowParser(String header) {
+        String[] names = header.split(",", -1);
+        List<ReadingRules.MetricRule> rules = ReadingRules.metrics();
+        columns = new int[names.length];
+        boolean hasSensor = false;
+        boolean hasTimestamp = false;
+
+        for (int i = 0; i < names.length; i++) {
+            String name = unquote(names[i]);
+            if (name.equals("sensorId")) {
+                columns[i] = SENSOR;
+                hasSensor = true;
+            } else if (name.equals("timestamp")) {
+                columns[i] = TIMESTAMP;
+                hasTimestamp = true;
+            } else {
+                ReadingRules.MetricRule rule = ReadingRules.metric(name);
+                if (rule == null) {
+                    throw new IllegalArgumentException("Unknown CSV column: " + name);
+                }
+                columns[i] = rules.indexOf(rule);
+            }
+        }
+        if (!hasSensor || !hasTimestamp) {
+            throw new IllegalArgumentException("CSV header must include sensorId and timestamp columns");
+        }
+    }
+
+    @Override
+    public ImportRow parse(String line) {
+        String[] cells = line.split(",", -1);
+        if (cells.length != columns.length) {
+            throw new IllegalArgumentException(
+                    "expected " + columns.length + " columns but found " + cells.length);
+        }
+
+        String sensorId = null;
+        String timestamp = null;
+        Double[] values = new Double[ReadingRules.metrics().size()];
+        for (int i = 0; i < cells.length; i++) {
+            String cell = unquote(cells[i]);
+            switch (columns[i]) {
+                case SENSOR -> sensorId = cell;
+                case TIMESTAMP -> timestamp = cell;
+                default -> values[columns[i]] = parseValue(cell, i);
+            }
+        }
+        return new ImportRow(sensorId, RowParser.parseTimestamp(timestamp), values);
+    }
+
+    private Double parseValue(String cell, int column) {
+        if (cell.isEmpty()) {
+            return null;
+        }
+        try {
+            return Double.valueOf(cell);
+        } catch (NumberFormatException e) {
+            String metric = ReadingRules.metrics().get(columns[column]).metric();
+            throw new IllegalArgumentException(metric + " must be a number");
+        }
+    }
+
+    private static String unquote(String cell) {
+        String trimmed = cell.trim();
+        if (trimmed.length() >= 2 && trimmed.startsWith("\"") && trimmed.endsWith("\"")) {
+            return trimmed.substring(1, trimmed.length() - 1).trim();
+        }
+        return trimmed;
+    }
+}
@@ -0,0 +1,89 @@
+package org.weather.metricsapi.service.imports.v1;
+
+import org.weather.metricsapi.dto.update.v1.ReadingRules;
+import org.weather.metricsapi.service.latest.v1.LatestIndex;
+import org.weather.metricsapi.util.UuidV7;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * A slice of the input already rendered as COPY text (CSV format) for the two staging
+ * tables, so rows are not kept as objects while the chunk waits to be loaded.
+ */
+final class ImportChunk {
+
+    /** The newest value of each metric of one sensor in the chunk, indexed like {@link ReadingRules#metrics()} */
+    private record Latest(Instant[] ts, Double[] values) {}
+
+    private final short[] metricKeys;
+    private final StringBuilder snapshots = new StringBuilder();
+    private final StringBuilder values = new StringBuilder();
+    private final Set<LocalDate> days = new HashSet<>();
+    private final Map<String, Latest> latest = new HashMap<>();
+    private long firstLine = -1;
+    private long lastLine;
+    private int rows;
+    private int valueRows;
+
+    /**
+     * @param metricKeys dictionary keys indexed like {@link ReadingRules#metrics()}
+     */
+    ImportChunk(short[] metricKeys) {
+        this.metricKeys = metricKeys;
+    }
+
+    void add(long line, ImportRow row, int sensorKey) {
+        if (firstLine < 0) {
+            firstLine = line;
+        }
+        lastLine = line;
+
+        UUID snapshotId = UuidV7.next();
+        String ts = row.ts().toString();
+        days.add(LocalDate.ofInstant(row.ts(), ZoneOffset.UTC));
+        snapshots.append(snapshotId).append(',').append(row.sensorId()).append(',').append(ts).append('\n');
+
+        Double[] rowValues = row.values();
+        Latest sensorLatest = latest.computeIfAbsent(row.sensorId(),
+                id -> new Latest(new Instant[rowValues.length], new Double[rowValues.length]));
+        for (int i = 0; i < rowValues.length; i++) {
+            if (rowValues[i] == null) {
+                continue;
+            }
+            if (sensorLatest.ts()[i] == null || row.ts().isAfter(sensorLatest.ts()[i])) {
+                sensorLatest.ts()[i] = row.ts();
+                sensorLatest.values()[i] = rowValues[i];
+            }
+            values.append(UuidV7.next()).append(',')
+                    .append(snapshotId).append(',')
+                    .append(sensorKey).append(',')
+                    .append(ts).append(',')
+                    .append(metricKeys[i]).append(',')
+                    .append(rowValues[i].doubleValue()).append('\n');
+            valueRows++;
+        }
+        rows++;
+    }
+
+    int rows() { return rows; }
+    int valueRows() { return valueRows; }
+    long firstLine() { return firstLine; }
+    long lastLine() { return lastLine; }
+    /** UTC days the chunk's readings fall on, so their partitions can be created first */
+    Set<LocalDate> days() { return days; }
+
+    /** Records each sensor's newest reading of every metric in the chunk; call once the chunk has committed */
+    void recordLatest(LatestIndex index) {
+        latest.forEach((sensorId, sensorLatest) -> index.record(sensorId, sensorLatest.ts(), sensorLatest.values()));
+    }
+
+    byte[] snapshotCopyData() { return snapshots.toString().getBytes(StandardCharsets.UTF_8); }
+    byte[] valueCopyData() { return values.toString().getBytes(StandardCharsets.UTF_8); }
+}
@@ -0,0 +1,41 @@
+package org.weather.metricsapi.service.imports.v1;
+
+import java.util.Locale;
+
+public enum ImportFormat {
+    CSV("text/csv"),
+    NDJSON("application/x-ndjson");
+
+    private final String mediaType;
+
+    ImportFormat(String mediaType) {
+        this.mediaType = mediaType;
+    }
+
+    public String mediaType() {
+        return mediaType;
+    }
+
+    public static ImportFormat fromContentType(String contentType) {
+        if (contentType != null) {
+            String type = contentType.toLowerCase(Locale.ROOT);
+            for (ImportFormat format : values()) {
+                if (type.startsWith(format.mediaType)) {
+                    return format;
+                }
+            }
+        }
+        throw new IllegalArgumentException("Content-Type must be one of: text/csv, application/x-ndjson");
+    }
+
+    public static ImportFormat fromFileName(String fileName) {
+        String name = fileName.toLowerCase(Locale.ROOT);
+        if (name.endsWith(".csv")) {
+            return CSV;
+        }
+        if (name.endsWith(".ndjson") || name.endsWith(".jsonl")) {
+            return NDJSON;
+        }
+        throw new IllegalArgumentException("Cannot tell format of " + fileName + ", expected .csv, .ndjson or .jsonl");
+    }
+}
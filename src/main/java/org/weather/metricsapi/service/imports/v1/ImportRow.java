@@ -0,0 +1,13 @@
+package org.weather.metricsapi.service.imports.v1;
+
+import java.time.Instant;
+
+/**
+ * One parsed input line. {@code values} is indexed like {@link org.weather.metricsapi.dto.update.v1.ReadingRules#metrics()},
+ * with {@code null} for metrics the line does not carry.
+ */
+record ImportRow(
+        String sensorId,
+        Instant ts,
+        Double[] values
+) {}
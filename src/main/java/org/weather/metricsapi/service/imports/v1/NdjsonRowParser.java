@@ -0,0 +1,46 @@
+package org.weather.metricsapi.service.imports.v1;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import org.weather.metricsapi.dto.update.v1.ReadingRules;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Parses one JSON object per line, shaped like an update request plus a timestamp:
+ * {@code {"sensorId": "...", "timestamp": "...", "metrics": {"temperature": 21.5, ...}}}.
+ */
+final class NdjsonRowParser implements RowParser {
+
+    record Line(String sensorId, String timestamp, Map<String, Double> metrics) {}
+
+    private final ObjectReader reader;
+
+    NdjsonRowParser(ObjectMapper objectMapper) {
+        this.reader = objectMapper.readerFor(Line.class);
+    }
+
+    @Override
+    public ImportRow parse(String text) {
+        Line line;
+        try {
+            line = reader.readValue(text);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("invalid JSON: " + e.getOriginalMessage());
+        }
+
+        List<ReadingRules.MetricRule> rules = ReadingRules.metrics();
+        Double[] values = new Double[rules.size()];
+        if (line.metrics() != null) {
+            for (Map.Entry<String, Double> e : line.metrics().entrySet()) {
+                ReadingRules.MetricRule rule = ReadingRules.metric(e.getKey());
+                if (rule == null) {
+                    throw new IllegalArgumentException("unknown metric: " + e.getKey());
+                }
+                values[rules.indexOf(rule)] = e.getValue();
+            }
+        }
+        return new ImportRow(line.sensorId(), RowParser.parseTimestamp(line.timestamp()), values);
+    }
+}
@@ -0,0 +1,25 @@
+package org.weather.metricsapi.service.imports.v1;
+
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.format.DateTimeParseException;
+
+/**
+ * Turns one input line into an {@link ImportRow}. Throws {@link IllegalArgumentException}
+ * with a client-facing message when the line cannot be parsed.
+ */
+interface RowParser {
+
+    ImportRow parse(String line);
+
+    static Instant parseTimestamp(String text) {
+        if (text == null || text.isBlank()) {
+            throw new IllegalArgumentException("timestamp is required");
+        }
+        try {
+            return OffsetDateTime.parse(text.trim()).toInstant();
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("timestamp must be an ISO-8601 date-time with offset, e.g. 2025-01-15T10:30:00Z");
+        }
+    }
+}
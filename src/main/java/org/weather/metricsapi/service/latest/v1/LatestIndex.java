@@ -0,0 +1,194 @@
+package org.weather.metricsapi.service.latest.v1;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+import org.weather.metricsapi.config.LatestProperties;
+import org.weather.metricsapi.config.StorageProperties;
+import org.weather.metricsapi.dto.update.v1.ReadingRules;
+import org.weather.metricsapi.repository.LatestRepo;
+import java.time.Clock;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The latest reading of every (sensor, metric), kept in memory so {@code /v1/latest} never
+ * touches the database.
+ * <p>
+ * Each sensor maps to an immutable {@link Readings}, replaced as a whole when a newer
+ * reading commits. Readers only do a {@link ConcurrentHashMap#get}, which takes no lock, and
+ * always see a consistent set of values. Writers merge per metric under the map's per-bin
+ * lock, keeping whichever reading is newer, so writes can commit and be recorded in any order.
+ * <p>
+ * On startup, before the web server takes requests, the index is filled from the database
+ * with readings within {@code weather.latest.lookback}. Writes recorded while it loads are
+ * merged the same way, so nothing they bring is lost.
+ */
+@Component
+public class LatestIndex implements SmartLifecycle {
+
+    private static final Logger log = LoggerFactory.getLogger(LatestIndex.class);
+
+    // start before the web server takes requests
+    private static final int PHASE = SmartLifecycle.DEFAULT_PHASE - 4096;
+
+    private static final int METRICS = ReadingRules.metrics().size();
+
+    /**
+     * The latest reading of each metric of one sensor, indexed like
+     * {@link ReadingRules#metrics()}; {@code ts} is {@code null} for a metric the sensor has
+     * not reported.
+     */
+    public static final class Readings {
+
+        private final Instant[] ts;
+        private final double[] values;
+
+        private Readings(Instant[] ts, double[] values) {
+            this.ts = ts;
+            this.values = values;
+        }
+
+        public Instant ts(int metric) {
+            return ts[metric];
+        }
+
+        public double value(int metric) {
+            return values[metric];
+        }
+
+        /**
+         * @return these readings with each metric that {@code other} has a newer reading of
+         * replaced, or {@code this} if there is none
+         */
+        Readings newest(Readings other) {
+            Instant[] mergedTs = null;
+            double[] mergedValues = null;
+            for (int i = 0; i < METRICS; i++) {
+                if (other.ts[i] != null && (ts[i] == null || other.ts[i].isAfter(ts[i]))) {
+                    if (mergedTs == null) {
+                        mergedTs = ts.clone();
+                        mergedValues = values.clone();
+                    }
+                    mergedTs[i] = other.ts[i];
+                    mergedValues[i] = other.values[i];
+                }
+            }
+            return mergedTs == null ? this : new Readings(mergedTs, mergedValues);
+        }
+    }
+
+    private final LatestRepo repo;
+    private final LatestProperties props;
+    private final StorageProperties storage;
+    private final Clock clock;
+    private final ConcurrentHashMap<String, Readings> bySensor = new ConcurrentHashMap<>();
+
+    private volatile boolean running;
+
+    public LatestIndex(LatestRepo repo, LatestProperties props, StorageProperties storage, Clock clock,
+                       MeterRegistry registry) {
+        this.repo = repo;
+        this.props = props;
+        this.storage = storage;
+        this.clock = clock;
+        Gauge.builder("weather.latest.sensors", bySensor, Map::size)
+                .description("Sensors held in the latest-reading index")
+                .register(registry);
+    }
+
+    /**
+     * @return the position of {@code metric} in {@link Readings}, or -1 if it is not a known metric
+     */
+    public static int position(String metric) {
+        return ReadingRules.index(metric);
+    }
+
+    /**
+     * @return the sensor's latest readings, or {@code null} if it has none
+     */
+    public Readings get(String sensorId) {
+        return bySensor.get(sensorId);
+    }
+
+    /**
+     * Records one reading, with {@code values} indexed like {@link ReadingRules#metrics()}
+     * and {@code null} for metrics it does not carry. Call only once it has committed.
+     */
+    public void record(String sensorId, Instant ts, Double[] values) {
+        Instant[] stamps = new Instant[METRICS];
+        for (int i = 0; i < METRICS; i++) {
+            if (values[i] != null) {
+                stamps[i] = ts;
+            }
+        }
+        record(sensorId, stamps, values);
+    }
+
+    /**
+     * Records readings taken at a different time per metric, both arrays indexed like
+     * {@link ReadingRules#metrics()}, with {@code null} for metrics not read.
+     * Call only once they have committed.
+     */
+    public void record(String sensorId, Instant[] ts, Double[] values) {
+        double[] unboxed = new double[METRICS];
+        boolean any = false;
+        for (int i = 0; i < METRICS; i++) {
+            if (ts[i] != null) {
+                unboxed[i] = values[i];
+                any = true;
+            }
+        }
+        if (any) {
+            bySensor.merge(sensorId, new Readings(Arrays.copyOf(ts, METRICS), unboxed), Readings::newest);
+        }
+    }
+
+    public int size() {
+        return bySensor.size();
+    }
+
+    @Override
+    public void start() {
+        running = true;
+        if (props.lookback().isZero()) {
+            return;
+        }
+        long started = System.nanoTime();
+        Instant since = clock.instant().minus(props.lookback());
+        Instant[] ts = new Instant[METRICS];
+        Double[] values = new Double[METRICS];
+        repo.forEachLatest(since, storage.readsWide(), latest -> {
+            int metric = position(latest.metric());
+            if (metric < 0) {
+                return;
+            }
+            Arrays.fill(ts, null);
+            ts[metric] = latest.ts();
+            values[metric] = latest.value();
+            record(latest.sensorId(), ts, values);
+        });
+        log.info("Latest index loaded: sensors={}, since={}, took={}ms",
+                bySensor.size(), since, (System.nanoTime() - started) / 1_000_000);
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    @Override
+    public int getPhase() {
+        return PHASE;
+    }
+}
@@ -0,0 +1,69 @@
+package org.weather.metricsapi.service.latest.v1;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import org.weather.metricsapi.dto.latest.v1.LatestRequest;
+import org.weather.metricsapi.dto.latest.v1.LatestResponse;
+import org.weather.metricsapi.dto.update.v1.ReadingRules;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+@Service
+public class LatestService {
+
+    private static final Logger log = LoggerFactory.getLogger(LatestService.class);
+
+    private static final List<String> ALL_METRICS =
+            ReadingRules.metrics().stream().map(ReadingRules.MetricRule::metric).toList();
+
+    private final LatestIndex index;
+
+    public LatestService(LatestIndex index) {
+        this.index = index;
+    }
+
+    /**
+     * Returns the latest reading of each requested metric for each requested sensor, in
+     * request order, straight from {@link LatestIndex}. Sensors without a reading of any
+     * requested metric, and metrics that are not known, are left out.
+     */
+    public LatestResponse query(LatestRequest request) {
+        List<String> metrics = request.metrics() != null
+                ? new LinkedHashSet<>(request.metrics()).stream()
+                        .filter(metric -> LatestIndex.position(metric) >= 0)
+                        .toList()
+                : ALL_METRICS;
+        int[] positions = metrics.stream().mapToInt(LatestIndex::position).toArray();
+
+        List<LatestResponse.SensorLatest> sensors = new ArrayList<>(request.sensorId().size());
+        Set<String> seen = new HashSet<>();
+        for (String sensorId : request.sensorId()) {
+            LatestIndex.Readings readings = index.get(sensorId);
+            if (readings == null || !seen.add(sensorId)) {
+                continue;
+            }
+            Map<String, LatestResponse.Reading> latest = new LinkedHashMap<>();
+            for (int i = 0; i < positions.length; i++) {
+                if (readings.ts(positions[i]) != null) {
+                    latest.put(metrics.get(i),
+                            new LatestResponse.Reading(readings.ts(positions[i]), readings.value(positions[i])));
+                }
+            }
+            if (!latest.isEmpty()) {
+                sensors.add(new LatestResponse.SensorLatest(sensorId, latest));
+            }
+        }
+
+        log.debug("Latest query: {} of {} sensors found", sensors.size(), request.sensorId().size());
+
+        return new LatestResponse(
+                new LatestResponse.QueryInfo(metrics, request.sensorId().size(), sensors.size()),
+                sensors);
+    }
+}
@@ -0,0 +1,188 @@
+package org.weather.metricsapi.service.readings.v1;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.weather.metricsapi.config.StorageProperties;
+import org.weather.metricsapi.dto.readings.v1.ReadingsRequest;
+import org.weather.metricsapi.dto.readings.v1.ReadingsResponse;
+import org.weather.metricsapi.repository.DictionaryRepo;
+import org.weather.metricsapi.repository.ReadingPageRepo;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Pages through raw narrow readings ({@code reading_values}) by keyset: each page carries an opaque cursor holding
+ * the index key of its last reading, and the next page seeks the index to just after it.
+ * Unlike an offset, this costs the same on the millionth page as on the first.
+ */
+@Service
+public class ReadingsService {
+
+    private static final Logger log = LoggerFactory.getLogger(ReadingsService.class);
+
+    static final int DEFAULT_LIMIT = 1000;
+
+    // sensor key, metric key, epoch second, nanosecond
+    private static final int CURSOR_BYTES = Integer.BYTES + Short.BYTES + Long.BYTES + Integer.BYTES;
+
+    private final ReadingPageRepo pageRepo;
+    private final DictionaryRepo dictionary;
+    private final StorageProperties storage;
+    private final Clock clock;
+
+    public ReadingsService(ReadingPageRepo pageRepo, DictionaryRepo dictionary, StorageProperties storage,
+                           Clock clock) {
+        this.pageRepo = pageRepo;
+        this.dictionary = dictionary;
+        this.storage = storage;
+        this.clock = clock;
+    }
+
+    /**
+     * Writes one page to {@code generator} as its readings are read, in the shape of
+     * {@link ReadingsResponse}: {@code readings} ordered by sensor key, then metric key, then
+     * time, and {@code nextCursor} if more follow. One reading past the limit is read to tell
+     * whether they do.
+     * <p>
+     * The request is validated before anything is written. A failure to write, such as the
+     * client going away, ends the database query.
+     */
+    @Transactional(readOnly = true)
+    public void page(ReadingsRequest request, JsonGenerator generator) throws IOException {
+        log.debug("Processing readings page: {}", request);
+
+        if (!storage.writesNarrow()) {
+            throw new IllegalArgumentException("Raw readings are only available while weather.storage.write is narrow or dual");
+        }
+        LocalDate endDate = request.endDate() != null ? request.endDate() : LocalDate.now(clock);
+        LocalDate startDate = request.startDate() != null ? request.startDate() : endDate.minusDays(7);
+        if (startDate.isAfter(endDate)) {
+            log.warn("Invalid date range: start={} is after end={}", startDate, endDate);
+            throw new IllegalArgumentException("startDate must be before or equal to endDate");
+        }
+        ReadingPageRepo.Position after = request.cursor() != null
+                ? decode(request.cursor())
+                : ReadingPageRepo.Position.START;
+        int limit = request.limit() != null ? request.limit() : DEFAULT_LIMIT;
+
+        boolean filterSensors = request.sensorId() != null && !request.sensorId().isEmpty();
+        // in key order, leaving out those the cursor is already past
+        List<Integer> sensorKeys = filterSensors
+                ? dictionary.findSensorKeys(request.sensorId()).values().stream()
+                        .filter(key -> key >= after.sensorKey())
+                        .sorted()
+                        .toList()
+                : null;
+        boolean filterMetrics = request.metrics() != null && !request.metrics().isEmpty();
+        Collection<Short> metricKeys = filterMetrics
+                ? dictionary.findMetricKeys(request.metrics()).values()
+                : null;
+        Instant start = startDate.atStartOfDay(ZoneOffset.UTC).toInstant();
+        Instant end = endDate.plusDays(1).atStartOfDay(ZoneOffset.UTC).toInstant();
+
+        generator.writeStartObject();
+        generator.writeArrayFieldStart("readings");
+
+        Page page = new Page(generator, limit);
+        try {
+            if (!filterMetrics || !metricKeys.isEmpty()) {
+                if (sensorKeys == null) {
+                    pageRepo.page(null, metricKeys, start, end, after, page.wanted(), page::add);
+                } else {
+                    for (int sensorKey : sensorKeys) {
+                        if (page.more) {
+                            break;
+                        }
+                        pageRepo.page(sensorKey, metricKeys, start, end,
+                                sensorKey == after.sensorKey() ? after : ReadingPageRepo.Position.START,
+                                page.wanted(), page::add);
+                    }
+                }
+            }
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+
+        generator.writeEndArray();
+        if (page.more) {
+            generator.writeStringField("nextCursor", encode(page.last));
+        }
+        generator.writeEndObject();
+        generator.flush();
+
+        log.info("Readings page successful: {} readings, more={}", page.count, page.more);
+    }
+
+    static String encode(ReadingPageRepo.Position position) {
+        ByteBuffer bytes = ByteBuffer.allocate(CURSOR_BYTES)
+                .putInt(position.sensorKey())
+                .putShort(position.metricKey())
+                .putLong(position.ts().getEpochSecond())
+                .putInt(position.ts().getNano());
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes.array());
+    }
+
+    static ReadingPageRepo.Position decode(String cursor) {
+        byte[] decoded;
+        try {
+            decoded = Base64.getUrlDecoder().decode(cursor);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+        if (decoded.length != CURSOR_BYTES) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+        ByteBuffer bytes = ByteBuffer.wrap(decoded);
+        return new ReadingPageRepo.Position(bytes.getInt(), bytes.getShort(),
+                Instant.ofEpochSecond(bytes.getLong(), bytes.getInt()));
+    }
+
+    /**
+     * Writes readings up to the limit, remembering the last one written. A reading past the
+     * limit is not written; it only shows that there is a next page.
+     */
+    private final class Page {
+
+        private final JsonGenerator generator;
+        private final int limit;
+        private int count;
+        private boolean more;
+        private ReadingPageRepo.Position last;
+
+        Page(JsonGenerator generator, int limit) {
+            this.generator = generator;
+            this.limit = limit;
+        }
+
+        /** @return how many readings to ask for next, one more than there is room for */
+        int wanted() {
+            return limit + 1 - count;
+        }
+
+        void add(int sensorKey, short metricKey, Instant ts, double value) {
+            if (count == limit) {
+                more = true;
+                return;
+            }
+            try {
+                generator.writeObject(new ReadingsResponse.Reading(dictionary.sensorName(sensorKey),
+                        dictionary.metricName(metricKey), ts, value));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            last = new ReadingPageRepo.Position(sensorKey, metricKey, ts);
+            count++;
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package org.weather.metricsapi.service.series.v1;
+
+import org.weather.metricsapi.dto.series.v1.SeriesResponse;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Largest-Triangle-Three-Buckets downsampling (Steinarsson, 2013). Keeps the first and last
+ * points, splits the rest into {@code threshold - 2} equal buckets and from each keeps the
+ * point forming the largest triangle with the point kept before it and the average of the
+ * next bucket, which preserves the peaks and troughs a chart would show.
+ */
+final class Lttb {
+
+    private Lttb() {}
+
+    /**
+     * @param points    ordered by time
+     * @param threshold the most points to return, at least 3
+     * @return {@code points} unchanged if there are no more than {@code threshold}; otherwise
+     *         at most {@code threshold} of its points with a value. Empty buckets carry no
+     *         value to plot, so they are dropped rather than sampled.
+     */
+    static List<SeriesResponse.Point> downsample(List<SeriesResponse.Point> points, int threshold) {
+        if (threshold < 3) {
+            throw new IllegalArgumentException("threshold must be at least 3");
+        }
+        if (points.size() <= threshold) {
+            return points;
+        }
+        List<SeriesResponse.Point> data = points.stream().filter(point -> point.value() != null).toList();
+        int n = data.size();
+        if (n <= threshold) {
+            return data;
+        }
+
+        List<SeriesResponse.Point> sampled = new ArrayList<>(threshold);
+        sampled.add(data.get(0));
+        double every = (double) (n - 2) / (threshold - 2);
+        int a = 0;
+        for (int i = 0; i < threshold - 2; i++) {
+            int nextStart = (int) Math.floor((i + 1) * every) + 1;
+            int nextEnd = Math.min((int) Math.floor((i + 2) * every) + 1, n);
+            double avgX = 0;
+            double avgY = 0;
+            for (int j = nextStart; j < nextEnd; j++) {
+                avgX += x(data.get(j));
+                avgY += data.get(j).value();
+            }
+            avgX /= nextEnd - nextStart;
+            avgY /= nextEnd - nextStart;
+
+            int from = (int) Math.floor(i * every) + 1;
+            int to = (int) Math.floor((i + 1) * every) + 1;
+            double ax = x(data.get(a));
+            double ay = data.get(a).value();
+            double maxArea = -1;
+            int chosen = from;
+            for (int j = from; j < to; j++) {
+                double area = Math.abs((ax - avgX) * (data.get(j).value() - ay)
+                        - (ax - x(data.get(j))) * (avgY - ay));
+                if (area > maxArea) {
+                    maxArea = area;
+                    chosen = j;
+                }
+            }
+            sampled.add(data.get(chosen));
+            a = chosen;
+        }
+        sampled.add(data.get(n - 1));
+        return sampled;
+    }
+
+    private static double x(SeriesResponse.Point point) {
+        return point.ts().getEpochSecond();
+    }
+}
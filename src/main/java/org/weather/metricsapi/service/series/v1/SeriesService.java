@@ -0,0 +1,211 @@
+package org.weather.metricsapi.service.series.v1;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.weather.metricsapi.config.StorageProperties;
+import org.weather.metricsapi.dto.fetch.v1.Statistic;
+import org.weather.metricsapi.dto.series.v1.BucketWidth;
+import org.weather.metricsapi.dto.series.v1.SeriesRequest;
+import org.weather.metricsapi.dto.series.v1.SeriesResponse;
+import org.weather.metricsapi.dto.update.v1.ReadingRules;
+import org.weather.metricsapi.repository.DictionaryRepo;
+import org.weather.metricsapi.repository.SeriesRepo;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+@Service
+public class SeriesService {
+
+    private static final Logger log = LoggerFactory.getLogger(SeriesService.class);
+
+    // a week of minutes; longer series must be downsampled with maxPoints
+    static final int MAX_BUCKETS = 10_080;
+
+    // buckets one request may aggregate over all its series, downsampled or not
+    static final long MAX_REQUEST_BUCKETS = 1_000_000;
+
+    private final SeriesRepo seriesRepo;
+    private final DictionaryRepo dictionary;
+    private final StorageProperties storage;
+    private final Clock clock;
+
+    public SeriesService(SeriesRepo seriesRepo, DictionaryRepo dictionary, StorageProperties storage, Clock clock) {
+        this.seriesRepo = seriesRepo;
+        this.dictionary = dictionary;
+        this.storage = storage;
+        this.clock = clock;
+    }
+
+    /**
+     * Returns one series per (sensor, metric) with readings in the range. Buckets are
+     * aggregated and gap-filled by {@link SeriesRepo}; with {@code maxPoints} empty buckets
+     * are not filled and each series is reduced with {@link Lttb} as soon as its last bucket
+     * arrives, so memory and the response size depend on the number of series and not on the
+     * range.
+     */
+    @Transactional(readOnly = true)
+    public SeriesResponse query(SeriesRequest request) {
+        log.debug("Processing series query: {}", request);
+
+        Statistic statistic = Statistic.fromKey(request.statistic());
+        BucketWidth width = BucketWidth.fromKey(request.bucket());
+
+        LocalDate endDate = request.endDate() != null
+                ? request.endDate()
+                : LocalDate.now(clock);
+        LocalDate startDate = request.startDate() != null
+                ? request.startDate()
+                : endDate.minusDays(7);
+
+        validateDateRange(startDate, endDate);
+
+        Instant start = startDate.atStartOfDay(ZoneOffset.UTC).toInstant();
+        Instant end = endDate.plusDays(1).atStartOfDay(ZoneOffset.UTC).toInstant();
+        long bucketsPerSeries = Duration.between(start, end).dividedBy(width.duration());
+        if (request.maxPoints() == null && bucketsPerSeries > MAX_BUCKETS) {
+            log.warn("Too many buckets per series: {} of {}", bucketsPerSeries, width.key());
+            throw new IllegalArgumentException("Range holds " + bucketsPerSeries + " buckets per series, more than "
+                    + MAX_BUCKETS + "; use a wider bucket or set maxPoints");
+        }
+        boolean filterSensors = request.sensorId() != null && !request.sensorId().isEmpty();
+        if (!filterSensors && bucketsPerSeries > MAX_BUCKETS) {
+            log.warn("Downsampling {} buckets per series without a sensor filter", bucketsPerSeries);
+            throw new IllegalArgumentException("Downsampling more than " + MAX_BUCKETS
+                    + " buckets per series requires sensorId");
+        }
+
+        List<SeriesResponse.Series> series = buildSeries(request, statistic, width, start, end, bucketsPerSeries);
+        long totalDataPoints = series.stream()
+                .mapToLong(SeriesResponse.Series::dataPoints)
+                .sum();
+
+        log.info("Series query successful: {} series of {} buckets, {} data points processed",
+                series.size(), bucketsPerSeries, totalDataPoints);
+
+        SeriesResponse.QueryInfo queryInfo = new SeriesResponse.QueryInfo(
+                filterSensors
+                        ? request.sensorId()
+                        : null,
+                request.metrics(),
+                request.statistic(),
+                request.bucket(),
+                startDate,
+                endDate,
+                request.maxPoints(),
+                series.size(),
+                totalDataPoints
+        );
+        return new SeriesResponse(queryInfo, series);
+    }
+
+    private List<SeriesResponse.Series> buildSeries(SeriesRequest request, Statistic statistic, BucketWidth width,
+                                                    Instant start, Instant end, long bucketsPerSeries) {
+        boolean filterSensors = request.sensorId() != null && !request.sensorId().isEmpty();
+        Collection<Integer> sensorKeys = filterSensors
+                ? dictionary.findSensorKeys(request.sensorId()).values()
+                : null;
+        if (filterSensors && sensorKeys.isEmpty()) {
+            log.debug("No known sensors in request, skipping query");
+            return List.of();
+        }
+
+        Map<String, Short> metricKeys = new LinkedHashMap<>(dictionary.findMetricKeys(request.metrics()));
+        // the wide layout only has columns for known metrics
+        metricKeys.keySet().removeIf(metric -> ReadingRules.metric(metric) == null);
+        if (metricKeys.isEmpty()) {
+            log.debug("No known metrics in request, skipping query");
+            return List.of();
+        }
+        if (filterSensors) {
+            checkRequestBuckets((long) sensorKeys.size() * metricKeys.size() * bucketsPerSeries);
+        }
+
+        SeriesBuilder builder = new SeriesBuilder(request.maxPoints(), (int) bucketsPerSeries);
+        // LTTB drops empty buckets, so there is no point in filling them in
+        seriesRepo.buckets(statistic, width, sensorKeys, metricKeys, start, end, storage.readsWide(),
+                request.maxPoints() == null, builder);
+        builder.finish();
+
+        // keys carry no order, so sort by name here to keep series ordered by sensor and metric
+        builder.series.sort(Comparator.comparing(SeriesResponse.Series::sensorId)
+                .thenComparing(SeriesResponse.Series::metric));
+        return builder.series;
+    }
+
+    private static void checkRequestBuckets(long buckets) {
+        if (buckets > MAX_REQUEST_BUCKETS) {
+            log.warn("Too many buckets in series request: {}", buckets);
+            throw new IllegalArgumentException("Request covers more than " + MAX_REQUEST_BUCKETS
+                    + " buckets; query fewer sensors or metrics, a shorter range or a wider bucket");
+        }
+    }
+
+    /**
+     * Collects the buckets of one series at a time, as they arrive ordered by sensor and
+     * metric, and finishes each series before starting the next.
+     */
+    private final class SeriesBuilder implements SeriesRepo.BucketHandler {
+
+        private final Integer maxPoints;
+        private final int bucketsPerSeries;
+        private final List<SeriesResponse.Series> series = new ArrayList<>();
+        private List<SeriesResponse.Point> points = new ArrayList<>();
+        private int sensorKey;
+        private short metricKey;
+        private long dataPoints;
+        private long buckets;
+
+        private SeriesBuilder(Integer maxPoints, int bucketsPerSeries) {
+            this.maxPoints = maxPoints;
+            this.bucketsPerSeries = bucketsPerSeries;
+        }
+
+        @Override
+        public void bucket(SeriesRepo.Bucket bucket) {
+            // only reachable without a sensor filter, where the number of series is not known up front
+            checkRequestBuckets(++buckets);
+            if (!points.isEmpty() && (bucket.sensorKey() != sensorKey || bucket.metricKey() != metricKey)) {
+                finish();
+            }
+            sensorKey = bucket.sensorKey();
+            metricKey = bucket.metricKey();
+            dataPoints += bucket.dataPoints();
+            points.add(new SeriesResponse.Point(bucket.start(), bucket.value(), bucket.dataPoints()));
+        }
+
+        private void finish() {
+            if (points.isEmpty()) {
+                return;
+            }
+            series.add(new SeriesResponse.Series(dictionary.sensorName(sensorKey), dictionary.metricName(metricKey),
+                    bucketsPerSeries, dataPoints, maxPoints != null ? Lttb.downsample(points, maxPoints) : points));
+            points = new ArrayList<>();
+            dataPoints = 0;
+        }
+    }
+
+    private void validateDateRange(LocalDate start, LocalDate end) {
+        if (start.isAfter(end)) {
+            log.warn("Invalid date range: start={} is after end={}", start, end);
+            throw new IllegalArgumentException("startDate must be before or equal to endDate");
+        }
+
+        long daysBetween = ChronoUnit.DAYS.between(start, end) + 1;
+        if (daysBetween > 31) {
+            log.warn("Date range too long: {} days", daysBetween);
+            throw new IllegalArgumentException("Date range must not exceed 31 days");
+        }
+    }
+}
@@ -0,0 +1,275 @@
+package org.weather.metricsapi.service.storage.v1;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.weather.metricsapi.config.PartitionProperties;
+import org.weather.metricsapi.repository.PartitionRepo;
+import org.weather.metricsapi.repository.PartitionRepo.Partition;
+import org.weather.metricsapi.repository.RollupRepo;
+import org.weather.metricsapi.service.fetch.v1.FetchCache;
+import java.time.Clock;
+import java.time.DayOfWeek;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+import java.time.temporal.TemporalAdjusters;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps the time partitions of {@code snapshots}, {@code reading_values} and
+ * {@code readings} in step.
+ * <p>
+ * Each run, under an advisory lock so only one instance works at a time:
+ * <ol>
+ *   <li>creates partitions for the current interval and the next {@code premake};</li>
+ *   <li>moves rows that landed in a default partition (readings older or newer than any
+ *       partition) into partitions created for them;</li>
+ *   <li>with a retention set, drops or detaches partitions that ended before
+ *       {@code now - retention}, along with the rollups of their days.</li>
+ * </ol>
+ * The first run happens on startup, before the web server accepts requests. Bulk import
+ * calls {@link #ensure} for the days in each chunk so backfilled rows go straight into
+ * their partitions.
+ * <p>
+ * {@code reading_values} references {@code snapshots}, so a new range is attached to
+ * {@code snapshots} before {@code reading_values}, and an expired one is removed from
+ * {@code reading_values} first.
+ */
+@Service
+@ConditionalOnProperty(name = "weather.partitions.enabled", havingValue = "true", matchIfMissing = true)
+public class PartitionManager implements SmartLifecycle {
+
+    private static final Logger log = LoggerFactory.getLogger(PartitionManager.class);
+
+    // start before the web server, stop after it
+    private static final int PHASE = SmartLifecycle.DEFAULT_PHASE - 4096;
+
+    static final String SNAPSHOTS = "snapshots";
+    static final String VALUES = "reading_values";
+    static final String WIDE = "readings";
+
+    private static final DateTimeFormatter SUFFIX = DateTimeFormatter.ofPattern("yyyyMMdd").withZone(ZoneOffset.UTC);
+
+    private final PartitionRepo repo;
+    private final RollupRepo rollups;
+    private final FetchCache fetchCache;
+    private final PartitionProperties props;
+    private final TransactionTemplate tx;
+    private final Clock clock;
+
+    private volatile boolean running;
+    private ScheduledExecutorService scheduler;
+
+    public PartitionManager(PartitionRepo repo, RollupRepo rollups, FetchCache fetchCache, PartitionProperties props,
+                            PlatformTransactionManager transactionManager, Clock clock) {
+        this.repo = repo;
+        this.rollups = rollups;
+        this.fetchCache = fetchCache;
+        this.props = props;
+        this.tx = new TransactionTemplate(transactionManager);
+        this.clock = clock;
+    }
+
+    /**
+     * Runs one maintenance pass now.
+     */
+    public synchronized void maintain() {
+        tx.executeWithoutResult(status -> {
+            repo.lock();
+            Instant current = unitStart(clock.instant());
+            TreeSet<Instant> units = new TreeSet<>();
+            for (int i = 0; i <= props.premake(); i++) {
+                units.add(current.plus(unitDays() * i, ChronoUnit.DAYS));
+            }
+            for (String table : List.of(SNAPSHOTS, VALUES, WIDE)) {
+                units.addAll(repo.unitsInDefault(table, props.interval().name().toLowerCase()));
+            }
+            createMissing(units);
+            if (props.retention() != null) {
+                expire(clock.instant().minus(props.retention()));
+            }
+        });
+    }
+
+    /**
+     * Makes sure every day given is covered by a partition of each table.
+     */
+    public synchronized void ensure(Collection<LocalDate> days) {
+        TreeSet<Instant> units = new TreeSet<>();
+        days.forEach(day -> units.add(unitStart(day.atStartOfDay(ZoneOffset.UTC).toInstant())));
+        if (units.stream().allMatch(this::covered)) {
+            return;
+        }
+        tx.executeWithoutResult(status -> {
+            repo.lock();
+            createMissing(units);
+        });
+    }
+
+    private boolean covered(Instant unit) {
+        Instant end = unit.plus(unitDays(), ChronoUnit.DAYS);
+        for (String table : List.of(SNAPSHOTS, VALUES, WIDE)) {
+            if (!gaps(repo.partitions(table), unit, end).isEmpty()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void createMissing(TreeSet<Instant> units) {
+        List<Partition> snapshots = repo.partitions(SNAPSHOTS);
+        List<Partition> values = repo.partitions(VALUES);
+        List<Partition> wide = repo.partitions(WIDE);
+
+        for (Instant unit : units) {
+            Instant end = unit.plus(unitDays(), ChronoUnit.DAYS);
+            List<Partition> valueGaps = prepare(VALUES, gaps(values, unit, end));
+            prepareAndAttach(WIDE, gaps(wide, unit, end));
+            prepareAndAttach(SNAPSHOTS, gaps(snapshots, unit, end));
+            valueGaps.forEach(p -> repo.attach(VALUES, p.name(), p.from(), p.to()));
+        }
+    }
+
+    private void prepareAndAttach(String parent, List<Partition> gaps) {
+        prepare(parent, gaps).forEach(p -> repo.attach(parent, p.name(), p.from(), p.to()));
+    }
+
+    private List<Partition> prepare(String parent, List<Partition> gaps) {
+        List<Partition> prepared = new ArrayList<>(gaps.size());
+        for (Partition gap : gaps) {
+            String name = freeName(parent, gap.from());
+            int moved = repo.prepare(parent, name, gap.from(), gap.to());
+            log.info("Creating partition {} [{}, {}), {} rows moved from the default partition",
+                    name, gap.from(), gap.to(), moved);
+            prepared.add(new Partition(name, gap.from(), gap.to()));
+        }
+        return prepared;
+    }
+
+    private void expire(Instant cutoff) {
+        Instant expiredUntil = null;
+        for (String parent : List.of(VALUES, WIDE, SNAPSHOTS)) {
+            for (Partition partition : repo.partitions(parent)) {
+                if (partition.to().isAfter(cutoff)) {
+                    continue;
+                }
+                if (expiredUntil == null || partition.to().isAfter(expiredUntil)) {
+                    expiredUntil = partition.to();
+                }
+                if (props.expired() == PartitionProperties.Expired.DETACH) {
+                    repo.detach(parent, partition.name());
+                    repo.dropForeignKeys(partition.name());
+                    log.info("Detached expired partition {} [{}, {})", partition.name(), partition.from(), partition.to());
+                } else {
+                    // a partition that other tables reference has to leave its parent before it can be dropped
+                    if (parent.equals(SNAPSHOTS)) {
+                        repo.detach(parent, partition.name());
+                    }
+                    repo.drop(partition.name());
+                    log.info("Dropped expired partition {} [{}, {})", partition.name(), partition.from(), partition.to());
+                }
+            }
+        }
+        if (expiredUntil != null) {
+            // rollups and cached fetches must not answer for readings that are gone
+            LocalDate until = expiredUntil.atZone(ZoneOffset.UTC).toLocalDate();
+            rollups.deleteBefore(until);
+            fetchCache.removedBefore(until);
+        }
+    }
+
+    /**
+     * @return the parts of {@code [from, to)} no existing partition covers
+     */
+    static List<Partition> gaps(List<Partition> existing, Instant from, Instant to) {
+        List<Partition> gaps = new ArrayList<>();
+        Instant cursor = from;
+        for (Partition partition : existing) {
+            if (!partition.overlaps(cursor, to)) {
+                continue;
+            }
+            if (partition.from().isAfter(cursor)) {
+                gaps.add(new Partition(null, cursor, partition.from()));
+            }
+            if (partition.to().isAfter(cursor)) {
+                cursor = partition.to();
+            }
+        }
+        if (cursor.isBefore(to)) {
+            gaps.add(new Partition(null, cursor, to));
+        }
+        return gaps;
+    }
+
+    private String freeName(String parent, Instant from) {
+        String name = parent + "_p" + SUFFIX.format(from);
+        for (int i = 1; repo.exists(name); i++) {
+            name = parent + "_p" + SUFFIX.format(from) + "_" + i;
+        }
+        return name;
+    }
+
+    Instant unitStart(Instant instant) {
+        LocalDate day = instant.atZone(ZoneOffset.UTC).toLocalDate();
+        if (props.interval() == PartitionProperties.Interval.WEEK) {
+            day = day.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+        }
+        return day.atStartOfDay(ZoneOffset.UTC).toInstant();
+    }
+
+    private long unitDays() {
+        return props.interval() == PartitionProperties.Interval.WEEK ? 7 : 1;
+    }
+
+    @Override
+    public void start() {
+        maintain();
+        running = true;
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "partition-manager");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long period = props.checkInterval().toMillis();
+        scheduler.scheduleWithFixedDelay(this::maintainQuietly, period, period, TimeUnit.MILLISECONDS);
+        log.info("Partition manager started: interval={}, premake={}, retention={}, expired={}",
+                props.interval(), props.premake(), props.retention(), props.expired());
+    }
+
+    private void maintainQuietly() {
+        try {
+            maintain();
+        } catch (RuntimeException e) {
+            log.error("Partition maintenance failed, retrying in {}: {}", props.checkInterval(), e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        scheduler.shutdownNow();
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    @Override
+    public int getPhase() {
+        return PHASE;
+    }
+}
@@ -0,0 +1,120 @@
+package org.weather.metricsapi.service.storage.v1;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.weather.metricsapi.config.RollupProperties;
+import org.weather.metricsapi.config.StorageProperties;
+import org.weather.metricsapi.repository.RollupRepo;
+import java.time.Clock;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps the hourly and daily rollups up to date in the background.
+ * <p>
+ * Each run registers the days that have ended (and settled) since the last run, then rolls
+ * up every registered day still waiting: new days, and older days that bulk import wrote
+ * into since they were rolled up. Each day is rolled up in its own transaction from
+ * whichever layout {@code weather.storage.read} selects, so it matches what the raw fetch
+ * path would read.
+ */
+@Service
+@ConditionalOnProperty(name = "weather.rollups.enabled", havingValue = "true", matchIfMissing = true)
+public class RollupAggregator implements SmartLifecycle {
+
+    private static final Logger log = LoggerFactory.getLogger(RollupAggregator.class);
+
+    // stop after the web server, before the datasource closes
+    private static final int PHASE = SmartLifecycle.DEFAULT_PHASE - 4096;
+
+    private final RollupRepo repo;
+    private final RollupProperties props;
+    private final StorageProperties storage;
+    private final TransactionTemplate tx;
+    private final Clock clock;
+
+    private volatile boolean running;
+    private ScheduledExecutorService scheduler;
+
+    public RollupAggregator(RollupRepo repo, RollupProperties props, StorageProperties storage,
+                            PlatformTransactionManager transactionManager, Clock clock) {
+        this.repo = repo;
+        this.props = props;
+        this.storage = storage;
+        this.tx = new TransactionTemplate(transactionManager);
+        this.clock = clock;
+    }
+
+    /**
+     * Runs one pass now.
+     *
+     * @return the number of days rolled up
+     */
+    public synchronized int aggregate() {
+        LocalDate lastSettled = clock.instant().minus(props.settle()).atZone(ZoneOffset.UTC).toLocalDate().minusDays(1);
+
+        LocalDate lastKnown = repo.lastKnownDay();
+        LocalDate from = lastKnown != null ? lastKnown.plusDays(1) : repo.firstReadingDay(storage.readsWide());
+        if (from != null && !from.isAfter(lastSettled)) {
+            repo.register(from, lastSettled);
+        }
+
+        List<LocalDate> pending = repo.pendingDays(lastSettled.plusDays(1));
+        for (LocalDate day : pending) {
+            long start = System.nanoTime();
+            tx.executeWithoutResult(status -> repo.rollUp(day, storage.readsWide()));
+            log.debug("Rolled up {} in {} ms", day, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        }
+        if (!pending.isEmpty()) {
+            log.info("Rolled up {} days, {} to {}", pending.size(), pending.get(0), pending.get(pending.size() - 1));
+        }
+        return pending.size();
+    }
+
+    @Override
+    public void start() {
+        running = true;
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "rollup-aggregator");
+            thread.setDaemon(true);
+            return thread;
+        });
+        // the first pass may have a long history to catch up on: keep it off the startup path
+        scheduler.scheduleWithFixedDelay(this::aggregateQuietly, 0, props.checkInterval().toMillis(),
+                TimeUnit.MILLISECONDS);
+        log.info("Rollup aggregator started: settle={}, checkInterval={}", props.settle(), props.checkInterval());
+    }
+
+    private void aggregateQuietly() {
+        try {
+            aggregate();
+        } catch (RuntimeException e) {
+            log.error("Rollup aggregation failed, retrying in {}: {}", props.checkInterval(), e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        scheduler.shutdownNow();
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    @Override
+    public int getPhase() {
+        return PHASE;
+    }
+}
@@ -0,0 +1,88 @@
+package org.weather.metricsapi.service.storage.v1;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.weather.metricsapi.config.StorageProperties;
+import org.weather.metricsapi.dto.admin.v1.BackfillReport;
+import org.weather.metricsapi.repository.RollupRepo;
+import org.weather.metricsapi.repository.WideReadingRepo;
+import org.weather.metricsapi.service.fetch.v1.FetchCache;
+import org.weather.metricsapi.service.fetch.v1.HotWindow;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Copies narrow-layout readings into the wide table for the dual-write cutover.
+ * <p>
+ * The V3 migration backfills everything stored when it ran; this closes the gap left by
+ * instances that were still writing only the narrow layout afterwards. Each UTC day is its
+ * own statement and transaction, so a long range never holds one huge transaction open, and
+ * re-running a range is harmless. A day that gained wide rows is reopened for roll-up in the
+ * same transaction, as bulk import does, since its rollups may have been built from the wide
+ * layout before the rows arrived.
+ */
+@Service
+public class WideBackfillService {
+
+    private static final Logger log = LoggerFactory.getLogger(WideBackfillService.class);
+
+    private final WideReadingRepo wideRepo;
+    private final RollupRepo rollups;
+    private final StorageProperties storage;
+    private final TransactionTemplate tx;
+    private final FetchCache fetchCache;
+    private final HotWindow hotWindow;
+
+    public WideBackfillService(WideReadingRepo wideRepo, RollupRepo rollups, StorageProperties storage,
+                               PlatformTransactionManager transactionManager, FetchCache fetchCache,
+                               HotWindow hotWindow) {
+        this.wideRepo = wideRepo;
+        this.rollups = rollups;
+        this.storage = storage;
+        this.tx = new TransactionTemplate(transactionManager);
+        this.fetchCache = fetchCache;
+        this.hotWindow = hotWindow;
+    }
+
+    public BackfillReport backfill(LocalDate startDate, LocalDate endDate) {
+        if (!storage.writesNarrow() || !storage.writesWide()) {
+            throw new IllegalArgumentException("Backfill is only available while weather.storage.write=dual");
+        }
+        if (startDate.isAfter(endDate)) {
+            throw new IllegalArgumentException("startDate must be before or equal to endDate");
+        }
+
+        long start = System.nanoTime();
+        long inserted = 0;
+        int days = 0;
+        for (LocalDate day = startDate; !day.isAfter(endDate); day = day.plusDays(1)) {
+            Instant from = day.atStartOfDay(ZoneOffset.UTC).toInstant();
+            Instant to = day.plusDays(1).atStartOfDay(ZoneOffset.UTC).toInstant();
+            List<LocalDate> written = List.of(day);
+            int rows = tx.execute(status -> {
+                int copied = wideRepo.backfill(from, to);
+                if (copied > 0) {
+                    // rollups of this day no longer include every reading
+                    rollups.invalidate(written);
+                }
+                return copied;
+            });
+            hotWindow.written(written);
+            fetchCache.written(written);
+            log.debug("Backfilled {} wide rows for {}", rows, day);
+            inserted += rows;
+            days++;
+        }
+
+        long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        log.info("Wide backfill finished: {} to {}, days={}, rows={}, elapsed={}ms",
+                startDate, endDate, days, inserted, elapsed);
+        return new BackfillReport(startDate, endDate, days, inserted, elapsed);
+    }
+}
@@ -0,0 +1,41 @@
+package org.weather.metricsapi.service.update.v1;
+
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Collects queued items into batches for the background writers: a batch closes when it
+ * reaches {@code maxSize} or {@code maxWaitNanos} after its first item arrived.
+ */
+final class BatchCollector {
+
+    // upper bound on how long an idle writer waits before re-checking for shutdown
+    private static final long IDLE_POLL_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+
+    private BatchCollector() {}
+
+    static <T> void fill(BlockingQueue<T> queue, List<T> batch, int maxSize, long maxWaitNanos,
+                         BooleanSupplier running) throws InterruptedException {
+        T first = queue.poll(Math.min(maxWaitNanos, IDLE_POLL_NANOS), TimeUnit.NANOSECONDS);
+        if (first == null) {
+            return;
+        }
+        batch.add(first);
+
+        long deadline = System.nanoTime() + maxWaitNanos;
+        while (batch.size() < maxSize) {
+            queue.drainTo(batch, maxSize - batch.size());
+            long remaining = deadline - System.nanoTime();
+            if (batch.size() >= maxSize || remaining <= 0 || !running.getAsBoolean()) {
+                return;
+            }
+            T next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+            if (next == null) {
+                return;
+            }
+            batch.add(next);
+        }
+    }
+}
@@ -0,0 +1,218 @@
+package org.weather.metricsapi.service.update.v1;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.weather.metricsapi.config.IngestProperties;
+import org.weather.metricsapi.dto.update.v1.UpdateRequest;
+import org.weather.metricsapi.dto.update.v1.UpdateResponse;
+import org.weather.metricsapi.exception.IngestUnavailableException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Group commit for synchronous updates.
+ * <p>
+ * Request threads hand their reading to a single committer thread and block. The committer
+ * gathers everything that arrives within {@code maxWait} of the first reading (up to
+ * {@code maxBatchSize}), writes it with {@link UpdateService#ingestAll} in one transaction,
+ * and only then releases the callers, so each one still gets a durable 200. If the shared
+ * transaction fails, its readings are retried one by one so every caller gets its own outcome.
+ * <p>
+ * The committer claims each reading before writing it. A caller whose timeout passes before
+ * the claim withdraws its reading and gets a 503 to retry; one whose reading was already
+ * claimed waits for the write, since a retry could store the reading twice. Every write runs
+ * in a transaction limited to {@code timeout}, so that wait always ends in a commit or an error.
+ */
+@Service
+@ConditionalOnProperty(name = "weather.ingest.group-commit.enabled", havingValue = "true")
+public class GroupCommitter implements SmartLifecycle {
+
+    private static final Logger log = LoggerFactory.getLogger(GroupCommitter.class);
+
+    // stop after the web server has stopped taking requests, before the datasource closes
+    private static final int PHASE = SmartLifecycle.DEFAULT_PHASE - 4096;
+
+    private final UpdateService updateService;
+    private final IngestProperties.GroupCommit props;
+    private final TransactionTemplate tx;
+    private final BlockingQueue<Submission> queue = new LinkedBlockingQueue<>();
+    private final Timer commitTimer;
+    private final DistributionSummary groupSize;
+
+    private volatile boolean running;
+    private Thread committer;
+
+    public GroupCommitter(UpdateService updateService, IngestProperties properties,
+                          PlatformTransactionManager transactionManager, MeterRegistry registry) {
+        this.updateService = updateService;
+        this.props = properties.groupCommit();
+        this.tx = new TransactionTemplate(transactionManager);
+        this.tx.setTimeout((int) Math.max(1, props.timeout().toSeconds()));
+        this.commitTimer = Timer.builder("weather.ingest.group-commit.commit")
+                .description("Time to write and commit one group of updates")
+                .register(registry);
+        this.groupSize = DistributionSummary.builder("weather.ingest.group-commit.size")
+                .description("Updates sharing one commit")
+                .register(registry);
+    }
+
+    public UpdateResponse ingest(Instant serverTs, UpdateRequest req) {
+        if (!running) {
+            throw new IngestUnavailableException("Group commit is not accepting updates");
+        }
+
+        Submission submission = new Submission(new PendingUpdate(serverTs, req), new CompletableFuture<>());
+        queue.add(submission);
+
+        try {
+            try {
+                return submission.result().get(props.timeout().toNanos(), TimeUnit.NANOSECONDS);
+            } catch (TimeoutException e) {
+                if (submission.withdraw()) {
+                    // never picked up, so it will not be written and a retry stores it once
+                    log.warn("Group commit for sensor={} did not start within {}", req.sensorId(), props.timeout());
+                    throw new IngestUnavailableException("Update was not committed in time, retry later");
+                }
+                // already being written: only its outcome tells whether it was stored, and the
+                // transaction timeout makes sure there will be one
+                log.warn("Group commit for sensor={} still running after {}, waiting for it",
+                        req.sensorId(), props.timeout());
+                return submission.result().get();
+            }
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IngestUnavailableException("Interrupted while waiting for commit");
+        }
+    }
+
+    @Override
+    public void start() {
+        running = true;
+        committer = new Thread(this::runCommitter, "ingest-group-commit");
+        committer.start();
+        log.info("Group commit started: maxBatchSize={}, maxWait={}", props.maxBatchSize(), props.maxWait());
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        try {
+            committer.join(props.timeout().toMillis());
+            if (committer.isAlive()) {
+                // never drain or let the datasource close under a commit that is still running
+                log.warn("Group commit still writing after {}, interrupting and waiting for it", props.timeout());
+                committer.interrupt();
+                committer.join();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        Submission left;
+        while ((left = queue.poll()) != null) {
+            left.result().completeExceptionally(
+                    new IngestUnavailableException("Group commit stopped before the update was written"));
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    @Override
+    public int getPhase() {
+        return PHASE;
+    }
+
+    private void runCommitter() {
+        List<Submission> group = new ArrayList<>(props.maxBatchSize());
+        while (running || !queue.isEmpty()) {
+            try {
+                BatchCollector.fill(queue, group, props.maxBatchSize(), props.maxWait().toNanos(),
+                        () -> running);
+            } catch (InterruptedException e) {
+                continue;
+            }
+            if (!group.isEmpty()) {
+                commit(group);
+                group = new ArrayList<>(props.maxBatchSize());
+            }
+        }
+    }
+
+    void commit(List<Submission> group) {
+        group.removeIf(submission -> !submission.claim());
+        if (group.isEmpty()) {
+            return;
+        }
+        long start = System.nanoTime();
+        try {
+            List<PendingUpdate> updates = group.stream().map(Submission::update).toList();
+            tx.executeWithoutResult(status -> updateService.ingestAll(updates));
+            group.forEach(Submission::complete);
+        } catch (RuntimeException e) {
+            log.warn("Group commit of {} updates failed, committing one by one: {}", group.size(), e.getMessage());
+            commitIndividually(group);
+        } finally {
+            commitTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            groupSize.record(group.size());
+        }
+    }
+
+    private void commitIndividually(List<Submission> group) {
+        for (Submission submission : group) {
+            try {
+                tx.executeWithoutResult(status -> updateService.ingestAll(List.of(submission.update())));
+                submission.complete();
+            } catch (RuntimeException e) {
+                submission.result().completeExceptionally(e);
+            }
+        }
+    }
+
+    record Submission(PendingUpdate update, CompletableFuture<UpdateResponse> result, AtomicReference<State> state) {
+
+        enum State { PENDING, CLAIMED, WITHDRAWN }
+
+        Submission(PendingUpdate update, CompletableFuture<UpdateResponse> result) {
+            this(update, result, new AtomicReference<>(State.PENDING));
+        }
+
+        /** @return whether the committer may write it; false if its caller gave up first */
+        boolean claim() {
+            return state.compareAndSet(State.PENDING, State.CLAIMED);
+        }
+
+        /** @return whether the caller gave up in time; false if it is already being written */
+        boolean withdraw() {
+            return state.compareAndSet(State.PENDING, State.WITHDRAWN);
+        }
+
+        void complete() {
+            UpdateRequest req = update.request();
+            result.complete(new UpdateResponse(req.sensorId().trim(), update.serverTs(),
+                    UpdateService.getStringDoubleMap(req.metrics()).size()));
+        }
+    }
+}
@@ -0,0 +1,180 @@
+package org.weather.metricsapi.service.update.v1;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Service;
+import org.weather.metricsapi.config.IngestProperties;
+import org.weather.metricsapi.dto.update.v1.UpdateAcceptedResponse;
+import org.weather.metricsapi.dto.update.v1.UpdateRequest;
+import org.weather.metricsapi.exception.IngestUnavailableException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Write-behind buffer for the asynchronous update mode.
+ * <p>
+ * Readings are queued in a bounded in-memory queue and acknowledged immediately. A single
+ * flusher thread drains the queue into {@link UpdateService#ingestAll} whenever
+ * {@code flushSize} readings are waiting or {@code flushInterval} has passed since the
+ * oldest one arrived. On shutdown the buffer stops accepting readings and drains what is
+ * left before the datasource is closed.
+ */
+@Service
+@ConditionalOnProperty(name = "weather.ingest.async.enabled", havingValue = "true")
+public class IngestBuffer implements SmartLifecycle {
+
+    private static final Logger log = LoggerFactory.getLogger(IngestBuffer.class);
+
+    // stop after the web server has stopped taking requests, before the datasource closes
+    private static final int PHASE = SmartLifecycle.DEFAULT_PHASE - 4096;
+
+    private final UpdateService updateService;
+    private final IngestProperties.Async props;
+    private final BlockingQueue<PendingUpdate> queue;
+    private final Timer flushTimer;
+    private final DistributionSummary flushSize;
+    private final Counter rejected;
+    private final Counter failed;
+
+    private volatile boolean running;
+    private Thread flusher;
+
+    public IngestBuffer(UpdateService updateService, IngestProperties properties, MeterRegistry registry) {
+        this.updateService = updateService;
+        this.props = properties.async();
+        this.queue = new ArrayBlockingQueue<>(props.queueCapacity());
+
+        Gauge.builder("weather.ingest.buffer.depth", queue, BlockingQueue::size)
+                .description("Readings waiting in the write-behind buffer")
+                .register(registry);
+        this.flushTimer = Timer.builder("weather.ingest.buffer.flush")
+                .description("Time to write one batch of buffered readings")
+                .register(registry);
+        this.flushSize = DistributionSummary.builder("weather.ingest.buffer.flush.size")
+                .description("Readings written per flush")
+                .register(registry);
+        this.rejected = Counter.builder("weather.ingest.buffer.rejected")
+                .description("Readings refused because the buffer was full or stopping")
+                .register(registry);
+        this.failed = Counter.builder("weather.ingest.buffer.failed")
+                .description("Buffered readings that could not be written")
+                .register(registry);
+    }
+
+    public UpdateAcceptedResponse enqueue(Instant serverTs, UpdateRequest req) {
+        if (!running) {
+            rejected.increment();
+            throw new IngestUnavailableException("Ingest buffer is not accepting readings");
+        }
+
+        boolean accepted;
+        try {
+            accepted = queue.offer(new PendingUpdate(serverTs, req),
+                    props.offerTimeout().toNanos(), TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            accepted = false;
+        }
+
+        if (!accepted) {
+            rejected.increment();
+            log.warn("Ingest buffer full ({} readings), rejecting sensor={}", queue.size(), req.sensorId());
+            throw new IngestUnavailableException("Ingest buffer is full, retry later");
+        }
+
+        return new UpdateAcceptedResponse(req.sensorId().trim(), serverTs,
+                UpdateService.getStringDoubleMap(req.metrics()).size());
+    }
+
+    public int depth() {
+        return queue.size();
+    }
+
+    @Override
+    public void start() {
+        running = true;
+        flusher = new Thread(this::runFlusher, "ingest-flusher");
+        flusher.start();
+        log.info("Ingest buffer started: capacity={}, flushSize={}, flushInterval={}",
+                props.queueCapacity(), props.flushSize(), props.flushInterval());
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        log.info("Ingest buffer stopping, draining {} readings", queue.size());
+        try {
+            flusher.join(props.shutdownTimeout().toMillis());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (flusher.isAlive() || !queue.isEmpty()) {
+            log.error("Ingest buffer did not drain within {}, {} readings lost",
+                    props.shutdownTimeout(), queue.size());
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    @Override
+    public int getPhase() {
+        return PHASE;
+    }
+
+    private void runFlusher() {
+        List<PendingUpdate> batch = new ArrayList<>(props.flushSize());
+        while (running || !queue.isEmpty()) {
+            try {
+                BatchCollector.fill(queue, batch, props.flushSize(), props.flushInterval().toNanos(),
+                        () -> running);
+            } catch (InterruptedException e) {
+                // keep draining; stop() decides when to give up
+                continue;
+            }
+            if (!batch.isEmpty()) {
+                flush(batch);
+                batch = new ArrayList<>(props.flushSize());
+            }
+        }
+    }
+
+    void flush(List<PendingUpdate> batch) {
+        long start = System.nanoTime();
+        try {
+            updateService.ingestAll(batch);
+        } catch (RuntimeException e) {
+            log.warn("Batch flush of {} readings failed, retrying one by one: {}", batch.size(), e.getMessage());
+            flushIndividually(batch);
+        } finally {
+            flushTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            flushSize.record(batch.size());
+        }
+        log.debug("Flushed {} buffered readings", batch.size());
+    }
+
+    private void flushIndividually(List<PendingUpdate> batch) {
+        for (PendingUpdate update : batch) {
+            try {
+                updateService.ingestAll(List.of(update));
+            } catch (RuntimeException e) {
+                failed.increment();
+                log.error("Dropping buffered reading sensor={}, ts={}: {}",
+                        update.request().sensorId(), update.serverTs(), e.getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,12 @@
+package org.weather.metricsapi.service.update.v1;
+
+import org.weather.metricsapi.dto.update.v1.UpdateRequest;
+import java.time.Instant;
+
+/**
+ * A validated reading with the server timestamp it was stamped with on arrival.
+ */
+public record PendingUpdate(
+        Instant serverTs,
+        UpdateRequest request
+) {}
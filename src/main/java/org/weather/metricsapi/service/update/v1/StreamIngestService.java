@@ -0,0 +1,427 @@
+package org.weather.metricsapi.service.update.v1;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Service;
+import org.weather.metricsapi.config.IngestProperties;
+import org.weather.metricsapi.dto.update.v1.ReadingRules;
+import org.weather.metricsapi.dto.update.v1.StreamUpdateResponse;
+import org.weather.metricsapi.dto.update.v1.UpdateRequest;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Ingest for long-lived NDJSON uploads, one update-shaped object per line:
+ * {@code {"sensorId": "...", "metrics": {"temperature": 21.5, ...}}}.
+ * <p>
+ * Each line is read into a fixed buffer, parsed token by token with Jackson's streaming
+ * parser and checked against {@link ReadingRules}; no request object is bound and Bean
+ * Validation does not run. Valid readings are written in rolling batches through
+ * {@link UpdateService#ingestAll}, so memory stays bounded by the batch size however long
+ * the upload runs. A bad line is reported and skipped without ending the stream.
+ * <p>
+ * A batch that has not filled up is written by a shared timer thread once
+ * {@code flushInterval} has passed since its first line arrived, so readings from an upload
+ * that goes quiet are stored without waiting for the next line. The reading thread and the
+ * timer take turns on the batch under its lock.
+ */
+@Service
+public class StreamIngestService implements SmartLifecycle {
+
+    private static final Logger log = LoggerFactory.getLogger(StreamIngestService.class);
+
+    // stop after the web server has stopped taking requests, before the datasource closes
+    private static final int PHASE = SmartLifecycle.DEFAULT_PHASE - 4096;
+
+    private final UpdateService updateService;
+    private final IngestProperties.Stream props;
+    private final JsonFactory jsonFactory;
+    private final Clock clock;
+
+    private volatile boolean running;
+    private ScheduledExecutorService flusher;
+
+    public StreamIngestService(UpdateService updateService, IngestProperties properties,
+                               ObjectMapper objectMapper, Clock clock) {
+        this.updateService = updateService;
+        this.props = properties.stream();
+        this.jsonFactory = objectMapper.getFactory();
+        this.clock = clock;
+    }
+
+    public StreamUpdateResponse ingest(InputStream in) throws IOException {
+        long start = System.nanoTime();
+        Summary summary = new Summary(props.maxReportedErrors());
+        Batch batch = new Batch(props.batchSize());
+        LineReader reader = new LineReader(
+                new InputStreamReader(in, StandardCharsets.UTF_8), props.maxLineLength());
+        Instant lastTs = Instant.EPOCH;
+
+        try {
+            // only the wait for the next line happens outside the lock, so the timer can flush then
+            while (reader.next()) {
+                synchronized (batch) {
+                    if (reader.isBlank()) {
+                        continue;
+                    }
+                    summary.linesRead++;
+                    if (reader.overflowed()) {
+                        summary.reject(reader.lineNo(), "line exceeds " + props.maxLineLength() + " characters");
+                        continue;
+                    }
+
+                    UpdateRequest req;
+                    try {
+                        req = parse(reader.buffer(), reader.length());
+                    } catch (IllegalArgumentException e) {
+                        summary.reject(reader.lineNo(), e.getMessage());
+                        continue;
+                    }
+
+                    // server timestamps, strictly increasing within the upload so that two lines for
+                    // the same sensor never collide on (sensor_id, ts) at the database's precision
+                    Instant now = Instant.now(clock).truncatedTo(ChronoUnit.MICROS);
+                    lastTs = now.isAfter(lastTs) ? now : lastTs.plus(1, ChronoUnit.MICROS);
+                    batch.add(reader.lineNo(), new PendingUpdate(lastTs, req));
+
+                    if (batch.size() == 1) {
+                        scheduleFlush(batch, summary);
+                    }
+                    if (batch.size() >= props.batchSize()) {
+                        write(batch, summary);
+                    }
+                }
+            }
+        } finally {
+            // lines already parsed are stored even if the client goes away mid-upload
+            synchronized (batch) {
+                if (batch.size() > 0) {
+                    write(batch, summary);
+                }
+            }
+        }
+
+        StreamUpdateResponse response = summary.response(System.nanoTime() - start);
+        log.info("Stream ingestion complete: lines={}, accepted={}, rejected={}, metrics_saved={}, batches={}",
+                response.linesRead(), response.accepted(), response.rejected(),
+                response.savedCount(), response.batches());
+        return response;
+    }
+
+    private UpdateRequest parse(char[] buffer, int length) {
+        String sensorId = null;
+        Double[] values = null;
+        boolean sawMetrics = false;
+
+        try (JsonParser parser = jsonFactory.createParser(buffer, 0, length)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new IllegalArgumentException("line must be a JSON object");
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                JsonToken token = parser.nextToken();
+                switch (field) {
+                    case "sensorId" -> sensorId = token == JsonToken.VALUE_NULL ? null : stringValue(parser, token);
+                    case "metrics" -> {
+                        sawMetrics = token != JsonToken.VALUE_NULL;
+                        values = sawMetrics ? readMetrics(parser, token) : null;
+                    }
+                    // unknown fields are ignored, as they are on the update endpoint
+                    default -> parser.skipChildren();
+                }
+            }
+            if (parser.nextToken() != null) {
+                throw new IllegalArgumentException("unexpected content after the JSON object");
+            }
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("invalid JSON: " + e.getOriginalMessage());
+        } catch (IOException e) {
+            throw new IllegalArgumentException("invalid JSON: " + e.getMessage());
+        }
+
+        String error = ReadingRules.checkSensorId(sensorId);
+        if (error != null) {
+            throw new IllegalArgumentException("sensorId: " + error);
+        }
+        if (!sawMetrics) {
+            throw new IllegalArgumentException("metrics: " + ReadingRules.metricsRequiredMessage());
+        }
+        List<ReadingRules.MetricRule> rules = ReadingRules.metrics();
+        for (int i = 0; i < rules.size(); i++) {
+            error = rules.get(i).check(values[i]);
+            if (error != null) {
+                throw new IllegalArgumentException("metrics." + rules.get(i).metric() + ": " + error);
+            }
+        }
+        return new UpdateRequest(sensorId, ReadingRules.toMetrics(values));
+    }
+
+    private static String stringValue(JsonParser parser, JsonToken token) throws IOException {
+        if (token != JsonToken.VALUE_STRING) {
+            throw new IllegalArgumentException("sensorId: must be a string");
+        }
+        return parser.getText();
+    }
+
+    private static Double[] readMetrics(JsonParser parser, JsonToken token) throws IOException {
+        if (token != JsonToken.START_OBJECT) {
+            throw new IllegalArgumentException("metrics: must be an object");
+        }
+        Double[] values = new Double[ReadingRules.metrics().size()];
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String metric = parser.currentName();
+            JsonToken value = parser.nextToken();
+            ReadingRules.MetricRule rule = ReadingRules.metric(metric);
+            if (rule == null) {
+                parser.skipChildren();
+                continue;
+            }
+            if (value == JsonToken.VALUE_NUMBER_INT || value == JsonToken.VALUE_NUMBER_FLOAT) {
+                values[ReadingRules.metrics().indexOf(rule)] = parser.getDoubleValue();
+            } else if (value != JsonToken.VALUE_NULL) {
+                throw new IllegalArgumentException("metrics." + metric + ": must be a number");
+            }
+        }
+        return values;
+    }
+
+    private void scheduleFlush(Batch batch, Summary summary) {
+        long generation = batch.generation;
+        try {
+            batch.flush = flusher.schedule(() -> flushDue(batch, summary, generation),
+                    props.flushInterval().toNanos(), TimeUnit.NANOSECONDS);
+        } catch (RejectedExecutionException e) {
+            // shutting down: the batch is written when it fills up or the body ends
+            log.debug("Stream flush timer stopped, not scheduling a flush");
+        }
+    }
+
+    private void flushDue(Batch batch, Summary summary, long generation) {
+        synchronized (batch) {
+            // written in the meantime, because it filled up or the upload ended
+            if (batch.generation != generation || batch.size() == 0) {
+                return;
+            }
+            log.debug("Stream idle for {}, writing {} readings", props.flushInterval(), batch.size());
+            write(batch, summary);
+        }
+    }
+
+    private void write(Batch batch, Summary summary) {
+        try {
+            summary.saved(batch.size(), updateService.ingestAll(batch.updates));
+        } catch (RuntimeException e) {
+            log.warn("Stream batch of {} readings failed, writing one by one: {}", batch.size(), e.getMessage());
+            writeIndividually(batch, summary);
+        }
+        summary.batches++;
+        log.debug("Wrote stream batch of {} readings", batch.size());
+        batch.clear();
+    }
+
+    private void writeIndividually(Batch batch, Summary summary) {
+        for (int i = 0; i < batch.size(); i++) {
+            try {
+                summary.saved(1, updateService.ingestAll(List.of(batch.updates.get(i))));
+            } catch (RuntimeException e) {
+                summary.reject(batch.lines.get(i), "could not be stored: " + e.getMessage());
+            }
+        }
+    }
+
+    @Override
+    public void start() {
+        running = true;
+        flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "stream-ingest-flusher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        log.info("Stream ingest started: batchSize={}, flushInterval={}", props.batchSize(), props.flushInterval());
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        // uploads still open write what they hold when their body ends
+        flusher.shutdownNow();
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    @Override
+    public int getPhase() {
+        return PHASE;
+    }
+
+    /**
+     * Reads lines into a reused buffer of at most {@code maxLength} characters; the rest of
+     * a longer line is discarded and the line is flagged instead of being held in memory.
+     */
+    private static final class LineReader {
+
+        private final Reader reader;
+        private final char[] input = new char[8192];
+        private final char[] buffer;
+        private int pos;
+        private int limit;
+        private int length;
+        private boolean overflowed;
+        private long lineNo;
+
+        LineReader(Reader reader, int maxLength) {
+            this.reader = reader;
+            this.buffer = new char[maxLength];
+        }
+
+        boolean next() throws IOException {
+            length = 0;
+            overflowed = false;
+            boolean read = false;
+            while (true) {
+                if (pos == limit) {
+                    limit = Math.max(reader.read(input, 0, input.length), 0);
+                    pos = 0;
+                    if (limit == 0) {
+                        if (!read) {
+                            return false;
+                        }
+                        break;
+                    }
+                }
+                read = true;
+                char c = input[pos++];
+                if (c == '\n') {
+                    break;
+                }
+                if (length < buffer.length) {
+                    buffer[length++] = c;
+                } else {
+                    overflowed = true;
+                }
+            }
+            lineNo++;
+            if (length > 0 && buffer[length - 1] == '\r' && !overflowed) {
+                length--;
+            }
+            return true;
+        }
+
+        boolean isBlank() {
+            for (int i = 0; i < length; i++) {
+                if (!Character.isWhitespace(buffer[i])) {
+                    return false;
+                }
+            }
+            return !overflowed;
+        }
+
+        char[] buffer() {
+            return buffer;
+        }
+
+        int length() {
+            return length;
+        }
+
+        boolean overflowed() {
+            return overflowed;
+        }
+
+        long lineNo() {
+            return lineNo;
+        }
+    }
+
+    /**
+     * Guarded by its own lock. {@code generation} changes whenever the batch is written, so
+     * a flush scheduled for an earlier batch does not write a later one early.
+     */
+    private static final class Batch {
+
+        final int capacity;
+        List<PendingUpdate> updates;
+        List<Long> lines;
+        long generation;
+        ScheduledFuture<?> flush;
+
+        Batch(int capacity) {
+            this.capacity = capacity;
+            clear();
+        }
+
+        void add(long line, PendingUpdate update) {
+            updates.add(update);
+            lines.add(line);
+        }
+
+        int size() {
+            return updates.size();
+        }
+
+        void clear() {
+            updates = new ArrayList<>(capacity);
+            lines = new ArrayList<>(capacity);
+            generation++;
+            if (flush != null) {
+                flush.cancel(false);
+                flush = null;
+            }
+        }
+    }
+
+    private static final class Summary {
+
+        final int maxErrors;
+        final List<StreamUpdateResponse.LineError> errors = new ArrayList<>();
+        long linesRead;
+        long accepted;
+        long rejected;
+        long savedCount;
+        int batches;
+
+        Summary(int maxErrors) {
+            this.maxErrors = maxErrors;
+        }
+
+        void reject(long line, String message) {
+            rejected++;
+            if (errors.size() < maxErrors) {
+                errors.add(new StreamUpdateResponse.LineError(line, message));
+            }
+        }
+
+        void saved(int readings, int metrics) {
+            accepted += readings;
+            savedCount += metrics;
+        }
+
+        StreamUpdateResponse response(long elapsedNanos) {
+            errors.sort((a, b) -> Long.compare(a.line(), b.line()));
+            return new StreamUpdateResponse(linesRead, accepted, rejected, savedCount, batches,
+                    TimeUnit.NANOSECONDS.toMillis(elapsedNanos), errors.isEmpty() ? null : errors);
+        }
+    }
+}
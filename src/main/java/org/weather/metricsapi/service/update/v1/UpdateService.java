@@ -1,74 +1,273 @@
 package org.weather.metricsapi.service.update.v1;
 
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.weather.metricsapi.config.RollupProperties;
+import org.weather.metricsapi.config.StorageProperties;
+import org.weather.metricsapi.dto.update.v1.BatchUpdateResponse;
 import org.weather.metricsapi.dto.update.v1.Metrics;
+import org.weather.metricsapi.dto.update.v1.ReadingRules;
 import org.weather.metricsapi.dto.update.v1.UpdateRequest;
 import org.weather.metricsapi.dto.update.v1.UpdateResponse;
 import org.weather.metricsapi.model.Snapshot;
 import org.weather.metricsapi.model.ReadingValue;
-import org.weather.metricsapi.repository.SnapshotRepo;
-import org.weather.metricsapi.repository.ReadingValueRepo;
+import org.weather.metricsapi.repository.DictionaryRepo;
+import org.weather.metricsapi.repository.ReadingInsertRepo;
+import org.weather.metricsapi.repository.RollupRepo;
+import org.weather.metricsapi.repository.WideReadingRepo;
+import org.weather.metricsapi.service.fetch.v1.FetchCache;
+import org.weather.metricsapi.service.fetch.v1.HotWindow;
+import org.weather.metricsapi.service.latest.v1.LatestIndex;
+import org.weather.metricsapi.util.Transactions;
+import org.weather.metricsapi.util.UuidV7;
+import java.time.Clock;
 import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
-import java.util.UUID;
+import java.util.Set;
+import java.util.TreeSet;
 
 @Service
 public class UpdateService {
 
     private static final Logger log = LoggerFactory.getLogger(UpdateService.class);
-    private final SnapshotRepo snapshotRepo;
-    private final ReadingValueRepo valueRepo;
+    private final ReadingInsertRepo insertRepo;
+    private final WideReadingRepo wideRepo;
+    private final DictionaryRepo dictionary;
+    private final Validator validator;
+    private final StorageProperties storage;
+    private final FetchCache fetchCache;
+    private final LatestIndex latestIndex;
+    private final HotWindow hotWindow;
+    private final RollupRepo rollups;
+    private final RollupProperties rollupProperties;
+    private final Clock clock;
 
-    public UpdateService(SnapshotRepo snapshotRepo, ReadingValueRepo valueRepo) {
-        this.snapshotRepo = snapshotRepo;
-        this.valueRepo = valueRepo;
+    public UpdateService(ReadingInsertRepo insertRepo, WideReadingRepo wideRepo, DictionaryRepo dictionary,
+                         Validator validator, StorageProperties storage, FetchCache fetchCache,
+                         LatestIndex latestIndex, HotWindow hotWindow, RollupRepo rollups,
+                         RollupProperties rollupProperties, Clock clock) {
+        this.insertRepo = insertRepo;
+        this.wideRepo = wideRepo;
+        this.dictionary = dictionary;
+        this.validator = validator;
+        this.storage = storage;
+        this.fetchCache = fetchCache;
+        this.latestIndex = latestIndex;
+        this.hotWindow = hotWindow;
+        this.rollups = rollups;
+        this.rollupProperties = rollupProperties;
+        this.clock = clock;
     }
 
     @Transactional
     public UpdateResponse ingest(Instant serverTs, UpdateRequest req) {
         String sensorId = req.sensorId().trim();
-        Metrics m = req.metrics();
 
         log.debug("Starting ingestion for sensor: {} at timestamp: {}", sensorId, serverTs);
 
-        Snapshot snapshot = new Snapshot();
-        snapshot.setId(UUID.randomUUID());
-        snapshot.setSensorId(sensorId);
-        snapshot.setTs(serverTs);
-        snapshotRepo.save(snapshot);
+        Snapshot snapshot = toSnapshot(sensorId, serverTs);
+        int saved = write(List.of(snapshot), List.of(req.metrics()), Map.of(sensorId, dictionary.sensorKey(sensorId)));
 
-        log.debug("Created snapshot: id={}, sensor={}", snapshot.getId(), sensorId);
+        log.info("Ingestion complete: sensor={}, snapshot={}, metrics_saved={}",
+                sensorId, snapshot.getId(), saved);
 
-        Map<String, Double> provided = getStringDoubleMap(m);
+        return new UpdateResponse(sensorId, serverTs, saved);
+    }
+
+    /**
+     * Validates each item on its own and writes every valid one in a single transaction,
+     * using one batched insert per table. Invalid items are reported, not thrown.
+     */
+    @Transactional
+    public BatchUpdateResponse ingestBatch(Instant serverTs, List<UpdateRequest> items) {
+        log.debug("Starting batch ingestion of {} items at timestamp: {}", items.size(), serverTs);
+
+        List<BatchUpdateResponse.ItemResult> results = new ArrayList<>(items.size());
+        List<Snapshot> snapshots = new ArrayList<>(items.size());
+        List<Metrics> accepted = new ArrayList<>(items.size());
+        Set<String> seenSensors = new HashSet<>();
+
+        for (int i = 0; i < items.size(); i++) {
+            UpdateRequest item = items.get(i);
+            Map<String, String> errors = validate(item);
+            String sensorId = item != null && item.sensorId() != null ? item.sensorId().trim() : null;
+
+            if (errors.isEmpty() && !seenSensors.add(sensorId)) {
+                // every item shares serverTs, and (sensor_id, ts) is unique
+                errors.put("sensorId", "sensorId appears more than once in this batch");
+            }
 
-        log.debug("Saving {} metrics for sensor: {}", provided.size(), sensorId);
+            if (!errors.isEmpty()) {
+                log.debug("Rejected batch item {}: {}", i, errors);
+                results.add(BatchUpdateResponse.ItemResult.rejected(i, sensorId, errors));
+                continue;
+            }
+
+            snapshots.add(toSnapshot(sensorId, serverTs));
+            accepted.add(item.metrics());
+            results.add(BatchUpdateResponse.ItemResult.saved(i, sensorId, getStringDoubleMap(item.metrics()).size()));
+        }
+
+        // seenSensors now holds exactly the accepted sensors: resolve them in one lookup
+        int saved = write(snapshots, accepted, dictionary.sensorKeys(seenSensors));
+
+        int rejected = items.size() - snapshots.size();
+        log.info("Batch ingestion complete: items={}, saved={}, rejected={}, metrics_saved={}",
+                items.size(), snapshots.size(), rejected, saved);
+
+        return new BatchUpdateResponse(serverTs, items.size(), snapshots.size(), rejected, results);
+    }
+
+    /**
+     * Writes already-validated readings, each with its own server timestamp, in one
+     * transaction. Used by the write-behind buffer to flush queued readings.
+     */
+    @Transactional
+    public int ingestAll(List<PendingUpdate> updates) {
+        List<Snapshot> snapshots = new ArrayList<>(updates.size());
+        List<Metrics> metrics = new ArrayList<>(updates.size());
+        Map<String, Integer> sensorKeys = dictionary.sensorKeys(
+                updates.stream().map(update -> update.request().sensorId().trim()).toList());
+
+        for (PendingUpdate update : updates) {
+            snapshots.add(toSnapshot(update.request().sensorId().trim(), update.serverTs()));
+            metrics.add(update.request().metrics());
+        }
+
+        int saved = write(snapshots, metrics, sensorKeys);
+
+        log.debug("Wrote {} pending updates with {} metrics", snapshots.size(), saved);
+        return saved;
+    }
 
+    /**
+     * Writes readings to whichever layouts {@code weather.storage.write} selects; during a
+     * dual-write cutover both are written in the caller's transaction. A reading stamped
+     * before it waited in a buffer or on a slow connection may land in a day that has
+     * already settled and been rolled up; such days are reopened for roll-up in the same
+     * transaction, as bulk import does. Once it commits, the readings are recorded in the
+     * latest index and the hot window, and cached fetches covering the written sensors and
+     * days are dropped.
+     *
+     * @return the number of metric values saved
+     */
+    private int write(List<Snapshot> snapshots, List<Metrics> metrics, Map<String, Integer> sensorKeys) {
         int saved = 0;
+        if (storage.writesNarrow()) {
+            List<ReadingValue> values = new ArrayList<>(snapshots.size() * 8);
+            for (int i = 0; i < snapshots.size(); i++) {
+                Snapshot snapshot = snapshots.get(i);
+                values.addAll(toValues(snapshot, sensorKeys.get(snapshot.getSensorId()), metrics.get(i)));
+            }
+            insertRepo.insertSnapshots(snapshots);
+            insertRepo.insertValues(values);
+            saved = values.size();
+        }
+        if (storage.writesWide()) {
+            List<WideReadingRepo.Row> rows = new ArrayList<>(snapshots.size());
+            int provided = 0;
+            for (int i = 0; i < snapshots.size(); i++) {
+                Snapshot snapshot = snapshots.get(i);
+                rows.add(new WideReadingRepo.Row(sensorKeys.get(snapshot.getSensorId()), snapshot.getTs(), metrics.get(i)));
+                provided += getStringDoubleMap(metrics.get(i)).size();
+            }
+            wideRepo.insert(rows);
+            saved = provided;
+        }
+        Set<LocalDate> settled = settledDays(snapshots);
+        if (!settled.isEmpty()) {
+            log.debug("Reopening rolled-up days for late readings: {}", settled);
+            rollups.invalidate(settled);
+        }
+        // registered first so the readings are in memory before cached fetches are dropped
+        Transactions.afterCommit(() -> {
+            for (int i = 0; i < snapshots.size(); i++) {
+                Snapshot snapshot = snapshots.get(i);
+                Double[] values = ReadingRules.values(metrics.get(i));
+                latestIndex.record(snapshot.getSensorId(), snapshot.getTs(), values);
+                hotWindow.record(sensorKeys.get(snapshot.getSensorId()), snapshot.getTs(), values);
+            }
+        });
+        fetchCache.written(sensorsByDay(snapshots));
+        return saved;
+    }
+
+    /**
+     * @return the days of the snapshots that the rollup aggregator may already have rolled up
+     */
+    private Set<LocalDate> settledDays(List<Snapshot> snapshots) {
+        // as RollupAggregator computes it
+        LocalDate lastSettled = LocalDate.ofInstant(clock.instant().minus(rollupProperties.settle()), ZoneOffset.UTC)
+                .minusDays(1);
+        Set<LocalDate> days = new TreeSet<>();
+        for (Snapshot snapshot : snapshots) {
+            LocalDate day = LocalDate.ofInstant(snapshot.getTs(), ZoneOffset.UTC);
+            if (!day.isAfter(lastSettled)) {
+                days.add(day);
+            }
+        }
+        return days;
+    }
+
+    private static Map<LocalDate, Set<String>> sensorsByDay(List<Snapshot> snapshots) {
+        Map<LocalDate, Set<String>> written = new HashMap<>();
+        for (Snapshot snapshot : snapshots) {
+            written.computeIfAbsent(LocalDate.ofInstant(snapshot.getTs(), ZoneOffset.UTC), day -> new HashSet<>())
+                    .add(snapshot.getSensorId());
+        }
+        return written;
+    }
+
+    private Map<String, String> validate(UpdateRequest item) {
+        Map<String, String> errors = new LinkedHashMap<>();
+        if (item == null) {
+            errors.put("item", "item cannot be null");
+            return errors;
+        }
+        for (ConstraintViolation<UpdateRequest> violation : validator.validate(item)) {
+            errors.putIfAbsent(violation.getPropertyPath().toString(), violation.getMessage());
+        }
+        return errors;
+    }
+
+    private static Snapshot toSnapshot(String sensorId, Instant serverTs) {
+        Snapshot snapshot = new Snapshot();
+        snapshot.setId(UuidV7.next());
+        snapshot.setSensorId(sensorId);
+        snapshot.setTs(serverTs);
+        return snapshot;
+    }
+
+    private List<ReadingValue> toValues(Snapshot snapshot, int sensorKey, Metrics m) {
+        Map<String, Double> provided = getStringDoubleMap(m);
+        List<ReadingValue> values = new ArrayList<>(provided.size());
         for (var e : provided.entrySet()) {
             ReadingValue rv = new ReadingValue();
-            rv.setId(UUID.randomUUID());
+            rv.setId(UuidV7.next());
             rv.setSnapshotId(snapshot.getId());
-            rv.setSensorId(sensorId);
-            rv.setTs(serverTs);
-            rv.setMetric(e.getKey());
+            rv.setSensorKey(sensorKey);
+            rv.setTs(snapshot.getTs());
+            rv.setMetricKey(dictionary.metricKey(e.getKey()));
             rv.setValue(e.getValue());
-            valueRepo.save(rv);
-            saved++;
+            values.add(rv);
 
-            log.trace("Saved reading: metric={}, value={}", e.getKey(), e.getValue());
+            log.trace("Prepared reading: metric={}, value={}", e.getKey(), e.getValue());
         }
-
-        log.info("Ingestion complete: sensor={}, snapshot={}, metrics_saved={}",
-                sensorId, snapshot.getId(), saved);
-
-        return new UpdateResponse(sensorId, serverTs, saved);
+        return values;
     }
 
-    private static Map<String, Double> getStringDoubleMap(Metrics m) {
+    static Map<String, Double> getStringDoubleMap(Metrics m) {
         Map<String, Double> provided = new LinkedHashMap<>();
         provided.put("temperature", m.temperature());
         provided.put("humidity", m.humidity());
@@ -80,4 +279,4 @@ public class UpdateService {
         if (m.aqi() != null)           provided.put("aqi", m.aqi());
         return provided;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,112 @@
+package org.weather.metricsapi.util;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * A mergeable quantile sketch with relative accuracy (DDSketch, Masson et al., VLDB 2019).
+ * <p>
+ * Values are counted in logarithmic buckets: bucket {@code i} holds magnitudes in
+ * {@code (gamma^(i-1), gamma^i]} with {@code gamma = (1 + a) / (1 - a)}, and is reported as
+ * the point within {@link #ACCURACY a} of every value in it. A quantile is therefore within
+ * {@code a} (1%) of the exact value, relative to that value, however many values went in.
+ * Magnitudes below {@code 1e-9} share one bucket reported as 0.
+ * <p>
+ * Bucket keys are assigned in the database by {@code sketch_key()} (see
+ * {@code V6__quantile_sketches.sql}), and by {@link #key} for values aggregated in memory,
+ * which gives the same key for every value. Merging
+ * adds bucket counts, so a sketch merged from hourly sketches is the same as one built from
+ * all the values at once.
+ */
+public final class QuantileSketch {
+
+    public static final double ACCURACY = 0.01;
+
+    private static final double GAMMA = (1 + ACCURACY) / (1 - ACCURACY);
+    // keeps every key of a value of at least 1e-9 away from 0; must match sketch_key()
+    private static final int KEY_OFFSET = 1100;
+    // ln(1.01 / 0.99) as sketch_key() computes it, in numeric, then taken as a double
+    private static final double LN_GAMMA = 0.020000666706669522;
+
+    private final TreeMap<Integer, Long> counts;
+    private final long total;
+
+    private QuantileSketch(TreeMap<Integer, Long> counts) {
+        this.counts = counts;
+        this.total = counts.values().stream().mapToLong(Long::longValue).sum();
+    }
+
+    public static QuantileSketch of(int key, long count) {
+        TreeMap<Integer, Long> counts = new TreeMap<>();
+        counts.put(key, count);
+        return new QuantileSketch(counts);
+    }
+
+    /**
+     * @param counts the count of each bucket key
+     */
+    public static QuantileSketch of(Map<Integer, Long> counts) {
+        return new QuantileSketch(new TreeMap<>(counts));
+    }
+
+    /**
+     * @return the bucket key of {@code value}, the same as {@code sketch_key(value)}
+     */
+    public static int key(double value) {
+        if (Math.abs(value) < 1e-9) {
+            return 0;
+        }
+        return (int) (Math.signum(value) * (Math.ceil(Math.log(Math.abs(value)) / LN_GAMMA) + KEY_OFFSET));
+    }
+
+    public QuantileSketch merge(QuantileSketch other) {
+        TreeMap<Integer, Long> merged = new TreeMap<>(counts);
+        other.counts.forEach((key, count) -> merged.merge(key, count, Long::sum));
+        return new QuantileSketch(merged);
+    }
+
+    public long count() {
+        return total;
+    }
+
+    /**
+     * Estimates the {@code q}-quantile with the same definition as PostgreSQL's
+     * {@code percentile_disc}: the first value, in sorted order, at or past the fraction
+     * {@code q} of all values.
+     */
+    public double quantile(double q) {
+        long rank = Math.max(1, (long) Math.ceil(q * total));
+        long seen = 0;
+        for (Map.Entry<Integer, Long> bucket : counts.entrySet()) {
+            seen += bucket.getValue();
+            if (seen >= rank) {
+                return value(bucket.getKey());
+            }
+        }
+        return value(counts.lastKey());
+    }
+
+    static double value(int key) {
+        if (key == 0) {
+            return 0;
+        }
+        int index = Math.abs(key) - KEY_OFFSET;
+        double magnitude = 2 * Math.pow(GAMMA, index) / (GAMMA + 1);
+        return key > 0 ? magnitude : -magnitude;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof QuantileSketch other && counts.equals(other.counts);
+    }
+
+    @Override
+    public int hashCode() {
+        return counts.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return "QuantileSketch" + counts;
+    }
+}
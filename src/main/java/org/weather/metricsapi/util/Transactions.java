@@ -0,0 +1,29 @@
+package org.weather.metricsapi.util;
+
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Helpers for work that must only become visible once the data it describes is committed.
+ */
+public final class Transactions {
+
+    private Transactions() {}
+
+    /**
+     * Runs {@code action} after the current transaction commits, not at all if it rolls
+     * back, and at once if there is no transaction.
+     */
+    public static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+}
@@ -0,0 +1,55 @@
+package org.weather.metricsapi.util;
+
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Time-ordered UUID version 7 (RFC 9562) for primary keys.
+ * <p>
+ * Layout: 48-bit Unix millisecond timestamp, version, 12-bit sequence, variant, 62 random
+ * bits. Keys generated later sort after earlier ones, so inserts append to the right-hand
+ * edge of the primary-key B-tree instead of landing on random pages.
+ * <p>
+ * Timestamp and sequence are kept together in one {@link AtomicLong} and advanced with a
+ * CAS, which makes ids strictly increasing across all threads without locking. Each new
+ * millisecond starts the sequence at a random point in its lower half; if more than the
+ * remaining sequence values are needed within one millisecond the counter carries into the
+ * timestamp, which runs slightly ahead until the clock catches up (RFC 9562, section 6.2).
+ * The random bits come from {@link ThreadLocalRandom}: ids must be unique and ordered, not
+ * unguessable, and this avoids contending on {@code SecureRandom}.
+ */
+public final class UuidV7 {
+
+    private static final int SEQUENCE_BITS = 12;
+    private static final long VERSION = 0x7L << 12;
+    private static final long VARIANT = 0x2L << 62;
+    private static final long RANDOM_MASK = (1L << 62) - 1;
+
+    // (unix millis << 12) | sequence, i.e. the top 60 bits of the id minus the version
+    private static final AtomicLong LAST = new AtomicLong();
+
+    private UuidV7() {}
+
+    public static UUID next() {
+        long now = System.currentTimeMillis() << SEQUENCE_BITS;
+        long seed = ThreadLocalRandom.current().nextLong(1L << (SEQUENCE_BITS - 1));
+        long state = LAST.updateAndGet(last -> Math.max(now | seed, last + 1));
+        return build(state, ThreadLocalRandom.current().nextLong());
+    }
+
+    /**
+     * @return the millisecond timestamp embedded in a version 7 UUID
+     */
+    public static long timestampMillis(UUID uuid) {
+        return uuid.getMostSignificantBits() >>> 16;
+    }
+
+    static UUID build(long state, long random) {
+        long millis = state >>> SEQUENCE_BITS;
+        long sequence = state & ((1L << SEQUENCE_BITS) - 1);
+        long msb = (millis << 16) | VERSION | sequence;
+        long lsb = VARIANT | (random & RANDOM_MASK);
+        return new UUID(msb, lsb);
+    }
+}
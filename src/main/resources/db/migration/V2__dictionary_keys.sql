@@ -0,0 +1,58 @@
+-- Dictionary-encode sensor ids and metric names in reading_values: each row now carries
+-- a 4-byte sensor key and a 2-byte metric key instead of two text columns.
+
+create table sensors (
+                         id serial primary key,
+                         name text not null unique
+);
+
+create table metrics (
+                         id smallserial primary key,
+                         name text not null unique
+);
+
+insert into metrics (name) values
+    ('temperature'), ('humidity'), ('pressure'), ('windSpeed'),
+    ('windDirection'), ('rainfall'), ('uvIndex'), ('aqi');
+
+insert into metrics (name)
+select distinct metric from reading_values
+on conflict (name) do nothing;
+
+insert into sensors (name)
+select sensor_id from snapshots
+union
+select sensor_id from reading_values
+order by 1;
+
+-- copy into a new table rather than rewriting in place, then build indexes once at the end;
+-- columns are ordered widest first so rows pack without alignment padding
+create table reading_values_new (
+                                    id uuid not null,
+                                    snapshot_id uuid not null,
+                                    ts timestamptz not null,
+                                    value double precision not null,
+                                    sensor_key integer not null,
+                                    metric_key smallint not null
+);
+
+insert into reading_values_new (id, snapshot_id, ts, value, sensor_key, metric_key)
+select rv.id, rv.snapshot_id, rv.ts, rv.value, s.id, m.id
+from reading_values rv
+         join sensors s on s.name = rv.sensor_id
+         join metrics m on m.name = rv.metric;
+
+drop table reading_values;
+alter table reading_values_new rename to reading_values;
+
+alter table reading_values
+    add constraint reading_values_pkey primary key (id),
+    add constraint reading_values_snapshot_id_fkey foreign key (snapshot_id) references snapshots(id) on delete cascade,
+    add constraint reading_values_sensor_key_fkey foreign key (sensor_key) references sensors(id),
+    add constraint reading_values_metric_key_fkey foreign key (metric_key) references metrics(id),
+    add constraint uk_snapshot_metric unique (snapshot_id, metric_key),
+    add constraint uk_sensor_ts_metric unique (sensor_key, ts, metric_key);
+
+create index idx_values_sensor_ts        on reading_values(sensor_key, ts);
+create index idx_values_metric_ts        on reading_values(metric_key, ts);
+create index idx_values_sensor_metric_ts on reading_values(sensor_key, metric_key, ts);
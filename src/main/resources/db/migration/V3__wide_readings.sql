@@ -0,0 +1,37 @@
+-- Wide layout: one row per (sensor, ts) with a nullable column per metric, in the
+-- declaration order of the update API's metrics object. Written alongside (or instead of)
+-- snapshots/reading_values depending on weather.storage.write.
+create table readings (
+    sensor_key     integer not null references sensors(id),
+    ts             timestamptz not null,
+    temperature    double precision,
+    humidity       double precision,
+    pressure       double precision,
+    wind_speed     double precision,
+    wind_direction double precision,
+    rainfall       double precision,
+    uv_index       double precision,
+    aqi            double precision,
+    constraint readings_pkey primary key (sensor_key, ts)
+);
+
+-- ts-only range scans (fetch without a sensor filter)
+create index idx_readings_ts on readings (ts);
+
+-- Initial backfill of what the narrow layout already holds. Readings written by instances
+-- still on weather.storage.write=narrow after this runs are picked up by
+-- POST /v1/admin/storage/backfill, which repeats this statement for a time range.
+insert into readings (sensor_key, ts, temperature, humidity, pressure, wind_speed,
+                      wind_direction, rainfall, uv_index, aqi)
+select v.sensor_key, v.ts,
+       max(v.value) filter (where m.name = 'temperature'),
+       max(v.value) filter (where m.name = 'humidity'),
+       max(v.value) filter (where m.name = 'pressure'),
+       max(v.value) filter (where m.name = 'windSpeed'),
+       max(v.value) filter (where m.name = 'windDirection'),
+       max(v.value) filter (where m.name = 'rainfall'),
+       max(v.value) filter (where m.name = 'uvIndex'),
+       max(v.value) filter (where m.name = 'aqi')
+from reading_values v
+join metrics m on m.id = v.metric_key
+group by v.sensor_key, v.ts;
@@ -0,0 +1,114 @@
+-- Range-partition snapshots, reading_values and readings on ts. All three share the same
+-- bounds so retention drops matching partitions together. This migration creates weekly
+-- partitions for the data already stored; PartitionManager creates later ones ahead of
+-- time, in weekly or daily steps as configured.
+--
+-- Unique constraints and primary keys of a partitioned table must contain the partition
+-- key, so ts is added to them. reading_values now references snapshots by (id, ts), which
+-- still identifies exactly one snapshot.
+--
+-- Each table also gets a default partition, so a row is never refused for having no
+-- partition (e.g. an imported reading from years ago). PartitionManager moves such rows
+-- into a proper partition on its next run.
+
+create table snapshots_new (
+                               id uuid not null,
+                               sensor_id text not null,
+                               ts timestamptz not null,
+                               received_at timestamptz not null default now()
+) partition by range (ts);
+
+create table reading_values_new (
+                                    id uuid not null,
+                                    snapshot_id uuid not null,
+                                    ts timestamptz not null,
+                                    value double precision not null,
+                                    sensor_key integer not null,
+                                    metric_key smallint not null
+) partition by range (ts);
+
+create table readings_new (
+                              sensor_key     integer not null,
+                              ts             timestamptz not null,
+                              temperature    double precision,
+                              humidity       double precision,
+                              pressure       double precision,
+                              wind_speed     double precision,
+                              wind_direction double precision,
+                              rainfall       double precision,
+                              uv_index       double precision,
+                              aqi            double precision
+) partition by range (ts);
+
+-- one partition per week that holds data, plus the current week; gaps between them are
+-- left to the default partition rather than filled with empty tables
+do $$
+declare
+    week timestamptz;
+    tbl  text;
+begin
+    for week in
+        select date_trunc('week', ts, 'UTC') from snapshots
+        union
+        select date_trunc('week', ts, 'UTC') from readings
+        union
+        select date_trunc('week', now(), 'UTC')
+        order by 1
+    loop
+        foreach tbl in array array['snapshots', 'reading_values', 'readings'] loop
+            execute format('create table %I partition of %I for values from (%L) to (%L)',
+                           tbl || '_p' || to_char(week at time zone 'UTC', 'YYYYMMDD'), tbl || '_new',
+                           week, week + interval '1 week');
+        end loop;
+    end loop;
+end $$;
+
+create table snapshots_default      partition of snapshots_new      default;
+create table reading_values_default partition of reading_values_new default;
+create table readings_default       partition of readings_new       default;
+
+insert into snapshots_new (id, sensor_id, ts, received_at)
+select id, sensor_id, ts, received_at from snapshots;
+
+insert into reading_values_new (id, snapshot_id, ts, value, sensor_key, metric_key)
+select id, snapshot_id, ts, value, sensor_key, metric_key from reading_values;
+
+insert into readings_new (sensor_key, ts, temperature, humidity, pressure, wind_speed,
+                          wind_direction, rainfall, uv_index, aqi)
+select sensor_key, ts, temperature, humidity, pressure, wind_speed,
+       wind_direction, rainfall, uv_index, aqi
+from readings;
+
+drop table reading_values;
+drop table readings;
+drop table snapshots;
+
+alter table snapshots_new rename to snapshots;
+alter table reading_values_new rename to reading_values;
+alter table readings_new rename to readings;
+
+-- constraints and indexes are declared on the parents and built on every partition
+alter table snapshots
+    add constraint snapshots_pkey primary key (id, ts),
+    add constraint snapshots_sensor_id_ts_key unique (sensor_id, ts);
+
+create index idx_snapshots_sensor_ts on snapshots(sensor_id, ts);
+
+alter table reading_values
+    add constraint reading_values_pkey primary key (id, ts),
+    add constraint reading_values_snapshot_id_fkey foreign key (snapshot_id, ts)
+        references snapshots(id, ts) on delete cascade,
+    add constraint reading_values_sensor_key_fkey foreign key (sensor_key) references sensors(id),
+    add constraint reading_values_metric_key_fkey foreign key (metric_key) references metrics(id),
+    add constraint uk_snapshot_metric unique (snapshot_id, metric_key, ts),
+    add constraint uk_sensor_ts_metric unique (sensor_key, ts, metric_key);
+
+create index idx_values_sensor_ts        on reading_values(sensor_key, ts);
+create index idx_values_metric_ts        on reading_values(metric_key, ts);
+create index idx_values_sensor_metric_ts on reading_values(sensor_key, metric_key, ts);
+
+alter table readings
+    add constraint readings_pkey primary key (sensor_key, ts),
+    add constraint readings_sensor_key_fkey foreign key (sensor_key) references sensors(id);
+
+create index idx_readings_ts on readings(ts);
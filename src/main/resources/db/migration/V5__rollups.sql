@@ -0,0 +1,33 @@
+-- Pre-aggregated readings per (sensor, metric): hourly buckets, and whole UTC days built
+-- from them. Sums are numeric so that adding up partial sums gives exactly the sum of the
+-- raw values, whatever the grouping.
+
+create table rollup_hourly (
+                               bucket     timestamptz not null,
+                               sensor_key integer not null,
+                               metric_key smallint not null,
+                               min        double precision not null,
+                               max        double precision not null,
+                               sum        numeric not null,
+                               count      bigint not null,
+                               constraint rollup_hourly_pkey primary key (bucket, sensor_key, metric_key)
+);
+
+create table rollup_daily (
+                              day        date not null,
+                              sensor_key integer not null,
+                              metric_key smallint not null,
+                              min        double precision not null,
+                              max        double precision not null,
+                              sum        numeric not null,
+                              count      bigint not null,
+                              constraint rollup_daily_pkey primary key (day, sensor_key, metric_key)
+);
+
+-- One row per UTC day the aggregator knows of. rolled_at is set when the day's rollups
+-- match its raw readings and cleared when readings are written into the day afterwards;
+-- only days with rolled_at set are answered from rollups.
+create table rollup_days (
+                             day       date primary key,
+                             rolled_at timestamptz
+);
@@ -0,0 +1,23 @@
+-- Quantile sketches for percentile statistics (see QuantileSketch). A value falls into a
+-- logarithmic bucket whose width is set by the relative accuracy: 1%, so gamma = 1.01 / 0.99.
+-- Buckets are keyed so that key order is value order: 0 holds |v| < 1e-9, positive keys hold
+-- positive values and negative keys negative ones. Raw fetches and rollups both bucket with
+-- this one function, so their sketches agree exactly.
+create function sketch_key(v double precision) returns integer
+    language sql immutable strict parallel safe
+return case
+           when abs(v) < 1e-9 then 0
+           else (sign(v) * (ceil(ln(abs(v)) / ln(1.01 / 0.99)) + 1100))::integer
+       end;
+
+-- Per row, the sketch as parallel arrays of bucket keys (ascending) and counts.
+alter table rollup_hourly
+    add column sketch_keys   integer[],
+    add column sketch_counts integer[];
+
+alter table rollup_daily
+    add column sketch_keys   integer[],
+    add column sketch_counts integer[];
+
+-- rollups built so far have no sketches: let the aggregator build them again
+update rollup_days set rolled_at = null;
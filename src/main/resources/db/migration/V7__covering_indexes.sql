@@ -0,0 +1,20 @@
+-- A leaner index set for reading_values.
+--
+-- idx_values_sensor_metric_ts is rebuilt to include value, so a fetch for given sensors can
+-- aggregate with an index-only scan instead of visiting the heap for every reading.
+--
+-- idx_values_sensor_ts duplicated the leading columns of uk_sensor_ts_metric, so it goes.
+--
+-- idx_values_metric_ts only served fetches for all sensors, which read one metric across a
+-- time range. Readings arrive roughly in ts order, so a BRIN index on ts narrows such a range
+-- to the pages holding it at a fraction of the size and write cost of a btree. It also
+-- serves the plain time-range scans of rollups and the hot window.
+--
+-- The unique constraints stay: inserts rely on them to skip readings already stored.
+
+drop index idx_values_sensor_ts;
+drop index idx_values_metric_ts;
+drop index idx_values_sensor_metric_ts;
+
+create index idx_values_sensor_metric_ts on reading_values(sensor_key, metric_key, ts) include (value);
+create index idx_values_ts_brin on reading_values using brin (ts);
@@ -0,0 +1,107 @@
+package org.weather.metricsapi.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.weather.metricsapi.dto.fetch.v1.FetchResponse;
+import org.weather.metricsapi.dto.update.v1.Metrics;
+import org.weather.metricsapi.dto.update.v1.UpdateRequest;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Payload size and serialization/deserialization throughput of JSON vs CBOR for a typical
+ * 8-metric update and a 100-sensor fetch response. Run with {@code ./mvnw test -Pbenchmark}.
+ */
+@Tag("benchmark")
+class CodecBenchmarkTest {
+
+    private static final long WARMUP_NANOS = TimeUnit.SECONDS.toNanos(2);
+    private static final long MEASURE_NANOS = TimeUnit.SECONDS.toNanos(3);
+    private static final String[] METRICS = {
+            "temperature", "humidity", "pressure", "windSpeed", "windDirection", "rainfall", "uvIndex", "aqi"};
+
+    private final ObjectMapper json = new Jackson2ObjectMapperBuilder().build();
+    private final ObjectMapper cbor = new Jackson2ObjectMapperBuilder().factory(new CBORFactory()).build();
+
+    // keeps the JIT from discarding results
+    private static volatile Object sink;
+
+    @Test
+    void updateRequest() throws Exception {
+        UpdateRequest request = new UpdateRequest("sensor-001",
+                new Metrics(21.37, 64.2, 1013.25, 12.4, 187.0, 0.6, 4.2, 38.0));
+        compare("update request (8 metrics)", request, UpdateRequest.class);
+    }
+
+    @Test
+    void fetchResponse() throws Exception {
+        List<String> sensors = new ArrayList<>();
+        List<FetchResponse.SensorResult> results = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            String sensorId = "sensor-%03d".formatted(i);
+            Map<String, FetchResponse.MetricStatistic> stats = new LinkedHashMap<>();
+            for (int m = 0; m < METRICS.length; m++) {
+                stats.put(METRICS[m], new FetchResponse.MetricStatistic(
+                        METRICS[m], "average", 10.0 + i * 0.173 + m * 3.41, 2016L));
+            }
+            sensors.add(sensorId);
+            results.add(new FetchResponse.SensorResult(sensorId, stats));
+        }
+        FetchResponse response = new FetchResponse(new FetchResponse.QueryInfo(
+                sensors, List.of(METRICS), "average",
+                LocalDate.of(2025, 1, 1), LocalDate.of(2025, 1, 7), 100, 100 * 8 * 2016), results);
+        compare("fetch response (100 sensors x 8 metrics)", response, FetchResponse.class);
+    }
+
+    private <T> void compare(String name, T value, Class<T> type) throws Exception {
+        byte[] jsonBytes = json.writeValueAsBytes(value);
+        byte[] cborBytes = cbor.writeValueAsBytes(value);
+        assertEquals(value, json.readValue(jsonBytes, type));
+        assertEquals(value, cbor.readValue(cborBytes, type));
+
+        double jsonWrite = throughput(() -> json.writeValueAsBytes(value));
+        double cborWrite = throughput(() -> cbor.writeValueAsBytes(value));
+        double jsonRead = throughput(() -> json.readValue(jsonBytes, type));
+        double cborRead = throughput(() -> cbor.readValue(cborBytes, type));
+
+        System.out.printf("%n%s%n", name);
+        System.out.printf("  %-6s %10s %16s %16s%n", "codec", "bytes", "serialize ops/s", "deserialize ops/s");
+        System.out.printf("  %-6s %10d %16.0f %16.0f%n", "json", jsonBytes.length, jsonWrite, jsonRead);
+        System.out.printf("  %-6s %10d %16.0f %16.0f%n", "cbor", cborBytes.length, cborWrite, cborRead);
+        System.out.printf("  cbor/json size %.2f, serialize x%.2f, deserialize x%.2f%n",
+                (double) cborBytes.length / jsonBytes.length, cborWrite / jsonWrite, cborRead / jsonRead);
+    }
+
+    private static double throughput(Op op) throws Exception {
+        run(op, WARMUP_NANOS);
+        return run(op, MEASURE_NANOS);
+    }
+
+    private static double run(Op op, long nanos) throws Exception {
+        long start = System.nanoTime();
+        long end = start + nanos;
+        long ops = 0;
+        long now;
+        do {
+            for (int i = 0; i < 100; i++) {
+                sink = op.run();
+            }
+            ops += 100;
+            now = System.nanoTime();
+        } while (now < end);
+        return ops / ((now - start) / 1e9);
+    }
+
+    @FunctionalInterface
+    private interface Op {
+        Object run() throws Exception;
+    }
+}
@@ -0,0 +1,184 @@
+package org.weather.metricsapi.benchmark;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.weather.metricsapi.config.FetchProperties;
+import org.weather.metricsapi.config.RollupProperties;
+import org.weather.metricsapi.config.StorageProperties;
+import org.weather.metricsapi.dto.fetch.v1.FetchRequest;
+import org.weather.metricsapi.dto.fetch.v1.FetchResponse;
+import org.weather.metricsapi.repository.DictionaryRepo;
+import org.weather.metricsapi.repository.NarrowReadingRepo;
+import org.weather.metricsapi.repository.RollupRepo;
+import org.weather.metricsapi.repository.StreamingAggregateRepo;
+import org.weather.metricsapi.repository.WideReadingRepo;
+import org.weather.metricsapi.service.fetch.v1.ChunkedQueryEngine;
+import org.weather.metricsapi.service.fetch.v1.FetchCache;
+import org.weather.metricsapi.service.fetch.v1.FetchService;
+import org.weather.metricsapi.service.fetch.v1.HotWindow;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * A thundering herd of identical fetches, with and without coalescing. Seeds 200 sensors
+ * with 96 readings of all eight metrics in one day, then releases {@code benchmark.herd}
+ * threads (default 200) at once, each asking for the all-sensor average of that day, and
+ * reports how many queries went to the database, how many requests failed (mostly waiting
+ * longer than the connection timeout for one of the pool's connections) and the latency
+ * percentiles of the herd. Results are not cached, so only coalescing saves reads.
+ * Runs in its own schema, migrated from scratch and dropped afterwards.
+ * Run with {@code ./mvnw test -Pbenchmark -Dtest=FetchHerdBenchmarkTest}.
+ */
+@Tag("benchmark")
+@SpringBootTest(properties = {
+        "spring.flyway.schemas=" + FetchHerdBenchmarkTest.SCHEMA,
+        "spring.datasource.hikari.schema=" + FetchHerdBenchmarkTest.SCHEMA
+})
+@ActiveProfiles("test")
+class FetchHerdBenchmarkTest {
+
+    static final String SCHEMA = "bench_herd";
+
+    private static final int SENSORS = 200;
+    private static final int READINGS_PER_DAY = 96;
+    private static final int HERD = Integer.getInteger("benchmark.herd", 200);
+    private static final LocalDate DAY = LocalDate.of(2002, 9, 1);
+    private static final StorageProperties NARROW =
+            new StorageProperties(StorageProperties.Write.NARROW, StorageProperties.Layout.NARROW);
+    private static final RollupProperties ROLLUPS_OFF =
+            new RollupProperties(false, Duration.ofMinutes(10), Duration.ofMinutes(5));
+
+    @Autowired
+    private NarrowReadingRepo narrowRepo;
+
+    @Autowired
+    private DictionaryRepo dictionary;
+
+    @Autowired
+    private WideReadingRepo wideRepo;
+
+    @Autowired
+    private RollupRepo rollups;
+
+    @Autowired
+    private StreamingAggregateRepo streamingRepo;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private HotWindow hotWindow;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @AfterEach
+    void dropSchema() {
+        jdbcTemplate.execute("drop schema " + SCHEMA + " cascade");
+    }
+
+    @Test
+    void identicalConcurrentFetches() throws Exception {
+        seed();
+        FetchRequest request = new FetchRequest(null,
+                List.of("temperature", "humidity", "pressure", "windSpeed",
+                        "windDirection", "rainfall", "uvIndex", "aqi"),
+                "average", DAY, DAY);
+
+        System.out.printf("%n%d identical all-sensor fetches at once, %d sensors x %d readings, %d CPUs%n",
+                HERD, SENSORS, READINGS_PER_DAY, Runtime.getRuntime().availableProcessors());
+        System.out.printf("  %-12s %8s %8s %8s %8s %8s %8s%n", "mode", "queries", "failed", "p50", "p95", "p99", "max");
+        herd("separate", false, request);
+        assertEquals(0, herd("coalesced", true, request));
+    }
+
+    /**
+     * @return the number of requests that failed
+     */
+    private int herd(String mode, boolean coalesce, FetchRequest request) throws Exception {
+        FetchProperties fetch = new FetchProperties(366, FetchProperties.Chunk.MONTH, 4, 200, Duration.ofMinutes(5),
+                coalesce, new FetchProperties.Cache(false, 0, Duration.ZERO), new FetchProperties.HotWindow(false, 2, 2880, Duration.ofMinutes(1)));
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        FetchCache cache = new FetchCache(fetch, ROLLUPS_OFF, Clock.systemUTC(), registry);
+        ChunkedQueryEngine engine = new ChunkedQueryEngine(fetch, transactionManager);
+        FetchService service = new FetchService(narrowRepo, dictionary, wideRepo, rollups, streamingRepo,
+                NARROW, ROLLUPS_OFF, fetch, engine, cache, hotWindow, Clock.systemUTC());
+        FetchResponse expected = service.query(request);
+        double warmUpReads = reads(registry);
+
+        ExecutorService pool = Executors.newFixedThreadPool(HERD);
+        CountDownLatch ready = new CountDownLatch(HERD);
+        CountDownLatch go = new CountDownLatch(1);
+        List<Future<Long>> latencies = new ArrayList<>(HERD);
+        AtomicInteger failed = new AtomicInteger();
+        try {
+            for (int i = 0; i < HERD; i++) {
+                latencies.add(pool.submit(() -> {
+                    ready.countDown();
+                    go.await();
+                    long start = System.nanoTime();
+                    try {
+                        assertEquals(expected, service.query(request));
+                    } catch (RuntimeException e) {
+                        failed.incrementAndGet();
+                    }
+                    return System.nanoTime() - start;
+                }));
+            }
+            ready.await();
+            go.countDown();
+
+            long[] nanos = new long[HERD];
+            for (int i = 0; i < HERD; i++) {
+                nanos[i] = latencies.get(i).get();
+            }
+            Arrays.sort(nanos);
+            System.out.printf("  %-12s %8.0f %8d %6.0fms %6.0fms %6.0fms %6.0fms%n", mode,
+                    reads(registry) - warmUpReads, failed.get(), percentile(nanos, 0.50), percentile(nanos, 0.95), percentile(nanos, 0.99), nanos[HERD - 1] / 1e6);
+            return failed.get();
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private static double reads(SimpleMeterRegistry registry) {
+        return registry.get("weather.fetch.cache.requests").tag("result", "miss").counter().count();
+    }
+
+    private static double percentile(long[] sorted, double q) {
+        return sorted[(int) Math.ceil(q * sorted.length) - 1] / 1e6;
+    }
+
+    private void seed() {
+        jdbcTemplate.update("insert into sensors (name) select 'herd-' || lpad(g::text, 3, '0') "
+                + "from generate_series(1, ?) g", SENSORS);
+        jdbcTemplate.update("insert into snapshots (id, sensor_id, ts) "
+                        + "select gen_random_uuid(), s.name, t from sensors s "
+                        + "cross join generate_series(?::timestamptz, ?::timestamptz, ?::interval) t",
+                DAY.atStartOfDay().atOffset(ZoneOffset.UTC),
+                DAY.plusDays(1).atStartOfDay().minusSeconds(1).atOffset(ZoneOffset.UTC),
+                (86_400 / READINGS_PER_DAY) + " seconds");
+        jdbcTemplate.update("insert into reading_values (id, snapshot_id, ts, value, sensor_key, metric_key) "
+                + "select gen_random_uuid(), p.id, p.ts, round((random() * 40)::numeric, 1), s.id, m.id "
+                + "from snapshots p join sensors s on s.name = p.sensor_id cross join metrics m");
+        jdbcTemplate.execute("vacuum analyze snapshots, reading_values");
+    }
+}
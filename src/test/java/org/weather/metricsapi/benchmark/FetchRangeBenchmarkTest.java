@@ -0,0 +1,148 @@
+package org.weather.metricsapi.benchmark;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.weather.metricsapi.config.FetchProperties;
+import org.weather.metricsapi.config.RollupProperties;
+import org.weather.metricsapi.config.StorageProperties;
+import org.weather.metricsapi.dto.fetch.v1.FetchRequest;
+import org.weather.metricsapi.dto.fetch.v1.FetchResponse;
+import org.weather.metricsapi.repository.DictionaryRepo;
+import org.weather.metricsapi.repository.NarrowReadingRepo;
+import org.weather.metricsapi.repository.RollupRepo;
+import org.weather.metricsapi.repository.StreamingAggregateRepo;
+import org.weather.metricsapi.repository.WideReadingRepo;
+import org.weather.metricsapi.service.fetch.v1.ChunkedQueryEngine;
+import org.weather.metricsapi.service.fetch.v1.FetchCache;
+import org.weather.metricsapi.service.fetch.v1.FetchService;
+import org.weather.metricsapi.service.fetch.v1.HotWindow;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.List;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * A 365-day fetch over 100 sensors: serial vs parallel month chunks read from raw readings,
+ * and the same range answered from rollups. Seeds {@code benchmark.readingsPerDay} readings
+ * (default 24) of all eight metrics per sensor and day, then times an all-sensor query of
+ * average and p95 over every metric in each mode, after one warm-up run.
+ * Runs in its own schema, migrated from scratch and dropped afterwards.
+ * Run with {@code ./mvnw test -Pbenchmark -Dtest=FetchRangeBenchmarkTest}.
+ */
+@Tag("benchmark")
+@SpringBootTest(properties = {
+        "spring.flyway.schemas=" + FetchRangeBenchmarkTest.SCHEMA,
+        "spring.datasource.hikari.schema=" + FetchRangeBenchmarkTest.SCHEMA
+})
+@ActiveProfiles("test")
+class FetchRangeBenchmarkTest {
+
+    static final String SCHEMA = "bench_range";
+
+    private static final int SENSORS = 100;
+    private static final int READINGS_PER_DAY = Integer.getInteger("benchmark.readingsPerDay", 24);
+    private static final LocalDate FIRST_DAY = LocalDate.of(2002, 1, 1);
+    private static final LocalDate LAST_DAY = FIRST_DAY.plusDays(364);
+    private static final StorageProperties NARROW =
+            new StorageProperties(StorageProperties.Write.NARROW, StorageProperties.Layout.NARROW);
+
+    @Autowired
+    private NarrowReadingRepo narrowRepo;
+
+    @Autowired
+    private DictionaryRepo dictionary;
+
+    @Autowired
+    private WideReadingRepo wideRepo;
+
+    @Autowired
+    private RollupRepo rollups;
+
+    @Autowired
+    private StreamingAggregateRepo streamingRepo;
+
+    @Autowired
+    private FetchCache fetchCache;
+
+    @Autowired
+    private HotWindow hotWindow;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @AfterEach
+    void dropSchema() {
+        jdbcTemplate.execute("drop schema " + SCHEMA + " cascade");
+    }
+
+    @Test
+    void yearOverFleet() {
+        seed();
+        FetchRequest request = new FetchRequest(null,
+                List.of("temperature", "humidity", "pressure", "windSpeed",
+                        "windDirection", "rainfall", "uvIndex", "aqi"),
+                null, List.of("average", "p95"), FIRST_DAY, LAST_DAY);
+
+        System.out.printf("%n365 days x %d sensors x 8 metrics, %d readings per sensor and day, %d CPUs%n",
+                SENSORS, READINGS_PER_DAY, Runtime.getRuntime().availableProcessors());
+        System.out.printf("  %-28s %10s%n", "mode", "time");
+        FetchResponse serial = time("raw, serial month chunks", 1, false, request);
+        FetchResponse parallel = time("raw, 4 parallel month chunks", 4, false, request);
+        assertEquals(serial, parallel);
+
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+        rollups.register(FIRST_DAY, LAST_DAY);
+        for (LocalDate day = FIRST_DAY; !day.isAfter(LAST_DAY); day = day.plusDays(1)) {
+            LocalDate rolled = day;
+            tx.executeWithoutResult(status -> rollups.rollUp(rolled, false));
+        }
+        assertEquals(serial, time("rollups", 4, true, request));
+    }
+
+    private FetchResponse time(String mode, int parallelism, boolean useRollups, FetchRequest request) {
+        FetchProperties fetch = new FetchProperties(366, FetchProperties.Chunk.MONTH, parallelism, 200,
+                Duration.ofMinutes(10), true, new FetchProperties.Cache(false, 0, Duration.ZERO),
+                new FetchProperties.HotWindow(false, 2, 2880, Duration.ofMinutes(1)));
+        ChunkedQueryEngine engine = new ChunkedQueryEngine(fetch, transactionManager);
+        engine.start();
+        try {
+            FetchService service = new FetchService(narrowRepo, dictionary, wideRepo, rollups, streamingRepo,
+                    NARROW, new RollupProperties(useRollups, Duration.ofMinutes(10), Duration.ofMinutes(5)),
+                    fetch, engine, fetchCache, hotWindow, Clock.systemUTC());
+            service.query(request);
+            long start = System.nanoTime();
+            FetchResponse response = service.query(request);
+            System.out.printf("  %-28s %8.0fms%n", mode, (System.nanoTime() - start) / 1e6);
+            return response;
+        } finally {
+            engine.stop();
+        }
+    }
+
+    private void seed() {
+        jdbcTemplate.update("insert into sensors (name) select 'year-' || lpad(g::text, 3, '0') "
+                + "from generate_series(1, ?) g", SENSORS);
+        jdbcTemplate.update("insert into snapshots (id, sensor_id, ts) "
+                        + "select gen_random_uuid(), s.name, t from sensors s "
+                        + "cross join generate_series(?::timestamptz, ?::timestamptz, ?::interval) t",
+                FIRST_DAY.atStartOfDay().atOffset(ZoneOffset.UTC),
+                LAST_DAY.plusDays(1).atStartOfDay().minusSeconds(1).atOffset(ZoneOffset.UTC),
+                (86_400 / READINGS_PER_DAY) + " seconds");
+        jdbcTemplate.update("insert into reading_values (id, snapshot_id, ts, value, sensor_key, metric_key) "
+                + "select gen_random_uuid(), p.id, p.ts, round((random() * 40)::numeric, 1), s.id, m.id "
+                + "from snapshots p join sensors s on s.name = p.sensor_id cross join metrics m");
+        jdbcTemplate.execute("vacuum analyze snapshots, reading_values");
+    }
+}
@@ -0,0 +1,134 @@
+package org.weather.metricsapi.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.weather.metricsapi.dto.fetch.v1.FetchRequest;
+import org.weather.metricsapi.dto.fetch.v1.FetchResponse;
+import org.weather.metricsapi.service.fetch.v1.FetchService;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.List;
+
+/**
+ * Buffered ({@code /fetch}) vs streamed ({@code /fetch/stream}) fleet-wide fetches. Seeds
+ * 1,000 and then {@code benchmark.sensors} sensors (default 10,000), each with 24 readings
+ * of all eight metrics in one day, and runs an all-sensor average through both paths,
+ * serializing to a discarding stream. Reports the bytes the request thread allocated, the
+ * heap the buffered response keeps reachable until it is written, and the time taken.
+ * Runs in its own schema, migrated from scratch and dropped afterwards.
+ * Run with {@code ./mvnw test -Pbenchmark -Dtest=FetchStreamBenchmarkTest}.
+ */
+@Tag("benchmark")
+@SpringBootTest(properties = {
+        "spring.flyway.schemas=" + FetchStreamBenchmarkTest.SCHEMA,
+        "spring.datasource.hikari.schema=" + FetchStreamBenchmarkTest.SCHEMA
+})
+@ActiveProfiles("test")
+class FetchStreamBenchmarkTest {
+
+    static final String SCHEMA = "bench_fetch";
+
+    private static final int SENSORS = Integer.getInteger("benchmark.sensors", 10_000);
+    private static final LocalDate DAY = LocalDate.of(2002, 6, 1);
+    private static final int RUNS = 3;
+
+    private static final com.sun.management.ThreadMXBean THREADS =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    @Autowired
+    private FetchService fetchService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @AfterEach
+    void dropSchema() {
+        jdbcTemplate.execute("drop schema " + SCHEMA + " cascade");
+    }
+
+    @Test
+    void compareBufferedAndStreamed() throws IOException {
+        FetchRequest request = new FetchRequest(null,
+                List.of("temperature", "humidity", "pressure", "windSpeed",
+                        "windDirection", "rainfall", "uvIndex", "aqi"),
+                "average", DAY, DAY);
+
+        System.out.printf("%nAll-sensor average over 8 metrics, 24 readings per sensor and metric%n");
+        System.out.printf("  %-8s %-9s %14s %16s %14s %10s%n",
+                "sensors", "mode", "allocated MB", "bytes/sensor", "retained MB", "time");
+        for (int sensors : List.of(Math.min(1_000, SENSORS), SENSORS)) {
+            seed(sensors);
+            measure(sensors, "buffered", () -> {
+                FetchResponse response = fetchService.query(request);
+                long retained = retained();
+                objectMapper.writeValue(OutputStream.nullOutputStream(), response);
+                return retained;
+            });
+            measure(sensors, "streamed", () -> {
+                fetchService.stream(request, objectMapper.getFactory().createGenerator(OutputStream.nullOutputStream()));
+                return -1;
+            });
+        }
+    }
+
+    private void measure(int sensors, String mode, Request request) throws IOException {
+        request.run();
+        long allocated = 0;
+        long retained = 0;
+        long nanos = 0;
+        for (int run = 0; run < RUNS; run++) {
+            long baseline = retained();
+            long allocatedBefore = THREADS.getCurrentThreadAllocatedBytes();
+            long start = System.nanoTime();
+            long held = request.run();
+            nanos += System.nanoTime() - start;
+            allocated += THREADS.getCurrentThreadAllocatedBytes() - allocatedBefore;
+            retained += held < 0 ? 0 : held - baseline;
+        }
+        System.out.printf("  %-8d %-9s %14.1f %16.0f %14s %8.0fms%n", sensors, mode,
+                allocated / (double) RUNS / 1e6, allocated / (double) RUNS / sensors,
+                mode.equals("streamed") ? "one sensor" : "%.1f".formatted(Math.max(0, retained) / (double) RUNS / 1e6),
+                nanos / (double) RUNS / 1e6);
+    }
+
+    /** Adds sensors up to {@code sensors}, each with readings of every metric every hour of {@link #DAY}. */
+    private void seed(int sensors) {
+        jdbcTemplate.update("insert into sensors (name) select 'fleet-' || lpad(g::text, 6, '0') "
+                + "from generate_series(1, ?) g on conflict (name) do nothing", sensors);
+        jdbcTemplate.update("insert into snapshots (id, sensor_id, ts) "
+                + "select gen_random_uuid(), s.name, t from sensors s "
+                + "cross join generate_series(?::timestamptz, ?::timestamptz, interval '1 hour') t "
+                + "where s.name like 'fleet-%' and not exists (select 1 from snapshots p where p.sensor_id = s.name)",
+                DAY.atStartOfDay().atOffset(ZoneOffset.UTC), DAY.atTime(23, 0).atOffset(ZoneOffset.UTC));
+        jdbcTemplate.update("insert into reading_values (id, snapshot_id, ts, value, sensor_key, metric_key) "
+                + "select gen_random_uuid(), p.id, p.ts, round((random() * 40)::numeric, 1), s.id, m.id "
+                + "from snapshots p join sensors s on s.name = p.sensor_id cross join metrics m "
+                + "where not exists (select 1 from reading_values v where v.snapshot_id = p.id)");
+        jdbcTemplate.execute("vacuum analyze snapshots, reading_values");
+    }
+
+    /** Heap in use after a full collection. */
+    private static long retained() {
+        System.gc();
+        System.gc();
+        Runtime runtime = Runtime.getRuntime();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    private interface Request {
+        /** @return the heap in use while the response is held, or -1 if nothing is held */
+        long run() throws IOException;
+    }
+}
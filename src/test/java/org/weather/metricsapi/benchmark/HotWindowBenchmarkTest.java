@@ -0,0 +1,166 @@
+package org.weather.metricsapi.benchmark;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.weather.metricsapi.config.FetchProperties;
+import org.weather.metricsapi.config.RollupProperties;
+import org.weather.metricsapi.config.StorageProperties;
+import org.weather.metricsapi.dto.fetch.v1.FetchRequest;
+import org.weather.metricsapi.dto.fetch.v1.FetchResponse;
+import org.weather.metricsapi.repository.DictionaryRepo;
+import org.weather.metricsapi.repository.HotWindowRepo;
+import org.weather.metricsapi.repository.NarrowReadingRepo;
+import org.weather.metricsapi.repository.RollupRepo;
+import org.weather.metricsapi.repository.StreamingAggregateRepo;
+import org.weather.metricsapi.repository.WideReadingRepo;
+import org.weather.metricsapi.service.fetch.v1.ChunkedQueryEngine;
+import org.weather.metricsapi.service.fetch.v1.FetchCache;
+import org.weather.metricsapi.service.fetch.v1.FetchService;
+import org.weather.metricsapi.service.fetch.v1.HotWindow;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.List;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Fetches of the last two days, from the database and from the hot window. Seeds 200
+ * sensors with 96 readings of all eight metrics on each of yesterday and today, then asks
+ * {@code benchmark.rounds} times (default 50) for the average and p95 of every metric over
+ * both days, for one sensor and for all of them, and reports the latency percentiles of
+ * each. Results are not cached. Runs in its own schema, migrated from scratch and dropped
+ * afterwards.
+ * Run with {@code ./mvnw test -Pbenchmark -Dtest=HotWindowBenchmarkTest}.
+ */
+@Tag("benchmark")
+@SpringBootTest(properties = {
+        "spring.flyway.schemas=" + HotWindowBenchmarkTest.SCHEMA,
+        "spring.datasource.hikari.schema=" + HotWindowBenchmarkTest.SCHEMA
+})
+@ActiveProfiles("test")
+class HotWindowBenchmarkTest {
+
+    static final String SCHEMA = "bench_hot";
+
+    private static final int SENSORS = 200;
+    private static final int READINGS_PER_DAY = 96;
+    private static final int ROUNDS = Integer.getInteger("benchmark.rounds", 50);
+    private static final List<String> METRICS = List.of("temperature", "humidity", "pressure", "windSpeed",
+            "windDirection", "rainfall", "uvIndex", "aqi");
+    private static final StorageProperties NARROW =
+            new StorageProperties(StorageProperties.Write.NARROW, StorageProperties.Layout.NARROW);
+    private static final RollupProperties ROLLUPS_OFF =
+            new RollupProperties(false, Duration.ofMinutes(10), Duration.ofMinutes(5));
+
+    @Autowired
+    private NarrowReadingRepo narrowRepo;
+
+    @Autowired
+    private DictionaryRepo dictionary;
+
+    @Autowired
+    private WideReadingRepo wideRepo;
+
+    @Autowired
+    private RollupRepo rollups;
+
+    @Autowired
+    private StreamingAggregateRepo streamingRepo;
+
+    @Autowired
+    private HotWindowRepo hotWindowRepo;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @AfterEach
+    void dropSchema() {
+        jdbcTemplate.execute("drop schema " + SCHEMA + " cascade");
+    }
+
+    @Test
+    void recentFetches() {
+        LocalDate today = LocalDate.now(Clock.systemUTC());
+        seed(today.minusDays(1), today.plusDays(1));
+        FetchService database = service(false);
+        FetchService memory = service(true);
+        FetchRequest one = new FetchRequest(List.of("hot-001"), METRICS, null, List.of("average", "p95"),
+                today.minusDays(1), today);
+        FetchRequest all = new FetchRequest(null, METRICS, null, List.of("average", "p95"),
+                today.minusDays(1), today);
+
+        System.out.printf("%nLast two days, %d sensors x %d readings x %d metrics per day, %d CPUs%n",
+                SENSORS, READINGS_PER_DAY, METRICS.size(), Runtime.getRuntime().availableProcessors());
+        System.out.printf("  %-12s %-10s %9s %9s %9s%n", "query", "source", "p50", "p95", "max");
+        for (FetchRequest request : List.of(one, all)) {
+            String name = request.sensorId() != null ? "1 sensor" : SENSORS + " sensors";
+            assertEquals(database.query(request), memory.query(request));
+            measure(name, "database", database, request);
+            measure(name, "memory", memory, request);
+        }
+    }
+
+    private FetchService service(boolean hot) {
+        FetchProperties fetch = new FetchProperties(366, FetchProperties.Chunk.MONTH, 4, 200, Duration.ofMinutes(5),
+                true, new FetchProperties.Cache(false, 0, Duration.ZERO),
+                new FetchProperties.HotWindow(hot, 2, 2880, Duration.ofMinutes(1)));
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        HotWindow window = new HotWindow(hotWindowRepo, fetch, NARROW, transactionManager, Clock.systemUTC(), registry);
+        if (hot) {
+            window.refresh();
+        }
+        // the two days may fall in different months
+        ChunkedQueryEngine engine = new ChunkedQueryEngine(fetch, transactionManager);
+        engine.start();
+        return new FetchService(narrowRepo, dictionary, wideRepo, rollups, streamingRepo, NARROW, ROLLUPS_OFF,
+                fetch, engine,
+                new FetchCache(fetch, ROLLUPS_OFF, Clock.systemUTC(), registry), window, Clock.systemUTC());
+    }
+
+    private static void measure(String query, String source, FetchService service, FetchRequest request) {
+        for (int i = 0; i < 5; i++) {
+            service.query(request);
+        }
+        long[] nanos = new long[ROUNDS];
+        for (int i = 0; i < ROUNDS; i++) {
+            long start = System.nanoTime();
+            service.query(request);
+            nanos[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(nanos);
+        System.out.printf("  %-12s %-10s %7.2fms %7.2fms %7.2fms%n", query, source,
+                percentile(nanos, 0.50), percentile(nanos, 0.95), nanos[ROUNDS - 1] / 1e6);
+    }
+
+    private static double percentile(long[] sorted, double q) {
+        return sorted[(int) Math.ceil(q * sorted.length) - 1] / 1e6;
+    }
+
+    /** Readings over {@code [from, to)}. */
+    private void seed(LocalDate from, LocalDate to) {
+        jdbcTemplate.update("insert into sensors (name) select 'hot-' || lpad(g::text, 3, '0') "
+                + "from generate_series(1, ?) g", SENSORS);
+        jdbcTemplate.update("insert into snapshots (id, sensor_id, ts) "
+                        + "select gen_random_uuid(), s.name, t from sensors s "
+                        + "cross join generate_series(?::timestamptz, ?::timestamptz, ?::interval) t",
+                from.atStartOfDay().atOffset(ZoneOffset.UTC),
+                to.atStartOfDay().minusSeconds(1).atOffset(ZoneOffset.UTC),
+                (86_400 / READINGS_PER_DAY) + " seconds");
+        jdbcTemplate.update("insert into reading_values (id, snapshot_id, ts, value, sensor_key, metric_key) "
+                + "select gen_random_uuid(), p.id, p.ts, round((random() * 40)::numeric, 1), s.id, m.id "
+                + "from snapshots p join sensors s on s.name = p.sensor_id cross join metrics m");
+        jdbcTemplate.execute("vacuum analyze snapshots, reading_values");
+    }
+}
@@ -0,0 +1,121 @@
+package org.weather.metricsapi.benchmark;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.weather.metricsapi.config.LatestProperties;
+import org.weather.metricsapi.config.StorageProperties;
+import org.weather.metricsapi.dto.latest.v1.LatestRequest;
+import org.weather.metricsapi.dto.latest.v1.LatestResponse;
+import org.weather.metricsapi.service.latest.v1.LatestIndex;
+import org.weather.metricsapi.service.latest.v1.LatestService;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Latency of {@code /v1/latest} lookups against the in-memory index, for requests of 1 to
+ * 10,000 sensors out of 100,000, with and without writers recording new readings at the
+ * same time. Times the service call only, not JSON encoding.
+ * Run with {@code ./mvnw test -Pbenchmark -Dtest=LatestIndexBenchmarkTest}.
+ */
+@Tag("benchmark")
+class LatestIndexBenchmarkTest {
+
+    private static final int SENSORS = 100_000;
+    private static final int WRITERS = 2;
+    private static final long WARMUP_NANOS = TimeUnit.SECONDS.toNanos(2);
+    private static final long MEASURE_NANOS = TimeUnit.SECONDS.toNanos(3);
+    private static final Instant START = Instant.parse("2025-03-10T00:00:00Z");
+
+    // keeps the JIT from discarding results
+    private static volatile Object sink;
+
+    @Test
+    void lookups() throws Exception {
+        LatestIndex index = new LatestIndex(null, new LatestProperties(Duration.ZERO),
+                new StorageProperties(StorageProperties.Write.NARROW, StorageProperties.Layout.NARROW),
+                Clock.systemUTC(), new SimpleMeterRegistry());
+        for (int i = 0; i < SENSORS; i++) {
+            index.record(sensor(i), START, values(i));
+        }
+        LatestService service = new LatestService(index);
+
+        System.out.printf("%n%d sensors in the index, all 8 metrics, %d CPUs%n",
+                SENSORS, Runtime.getRuntime().availableProcessors());
+        System.out.printf("  %-18s %10s %12s %14s%n", "sensors/request", "writers", "us/request", "writes/s");
+        for (int size : new int[]{1, 100, 1_000, 10_000}) {
+            LatestRequest request = request(size);
+            assertEquals(size, service.query(request).sensors().size());
+            run(service, index, request, 0);
+            run(service, index, request, WRITERS);
+        }
+    }
+
+    private void run(LatestService service, LatestIndex index, LatestRequest request, int writers) throws Exception {
+        AtomicLong writes = new AtomicLong();
+        List<Thread> threads = new ArrayList<>();
+        for (int w = 0; w < writers; w++) {
+            Thread writer = new Thread(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                long n = 0;
+                while (!Thread.currentThread().isInterrupted()) {
+                    int i = random.nextInt(SENSORS);
+                    index.record(sensor(i), START.plusMillis(++n), values(i));
+                    writes.incrementAndGet();
+                }
+            });
+            writer.setDaemon(true);
+            writer.start();
+            threads.add(writer);
+        }
+        try {
+            loop(service, request, WARMUP_NANOS);
+            long writesBefore = writes.get();
+            long start = System.nanoTime();
+            long requests = loop(service, request, MEASURE_NANOS);
+            long elapsed = System.nanoTime() - start;
+            System.out.printf("  %-18d %10d %12.1f %14.0f%n", request.sensorId().size(), writers,
+                    elapsed / 1e3 / requests, (writes.get() - writesBefore) / (elapsed / 1e9));
+        } finally {
+            for (Thread thread : threads) {
+                thread.interrupt();
+                thread.join();
+            }
+        }
+    }
+
+    private static long loop(LatestService service, LatestRequest request, long nanos) {
+        long end = System.nanoTime() + nanos;
+        long requests = 0;
+        while (System.nanoTime() < end) {
+            LatestResponse response = service.query(request);
+            sink = response;
+            requests++;
+        }
+        return requests;
+    }
+
+    private static LatestRequest request(int size) {
+        List<String> sensors = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            sensors.add(sensor(i * (SENSORS / size)));
+        }
+        return new LatestRequest(sensors, null);
+    }
+
+    private static String sensor(int i) {
+        return "sensor-%06d".formatted(i);
+    }
+
+    private static Double[] values(int i) {
+        double v = i % 40;
+        return new Double[]{v, 50.0, 1000.0 + v, 5.0, 180.0, 0.0, 3.0, 20.0};
+    }
+}
@@ -0,0 +1,266 @@
+package org.weather.metricsapi.benchmark;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.Tuple;
+import jakarta.persistence.TypedQuery;
+import org.hibernate.SessionFactory;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.weather.metricsapi.dto.fetch.v1.Statistic;
+import org.weather.metricsapi.repository.DictionaryRepo;
+import org.weather.metricsapi.repository.MetricAggregate;
+import org.weather.metricsapi.repository.NarrowReadingRepo;
+import org.weather.metricsapi.util.QuantileSketch;
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Narrow-layout aggregates through the JPQL the fetch path used to build, against the fixed
+ * native statements of {@link NarrowReadingRepo}. Seeds 100 sensors with 96 readings of all
+ * eight metrics over one day, then replays the same {@code benchmark.rounds} (default 500)
+ * random requests through both: 1 to 100 sensors or all of them, a random subset of metrics
+ * and one of several sets of statistics. Each reads one hour, short enough that parsing and
+ * planning show next to execution. Reports latency percentiles, the number of distinct SQL
+ * texts sent to PostgreSQL and, for JPQL, Hibernate's query plan cache hits and misses.
+ * Runs in its own schema, migrated from scratch and dropped afterwards.
+ * Run with {@code ./mvnw test -Pbenchmark -Dtest=QueryShapeBenchmarkTest}.
+ */
+@Tag("benchmark")
+@SpringBootTest(properties = {
+        "spring.flyway.schemas=" + QueryShapeBenchmarkTest.SCHEMA,
+        "spring.datasource.hikari.schema=" + QueryShapeBenchmarkTest.SCHEMA,
+        "spring.jpa.properties.hibernate.generate_statistics=true",
+        "spring.jpa.properties.hibernate.session_factory.statement_inspector="
+                + "org.weather.metricsapi.benchmark.QueryShapeBenchmarkTest$SqlTexts"
+})
+@ActiveProfiles("test")
+class QueryShapeBenchmarkTest {
+
+    static final String SCHEMA = "bench_shape";
+
+    private static final int SENSORS = 100;
+    private static final int READINGS_PER_DAY = 96;
+    private static final int ROUNDS = Integer.getInteger("benchmark.rounds", 500);
+    private static final LocalDate DAY = LocalDate.of(2003, 6, 1);
+    private static final List<String> METRICS = List.of("temperature", "humidity", "pressure", "windSpeed",
+            "windDirection", "rainfall", "uvIndex", "aqi");
+    private static final List<Set<Statistic>> STATISTICS = List.of(
+            EnumSet.of(Statistic.MAX),
+            EnumSet.of(Statistic.AVERAGE),
+            EnumSet.of(Statistic.MIN, Statistic.MAX, Statistic.AVERAGE),
+            EnumSet.of(Statistic.P95),
+            EnumSet.of(Statistic.AVERAGE, Statistic.P95));
+
+    /** Records every SQL text Hibernate sends. */
+    public static class SqlTexts implements StatementInspector {
+
+        static final Set<String> SEEN = ConcurrentHashMap.newKeySet();
+
+        @Override
+        public String inspect(String sql) {
+            if (sql.contains("reading_values")) {
+                SEEN.add(sql);
+            }
+            return sql;
+        }
+    }
+
+    private record Request(List<Integer> sensorKeys, List<Short> metricKeys, Set<Statistic> statistics) {}
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private NarrowReadingRepo narrowRepo;
+
+    @Autowired
+    private DictionaryRepo dictionary;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @AfterEach
+    void dropSchema() {
+        jdbcTemplate.execute("drop schema " + SCHEMA + " cascade");
+    }
+
+    @Test
+    void queryShapes() {
+        seed();
+        List<Integer> sensorKeys = jdbcTemplate.queryForList("select id from sensors order by id", Integer.class);
+        List<Request> requests = requests(sensorKeys);
+        Instant start = DAY.atStartOfDay().toInstant(ZoneOffset.UTC);
+        Instant end = start.plusSeconds(3600);
+
+        for (Request request : requests.subList(0, 20)) {
+            assertEquals(sorted(jpql(request, start, end)), sorted(nativeQuery(request, start, end)));
+        }
+
+        Statistics hibernate = entityManager.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+        hibernate.clear();
+        SqlTexts.SEEN.clear();
+        long[] jpql = measure(requests, request -> jpql(request, start, end));
+        long planMisses = hibernate.getQueryPlanCacheMissCount();
+        long planHits = hibernate.getQueryPlanCacheHitCount();
+        int jpqlTexts = SqlTexts.SEEN.size();
+
+        long[] nativeNanos = measure(requests, request -> nativeQuery(request, start, end));
+        long nativeTexts = requests.stream()
+                .map(request -> List.of(request.statistics().stream().anyMatch(Statistic::needsSum),
+                        request.statistics().stream().anyMatch(Statistic::needsSketch), request.sensorKeys() != null))
+                .distinct()
+                .count();
+
+        System.out.printf("%n%d random requests over one hour, %d sensors x %d readings x %d metrics, %d CPUs%n",
+                ROUNDS, SENSORS, READINGS_PER_DAY, METRICS.size(), Runtime.getRuntime().availableProcessors());
+        System.out.printf("  %-8s %9s %9s %9s %10s %16s%n", "path", "p50", "p99", "max", "sql texts",
+                "plan cache h/m");
+        report("jpql", jpql, jpqlTexts, planHits + "/" + planMisses);
+        report("native", nativeNanos, nativeTexts, "-");
+    }
+
+    private static long[] measure(List<Request> requests, Function<Request, List<MetricAggregate>> query) {
+        for (Request request : requests.subList(0, 20)) {
+            query.apply(request);
+        }
+        long[] nanos = new long[requests.size()];
+        for (int i = 0; i < requests.size(); i++) {
+            long started = System.nanoTime();
+            query.apply(requests.get(i));
+            nanos[i] = System.nanoTime() - started;
+        }
+        Arrays.sort(nanos);
+        return nanos;
+    }
+
+    private static void report(String path, long[] sorted, long texts, String planCache) {
+        System.out.printf("  %-8s %7.2fms %7.2fms %7.2fms %10d %16s%n", path,
+                percentile(sorted, 0.50), percentile(sorted, 0.99), sorted[sorted.length - 1] / 1e6, texts, planCache);
+    }
+
+    private static double percentile(long[] sorted, double q) {
+        return sorted[(int) Math.ceil(q * sorted.length) - 1] / 1e6;
+    }
+
+    private List<Request> requests(List<Integer> sensorKeys) {
+        Random random = new Random(42);
+        List<Short> metricKeys = METRICS.stream().map(dictionary::metricKey).toList();
+        List<Request> requests = new ArrayList<>();
+        for (int i = 0; i < ROUNDS; i++) {
+            List<Integer> sensors = null;
+            if (random.nextInt(10) > 0) {
+                List<Integer> shuffled = new ArrayList<>(sensorKeys);
+                Collections.shuffle(shuffled, random);
+                sensors = List.copyOf(shuffled.subList(0, 1 + random.nextInt(SENSORS)));
+            }
+            List<Short> metrics = new ArrayList<>(metricKeys);
+            Collections.shuffle(metrics, random);
+            requests.add(new Request(sensors, List.copyOf(metrics.subList(0, 1 + random.nextInt(metrics.size()))),
+                    STATISTICS.get(random.nextInt(STATISTICS.size()))));
+        }
+        return requests;
+    }
+
+    private List<MetricAggregate> nativeQuery(Request request, Instant start, Instant end) {
+        return narrowRepo.aggregate(request.statistics(), request.sensorKeys(), request.metricKeys(), start, end);
+    }
+
+    /** The JPQL the narrow fetch path built before it moved to {@link NarrowReadingRepo}. */
+    private List<MetricAggregate> jpql(Request request, Instant start, Instant end) {
+        Set<Statistic> statistics = request.statistics();
+        boolean sum = statistics.stream().anyMatch(Statistic::needsSum);
+        boolean sketch = statistics.stream().anyMatch(Statistic::needsSketch);
+        StringBuilder jpql = new StringBuilder("SELECT rv.sensorKey AS sensorKey, rv.metricKey AS metricKey, ");
+        if (statistics.contains(Statistic.MIN)) {
+            jpql.append("MIN(rv.value) AS minValue, ");
+        }
+        if (statistics.contains(Statistic.MAX)) {
+            jpql.append("MAX(rv.value) AS maxValue, ");
+        }
+        if (sum) {
+            jpql.append("SUM(function('pg_catalog.numeric', rv.value)) AS sumValue, ");
+        }
+        if (sketch) {
+            jpql.append("function('sketch_key', rv.value) AS sketchKey, ");
+        }
+        jpql.append("COUNT(rv.id) AS dataPoints FROM ReadingValue rv WHERE rv.ts >= :startDate AND rv.ts < :endDate ");
+        if (request.sensorKeys() != null) {
+            jpql.append("AND rv.sensorKey IN :sensorKeys ");
+        }
+        jpql.append("AND rv.metricKey IN :metricKeys GROUP BY rv.sensorKey, rv.metricKey");
+        if (sketch) {
+            jpql.append(", function('sketch_key', rv.value)");
+        }
+
+        TypedQuery<Tuple> query = entityManager.createQuery(jpql.toString(), Tuple.class);
+        query.setParameter("startDate", start);
+        query.setParameter("endDate", end);
+        query.setParameter("metricKeys", request.metricKeys());
+        if (request.sensorKeys() != null) {
+            query.setParameter("sensorKeys", request.sensorKeys());
+        }
+        return query.getResultList().stream()
+                .map(tuple -> new MetricAggregate(
+                        tuple.get("sensorKey", Integer.class),
+                        dictionary.metricName(tuple.get("metricKey", Short.class)),
+                        statistics.contains(Statistic.MIN) ? toBigDecimal(tuple.get("minValue")) : null,
+                        statistics.contains(Statistic.MAX) ? toBigDecimal(tuple.get("maxValue")) : null,
+                        sum ? toBigDecimal(tuple.get("sumValue")) : null,
+                        sketch ? QuantileSketch.of(((Number) tuple.get("sketchKey")).intValue(),
+                                ((Number) tuple.get("dataPoints")).longValue()) : null,
+                        ((Number) tuple.get("dataPoints")).longValue()))
+                .toList();
+    }
+
+    private static BigDecimal toBigDecimal(Object value) {
+        return value instanceof BigDecimal decimal ? decimal : BigDecimal.valueOf(((Number) value).doubleValue());
+    }
+
+    /** Partials combined per (sensor, metric), ordered, for comparing the two paths. */
+    private static List<MetricAggregate> sorted(Collection<MetricAggregate> partials) {
+        Map<List<Object>, MetricAggregate> combined = new ConcurrentHashMap<>();
+        for (MetricAggregate partial : partials) {
+            combined.merge(List.of(partial.sensorKey(), partial.metric()), partial, MetricAggregate::combine);
+        }
+        return combined.values().stream()
+                .sorted(Comparator.comparing(MetricAggregate::sensorKey).thenComparing(MetricAggregate::metric))
+                .toList();
+    }
+
+    private void seed() {
+        jdbcTemplate.update("insert into sensors (name) select 'shape-' || lpad(g::text, 3, '0') "
+                + "from generate_series(1, ?) g", SENSORS);
+        jdbcTemplate.update("insert into snapshots (id, sensor_id, ts) "
+                        + "select gen_random_uuid(), s.name, t from sensors s "
+                        + "cross join generate_series(?::timestamptz, ?::timestamptz, ?::interval) t",
+                DAY.atStartOfDay().atOffset(ZoneOffset.UTC),
+                DAY.plusDays(1).atStartOfDay().minusSeconds(1).atOffset(ZoneOffset.UTC),
+                (86_400 / READINGS_PER_DAY) + " seconds");
+        jdbcTemplate.update("insert into reading_values (id, snapshot_id, ts, value, sensor_key, metric_key) "
+                + "select gen_random_uuid(), p.id, p.ts, round((random() * 40)::numeric, 1), s.id, m.id "
+                + "from snapshots p join sensors s on s.name = p.sensor_id cross join metrics m");
+        jdbcTemplate.execute("vacuum analyze snapshots, reading_values");
+    }
+}
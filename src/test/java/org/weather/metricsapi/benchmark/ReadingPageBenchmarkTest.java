@@ -0,0 +1,140 @@
+package org.weather.metricsapi.benchmark;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.weather.metricsapi.repository.ReadingPageRepo;
+import java.time.DayOfWeek;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.time.temporal.TemporalAdjusters;
+import java.util.List;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Keyset pages ({@link ReadingPageRepo}) vs {@code OFFSET} pages of the same order, at
+ * increasing depth. Seeds {@code benchmark.sensors} sensors (default 100) with all eight
+ * metrics every 4 minutes for a week, about 2M readings, and reads 1,000-reading pages of
+ * the whole fleet starting at each depth. Runs in its own schema, migrated from scratch and
+ * dropped afterwards.
+ * Run with {@code ./mvnw test -Pbenchmark -Dtest=ReadingPageBenchmarkTest}.
+ */
+@Tag("benchmark")
+@SpringBootTest(properties = {
+        "spring.flyway.schemas=" + ReadingPageBenchmarkTest.SCHEMA,
+        "spring.datasource.hikari.schema=" + ReadingPageBenchmarkTest.SCHEMA
+})
+@ActiveProfiles("test")
+class ReadingPageBenchmarkTest {
+
+    static final String SCHEMA = "bench_pages";
+
+    private static final int SENSORS = Integer.getInteger("benchmark.sensors", 100);
+    private static final int PAGE = 1000;
+    private static final int RUNS = 10;
+    // a week ahead, in a partition created on startup and holding nothing else
+    private static final LocalDate MONDAY = LocalDate.now(ZoneOffset.UTC)
+            .with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY)).plusWeeks(1);
+    private static final Instant START = MONDAY.atStartOfDay().toInstant(ZoneOffset.UTC);
+    private static final Instant END = MONDAY.plusDays(7).atStartOfDay().toInstant(ZoneOffset.UTC);
+
+    private static final String OFFSET = "select sensor_key, metric_key, ts, value from reading_values "
+            + "where ts >= ? and ts < ? order by sensor_key, metric_key, ts offset ? limit ?";
+
+    @Autowired
+    private ReadingPageRepo pageRepo;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @AfterEach
+    void dropSchema() {
+        jdbcTemplate.execute("drop schema " + SCHEMA + " cascade");
+    }
+
+    @Test
+    void compareKeysetAndOffset() {
+        long total = seed();
+        TransactionTemplate readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+
+        List<Long> depths = List.of(0L, total / 4, total / 2, total - PAGE);
+        List<ReadingPageRepo.Position> positions = depths.stream()
+                .map(depth -> depth == 0 ? ReadingPageRepo.Position.START : position(depth - 1))
+                .toList();
+        // a first pass, unreported, so the first depth does not pay for warming up
+        for (boolean report : new boolean[]{false, true}) {
+            if (report) {
+                System.out.printf("%n%d-reading pages of %,d readings%n", PAGE, total);
+                System.out.printf("  %12s %14s %14s%n", "depth", "keyset", "offset");
+            }
+            for (int i = 0; i < depths.size(); i++) {
+                long depth = depths.get(i);
+                ReadingPageRepo.Position after = positions.get(i);
+                double keyset = time(() -> readOnly.executeWithoutResult(status -> {
+                    int[] rows = {0};
+                    pageRepo.page(null, null, START, END, after, PAGE, (sensorKey, metricKey, ts, value) -> rows[0]++);
+                    assertEquals(PAGE, rows[0]);
+                }));
+                double offset = time(() -> {
+                    int[] rows = {0};
+                    jdbcTemplate.query(OFFSET, (RowCallbackHandler) rs -> rows[0]++,
+                            START.atOffset(ZoneOffset.UTC), END.atOffset(ZoneOffset.UTC), depth, PAGE);
+                    assertEquals(PAGE, rows[0]);
+                });
+                if (report) {
+                    System.out.printf("  %,12d %12.2fms %12.2fms%n", depth, keyset, offset);
+                }
+            }
+        }
+    }
+
+    /** @return the index key of the reading at {@code depth} */
+    private ReadingPageRepo.Position position(long depth) {
+        return jdbcTemplate.queryForObject("select sensor_key, metric_key, ts from reading_values "
+                        + "where ts >= ? and ts < ? order by sensor_key, metric_key, ts offset ? limit 1",
+                (rs, row) -> new ReadingPageRepo.Position(rs.getInt(1), rs.getShort(2),
+                        rs.getObject(3, OffsetDateTime.class).toInstant()),
+                START.atOffset(ZoneOffset.UTC), END.atOffset(ZoneOffset.UTC), depth);
+    }
+
+    /** @return mean milliseconds per run, after one warm-up run */
+    private static double time(Runnable page) {
+        page.run();
+        long nanos = 0;
+        for (int run = 0; run < RUNS; run++) {
+            long start = System.nanoTime();
+            page.run();
+            nanos += System.nanoTime() - start;
+        }
+        return nanos / (double) RUNS / 1e6;
+    }
+
+    /** @return the number of readings seeded */
+    private long seed() {
+        jdbcTemplate.update("insert into sensors (name) select 'page-' || lpad(g::text, 4, '0') "
+                + "from generate_series(1, ?) g", SENSORS);
+        jdbcTemplate.update("insert into snapshots (id, sensor_id, ts) "
+                        + "select gen_random_uuid(), s.name, t from sensors s "
+                        + "cross join generate_series(?::timestamptz, ?::timestamptz, interval '4 minutes') t",
+                START.atOffset(ZoneOffset.UTC), END.minusSeconds(1).atOffset(ZoneOffset.UTC));
+        // in ts order, as readings arrive
+        jdbcTemplate.update("insert into reading_values (id, snapshot_id, ts, value, sensor_key, metric_key) "
+                + "select gen_random_uuid(), p.id, p.ts, round((random() * 40)::numeric, 1), s.id, m.id "
+                + "from snapshots p join sensors s on s.name = p.sensor_id cross join metrics m order by p.ts");
+        jdbcTemplate.execute("vacuum analyze snapshots, reading_values");
+        return jdbcTemplate.queryForObject("select count(*) from reading_values", Long.class);
+    }
+}
@@ -0,0 +1,180 @@
+package org.weather.metricsapi.benchmark;
+
+import jakarta.validation.Validator;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.weather.metricsapi.config.RollupProperties;
+import org.weather.metricsapi.config.StorageProperties;
+import org.weather.metricsapi.dto.update.v1.Metrics;
+import org.weather.metricsapi.dto.update.v1.UpdateRequest;
+import org.weather.metricsapi.repository.DictionaryRepo;
+import org.weather.metricsapi.repository.ReadingInsertRepo;
+import org.weather.metricsapi.repository.RollupRepo;
+import org.weather.metricsapi.repository.WideReadingRepo;
+import org.weather.metricsapi.service.fetch.v1.FetchCache;
+import org.weather.metricsapi.service.fetch.v1.HotWindow;
+import org.weather.metricsapi.service.latest.v1.LatestIndex;
+import org.weather.metricsapi.service.update.v1.PendingUpdate;
+import org.weather.metricsapi.service.update.v1.UpdateService;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Narrow ({@code snapshots} + {@code reading_values}) vs wide ({@code readings}) layout.
+ * Writes {@code benchmark.readings} readings (default 200,000) from 100 sensors through
+ * {@link UpdateService#ingestAll} in 500-reading transactions, the way the write-behind
+ * buffer and group commit do, with every other reading sending all eight metrics and the
+ * rest only the required two. Reports ingest rate, WAL written, on-disk size (heap plus
+ * indexes) and the time of a 31-day average over all metrics. Runs in its own schema,
+ * migrated from scratch and dropped afterwards, so sizes are those of the benchmark data alone.
+ * Run with {@code ./mvnw test -Pbenchmark -Dtest=StorageLayoutBenchmarkTest}.
+ */
+@Tag("benchmark")
+@SpringBootTest(properties = {
+        "spring.flyway.schemas=" + StorageLayoutBenchmarkTest.SCHEMA,
+        "spring.datasource.hikari.schema=" + StorageLayoutBenchmarkTest.SCHEMA
+})
+@ActiveProfiles("test")
+class StorageLayoutBenchmarkTest {
+
+    static final String SCHEMA = "bench_layout";
+
+    private static final int READINGS = Integer.getInteger("benchmark.readings", 200_000);
+    private static final int BATCH_SIZE = 500;
+    private static final int SENSORS = 100;
+    private static final Instant START = Instant.parse("2001-01-01T00:00:00Z");
+
+    private static final List<String> NARROW_TABLES = List.of("snapshots", "reading_values");
+    private static final List<String> WIDE_TABLES = List.of("readings");
+
+    @Autowired
+    private ReadingInsertRepo insertRepo;
+
+    @Autowired
+    private WideReadingRepo wideRepo;
+
+    @Autowired
+    private DictionaryRepo dictionary;
+
+    @Autowired
+    private Validator validator;
+
+    @Autowired
+    private FetchCache fetchCache;
+
+    @Autowired
+    private LatestIndex latestIndex;
+
+    @Autowired
+    private HotWindow hotWindow;
+
+    @Autowired
+    private RollupRepo rollupRepo;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @AfterEach
+    void dropSchema() {
+        jdbcTemplate.execute("drop schema " + SCHEMA + " cascade");
+    }
+
+    @Test
+    void compareLayouts() {
+        Result narrow = run(StorageProperties.Write.NARROW, StorageProperties.Layout.NARROW, NARROW_TABLES,
+                "select v.sensor_key, v.metric_key, avg(v.value), count(*) from reading_values v "
+                        + "where v.ts >= ? and v.ts < ? group by v.sensor_key, v.metric_key");
+        Result wide = run(StorageProperties.Write.WIDE, StorageProperties.Layout.WIDE, WIDE_TABLES,
+                "select sensor_key, avg(temperature), count(temperature), avg(humidity), count(humidity), "
+                        + "avg(pressure), count(pressure), avg(wind_speed), count(wind_speed), "
+                        + "avg(wind_direction), count(wind_direction), avg(rainfall), count(rainfall), "
+                        + "avg(uv_index), count(uv_index), avg(aqi), count(aqi) "
+                        + "from readings where ts >= ? and ts < ? group by sensor_key");
+
+        System.out.printf("%n%,d readings from %d sensors, %d per transaction%n", READINGS, SENSORS, BATCH_SIZE);
+        System.out.printf("  %-7s %12s %12s %10s %10s %10s %12s%n",
+                "layout", "readings/s", "WAL MB", "heap MB", "index MB", "bytes/rdg", "31-day avg");
+        narrow.print("narrow");
+        wide.print("wide");
+    }
+
+    private Result run(StorageProperties.Write write, StorageProperties.Layout read, List<String> tables,
+                       String aggregate) {
+        UpdateService service = new UpdateService(insertRepo, wideRepo, dictionary, validator,
+                new StorageProperties(write, read), fetchCache, latestIndex, hotWindow, rollupRepo,
+                // as of the first reading, so no day counts as late and the layouts are compared alone
+                new RollupProperties(false, Duration.ofMinutes(10), Duration.ofMinutes(5)),
+                Clock.fixed(START, ZoneOffset.UTC));
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+        jdbcTemplate.execute("vacuum analyze " + String.join(", ", tables));
+
+        long heapBefore = size(tables, "pg_relation_size");
+        long indexBefore = size(tables, "pg_indexes_size");
+        String walBefore = jdbcTemplate.queryForObject("select pg_current_wal_lsn()::text", String.class);
+
+        long start = System.nanoTime();
+        for (int offset = 0; offset < READINGS; offset += BATCH_SIZE) {
+            List<PendingUpdate> batch = new ArrayList<>(BATCH_SIZE);
+            for (int i = offset; i < Math.min(offset + BATCH_SIZE, READINGS); i++) {
+                batch.add(new PendingUpdate(START.plusSeconds(60L * (i / SENSORS)),
+                        new UpdateRequest("sensor-" + (i % SENSORS), metrics(i))));
+            }
+            tx.executeWithoutResult(status -> service.ingestAll(batch));
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        Long walBytes = jdbcTemplate.queryForObject(
+                "select (pg_current_wal_lsn() - ?::pg_lsn)::bigint", Long.class, walBefore);
+        jdbcTemplate.execute("vacuum analyze " + String.join(", ", tables));
+        long heap = size(tables, "pg_relation_size") - heapBefore;
+        long index = size(tables, "pg_indexes_size") - indexBefore;
+
+        Instant end = START.plusSeconds(60L * (READINGS / SENSORS + 1));
+        long queryStart = System.nanoTime();
+        jdbcTemplate.queryForList(aggregate, START.atOffset(ZoneOffset.UTC), end.atOffset(ZoneOffset.UTC));
+        double queryMillis = (System.nanoTime() - queryStart) / 1e6;
+
+        return new Result(READINGS / seconds, walBytes / 1e6, heap / 1e6, index / 1e6,
+                (heap + index) / (double) READINGS, queryMillis);
+    }
+
+    private static Metrics metrics(int i) {
+        double t = 10 + i % 20;
+        return i % 2 == 0
+                ? new Metrics(t, 60.0, 1013.0, 12.0, 180.0, 0.5, 4.0, 40.0)
+                : new Metrics(t, 60.0, null, null, null, null, null, null);
+    }
+
+    private long size(List<String> tables, String function) {
+        long total = 0;
+        for (String table : tables) {
+            // a partitioned table holds nothing itself: add up its partitions
+            total += jdbcTemplate.queryForObject("select coalesce(sum(" + function + "(relid)), 0)::bigint "
+                    + "from pg_partition_tree(?::regclass)", Long.class, SCHEMA + "." + table);
+        }
+        return total;
+    }
+
+    private record Result(double readingsPerSecond, double walMegabytes, double heapMegabytes,
+                          double indexMegabytes, double bytesPerReading, double queryMillis) {
+
+        void print(String layout) {
+            System.out.printf("  %-7s %12.0f %12.1f %10.1f %10.1f %10.0f %10.1fms%n", layout, readingsPerSecond,
+                    walMegabytes, heapMegabytes, indexMegabytes, bytesPerReading, queryMillis);
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package org.weather.metricsapi.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.weather.metricsapi.dto.fetch.v1.FetchRequest;
+import org.weather.metricsapi.dto.fetch.v1.FetchResponse;
+import org.weather.metricsapi.service.fetch.v1.FetchService;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.Comparator;
+import java.util.List;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * "The 10 hottest sensors": the whole fleet fetched and ranked by the client vs a ranked
+ * fetch ({@code orderBy} with {@code limit}). Seeds {@code benchmark.sensors} sensors
+ * (default 10,000), each with 24 readings of all eight metrics in one day, and asks for
+ * the maximum of every metric. Reports the time to a serialized response, its size, and
+ * the bytes the request thread allocated. Runs in its own schema, migrated from scratch
+ * and dropped afterwards.
+ * Run with {@code ./mvnw test -Pbenchmark -Dtest=TopNBenchmarkTest}.
+ */
+@Tag("benchmark")
+@SpringBootTest(properties = {
+        "spring.flyway.schemas=" + TopNBenchmarkTest.SCHEMA,
+        "spring.datasource.hikari.schema=" + TopNBenchmarkTest.SCHEMA
+})
+@ActiveProfiles("test")
+class TopNBenchmarkTest {
+
+    static final String SCHEMA = "bench_top_n";
+
+    private static final int SENSORS = Integer.getInteger("benchmark.sensors", 10_000);
+    private static final int TOP = 10;
+    private static final LocalDate DAY = LocalDate.of(2002, 6, 1);
+    private static final List<String> METRICS = List.of("temperature", "humidity", "pressure", "windSpeed",
+            "windDirection", "rainfall", "uvIndex", "aqi");
+    private static final int RUNS = 5;
+
+    private static final com.sun.management.ThreadMXBean THREADS =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    @Autowired
+    private FetchService fetchService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @AfterEach
+    void dropSchema() {
+        jdbcTemplate.execute("drop schema " + SCHEMA + " cascade");
+    }
+
+    @Test
+    void compareClientAndServerRanking() throws IOException {
+        seed();
+        FetchRequest fleet = new FetchRequest(null, METRICS, "max", DAY, DAY);
+        FetchRequest ranked = new FetchRequest(null, METRICS, "max", null, DAY, DAY,
+                new FetchRequest.OrderBy("temperature", null, "desc"), TOP);
+
+        List<String> clientTop = clientTop(fetchService.query(fleet));
+        List<String> serverTop = fetchService.query(ranked).results().stream()
+                .map(FetchResponse.SensorResult::sensorId)
+                .toList();
+        assertEquals(clientTop, serverTop);
+
+        System.out.printf("%nTop %d of %d sensors by max temperature, max of 8 metrics, 24 readings per sensor and metric%n",
+                TOP, SENSORS);
+        System.out.printf("  %-16s %12s %14s %10s%n", "ranked by", "response KB", "allocated MB", "time");
+        measure("client", () -> {
+            byte[] body = objectMapper.writeValueAsBytes(fetchService.query(fleet));
+            // what the client then has to do
+            clientTop(objectMapper.readValue(body, FetchResponse.class));
+            return body.length;
+        });
+        measure("orderBy + limit", () -> objectMapper.writeValueAsBytes(fetchService.query(ranked)).length);
+    }
+
+    private void measure(String mode, Request request) throws IOException {
+        request.run();
+        long allocated = 0;
+        long nanos = 0;
+        long bytes = 0;
+        for (int run = 0; run < RUNS; run++) {
+            long allocatedBefore = THREADS.getCurrentThreadAllocatedBytes();
+            long start = System.nanoTime();
+            bytes = request.run();
+            nanos += System.nanoTime() - start;
+            allocated += THREADS.getCurrentThreadAllocatedBytes() - allocatedBefore;
+        }
+        System.out.printf("  %-16s %12.1f %14.1f %8.0fms%n", mode, bytes / 1e3,
+                allocated / (double) RUNS / 1e6, nanos / (double) RUNS / 1e6);
+    }
+
+    private static List<String> clientTop(FetchResponse response) {
+        return response.results().stream()
+                .sorted(Comparator.comparing((FetchResponse.SensorResult result) ->
+                                result.metrics().get("temperature").value()).reversed()
+                        .thenComparing(FetchResponse.SensorResult::sensorId))
+                .limit(TOP)
+                .map(FetchResponse.SensorResult::sensorId)
+                .toList();
+    }
+
+    /** Sensors with readings of every metric every hour of {@link #DAY}. */
+    private void seed() {
+        jdbcTemplate.update("insert into sensors (name) select 'fleet-' || lpad(g::text, 6, '0') "
+                + "from generate_series(1, ?) g", SENSORS);
+        jdbcTemplate.update("insert into snapshots (id, sensor_id, ts) "
+                        + "select gen_random_uuid(), s.name, t from sensors s "
+                        + "cross join generate_series(?::timestamptz, ?::timestamptz, interval '1 hour') t",
+                DAY.atStartOfDay().atOffset(ZoneOffset.UTC), DAY.atTime(23, 0).atOffset(ZoneOffset.UTC));
+        jdbcTemplate.update("insert into reading_values (id, snapshot_id, ts, value, sensor_key, metric_key) "
+                + "select gen_random_uuid(), p.id, p.ts, round((random() * 40)::numeric, 2), s.id, m.id "
+                + "from snapshots p join sensors s on s.name = p.sensor_id cross join metrics m");
+        jdbcTemplate.execute("vacuum analyze snapshots, reading_values");
+    }
+
+    private interface Request {
+        /** @return the size of the serialized response */
+        long run() throws IOException;
+    }
+}
@@ -0,0 +1,162 @@
+package org.weather.metricsapi.benchmark;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.postgresql.PGConnection;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.weather.metricsapi.util.UuidV7;
+import javax.sql.DataSource;
+import java.io.StringReader;
+import java.sql.Connection;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Supplier;
+
+/**
+ * Random (v4) vs time-ordered (v7) primary keys on a table shaped like reading_values.
+ * Each table is pre-populated with {@code benchmark.rows} rows (default 2,000,000), then
+ * {@code benchmark.insertRows} more are inserted in 500-row batches, the way the update
+ * path writes. Reports primary-key index size, batch latency and WAL written, plus raw id
+ * generation throughput. Run with {@code ./mvnw test -Pbenchmark -Dtest=UuidInsertBenchmarkTest}.
+ */
+@Tag("benchmark")
+@SpringBootTest
+@ActiveProfiles("test")
+class UuidInsertBenchmarkTest {
+
+    private static final int PREPOPULATE_ROWS = Integer.getInteger("benchmark.rows", 2_000_000);
+    private static final int INSERT_ROWS = Integer.getInteger("benchmark.insertRows", 200_000);
+    private static final int BATCH_SIZE = 500;
+    private static final String[] METRICS = {"temperature", "humidity", "pressure", "windSpeed"};
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @AfterEach
+    void dropTables() {
+        jdbcTemplate.execute("drop table if exists bench_ids_v4");
+        jdbcTemplate.execute("drop table if exists bench_ids_v7");
+    }
+
+    @Test
+    void generation() throws Exception {
+        System.out.printf("%nid generation, 4 threads x 1,000,000%n");
+        System.out.printf("  v4 randomUUID: %,12.0f ids/s%n", generate(UUID::randomUUID));
+        System.out.printf("  v7 UuidV7:     %,12.0f ids/s%n", generate(UuidV7::next));
+    }
+
+    @Test
+    void insert() throws Exception {
+        Result v4 = run("bench_ids_v4", UUID::randomUUID);
+        Result v7 = run("bench_ids_v7", UuidV7::next);
+
+        System.out.printf("%ninsert %,d rows in batches of %d into a table of %,d rows%n",
+                INSERT_ROWS, BATCH_SIZE, PREPOPULATE_ROWS);
+        System.out.printf("  %-4s %12s %12s %10s %10s %10s %12s%n",
+                "key", "pk before", "pk after", "p50 ms", "p99 ms", "rows/s", "WAL MB");
+        v4.print("v4");
+        v7.print("v7");
+    }
+
+    private Result run(String table, Supplier<UUID> ids) throws Exception {
+        jdbcTemplate.execute("drop table if exists " + table);
+        jdbcTemplate.execute("create table " + table + " (id uuid primary key, sensor_id text not null, "
+                + "ts timestamptz not null, metric text not null, value double precision not null)");
+        prepopulate(table, ids);
+        jdbcTemplate.execute("vacuum analyze " + table);
+
+        long indexBefore = indexSize(table);
+        String walBefore = jdbcTemplate.queryForObject("select pg_current_wal_lsn()::text", String.class);
+
+        String sql = "insert into " + table + " (id, sensor_id, ts, metric, value) values (?, ?, ?, ?, ?)";
+        OffsetDateTime ts = OffsetDateTime.now(ZoneOffset.UTC);
+        long[] latencies = new long[INSERT_ROWS / BATCH_SIZE];
+        long start = System.nanoTime();
+        for (int b = 0; b < latencies.length; b++) {
+            List<Object[]> batch = new ArrayList<>(BATCH_SIZE);
+            for (int i = 0; i < BATCH_SIZE; i++) {
+                batch.add(new Object[]{ids.get(), "sensor-" + (i % 100), ts.plusNanos(b * 1000L),
+                        METRICS[i % METRICS.length], 20.0 + i % 10});
+            }
+            long batchStart = System.nanoTime();
+            jdbcTemplate.batchUpdate(sql, batch);
+            latencies[b] = System.nanoTime() - batchStart;
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        Long walBytes = jdbcTemplate.queryForObject(
+                "select (pg_current_wal_lsn() - ?::pg_lsn)::bigint", Long.class, walBefore);
+        Arrays.sort(latencies);
+        return new Result(indexBefore, indexSize(table),
+                latencies[latencies.length / 2] / 1e6, latencies[latencies.length * 99 / 100] / 1e6,
+                latencies.length * BATCH_SIZE / seconds, walBytes / 1e6);
+    }
+
+    private void prepopulate(String table, Supplier<UUID> ids) throws Exception {
+        String copy = "copy " + table + " (id, sensor_id, ts, metric, value) from stdin with (format csv)";
+        String ts = OffsetDateTime.now(ZoneOffset.UTC).minusDays(30).toString();
+        try (Connection connection = dataSource.getConnection()) {
+            var copyApi = connection.unwrap(PGConnection.class).getCopyAPI();
+            StringBuilder chunk = new StringBuilder();
+            for (int i = 0; i < PREPOPULATE_ROWS; i++) {
+                chunk.append(ids.get()).append(",sensor-").append(i % 100).append(',').append(ts)
+                        .append(',').append(METRICS[i % METRICS.length]).append(',').append(i % 50).append('\n');
+                if ((i + 1) % 100_000 == 0 || i == PREPOPULATE_ROWS - 1) {
+                    copyApi.copyIn(copy, new StringReader(chunk.toString()));
+                    chunk.setLength(0);
+                }
+            }
+        }
+    }
+
+    private long indexSize(String table) {
+        return jdbcTemplate.queryForObject(
+                "select pg_relation_size(?::regclass)", Long.class, table + "_pkey");
+    }
+
+    private static double generate(Supplier<UUID> ids) throws Exception {
+        int threads = 4;
+        int perThread = 1_000_000;
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            long start = System.nanoTime();
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                futures.add(pool.submit(() -> {
+                    for (int i = 0; i < perThread; i++) {
+                        ids.get();
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+            return threads * (double) perThread / ((System.nanoTime() - start) / 1e9);
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private record Result(long indexBefore, long indexAfter, double p50Millis, double p99Millis,
+                          double rowsPerSecond, double walMegabytes) {
+
+        void print(String key) {
+            System.out.printf("  %-4s %10.1fMB %10.1fMB %10.2f %10.2f %10.0f %12.1f%n", key,
+                    indexBefore / 1e6, indexAfter / 1e6, p50Millis, p99Millis, rowsPerSecond, walMegabytes);
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package org.weather.metricsapi.controller.admin.v1;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.weather.metricsapi.service.latest.v1.LatestIndex;
+import java.time.Instant;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@SpringBootTest(properties = "weather.import.chunk-rows=2")
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class ImportControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private LatestIndex latestIndex;
+
+    @BeforeEach
+    @AfterEach
+    void cleanUp() {
+        jdbcTemplate.update("delete from snapshots where sensor_id like 'import-%'");
+    }
+
+    @Test
+    void import_shouldLoadCsvWithClientTimestamps() throws Exception {
+        String csv = """
+                sensorId,timestamp,temperature,humidity,pressure
+                import-001,2024-03-01T00:00:00Z,10.5,80,1010
+                import-001,2024-03-01T01:00:00Z,11.0,79,
+                import-002,2024-03-01T00:00:00+01:00,9.0,85,1008
+                import-002,2024-03-01T01:00:00Z,150,85,1008
+                import-003,not-a-date,9.0,85,
+                """;
+
+        mockMvc.perform(post("/api/weather/metrics/v1/admin/import")
+                        .contentType("text/csv")
+                        .content(csv))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.format").value("csv"))
+                .andExpect(jsonPath("$.linesRead").value(5))
+                .andExpect(jsonPath("$.rowsAccepted").value(3))
+                .andExpect(jsonPath("$.rowsRejected").value(2))
+                .andExpect(jsonPath("$.snapshotsInserted").value(3))
+                .andExpect(jsonPath("$.valuesInserted").value(8))
+                .andExpect(jsonPath("$.chunksLoaded").value(2))
+                .andExpect(jsonPath("$.errors[0].line").value(5))
+                .andExpect(jsonPath("$.errors[0].message").value("temperature: temperature must not exceed 100°C"))
+                .andExpect(jsonPath("$.errors[1].line").value(6))
+                .andExpect(jsonPath("$.rowsPerSecond").isNumber());
+
+        Instant ts = jdbcTemplate.queryForObject(
+                "select ts from snapshots where sensor_id = 'import-002'", Instant.class);
+        assertEquals(Instant.parse("2024-02-29T23:00:00Z"), ts);
+
+        LatestIndex.Readings latest = latestIndex.get("import-001");
+        assertEquals(11.0, latest.value(LatestIndex.position("temperature")));
+        assertEquals(Instant.parse("2024-03-01T01:00:00Z"), latest.ts(LatestIndex.position("temperature")));
+        assertEquals(1010.0, latest.value(LatestIndex.position("pressure")));
+        assertEquals(Instant.parse("2024-03-01T00:00:00Z"), latest.ts(LatestIndex.position("pressure")));
+    }
+
+    @Test
+    void import_shouldLoadNdjsonAndSkipAlreadyImportedReadings() throws Exception {
+        String ndjson = """
+                {"sensorId":"import-nd","timestamp":"2024-03-02T00:00:00Z","metrics":{"temperature":5.0,"humidity":60.0}}
+                {"sensorId":"import-nd","timestamp":"2024-03-02T00:10:00Z","metrics":{"temperature":5.5,"humidity":61.0,"aqi":20}}
+                {"sensorId":"import-nd","timestamp":"2024-03-02T00:20:00Z","metrics":{"temperature":5.5,"dewPoint":1.0}}
+                """;
+
+        mockMvc.perform(post("/api/weather/metrics/v1/admin/import")
+                        .contentType("application/x-ndjson")
+                        .content(ndjson))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.rowsAccepted").value(2))
+                .andExpect(jsonPath("$.valuesInserted").value(5))
+                .andExpect(jsonPath("$.errors[0].message").value("unknown metric: dewPoint"));
+
+        mockMvc.perform(post("/api/weather/metrics/v1/admin/import")
+                        .param("source", "rerun")
+                        .contentType("application/x-ndjson")
+                        .content(ndjson))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.source").value("rerun"))
+                .andExpect(jsonPath("$.snapshotsInserted").value(0))
+                .andExpect(jsonPath("$.valuesInserted").value(0))
+                .andExpect(jsonPath("$.duplicatesSkipped").value(2));
+
+        Integer values = jdbcTemplate.queryForObject(
+                "select count(*) from reading_values v join sensors s on s.id = v.sensor_key where s.name = 'import-nd'", Integer.class);
+        assertEquals(5, values);
+    }
+
+    @Test
+    void import_shouldRejectUnknownCsvColumns() throws Exception {
+        mockMvc.perform(post("/api/weather/metrics/v1/admin/import")
+                        .contentType("text/csv")
+                        .content("sensorId,timestamp,dewPoint\nimport-001,2024-03-01T00:00:00Z,1.0\n"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message").value("Unknown CSV column: dewPoint"));
+    }
+}
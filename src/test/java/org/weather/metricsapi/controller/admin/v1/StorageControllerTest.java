@@ -0,0 +1,98 @@
+package org.weather.metricsapi.controller.admin.v1;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+/**
+ * Runs the application mid-cutover: writing both layouts, still reading the narrow one.
+ */
+@SpringBootTest(properties = {"weather.storage.write=dual", "weather.storage.read=narrow"})
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class StorageControllerTest {
+
+    private static final String WIDE_ROWS =
+            "select count(*) from readings r join sensors s on s.id = r.sensor_key where s.name like 'dual-%'";
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    @AfterEach
+    void cleanUp() {
+        jdbcTemplate.update("delete from readings where sensor_key in (select id from sensors where name like 'dual-%')");
+        jdbcTemplate.update("delete from snapshots where sensor_id like 'dual-%'");
+    }
+
+    @Test
+    void update_shouldWriteBothLayouts() throws Exception {
+        mockMvc.perform(post("/api/weather/metrics/v1/update")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("""
+                                {"sensorId":"dual-001","metrics":{"temperature":21.5,"humidity":55.0,"uvIndex":3}}
+                                """))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.savedCount").value(3));
+
+        assertEquals(3, jdbcTemplate.queryForObject(
+                "select count(*) from reading_values v join snapshots s on s.id = v.snapshot_id "
+                        + "where s.sensor_id = 'dual-001'", Integer.class));
+        assertEquals(1, jdbcTemplate.queryForObject(WIDE_ROWS, Integer.class));
+        assertEquals(3.0, jdbcTemplate.queryForObject(
+                "select r.uv_index from readings r join sensors s on s.id = r.sensor_key where s.name = 'dual-001'",
+                Double.class));
+    }
+
+    @Test
+    void import_shouldPivotIntoWideLayoutAndBackfillShouldRestoreMissingRows() throws Exception {
+        String ndjson = """
+                {"sensorId":"dual-imp","timestamp":"2024-04-01T00:00:00Z","metrics":{"temperature":5.0,"humidity":60.0}}
+                {"sensorId":"dual-imp","timestamp":"2024-04-01T00:10:00Z","metrics":{"temperature":5.5,"humidity":61.0,"aqi":20}}
+                {"sensorId":"dual-imp","timestamp":"2024-04-02T00:00:00Z","metrics":{"temperature":6.0,"humidity":62.0}}
+                """;
+
+        mockMvc.perform(post("/api/weather/metrics/v1/admin/import")
+                        .contentType("application/x-ndjson")
+                        .content(ndjson))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.snapshotsInserted").value(3))
+                .andExpect(jsonPath("$.valuesInserted").value(7));
+        assertEquals(3, jdbcTemplate.queryForObject(WIDE_ROWS, Integer.class));
+
+        // as if these had been written by an instance that was not dual-writing yet
+        jdbcTemplate.update("delete from readings where sensor_key in (select id from sensors where name like 'dual-%')");
+
+        mockMvc.perform(post("/api/weather/metrics/v1/admin/storage/backfill")
+                        .param("startDate", "2024-04-01")
+                        .param("endDate", "2024-04-02"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.days").value(2))
+                .andExpect(jsonPath("$.rowsInserted").value(3));
+        assertEquals(20.0, jdbcTemplate.queryForObject(
+                "select r.aqi from readings r join sensors s on s.id = r.sensor_key "
+                        + "where s.name = 'dual-imp' and r.ts = '2024-04-01T00:10:00Z'", Double.class));
+    }
+
+    @Test
+    void backfill_shouldRejectReversedRange() throws Exception {
+        mockMvc.perform(post("/api/weather/metrics/v1/admin/storage/backfill")
+                        .param("startDate", "2024-04-02")
+                        .param("endDate", "2024-04-01"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.errorCode").value("BAD_REQUEST"));
+    }
+}
@@ -1,6 +1,8 @@
 package org.weather.metricsapi.controller.fetch.v1;
 
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -13,6 +15,7 @@ import org.springframework.transaction.annotation.Transactional;
 import org.weather.metricsapi.dto.fetch.v1.FetchRequest;
 import org.weather.metricsapi.model.ReadingValue;
 import org.weather.metricsapi.model.Snapshot;
+import org.weather.metricsapi.repository.DictionaryRepo;
 import org.weather.metricsapi.repository.ReadingValueRepo;
 import org.weather.metricsapi.repository.SnapshotRepo;
 import java.time.Instant;
@@ -20,6 +23,7 @@ import java.time.LocalDate;
 import java.time.ZoneId;
 import java.util.List;
 import java.util.UUID;
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 import static org.hamcrest.Matchers.*;
@@ -42,6 +46,9 @@ class FetchControllerTest {
     @Autowired
     private ReadingValueRepo readingValueRepo;
 
+    @Autowired
+    private DictionaryRepo dictionary;
+
     @BeforeEach
     void setUp() {
         readingValueRepo.deleteAll();
@@ -73,6 +80,33 @@ class FetchControllerTest {
                 .andExpect(jsonPath("$.results[0].metrics.temperature.dataPoints").value(1));
     }
 
+    @Test
+    void fetch_shouldNegotiateCbor() throws Exception {
+        LocalDate today = LocalDate.now();
+        Instant timestamp = today.atStartOfDay(ZoneId.of("UTC")).toInstant();
+
+        insertTestDataWithTimestamp("sensor-001", 25.0, 60.0, timestamp);
+
+        String body = """
+                {"sensorId":["sensor-001"],"metrics":["temperature"],"statistic":"max",
+                 "startDate":"%s","endDate":"%s"}
+                """.formatted(today, today);
+        CBORMapper cbor = new CBORMapper();
+
+        byte[] response = mockMvc.perform(post("/api/weather/metrics/v1/fetch")
+                        .contentType("application/cbor")
+                        .accept("application/cbor")
+                        .content(cbor.writeValueAsBytes(objectMapper.readTree(body))))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("application/cbor"))
+                .andReturn().getResponse().getContentAsByteArray();
+
+        JsonNode json = cbor.readTree(response);
+        assertEquals("max", json.at("/query/statistic").asText());
+        assertEquals(today.toString(), json.at("/query/startDate").asText());
+        assertEquals(25.0, json.at("/results/0/metrics/temperature/value").asDouble());
+    }
+
     @Test
     void fetch_shouldHandleMultipleSensorsAndMetrics() throws Exception {
         LocalDate today = LocalDate.now();
@@ -129,6 +163,85 @@ class FetchControllerTest {
         }
     }
 
+    @Test
+    void fetch_shouldReturnSeveralStatisticsTogether() throws Exception {
+        LocalDate today = LocalDate.now();
+        insertTestDataWithTimestamp("sensor-001", 20.0, 50.0, today.atStartOfDay(ZoneId.of("UTC")).toInstant());
+        insertTestDataWithTimestamp("sensor-001", 30.0, 70.0, today.atTime(12, 0).atZone(ZoneId.of("UTC")).toInstant());
+
+        String body = """
+                {"sensorId": ["sensor-001"], "metrics": ["temperature"],
+                 "statistics": ["min", "max", "sum", "average", "count"],
+                 "startDate": "%s", "endDate": "%s"}
+                """.formatted(today, today);
+
+        mockMvc.perform(post("/api/weather/metrics/v1/fetch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(body))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.query.statistic").doesNotExist())
+                .andExpect(jsonPath("$.query.statistics[4]").value("count"))
+                .andExpect(jsonPath("$.results[0].metrics.temperature.value").doesNotExist())
+                .andExpect(jsonPath("$.results[0].metrics.temperature.values.min").value(20.0))
+                .andExpect(jsonPath("$.results[0].metrics.temperature.values.max").value(30.0))
+                .andExpect(jsonPath("$.results[0].metrics.temperature.values.sum").value(50.0))
+                .andExpect(jsonPath("$.results[0].metrics.temperature.values.average").value(25.0))
+                .andExpect(jsonPath("$.results[0].metrics.temperature.values.count").value(2))
+                .andExpect(jsonPath("$.results[0].metrics.temperature.dataPoints").value(2));
+    }
+
+    @Test
+    void fetchStream_shouldReturnTheSameResultsAsFetch() throws Exception {
+        LocalDate today = LocalDate.now();
+        Instant timestamp = today.atStartOfDay(ZoneId.of("UTC")).toInstant();
+        insertTestDataWithTimestamp("sensor-002", 22.0, 55.0, timestamp);
+        insertTestDataWithTimestamp("sensor-001", 20.0, 50.0, timestamp);
+        insertTestDataWithTimestamp("sensor-001", 30.0, null, timestamp.plusSeconds(3600));
+
+        String body = objectMapper.writeValueAsString(new FetchRequest(
+                null, List.of("temperature", "humidity"), "max", today, today));
+
+        String buffered = mockMvc.perform(post("/api/weather/metrics/v1/fetch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(body))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+
+        String streamed = mockMvc.perform(post("/api/weather/metrics/v1/fetch/stream")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(body))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_JSON))
+                .andExpect(jsonPath("$.results[0].sensorId").value("sensor-001"))
+                .andExpect(jsonPath("$.results[0].metrics.temperature.value").value(30.0))
+                .andExpect(jsonPath("$.results[1].sensorId").value("sensor-002"))
+                .andExpect(jsonPath("$.query.totalSensors").value(2))
+                .andReturn().getResponse().getContentAsString();
+
+        assertEquals(objectMapper.readTree(buffered), objectMapper.readTree(streamed));
+    }
+
+    @Test
+    void fetchStream_shouldRejectInvalidRequestBeforeWriting() throws Exception {
+        FetchRequest invalidRange = new FetchRequest(
+                null, List.of("temperature"), "average", LocalDate.now(), LocalDate.now().minusDays(7));
+
+        mockMvc.perform(post("/api/weather/metrics/v1/fetch/stream")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(invalidRange)))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.errorCode").value("BAD_REQUEST"));
+
+        FetchRequest ranked = new FetchRequest(null, List.of("temperature"), "max", null,
+                LocalDate.now(), LocalDate.now(), new FetchRequest.OrderBy("temperature", null, null), 10);
+
+        mockMvc.perform(post("/api/weather/metrics/v1/fetch/stream")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(ranked)))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message").value("orderBy and limit are not supported when streaming"));
+    }
+
     @Test
     void fetch_shouldValidateDateRange() throws Exception {
         FetchRequest invalidRange = new FetchRequest(
@@ -149,7 +262,7 @@ class FetchControllerTest {
                 List.of("sensor-001"),
                 List.of("temperature"),
                 "average",
-                LocalDate.now().minusDays(32),
+                LocalDate.now().minusDays(366),
                 LocalDate.now()
         );
 
@@ -157,7 +270,7 @@ class FetchControllerTest {
                         .contentType(MediaType.APPLICATION_JSON)
                         .content(objectMapper.writeValueAsString(tooLong)))
                 .andExpect(status().isBadRequest())
-                .andExpect(jsonPath("$.message", containsString("31 days")));
+                .andExpect(jsonPath("$.message", containsString("366 days")));
     }
 
     @Test
@@ -187,6 +300,71 @@ class FetchControllerTest {
                 .andExpect(jsonPath("$.errorCode").value("VALIDATION_FAILED"));
     }
 
+    @Test
+    void fetch_shouldReturnOnlyTheTopRankedSensors() throws Exception {
+        LocalDate today = LocalDate.now();
+        Instant timestamp = today.atStartOfDay(ZoneId.of("UTC")).toInstant();
+
+        insertTestDataWithTimestamp("rank-a", 25.0, 60.0, timestamp);
+        insertTestDataWithTimestamp("rank-b", 31.0, 40.0, timestamp);
+        insertTestDataWithTimestamp("rank-c", 18.0, 80.0, timestamp);
+
+        FetchRequest request = new FetchRequest(
+                null,
+                List.of("temperature", "humidity"),
+                "max",
+                null,
+                today,
+                today,
+                new FetchRequest.OrderBy("temperature", null, null),
+                2
+        );
+        mockMvc.perform(post("/api/weather/metrics/v1/fetch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.results", hasSize(2)))
+                .andExpect(jsonPath("$.results[0].sensorId").value("rank-b"))
+                .andExpect(jsonPath("$.results[0].metrics.humidity.value").value(40.0))
+                .andExpect(jsonPath("$.results[1].sensorId").value("rank-a"))
+                .andExpect(jsonPath("$.query.totalSensors").value(2))
+                .andExpect(jsonPath("$.query.orderBy.statistic").value("max"))
+                .andExpect(jsonPath("$.query.orderBy.direction").value("desc"))
+                .andExpect(jsonPath("$.query.limit").value(2));
+    }
+
+    @Test
+    void fetch_shouldRejectInvalidRankings() throws Exception {
+        String limitWithoutOrder = """
+            {"metrics": ["temperature"], "statistic": "max", "limit": 10}
+            """;
+        mockMvc.perform(post("/api/weather/metrics/v1/fetch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(limitWithoutOrder))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message").value("limit requires orderBy"));
+
+        String badDirection = """
+            {"metrics": ["temperature"], "statistic": "max", "limit": 10,
+             "orderBy": {"metric": "temperature", "direction": "up"}}
+            """;
+        mockMvc.perform(post("/api/weather/metrics/v1/fetch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(badDirection))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.errorCode").value("VALIDATION_FAILED"));
+
+        String limitTooLarge = """
+            {"metrics": ["temperature"], "statistic": "max", "limit": 100000,
+             "orderBy": {"metric": "temperature"}}
+            """;
+        mockMvc.perform(post("/api/weather/metrics/v1/fetch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(limitTooLarge))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.errorCode").value("VALIDATION_FAILED"));
+    }
+
     @Test
     void fetch_shouldReturnEmptyForNonExistentSensor() throws Exception {
         FetchRequest request = new FetchRequest(
@@ -241,9 +419,9 @@ class FetchControllerTest {
             ReadingValue tempValue = new ReadingValue();
             tempValue.setId(UUID.randomUUID());
             tempValue.setSnapshotId(snapshotId);
-            tempValue.setSensorId(sensorId);
+            tempValue.setSensorKey(dictionary.sensorKey(sensorId));
             tempValue.setTs(timestamp);
-            tempValue.setMetric("temperature");
+            tempValue.setMetricKey(dictionary.metricKey("temperature"));
             tempValue.setValue(temperature);
             readingValueRepo.save(tempValue);
         }
@@ -252,11 +430,13 @@ class FetchControllerTest {
             ReadingValue humValue = new ReadingValue();
             humValue.setId(UUID.randomUUID());
             humValue.setSnapshotId(snapshotId);
-            humValue.setSensorId(sensorId);
+            humValue.setSensorKey(dictionary.sensorKey(sensorId));
             humValue.setTs(timestamp);
-            humValue.setMetric("humidity");
+            humValue.setMetricKey(dictionary.metricKey("humidity"));
             humValue.setValue(humidity);
             readingValueRepo.save(humValue);
         }
+        // fetches read over JDBC, which does not flush pending entities
+        readingValueRepo.flush();
     }
 }
\ No newline at end of file
@@ -0,0 +1,106 @@
+package org.weather.metricsapi.controller.latest.v1;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.weather.metricsapi.dto.latest.v1.LatestRequest;
+import org.weather.metricsapi.dto.update.v1.Metrics;
+import org.weather.metricsapi.dto.update.v1.UpdateRequest;
+import java.util.Collections;
+import java.util.List;
+import static org.hamcrest.Matchers.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+/**
+ * Not transactional: the latest index only sees writes once they commit.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class LatestControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @AfterEach
+    void cleanUp() {
+        jdbcTemplate.update("delete from reading_values where sensor_key in (select id from sensors where name like 'latest-ctl-%')");
+        jdbcTemplate.update("delete from snapshots where sensor_id like 'latest-ctl-%'");
+    }
+
+    @Test
+    void latest_shouldReturnTheNewestCommittedReadingOfEachMetric() throws Exception {
+        update("latest-ctl-1", new Metrics(20.0, 50.0, 1000.0, null, null, null, null, null));
+        update("latest-ctl-1", new Metrics(21.5, 55.0, null, null, null, null, null, null));
+        update("latest-ctl-2", new Metrics(10.0, 40.0, null, null, null, null, null, null));
+
+        mockMvc.perform(post("/api/weather/metrics/v1/latest")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new LatestRequest(
+                                List.of("latest-ctl-1", "latest-ctl-unknown", "latest-ctl-2"),
+                                List.of("temperature", "pressure", "snowfall")))))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.query.metrics", contains("temperature", "pressure")))
+                .andExpect(jsonPath("$.query.requestedSensors").value(3))
+                .andExpect(jsonPath("$.query.totalSensors").value(2))
+                .andExpect(jsonPath("$.sensors[0].sensorId").value("latest-ctl-1"))
+                .andExpect(jsonPath("$.sensors[0].metrics.temperature.value").value(21.5))
+                .andExpect(jsonPath("$.sensors[0].metrics.temperature.ts").exists())
+                .andExpect(jsonPath("$.sensors[0].metrics.pressure.value").value(1000.0))
+                .andExpect(jsonPath("$.sensors[0].metrics.humidity").doesNotExist())
+                .andExpect(jsonPath("$.sensors[1].sensorId").value("latest-ctl-2"))
+                .andExpect(jsonPath("$.sensors[1].metrics.temperature.value").value(10.0))
+                .andExpect(jsonPath("$.sensors[1].metrics.pressure").doesNotExist());
+    }
+
+    @Test
+    void latest_shouldReturnEveryMetricWhenNoneAreNamed() throws Exception {
+        update("latest-ctl-3", new Metrics(20.0, 50.0, null, null, null, null, null, 42.0));
+
+        mockMvc.perform(post("/api/weather/metrics/v1/latest")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new LatestRequest(List.of("latest-ctl-3"), null))))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.query.metrics", hasSize(8)))
+                .andExpect(jsonPath("$.sensors[0].metrics.*", hasSize(3)))
+                .andExpect(jsonPath("$.sensors[0].metrics.aqi.value").value(42.0));
+    }
+
+    @Test
+    void latest_shouldRejectMissingOrTooManySensors() throws Exception {
+        mockMvc.perform(post("/api/weather/metrics/v1/latest")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new LatestRequest(List.of(), null))))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.errorCode").value("VALIDATION_FAILED"))
+                .andExpect(jsonPath("$.details.sensorId").exists());
+
+        mockMvc.perform(post("/api/weather/metrics/v1/latest")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new LatestRequest(
+                                Collections.nCopies(10_001, "latest-ctl-1"), null))))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.details.sensorId").exists());
+    }
+
+    private void update(String sensorId, Metrics metrics) throws Exception {
+        mockMvc.perform(post("/api/weather/metrics/v1/update")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new UpdateRequest(sensorId, metrics))))
+                .andExpect(status().isOk());
+    }
+}
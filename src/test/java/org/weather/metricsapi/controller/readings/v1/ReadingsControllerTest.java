@@ -0,0 +1,160 @@
+package org.weather.metricsapi.controller.readings.v1;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.annotation.Transactional;
+import org.weather.metricsapi.dto.readings.v1.ReadingsRequest;
+import org.weather.metricsapi.dto.readings.v1.ReadingsResponse;
+import org.weather.metricsapi.model.ReadingValue;
+import org.weather.metricsapi.model.Snapshot;
+import org.weather.metricsapi.repository.DictionaryRepo;
+import org.weather.metricsapi.repository.ReadingValueRepo;
+import org.weather.metricsapi.repository.SnapshotRepo;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.UUID;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+@Transactional
+class ReadingsControllerTest {
+
+    private static final LocalDate TODAY = LocalDate.now(ZoneOffset.UTC);
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private SnapshotRepo snapshotRepo;
+
+    @Autowired
+    private ReadingValueRepo readingValueRepo;
+
+    @Autowired
+    private DictionaryRepo dictionary;
+
+    private final List<ReadingsResponse.Reading> inserted = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        readingValueRepo.deleteAll();
+        snapshotRepo.deleteAll();
+        Instant midnight = TODAY.atStartOfDay(ZoneOffset.UTC).toInstant();
+        for (String sensorId : List.of("page-b", "page-a")) {
+            for (int hour = 0; hour < 3; hour++) {
+                insert(sensorId, midnight.plusSeconds(hour * 3600L), 20.0 + hour, 50.0 + hour);
+            }
+        }
+        readingValueRepo.flush();
+    }
+
+    @Test
+    void readings_shouldPageThroughEveryReadingInIndexOrder() throws Exception {
+        List<ReadingsResponse> pages = pageThrough(List.of("page-a", "page-b"), null, 5);
+
+        assertEquals(List.of(5, 5, 2), pages.stream().map(page -> page.readings().size()).toList());
+        assertNull(pages.get(2).nextCursor());
+        assertEquals(inIndexOrder(inserted), pages.stream().flatMap(page -> page.readings().stream()).toList());
+    }
+
+    @Test
+    void readings_shouldFilterByMetricAcrossTheFleet() throws Exception {
+        List<ReadingsResponse> pages = pageThrough(null, List.of("temperature"), 4);
+
+        List<ReadingsResponse.Reading> temperatures = inserted.stream()
+                .filter(reading -> reading.metric().equals("temperature"))
+                .toList();
+        assertEquals(List.of(4, 2), pages.stream().map(page -> page.readings().size()).toList());
+        assertEquals(inIndexOrder(temperatures), pages.stream().flatMap(page -> page.readings().stream()).toList());
+    }
+
+    @Test
+    void readings_shouldEndWithoutCursorWhenTheLastPageIsFull() throws Exception {
+        List<ReadingsResponse> pages = pageThrough(List.of("page-a"), null, 6);
+
+        assertEquals(1, pages.size());
+        assertEquals(6, pages.get(0).readings().size());
+    }
+
+    @Test
+    void readings_shouldRejectInvalidCursors() throws Exception {
+        mockMvc.perform(post("/api/weather/metrics/v1/readings")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"cursor\": \"AAAA\"}"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.errorCode").value("BAD_REQUEST"))
+                .andExpect(jsonPath("$.message").value("Invalid cursor"));
+
+        mockMvc.perform(post("/api/weather/metrics/v1/readings")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"cursor\": \"not a cursor\"}"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.errorCode").value("VALIDATION_FAILED"));
+    }
+
+    private List<ReadingsResponse> pageThrough(List<String> sensorId, List<String> metrics, int limit)
+            throws Exception {
+        List<ReadingsResponse> pages = new ArrayList<>();
+        String cursor = null;
+        do {
+            ReadingsRequest request = new ReadingsRequest(sensorId, metrics, TODAY, TODAY, limit, cursor);
+            String body = mockMvc.perform(post("/api/weather/metrics/v1/readings")
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(objectMapper.writeValueAsString(request)))
+                    .andExpect(status().isOk())
+                    .andReturn().getResponse().getContentAsString();
+            ReadingsResponse page = objectMapper.readValue(body, ReadingsResponse.class);
+            pages.add(page);
+            cursor = page.nextCursor();
+        } while (cursor != null);
+        return pages;
+    }
+
+    private List<ReadingsResponse.Reading> inIndexOrder(List<ReadingsResponse.Reading> readings) {
+        return readings.stream()
+                .sorted(Comparator.comparing((ReadingsResponse.Reading reading) -> dictionary.sensorKey(reading.sensorId()))
+                        .thenComparing(reading -> dictionary.metricKey(reading.metric()))
+                        .thenComparing(ReadingsResponse.Reading::ts))
+                .toList();
+    }
+
+    private void insert(String sensorId, Instant ts, double temperature, double humidity) {
+        Snapshot snapshot = new Snapshot();
+        snapshot.setId(UUID.randomUUID());
+        snapshot.setSensorId(sensorId);
+        snapshot.setTs(ts);
+        snapshotRepo.save(snapshot);
+        value(snapshot, "temperature", temperature);
+        value(snapshot, "humidity", humidity);
+    }
+
+    private void value(Snapshot snapshot, String metric, double value) {
+        ReadingValue readingValue = new ReadingValue();
+        readingValue.setId(UUID.randomUUID());
+        readingValue.setSnapshotId(snapshot.getId());
+        readingValue.setSensorKey(dictionary.sensorKey(snapshot.getSensorId()));
+        readingValue.setTs(snapshot.getTs());
+        readingValue.setMetricKey(dictionary.metricKey(metric));
+        readingValue.setValue(value);
+        readingValueRepo.save(readingValue);
+        inserted.add(new ReadingsResponse.Reading(snapshot.getSensorId(), metric, snapshot.getTs(), value));
+    }
+}
@@ -0,0 +1,150 @@
+package org.weather.metricsapi.controller.series.v1;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.annotation.Transactional;
+import org.weather.metricsapi.dto.series.v1.SeriesRequest;
+import org.weather.metricsapi.model.ReadingValue;
+import org.weather.metricsapi.model.Snapshot;
+import org.weather.metricsapi.repository.DictionaryRepo;
+import org.weather.metricsapi.repository.ReadingValueRepo;
+import org.weather.metricsapi.repository.SnapshotRepo;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.UUID;
+import static org.hamcrest.Matchers.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+@Transactional
+class SeriesControllerTest {
+
+    private static final LocalDate DAY = LocalDate.of(2024, 3, 10);
+    private static final Instant MIDNIGHT = DAY.atStartOfDay(ZoneOffset.UTC).toInstant();
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private SnapshotRepo snapshotRepo;
+
+    @Autowired
+    private ReadingValueRepo readingValueRepo;
+
+    @Autowired
+    private DictionaryRepo dictionary;
+
+    @BeforeEach
+    void setUp() {
+        readingValueRepo.deleteAll();
+        snapshotRepo.deleteAll();
+    }
+
+    @Test
+    void series_shouldAggregateBucketsAndFillGaps() throws Exception {
+        insertTemperature("series-001", 10.0, MIDNIGHT.plus(Duration.ofMinutes(5)));
+        insertTemperature("series-001", 20.0, MIDNIGHT.plus(Duration.ofMinutes(50)));
+        insertTemperature("series-001", 7.5, MIDNIGHT.plus(Duration.ofHours(2)));
+
+        mockMvc.perform(post("/api/weather/metrics/v1/series")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(
+                                request("average", "1h", null))))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.query.bucket").value("1h"))
+                .andExpect(jsonPath("$.query.totalSeries").value(1))
+                .andExpect(jsonPath("$.query.totalDataPoints").value(3))
+                .andExpect(jsonPath("$.series[0].sensorId").value("series-001"))
+                .andExpect(jsonPath("$.series[0].metric").value("temperature"))
+                .andExpect(jsonPath("$.series[0].buckets").value(24))
+                .andExpect(jsonPath("$.series[0].points", hasSize(24)))
+                .andExpect(jsonPath("$.series[0].points[0].ts").value("2024-03-10T00:00:00Z"))
+                .andExpect(jsonPath("$.series[0].points[0].value").value(15.0))
+                .andExpect(jsonPath("$.series[0].points[0].dataPoints").value(2))
+                .andExpect(jsonPath("$.series[0].points[1].value").doesNotExist())
+                .andExpect(jsonPath("$.series[0].points[1].dataPoints").value(0))
+                .andExpect(jsonPath("$.series[0].points[2].value").value(7.5))
+                .andExpect(jsonPath("$.series[0].points[23].ts").value("2024-03-10T23:00:00Z"));
+    }
+
+    @Test
+    void series_shouldCapPointsWithMaxPoints() throws Exception {
+        for (int minute = 0; minute < 600; minute++) {
+            // one spike that downsampling has to keep
+            insertTemperature("series-002", minute == 300 ? 45.0 : 20.0 + (minute % 7) / 10.0,
+                    MIDNIGHT.plus(Duration.ofMinutes(minute)));
+        }
+
+        mockMvc.perform(post("/api/weather/metrics/v1/series")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(
+                                request("max", "1m", 50))))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.query.maxPoints").value(50))
+                .andExpect(jsonPath("$.query.totalDataPoints").value(600))
+                .andExpect(jsonPath("$.series[0].buckets").value(1440))
+                .andExpect(jsonPath("$.series[0].dataPoints").value(600))
+                .andExpect(jsonPath("$.series[0].points", hasSize(50)))
+                .andExpect(jsonPath("$.series[0].points[0].ts").value("2024-03-10T00:00:00Z"))
+                .andExpect(jsonPath("$.series[0].points[49].ts").value("2024-03-10T09:59:00Z"))
+                .andExpect(jsonPath("$.series[0].points[*].value", hasItem(45.0)));
+    }
+
+    @Test
+    void series_shouldRejectTooManyBucketsWithoutMaxPoints() throws Exception {
+        SeriesRequest request = new SeriesRequest(List.of("series-001"), List.of("temperature"), "min", "1m",
+                DAY, DAY.plusDays(7), null);
+
+        mockMvc.perform(post("/api/weather/metrics/v1/series")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message", containsString("use a wider bucket or set maxPoints")));
+    }
+
+    @Test
+    void series_shouldRejectUnknownBucket() throws Exception {
+        mockMvc.perform(post("/api/weather/metrics/v1/series")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request("min", "2h", null))))
+                .andExpect(status().isBadRequest());
+    }
+
+    private static SeriesRequest request(String statistic, String bucket, Integer maxPoints) {
+        return new SeriesRequest(null, List.of("temperature"), statistic, bucket, DAY, DAY, maxPoints);
+    }
+
+    private void insertTemperature(String sensorId, double temperature, Instant timestamp) {
+        Snapshot snapshot = new Snapshot();
+        snapshot.setId(UUID.randomUUID());
+        snapshot.setSensorId(sensorId);
+        snapshot.setTs(timestamp);
+        snapshotRepo.save(snapshot);
+
+        ReadingValue value = new ReadingValue();
+        value.setId(UUID.randomUUID());
+        value.setSnapshotId(snapshot.getId());
+        value.setSensorKey(dictionary.sensorKey(sensorId));
+        value.setTs(timestamp);
+        value.setMetricKey(dictionary.metricKey("temperature"));
+        value.setValue(temperature);
+        // the series query runs over JDBC, which does not flush pending entities
+        readingValueRepo.saveAndFlush(value);
+    }
+}
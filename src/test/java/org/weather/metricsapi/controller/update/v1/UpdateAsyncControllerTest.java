@@ -0,0 +1,101 @@
+package org.weather.metricsapi.controller.update.v1;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.weather.metricsapi.dto.update.v1.Metrics;
+import org.weather.metricsapi.dto.update.v1.UpdateRequest;
+import java.util.List;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@SpringBootTest(properties = {
+        "weather.ingest.async.enabled=true",
+        "weather.ingest.async.flush-interval=20ms"
+})
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class UpdateAsyncControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void update_shouldAcceptAndFlushWhenAsyncIsPreferred() throws Exception {
+        jdbcTemplate.update("delete from snapshots where sensor_id = 'sensor-async'");
+        Metrics metrics = new Metrics(21.0, 55.0, 1005.0, null, null, null, null, null);
+        UpdateRequest request = new UpdateRequest("sensor-async", metrics);
+
+        mockMvc.perform(post("/api/weather/metrics/v1/update")
+                        .header("Prefer", "respond-async")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isAccepted())
+                .andExpect(header().string("Preference-Applied", "respond-async"))
+                .andExpect(jsonPath("$.sensorId").value("sensor-async"))
+                .andExpect(jsonPath("$.queuedCount").value(3));
+
+        Integer stored = 0;
+        for (int attempt = 0; attempt < 50 && stored < 3; attempt++) {
+            Thread.sleep(50);
+            stored = jdbcTemplate.queryForObject("select count(*) from reading_values v "
+                    + "join sensors s on s.id = v.sensor_key where s.name = 'sensor-async'", Integer.class);
+        }
+        assertEquals(3, stored);
+    }
+
+    @Test
+    void update_shouldFindAsyncAmongOtherPreferences() throws Exception {
+        Metrics metrics = new Metrics(21.0, 55.0, null, null, null, null, null, null);
+        UpdateRequest request = new UpdateRequest("sensor-async-wait", metrics);
+
+        for (String prefer : List.of("respond-async, wait=5", "wait=5,Respond-Async",
+                "handling=lenient;x=1, respond-async")) {
+            mockMvc.perform(post("/api/weather/metrics/v1/update")
+                            .header("Prefer", prefer)
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(objectMapper.writeValueAsString(request)))
+                    .andExpect(status().isAccepted())
+                    .andExpect(header().string("Preference-Applied", "respond-async"));
+        }
+    }
+
+    @Test
+    void update_shouldStaySynchronousForOtherPreferences() throws Exception {
+        Metrics metrics = new Metrics(21.0, 55.0, null, null, null, null, null, null);
+        UpdateRequest request = new UpdateRequest("sensor-sync", metrics);
+
+        mockMvc.perform(post("/api/weather/metrics/v1/update")
+                        .header("Prefer", "wait=5, handling=respond-async")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist("Preference-Applied"))
+                .andExpect(jsonPath("$.savedCount").value(2));
+    }
+
+    @Test
+    void update_shouldStaySynchronousWithoutPreferHeader() throws Exception {
+        Metrics metrics = new Metrics(21.0, 55.0, null, null, null, null, null, null);
+        UpdateRequest request = new UpdateRequest("sensor-sync", metrics);
+
+        mockMvc.perform(post("/api/weather/metrics/v1/update")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.savedCount").value(2));
+    }
+}
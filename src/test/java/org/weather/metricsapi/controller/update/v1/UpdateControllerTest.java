@@ -1,6 +1,8 @@
 package org.weather.metricsapi.controller.update.v1;
 
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
@@ -9,8 +11,12 @@ import org.springframework.http.MediaType;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.transaction.annotation.Transactional;
+import org.weather.metricsapi.dto.update.v1.BatchUpdateRequest;
 import org.weather.metricsapi.dto.update.v1.Metrics;
 import org.weather.metricsapi.dto.update.v1.UpdateRequest;
+import java.util.List;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
@@ -104,4 +110,92 @@ class UpdateControllerTest {
                         .content(objectMapper.writeValueAsString(request2)))
                 .andExpect(status().isOk());
     }
-}
\ No newline at end of file
+
+    @Test
+    void updateBatch_shouldReportPerItemResults() throws Exception {
+        BatchUpdateRequest request = new BatchUpdateRequest(List.of(
+                new UpdateRequest("sensor-b1", new Metrics(20.0, 50.0, null, null, null, null, null, null)),
+                new UpdateRequest("sensor-b2", new Metrics(20.0, 150.0, null, null, null, null, null, null)),
+                new UpdateRequest("sensor-b3", new Metrics(25.5, 65.0, 1013.0, 15.0, 180.0, 0.5, 5.0, 50.0))
+        ));
+
+        mockMvc.perform(post("/api/weather/metrics/v1/update/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.received").value(3))
+                .andExpect(jsonPath("$.saved").value(2))
+                .andExpect(jsonPath("$.rejected").value(1))
+                .andExpect(jsonPath("$.results[0].status").value("saved"))
+                .andExpect(jsonPath("$.results[0].savedCount").value(2))
+                .andExpect(jsonPath("$.results[1].status").value("rejected"))
+                .andExpect(jsonPath("$.results[1].errors['metrics.humidity']").exists())
+                .andExpect(jsonPath("$.results[2].savedCount").value(8));
+    }
+
+    @Test
+    void updateBatch_shouldRejectEmptyBatch() throws Exception {
+        mockMvc.perform(post("/api/weather/metrics/v1/update/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"items\": []}"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.errorCode").value("VALIDATION_FAILED"))
+                .andExpect(jsonPath("$.details.items").exists());
+    }
+
+    @Test
+    void updateStream_shouldIngestNdjsonLinesAndSummarise() throws Exception {
+        String ndjson = """
+                {"sensorId":"stream-001","metrics":{"temperature":20.5,"humidity":60.0}}
+                {"sensorId":"stream-002","metrics":{"temperature":21.0,"humidity":61.0,"pressure":1010.0}}
+                {"sensorId":"stream-003","metrics":{"temperature":21.0}}
+                """;
+
+        mockMvc.perform(post("/api/weather/metrics/v1/update/stream")
+                        .contentType("application/x-ndjson")
+                        .content(ndjson))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.linesRead").value(3))
+                .andExpect(jsonPath("$.accepted").value(2))
+                .andExpect(jsonPath("$.rejected").value(1))
+                .andExpect(jsonPath("$.savedCount").value(5))
+                .andExpect(jsonPath("$.batches").value(1))
+                .andExpect(jsonPath("$.errors[0].line").value(3))
+                .andExpect(jsonPath("$.errors[0].message").value("metrics.humidity: humidity is required"));
+    }
+
+    @Test
+    void update_shouldAcceptAndProduceCbor() throws Exception {
+        CBORMapper cbor = new CBORMapper();
+        UpdateRequest request = new UpdateRequest("sensor-cbor",
+                new Metrics(25.5, 65.0, 1013.0, 15.0, 180.0, 0.5, 5.0, 50.0));
+
+        byte[] response = mockMvc.perform(post("/api/weather/metrics/v1/update")
+                        .contentType("application/cbor")
+                        .accept("application/cbor")
+                        .content(cbor.writeValueAsBytes(request)))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("application/cbor"))
+                .andReturn().getResponse().getContentAsByteArray();
+
+        JsonNode json = cbor.readTree(response);
+        assertEquals("sensor-cbor", json.get("sensorId").asText());
+        assertEquals(8, json.get("savedCount").asInt());
+        // same ISO-8601 timestamps as the JSON representation
+        assertTrue(json.get("timestamp").isTextual());
+    }
+
+    @Test
+    void update_shouldValidateCborRequests() throws Exception {
+        CBORMapper cbor = new CBORMapper();
+        UpdateRequest request = new UpdateRequest("sensor-cbor",
+                new Metrics(150.0, 65.0, null, null, null, null, null, null));
+
+        mockMvc.perform(post("/api/weather/metrics/v1/update")
+                        .contentType("application/cbor")
+                        .content(cbor.writeValueAsBytes(request)))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.errorCode").value("VALIDATION_FAILED"))
+                .andExpect(jsonPath("$.details['metrics.temperature']").value("temperature must not exceed 100°C"));
+    }
+}
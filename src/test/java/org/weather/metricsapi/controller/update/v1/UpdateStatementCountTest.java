@@ -0,0 +1,166 @@
+package org.weather.metricsapi.controller.update.v1;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.annotation.Transactional;
+import org.weather.metricsapi.dto.update.v1.Metrics;
+import org.weather.metricsapi.dto.update.v1.ReadingRules;
+import org.weather.metricsapi.dto.update.v1.UpdateRequest;
+import org.weather.metricsapi.repository.DictionaryRepo;
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Guards the insert-only write path: once the sensor and metric keys are cached, one
+ * {@code /v1/update} call must cost exactly one statement round trip per table and never
+ * SELECT before inserting.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+@Transactional
+class UpdateStatementCountTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private StatementLog statementLog;
+
+    @Autowired
+    private DictionaryRepo dictionary;
+
+    @BeforeEach
+    void setUp() {
+        dictionary.sensorKey("sensor-count");
+        ReadingRules.metrics().forEach(rule -> dictionary.metricKey(rule.metric()));
+        statementLog.clear();
+    }
+
+    @Test
+    void update_shouldIssueOneInsertPerTable() throws Exception {
+        Metrics metrics = new Metrics(25.5, 65.0, 1013.0, 15.0, 180.0, 0.5, 5.0, 50.0);
+        UpdateRequest request = new UpdateRequest("sensor-count", metrics);
+
+        mockMvc.perform(post("/api/weather/metrics/v1/update")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isOk());
+
+        List<String> executed = statementLog.statements();
+        assertEquals(2, executed.size(), "statements executed: " + executed);
+        assertTrue(executed.get(0).startsWith("insert into snapshots"));
+        assertTrue(executed.get(1).startsWith("insert into reading_values"));
+    }
+
+    @Test
+    void update_shouldNotSelectBeforeInsert() throws Exception {
+        Metrics metrics = new Metrics(20.0, 50.0, null, null, null, null, null, null);
+        UpdateRequest request = new UpdateRequest("sensor-count", metrics);
+
+        mockMvc.perform(post("/api/weather/metrics/v1/update")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isOk());
+
+        assertTrue(statementLog.statements().stream()
+                        .noneMatch(sql -> sql.trim().toLowerCase().startsWith("select")),
+                "unexpected SELECT: " + statementLog.statements());
+    }
+
+    /**
+     * Records the SQL of every statement execution (a whole JDBC batch counts once).
+     */
+    static class StatementLog {
+
+        private final List<String> executed = new CopyOnWriteArrayList<>();
+
+        void clear() { executed.clear(); }
+
+        List<String> statements() { return List.copyOf(executed); }
+
+        DataSource wrap(DataSource target) {
+            return proxy(DataSource.class, target, (method, result, args) ->
+                    method.equals("getConnection") ? wrapConnection((Connection) result) : result);
+        }
+
+        private Connection wrapConnection(Connection target) {
+            return proxy(Connection.class, target, (method, result, args) -> {
+                if (method.equals("prepareStatement")) {
+                    return wrapStatement(PreparedStatement.class, (Statement) result, (String) args[0]);
+                }
+                if (method.equals("createStatement")) {
+                    return wrapStatement(Statement.class, (Statement) result, null);
+                }
+                return result;
+            });
+        }
+
+        private <S extends Statement> S wrapStatement(Class<S> type, Statement target, String preparedSql) {
+            return proxy(type, type.cast(target), (method, result, args) -> {
+                if (method.startsWith("execute")) {
+                    executed.add(preparedSql != null ? preparedSql : String.valueOf(args != null && args.length > 0 ? args[0] : method));
+                }
+                return result;
+            });
+        }
+
+        private interface AfterCall {
+            Object apply(String method, Object result, Object[] args);
+        }
+
+        private static <T> T proxy(Class<T> type, T target, AfterCall after) {
+            InvocationHandler handler = (p, method, args) -> {
+                try {
+                    return after.apply(method.getName(), method.invoke(target, args), args);
+                } catch (InvocationTargetException e) {
+                    throw e.getCause();
+                }
+            };
+            return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, handler));
+        }
+    }
+
+    @TestConfiguration
+    static class StatementLogConfig {
+
+        @Bean
+        StatementLog statementLog() {
+            return new StatementLog();
+        }
+
+        @Bean
+        static BeanPostProcessor statementLoggingDataSource(ObjectProvider<StatementLog> log) {
+            return new BeanPostProcessor() {
+                @Override
+                public Object postProcessAfterInitialization(Object bean, String beanName) {
+                    return bean instanceof DataSource ds ? log.getObject().wrap(ds) : bean;
+                }
+            };
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package org.weather.metricsapi.dto.update.v1;
+
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validation;
+import jakarta.validation.Validator;
+import org.junit.jupiter.api.Test;
+import java.util.Set;
+import static org.junit.jupiter.api.Assertions.*;
+
+class ReadingRulesTest {
+
+    private final Validator validator = Validation.buildDefaultValidatorFactory().getValidator();
+
+    @Test
+    void metrics_shouldFollowMetricsDeclarationOrder() {
+        assertEquals(8, ReadingRules.metrics().size());
+        assertEquals("temperature", ReadingRules.metrics().get(0).metric());
+        assertEquals("aqi", ReadingRules.metrics().get(7).metric());
+        assertTrue(ReadingRules.metric("humidity").required());
+        assertFalse(ReadingRules.metric("pressure").required());
+        assertNull(ReadingRules.metric("dewPoint"));
+    }
+
+    @Test
+    void check_shouldAgreeWithBeanValidation() {
+        double[] probes = {-1000, -100.0001, -100, -0.5, 0, 0.5, 19.99, 20, 20.01, 99.9, 100, 100.01,
+                359, 360, 361, 500, 500.5, 799, 800, 1000, 1000.1, 1200, 1201};
+
+        for (ReadingRules.MetricRule rule : ReadingRules.metrics()) {
+            for (double probe : probes) {
+                Metrics metrics = withValue(rule.metric(), probe);
+                Set<ConstraintViolation<Metrics>> violations = validator.validateProperty(metrics, rule.metric());
+                String expected = violations.isEmpty() ? null : violations.iterator().next().getMessage();
+
+                assertEquals(expected, rule.check(probe), rule.metric() + "=" + probe);
+            }
+            Set<ConstraintViolation<Metrics>> nullViolations =
+                    validator.validateProperty(withValue(rule.metric(), null), rule.metric());
+            assertEquals(!nullViolations.isEmpty(), rule.check(null) != null, rule.metric() + "=null");
+        }
+    }
+
+    @Test
+    void toMetrics_shouldPlaceValuesInDeclarationOrder() {
+        Metrics metrics = ReadingRules.toMetrics(new Double[]{1.0, 2.0, 3.0, 4.0, 5.0, 6.0, 7.0, null});
+
+        assertEquals(new Metrics(1.0, 2.0, 3.0, 4.0, 5.0, 6.0, 7.0, null), metrics);
+    }
+
+    @Test
+    void checkSensorId_shouldApplyUpdateRequestRules() {
+        assertNull(ReadingRules.checkSensorId("sensor-001"));
+        assertEquals("sensorId must be between 3 and 50 characters", ReadingRules.checkSensorId("ab"));
+        assertEquals("sensorId must contain only alphanumeric characters, hyphens, and underscores",
+                ReadingRules.checkSensorId("sensor 001"));
+        assertEquals("sensorId is required and cannot be blank", ReadingRules.checkSensorId(" "));
+    }
+
+    private static Metrics withValue(String metric, Double value) {
+        return new Metrics(
+                valueOr(metric, "temperature", value, 20.0),
+                valueOr(metric, "humidity", value, 50.0),
+                valueOr(metric, "pressure", value, null),
+                valueOr(metric, "windSpeed", value, null),
+                valueOr(metric, "windDirection", value, null),
+                valueOr(metric, "rainfall", value, null),
+                valueOr(metric, "uvIndex", value, null),
+                valueOr(metric, "aqi", value, null)
+        );
+    }
+
+    private static Double valueOr(String metric, String name, Double value, Double otherwise) {
+        return metric.equals(name) ? value : otherwise;
+    }
+}
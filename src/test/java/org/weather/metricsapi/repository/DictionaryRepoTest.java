@@ -0,0 +1,88 @@
+package org.weather.metricsapi.repository;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.IntStream;
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class DictionaryRepoTest {
+
+    @Autowired
+    private DictionaryRepo dictionary;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @AfterEach
+    void cleanUp() {
+        jdbcTemplate.update("delete from sensors where name like 'dict-%'");
+    }
+
+    @Test
+    void sensorKey_shouldRegisterOnceAndResolveBothWays() {
+        int key = dictionary.sensorKey("dict-001");
+
+        assertEquals(key, dictionary.sensorKey("dict-001"));
+        assertEquals("dict-001", dictionary.sensorName(key));
+        assertEquals(1, jdbcTemplate.queryForObject(
+                "select count(*) from sensors where name = 'dict-001'", Integer.class));
+    }
+
+    @Test
+    void findSensorKeys_shouldNotRegisterUnknownSensors() {
+        int known = dictionary.sensorKey("dict-known");
+
+        Map<String, Integer> found = dictionary.findSensorKeys(List.of("dict-known", "dict-unknown"));
+
+        assertEquals(Map.of("dict-known", known), found);
+        assertEquals(0, jdbcTemplate.queryForObject(
+                "select count(*) from sensors where name = 'dict-unknown'", Integer.class));
+    }
+
+    @Test
+    void sensorKeys_shouldAgreeAcrossConcurrentCallers() throws Exception {
+        List<String> names = IntStream.range(0, 50).mapToObj("dict-c%02d"::formatted).toList();
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<Map<String, Integer>>> futures = new ArrayList<>();
+            for (int t = 0; t < 4; t++) {
+                List<String> shuffled = new ArrayList<>(names);
+                Collections.shuffle(shuffled);
+                futures.add(pool.submit(() -> dictionary.sensorKeys(shuffled)));
+            }
+
+            Map<String, Integer> first = futures.get(0).get();
+            for (Future<Map<String, Integer>> future : futures) {
+                assertEquals(first, future.get());
+            }
+            Set<Integer> distinctKeys = new HashSet<>(first.values());
+            assertEquals(names.size(), distinctKeys.size());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    void metricKeys_shouldBeSeededForEveryMetric() {
+        Map<String, Short> keys = dictionary.findMetricKeys(List.of(
+                "temperature", "humidity", "pressure", "windSpeed", "windDirection", "rainfall", "uvIndex", "aqi"));
+
+        assertEquals(8, keys.size());
+        assertEquals("humidity", dictionary.metricName(keys.get("humidity")));
+    }
+}
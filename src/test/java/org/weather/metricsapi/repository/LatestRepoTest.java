@@ -0,0 +1,111 @@
+package org.weather.metricsapi.repository;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.weather.metricsapi.dto.update.v1.Metrics;
+import org.weather.metricsapi.model.ReadingValue;
+import org.weather.metricsapi.model.Snapshot;
+import org.weather.metricsapi.util.UuidV7;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class LatestRepoTest {
+
+    private static final Instant TS = Instant.parse("2025-04-01T10:00:00Z");
+
+    @Autowired
+    private LatestRepo latestRepo;
+
+    @Autowired
+    private ReadingInsertRepo insertRepo;
+
+    @Autowired
+    private WideReadingRepo wideRepo;
+
+    @Autowired
+    private DictionaryRepo dictionary;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @AfterEach
+    void cleanUp() {
+        jdbcTemplate.update("delete from reading_values where sensor_key in (select id from sensors where name like 'latest-%')");
+        jdbcTemplate.update("delete from readings where sensor_key in (select id from sensors where name like 'latest-%')");
+        jdbcTemplate.update("delete from snapshots where sensor_id like 'latest-%'");
+        jdbcTemplate.update("delete from sensors where name like 'latest-%'");
+    }
+
+    @Test
+    void forEachLatest_shouldReturnTheNewestNarrowReadingOfEachMetricSinceTheCutoff() {
+        int key = dictionary.sensorKey("latest-narrow");
+        insert(key, "latest-narrow", TS.minusSeconds(7200), 5.0, 900.0);
+        insert(key, "latest-narrow", TS, 20.0, 1000.0);
+        insert(key, "latest-narrow", TS.plusSeconds(60), 21.0, null);
+
+        assertEquals(List.of(
+                new LatestRepo.Latest("latest-narrow", "pressure", TS, 1000.0),
+                new LatestRepo.Latest("latest-narrow", "temperature", TS.plusSeconds(60), 21.0)
+        ), latest(false));
+    }
+
+    @Test
+    void forEachLatest_shouldSkipMissingWideColumns() {
+        int key = dictionary.sensorKey("latest-wide");
+        wideRepo.insert(List.of(
+                new WideReadingRepo.Row(key, TS, new Metrics(20.0, 50.0, 1000.0, null, null, null, null, null)),
+                new WideReadingRepo.Row(key, TS.plusSeconds(60), new Metrics(21.0, 55.0, null, null, null, null, null, null))
+        ));
+
+        assertEquals(List.of(
+                new LatestRepo.Latest("latest-wide", "humidity", TS.plusSeconds(60), 55.0),
+                new LatestRepo.Latest("latest-wide", "pressure", TS, 1000.0),
+                new LatestRepo.Latest("latest-wide", "temperature", TS.plusSeconds(60), 21.0)
+        ), latest(true));
+    }
+
+    private List<LatestRepo.Latest> latest(boolean wide) {
+        List<LatestRepo.Latest> rows = new ArrayList<>();
+        latestRepo.forEachLatest(TS.minusSeconds(3600), wide, latest -> {
+            if (latest.sensorId().startsWith("latest-")) {
+                rows.add(latest);
+            }
+        });
+        rows.sort(Comparator.comparing(LatestRepo.Latest::metric));
+        return rows;
+    }
+
+    private void insert(int key, String sensorId, Instant ts, double temperature, Double pressure) {
+        Snapshot snapshot = new Snapshot();
+        snapshot.setId(UuidV7.next());
+        snapshot.setSensorId(sensorId);
+        snapshot.setTs(ts);
+        insertRepo.insertSnapshots(List.of(snapshot));
+        List<ReadingValue> values = new ArrayList<>();
+        values.add(value(snapshot, key, "temperature", temperature));
+        if (pressure != null) {
+            values.add(value(snapshot, key, "pressure", pressure));
+        }
+        insertRepo.insertValues(values);
+    }
+
+    private ReadingValue value(Snapshot snapshot, int sensorKey, String metric, double value) {
+        ReadingValue rv = new ReadingValue();
+        rv.setId(UuidV7.next());
+        rv.setSnapshotId(snapshot.getId());
+        rv.setSensorKey(sensorKey);
+        rv.setTs(snapshot.getTs());
+        rv.setMetricKey(dictionary.metricKey(metric));
+        rv.setValue(value);
+        return rv;
+    }
+}
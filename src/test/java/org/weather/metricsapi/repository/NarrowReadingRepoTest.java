@@ -0,0 +1,128 @@
+package org.weather.metricsapi.repository;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.weather.metricsapi.dto.fetch.v1.Statistic;
+import org.weather.metricsapi.model.ReadingValue;
+import org.weather.metricsapi.model.Snapshot;
+import org.weather.metricsapi.util.QuantileSketch;
+import org.weather.metricsapi.util.UuidV7;
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class NarrowReadingRepoTest {
+
+    private static final Instant TS = Instant.parse("2025-03-02T10:00:00Z");
+
+    @Autowired
+    private NarrowReadingRepo narrowRepo;
+
+    @Autowired
+    private ReadingInsertRepo insertRepo;
+
+    @Autowired
+    private DictionaryRepo dictionary;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @AfterEach
+    void cleanUp() {
+        jdbcTemplate.update("delete from reading_values where sensor_key in (select id from sensors where name like 'narrow-%')");
+        jdbcTemplate.update("delete from snapshots where sensor_id like 'narrow-%'");
+        jdbcTemplate.update("delete from sensors where name like 'narrow-%'");
+    }
+
+    @Test
+    void statement_shouldBeOneOfEightFixedTexts() {
+        Set<String> texts = new HashSet<>();
+        for (boolean sum : new boolean[]{false, true}) {
+            for (boolean sketch : new boolean[]{false, true}) {
+                for (boolean sensors : new boolean[]{false, true}) {
+                    texts.add(NarrowReadingRepo.statement(sum, sketch, sensors));
+                }
+            }
+        }
+        assertEquals(8, texts.size());
+    }
+
+    @Test
+    void aggregate_shouldFilterByTheBoundSensorAndMetricKeys() {
+        int a = dictionary.sensorKey("narrow-a");
+        int b = dictionary.sensorKey("narrow-b");
+        int c = dictionary.sensorKey("narrow-c");
+        insert(a, "narrow-a", TS, 20.0, 1000.0);
+        insert(a, "narrow-a", TS.plusSeconds(60), 24.5, 1002.0);
+        insert(b, "narrow-b", TS, 10.0, 990.0);
+        insert(c, "narrow-c", TS, 99.0, 999.0);
+
+        List<MetricAggregate> results = narrowRepo.aggregate(Set.of(Statistic.MIN, Statistic.MAX, Statistic.AVERAGE),
+                List.of(a, b), List.of(dictionary.metricKey("temperature")), TS, TS.plusSeconds(3600));
+
+        results = results.stream().sorted(Comparator.comparing(MetricAggregate::sensorKey)).toList();
+        assertEquals(List.of(
+                new MetricAggregate(a, "temperature", BigDecimal.valueOf(20.0), BigDecimal.valueOf(24.5),
+                        new BigDecimal("44.5"), 2),
+                new MetricAggregate(b, "temperature", BigDecimal.valueOf(10.0), BigDecimal.valueOf(10.0),
+                        new BigDecimal("10"), 1)
+        ), results);
+    }
+
+    @Test
+    void aggregate_shouldReturnOnePartialPerSketchBucketForAllSensors() {
+        int a = dictionary.sensorKey("narrow-sketch");
+        insert(a, "narrow-sketch", TS, 20.0, null);
+        insert(a, "narrow-sketch", TS.plusSeconds(60), 20.0, null);
+        insert(a, "narrow-sketch", TS.plusSeconds(120), 30.0, null);
+
+        List<MetricAggregate> results = narrowRepo.aggregate(Set.of(Statistic.MAX, Statistic.P50), null,
+                List.of(dictionary.metricKey("temperature")), TS, TS.plusSeconds(3600)).stream()
+                .filter(partial -> partial.sensorKey() == a)
+                .toList();
+
+        assertEquals(2, results.size());
+        MetricAggregate combined = results.get(0).combine(results.get(1));
+        assertEquals(3, combined.dataPoints());
+        assertEquals(BigDecimal.valueOf(30.0), combined.max());
+        assertNull(combined.min());
+        assertNull(combined.sum());
+        assertEquals(QuantileSketch.of(QuantileSketch.key(20.0), 1).quantile(0.5), combined.sketch().quantile(0.5));
+    }
+
+    private void insert(int sensorKey, String sensorId, Instant ts, Double temperature, Double pressure) {
+        Snapshot snapshot = new Snapshot();
+        snapshot.setId(UuidV7.next());
+        snapshot.setSensorId(sensorId);
+        snapshot.setTs(ts);
+        insertRepo.insertSnapshots(List.of(snapshot));
+        List<ReadingValue> values = new ArrayList<>();
+        values.add(value(snapshot, sensorKey, "temperature", temperature));
+        if (pressure != null) {
+            values.add(value(snapshot, sensorKey, "pressure", pressure));
+        }
+        insertRepo.insertValues(values);
+    }
+
+    private ReadingValue value(Snapshot snapshot, int sensorKey, String metric, double value) {
+        ReadingValue rv = new ReadingValue();
+        rv.setId(UuidV7.next());
+        rv.setSnapshotId(snapshot.getId());
+        rv.setSensorKey(sensorKey);
+        rv.setTs(snapshot.getTs());
+        rv.setMetricKey(dictionary.metricKey(metric));
+        rv.setValue(value);
+        return rv;
+    }
+}
@@ -0,0 +1,289 @@
+package org.weather.metricsapi.repository;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.weather.metricsapi.dto.fetch.v1.Statistic;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.time.DayOfWeek;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.temporal.TemporalAdjusters;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Guards the plans of every fetch statement (narrow {@link NarrowReadingRepo}, wide
+ * {@link WideReadingRepo}, {@link RollupRepo} and the {@link StreamingAggregateRepo} union) and
+ * of the raw reading pages ({@link ReadingPageRepo}) against going back to sequential scans.
+ * Seeds a week of readings in both layouts into one partition of a schema of its own, and a
+ * year of daily and four weeks of hourly rollups before it, then EXPLAINs every statement over
+ * a range narrow enough that reading the whole table would be the wrong plan.
+ */
+@SpringBootTest(properties = {
+        "spring.flyway.schemas=" + QueryPlanTest.SCHEMA,
+        "spring.datasource.hikari.schema=" + QueryPlanTest.SCHEMA
+})
+@ActiveProfiles("test")
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class QueryPlanTest {
+
+    static final String SCHEMA = "test_plans";
+
+    private static final int SENSORS = 50;
+    private static final int READINGS_PER_DAY = 48;
+    private static final List<Integer> SENSOR_KEYS = List.of(1, 7, 19, 23, 42);
+    // a week ahead, in a partition created on startup and holding nothing else
+    private static final LocalDate MONDAY = LocalDate.now(ZoneOffset.UTC)
+            .with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY)).plusWeeks(1);
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private DictionaryRepo dictionary;
+
+    @Autowired
+    private WideReadingRepo wideReadingRepo;
+
+    @BeforeAll
+    void seed() {
+        jdbcTemplate.update("insert into sensors (name) select 'plan-' || lpad(g::text, 3, '0') "
+                + "from generate_series(1, ?) g", SENSORS);
+        jdbcTemplate.update("insert into snapshots (id, sensor_id, ts) "
+                        + "select gen_random_uuid(), s.name, t from sensors s "
+                        + "cross join generate_series(?::timestamptz, ?::timestamptz, ?::interval) t",
+                MONDAY.atStartOfDay().atOffset(ZoneOffset.UTC),
+                MONDAY.plusDays(7).atStartOfDay().minusSeconds(1).atOffset(ZoneOffset.UTC),
+                (86_400 / READINGS_PER_DAY) + " seconds");
+        // in ts order, as readings arrive
+        jdbcTemplate.update("insert into reading_values (id, snapshot_id, ts, value, sensor_key, metric_key) "
+                + "select gen_random_uuid(), p.id, p.ts, round((random() * 40)::numeric, 1), s.id, m.id "
+                + "from snapshots p join sensors s on s.name = p.sensor_id cross join metrics m order by p.ts");
+        wideReadingRepo.backfill(MONDAY.atStartOfDay().toInstant(ZoneOffset.UTC),
+                MONDAY.plusDays(7).atStartOfDay().toInstant(ZoneOffset.UTC));
+        jdbcTemplate.update("insert into rollup_daily (day, sensor_key, metric_key, min, max, sum, count, "
+                        + "sketch_keys, sketch_counts) "
+                        + "select d::date, s.id, m.id, 1, 2, 72, 48, array[1100, 1101], array[24, 24] from sensors s "
+                        + "cross join metrics m cross join generate_series(?::date - 365, ?::date - 1, interval '1 day') d",
+                MONDAY, MONDAY);
+        jdbcTemplate.update("insert into rollup_hourly (bucket, sensor_key, metric_key, min, max, sum, count, "
+                        + "sketch_keys, sketch_counts) "
+                        + "select b, s.id, m.id, 1, 2, 3, 2, array[1100, 1101], array[1, 1] from sensors s "
+                        + "cross join metrics m cross join generate_series(?::timestamptz - interval '28 days', "
+                        + "?::timestamptz - interval '1 hour', interval '1 hour') b",
+                MONDAY.atStartOfDay().atOffset(ZoneOffset.UTC), MONDAY.atStartOfDay().atOffset(ZoneOffset.UTC));
+        // the visibility map lets index-only scans skip the heap
+        jdbcTemplate.execute("vacuum analyze snapshots, reading_values, readings, rollup_daily, rollup_hourly");
+    }
+
+    @AfterAll
+    void dropSchema() {
+        jdbcTemplate.execute("drop schema " + SCHEMA + " cascade");
+    }
+
+    @Test
+    void readingValues_shouldCarryOnlyTheLeanIndexSet() {
+        assertEquals(Set.of("reading_values_pkey", "uk_snapshot_metric", "uk_sensor_ts_metric",
+                        "idx_values_sensor_metric_ts", "idx_values_ts_brin"),
+                Set.copyOf(jdbcTemplate.queryForList(
+                        "select indexname from pg_indexes where schemaname = ? and tablename = 'reading_values'",
+                        String.class, SCHEMA)));
+    }
+
+    @Test
+    void sensorStatements_shouldAggregateFromTheCoveringIndexAlone() {
+        Instant start = MONDAY.plusDays(3).atStartOfDay().toInstant(ZoneOffset.UTC);
+        for (boolean sum : new boolean[]{false, true}) {
+            for (boolean sketch : new boolean[]{false, true}) {
+                String plan = explain(NarrowReadingRepo.statement(sum, sketch, true), start, start.plusSeconds(86_400),
+                        SENSOR_KEYS);
+                assertFalse(plan.contains("Seq Scan"), plan);
+                assertTrue(plan.contains("Index Only Scan using " + partition() + "_sensor_key_metric_key_ts"), plan);
+            }
+        }
+    }
+
+    @Test
+    void fleetStatements_shouldNarrowTheRangeWithTheBrinIndex() {
+        Instant start = MONDAY.plusDays(3).atTime(10, 0).toInstant(ZoneOffset.UTC);
+        for (boolean sum : new boolean[]{false, true}) {
+            for (boolean sketch : new boolean[]{false, true}) {
+                String plan = explain(NarrowReadingRepo.statement(sum, sketch, false), start, start.plusSeconds(3600),
+                        null);
+                assertFalse(plan.contains("Seq Scan"), plan);
+                assertTrue(plan.contains("Bitmap Index Scan on " + partition() + "_ts_idx"), plan);
+            }
+        }
+    }
+
+    @Test
+    void wideStatements_shouldReadOnlyTheRangeOfThePartition() {
+        Instant start = MONDAY.plusDays(3).atTime(10, 0).toInstant(ZoneOffset.UTC);
+        List<String> metrics = List.of("temperature", "humidity");
+        for (Set<Statistic> statistics : List.of(Set.of(Statistic.AVERAGE), Set.of(Statistic.MIN, Statistic.P95))) {
+            for (boolean sensors : new boolean[]{false, true}) {
+                // a day of a few sensors, or an hour of all of them
+                Instant end = start.plusSeconds(sensors ? 86_400 : 3600);
+                String plan = plan(WideReadingRepo.statement(statistics, sensors, metrics), (connection, ps) -> {
+                    ps.setObject(1, start.atOffset(ZoneOffset.UTC));
+                    ps.setObject(2, end.atOffset(ZoneOffset.UTC));
+                    if (sensors) {
+                        ps.setArray(3, connection.createArrayOf("integer", SENSOR_KEYS.toArray()));
+                    }
+                });
+                assertFalse(plan.contains("Seq Scan"), plan);
+                assertTrue(plan.contains(widePartition() + "_"), plan);
+            }
+        }
+    }
+
+    @Test
+    void rollupReads_shouldSeekThePrimaryKeys() {
+        List<LocalDate> days = List.of(MONDAY.minusDays(30), MONDAY.minusDays(29), MONDAY.minusDays(28));
+        for (boolean buckets : new boolean[]{false, true}) {
+            for (boolean sensors : new boolean[]{false, true}) {
+                String plan = plan(RollupRepo.statement(buckets, sensors), (connection, ps) -> {
+                    ps.setArray(1, connection.createArrayOf("date", days.stream().map(Date::valueOf).toArray()));
+                    ps.setArray(2, connection.createArrayOf("smallint", metricKeys().toArray()));
+                    if (sensors) {
+                        ps.setArray(3, connection.createArrayOf("integer", SENSOR_KEYS.toArray()));
+                    }
+                });
+                assertFalse(plan.contains("Seq Scan"), plan);
+                assertTrue(plan.contains("rollup_daily_pkey"), plan);
+            }
+        }
+
+        LocalDate day = MONDAY.minusDays(3);
+        String plan = plan(RollupRepo.DAILY_FROM_HOURLY, (connection, ps) -> {
+            ps.setObject(1, day.atStartOfDay().atOffset(ZoneOffset.UTC));
+            ps.setObject(2, day.plusDays(1).atStartOfDay().atOffset(ZoneOffset.UTC));
+            ps.setObject(3, day);
+        });
+        assertFalse(plan.contains("Seq Scan on rollup_hourly"), plan);
+        assertTrue(plan.contains("rollup_hourly_pkey"), plan);
+    }
+
+    /**
+     * The streamed fetch reads rolled-up days and raw runs in one union. The small
+     * {@code sensors} dictionary it joins for the order may be read whole; nothing else may.
+     */
+    @Test
+    void streamingUnion_shouldReadEveryBranchThroughAnIndex() {
+        Map<String, Short> metricKeys = new LinkedHashMap<>();
+        metricKeys.put("temperature", dictionary.metricKey("temperature"));
+        metricKeys.put("humidity", dictionary.metricKey("humidity"));
+        List<LocalDate> rolledUp = List.of(MONDAY.minusDays(3), MONDAY.minusDays(2), MONDAY.minusDays(1));
+        Instant start = MONDAY.plusDays(3).atTime(10, 0).toInstant(ZoneOffset.UTC);
+        for (boolean wide : new boolean[]{false, true}) {
+            for (Set<Statistic> statistics : List.of(Set.of(Statistic.AVERAGE), Set.of(Statistic.P95))) {
+                for (boolean sensors : new boolean[]{false, true}) {
+                    Instant end = start.plusSeconds(sensors ? 86_400 : 3600);
+                    StreamingAggregateRepo.Query query = StreamingAggregateRepo.query(statistics,
+                            sensors ? SENSOR_KEYS : null, metricKeys, rolledUp,
+                            List.of(new StreamingAggregateRepo.RawRange(start, end)), wide);
+                    String plan = plan(query.sql(), query::bind);
+                    for (String table : List.of(partition(), widePartition(), "rollup_daily")) {
+                        assertFalse(plan.contains("Seq Scan on " + table + " "), plan);
+                    }
+                    // an index of the raw partition, named after it
+                    assertTrue(plan.contains((wide ? widePartition() : partition()) + "_"), plan);
+                    assertTrue(plan.contains("rollup_daily_pkey"), plan);
+                }
+            }
+        }
+    }
+
+    /**
+     * Every page seeks the covering index to where the last one ended. Reading one sensor,
+     * PostgreSQL may still sort the rest of that sensor's readings when there are few.
+     */
+    @Test
+    void readingPages_shouldSeekTheCoveringIndex() {
+        Instant start = MONDAY.atStartOfDay().toInstant(ZoneOffset.UTC);
+        ReadingPageRepo.Position after = new ReadingPageRepo.Position(30, dictionary.metricKey("humidity"),
+                start.plusSeconds(3 * 86_400));
+        for (boolean sensor : new boolean[]{false, true}) {
+            for (boolean metrics : new boolean[]{false, true}) {
+                List<String> lines = jdbcTemplate.query(connection -> {
+                    PreparedStatement ps = connection.prepareStatement(
+                            "explain (costs off) " + ReadingPageRepo.statement(sensor, metrics));
+                    int i = 1;
+                    ps.setInt(i++, after.sensorKey());
+                    ps.setShort(i++, after.metricKey());
+                    ps.setObject(i++, after.ts().atOffset(ZoneOffset.UTC));
+                    ps.setObject(i++, start.plusSeconds(86_400).atOffset(ZoneOffset.UTC));
+                    // into the next, empty, partition, whose rows must be merged in order
+                    ps.setObject(i++, start.plusSeconds(10 * 86_400).atOffset(ZoneOffset.UTC));
+                    if (sensor) {
+                        ps.setInt(i++, after.sensorKey());
+                    }
+                    if (metrics) {
+                        ps.setArray(i++, connection.createArrayOf("integer", new Object[]{1, 3}));
+                    }
+                    ps.setInt(i, 1000);
+                    return ps;
+                }, (rs, row) -> rs.getString(1));
+                String plan = String.join("\n", lines);
+                assertFalse(plan.contains("Seq Scan on " + partition() + " "), plan);
+                assertTrue(plan.contains("Index Only Scan using " + partition() + "_sensor_key_metric_key_ts"), plan);
+                assertTrue(plan.contains("Index Cond: ((ROW(sensor_key, metric_key, ts) > ROW("), plan);
+                if (!sensor) {
+                    // sorting would read the rest of the fleet's readings for every page
+                    assertTrue(plan.contains("Merge Append"), plan);
+                    assertFalse(plan.lines().map(String::strip)
+                            .anyMatch(line -> line.equals("Sort") || line.endsWith("->  Sort")), plan);
+                }
+            }
+        }
+    }
+
+    private String partition() {
+        return "reading_values_p" + MONDAY.toString().replace("-", "");
+    }
+
+    private String widePartition() {
+        return "readings_p" + MONDAY.toString().replace("-", "");
+    }
+
+    private List<Short> metricKeys() {
+        return List.of(dictionary.metricKey("temperature"), dictionary.metricKey("humidity"));
+    }
+
+    private String explain(String sql, Instant start, Instant end, List<Integer> sensorKeys) {
+        return plan(sql, (connection, ps) -> {
+            ps.setObject(1, start.atOffset(ZoneOffset.UTC));
+            ps.setObject(2, end.atOffset(ZoneOffset.UTC));
+            ps.setArray(3, connection.createArrayOf("smallint", metricKeys().toArray()));
+            if (sensorKeys != null) {
+                ps.setArray(4, connection.createArrayOf("integer", sensorKeys.toArray()));
+            }
+        });
+    }
+
+    private String plan(String sql, Parameters parameters) {
+        List<String> lines = jdbcTemplate.query(connection -> {
+            PreparedStatement ps = connection.prepareStatement("explain (costs off) " + sql);
+            parameters.set(connection, ps);
+            return ps;
+        }, (rs, row) -> rs.getString(1));
+        return String.join("\n", lines);
+    }
+
+    private interface Parameters {
+        void set(Connection connection, PreparedStatement ps) throws SQLException;
+    }
+}
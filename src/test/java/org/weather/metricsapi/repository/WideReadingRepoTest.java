@@ -0,0 +1,113 @@
+package org.weather.metricsapi.repository;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.weather.metricsapi.dto.fetch.v1.Statistic;
+import org.weather.metricsapi.dto.update.v1.Metrics;
+import org.weather.metricsapi.model.ReadingValue;
+import org.weather.metricsapi.model.Snapshot;
+import org.weather.metricsapi.util.UuidV7;
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class WideReadingRepoTest {
+
+    private static final Instant TS = Instant.parse("2025-03-01T10:00:00Z");
+
+    @Autowired
+    private WideReadingRepo wideRepo;
+
+    @Autowired
+    private ReadingInsertRepo insertRepo;
+
+    @Autowired
+    private DictionaryRepo dictionary;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @AfterEach
+    void cleanUp() {
+        jdbcTemplate.update("delete from readings where sensor_key in (select id from sensors where name like 'wide-%')");
+        jdbcTemplate.update("delete from snapshots where sensor_id like 'wide-%'");
+        jdbcTemplate.update("delete from sensors where name like 'wide-%'");
+    }
+
+    @Test
+    void column_shouldMapMetricNamesToSnakeCase() {
+        assertEquals("temperature", WideReadingRepo.column("temperature"));
+        assertEquals("wind_direction", WideReadingRepo.column("windDirection"));
+        assertEquals("uv_index", WideReadingRepo.column("uvIndex"));
+        assertThrows(IllegalArgumentException.class, () -> WideReadingRepo.column("temperature; drop table readings"));
+    }
+
+    @Test
+    void aggregate_shouldCountOnlyMetricsThatWereSent() {
+        int a = dictionary.sensorKey("wide-a");
+        int b = dictionary.sensorKey("wide-b");
+        wideRepo.insert(List.of(
+                new WideReadingRepo.Row(a, TS, new Metrics(20.0, 50.0, 1000.0, null, null, null, null, null)),
+                new WideReadingRepo.Row(a, TS.plusSeconds(60), new Metrics(24.0, 60.0, null, null, null, null, null, null)),
+                new WideReadingRepo.Row(b, TS, new Metrics(10.0, 40.0, null, null, null, null, null, null))
+        ));
+
+        List<MetricAggregate> results = wideRepo.aggregate(Set.of(Statistic.SUM), List.of(a, b),
+                List.of("temperature", "pressure", "aqi"), TS, TS.plusSeconds(3600));
+
+        results = results.stream()
+                .sorted(Comparator.comparing(MetricAggregate::sensorKey).thenComparing(MetricAggregate::metric))
+                .toList();
+        assertEquals(List.of(
+                new MetricAggregate(a, "pressure", null, null, new BigDecimal("1000"), 1),
+                new MetricAggregate(a, "temperature", null, null, new BigDecimal("44"), 2),
+                new MetricAggregate(b, "temperature", null, null, new BigDecimal("10"), 1)
+        ), results);
+    }
+
+    @Test
+    void backfill_shouldPivotNarrowReadingsOnceAndSkipExistingOnes() {
+        int key = dictionary.sensorKey("wide-backfill");
+        for (int minute = 0; minute < 3; minute++) {
+            Snapshot snapshot = new Snapshot();
+            snapshot.setId(UuidV7.next());
+            snapshot.setSensorId("wide-backfill");
+            snapshot.setTs(TS.plusSeconds(60L * minute));
+            insertRepo.insertSnapshots(List.of(snapshot));
+            insertRepo.insertValues(List.of(
+                    value(snapshot, key, "temperature", 20.0 + minute),
+                    value(snapshot, key, "windSpeed", 5.0)));
+        }
+
+        assertEquals(3, wideRepo.backfill(TS, TS.plusSeconds(3600)));
+        assertEquals(0, wideRepo.backfill(TS, TS.plusSeconds(3600)));
+
+        Map<String, Object> row = jdbcTemplate.queryForMap(
+                "select temperature, wind_speed, humidity from readings where sensor_key = ? and ts = ?",
+                key, TS.plusSeconds(120).atOffset(java.time.ZoneOffset.UTC));
+        assertEquals(22.0, row.get("temperature"));
+        assertEquals(5.0, row.get("wind_speed"));
+        assertNull(row.get("humidity"));
+    }
+
+    private ReadingValue value(Snapshot snapshot, int sensorKey, String metric, double value) {
+        ReadingValue rv = new ReadingValue();
+        rv.setId(UuidV7.next());
+        rv.setSnapshotId(snapshot.getId());
+        rv.setSensorKey(sensorKey);
+        rv.setTs(snapshot.getTs());
+        rv.setMetricKey(dictionary.metricKey(metric));
+        rv.setValue(value);
+        return rv;
+    }
+}
@@ -0,0 +1,124 @@
+package org.weather.metricsapi.service.fetch.v1;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+import org.weather.metricsapi.config.FetchProperties;
+import org.weather.metricsapi.exception.QueryUnavailableException;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ChunkedQueryEngineTest {
+
+    private ChunkedQueryEngine engine;
+
+    @AfterEach
+    void tearDown() {
+        if (engine != null) {
+            engine.stop();
+        }
+    }
+
+    @Test
+    void plan_shouldSplitAtMonthBoundaries() {
+        assertEquals(List.of(
+                        range("2024-01-15", "2024-01-31"),
+                        range("2024-02-01", "2024-02-29"),
+                        range("2024-03-01", "2024-03-10")),
+                ChunkedQueryEngine.plan(LocalDate.parse("2024-01-15"), LocalDate.parse("2024-03-10"),
+                        FetchProperties.Chunk.MONTH));
+        assertEquals(List.of(range("2024-02-03", "2024-02-09")),
+                ChunkedQueryEngine.plan(LocalDate.parse("2024-02-03"), LocalDate.parse("2024-02-09"),
+                        FetchProperties.Chunk.MONTH));
+    }
+
+    @Test
+    void plan_shouldSplitIntoDays() {
+        assertEquals(List.of(
+                        range("2024-02-28", "2024-02-28"),
+                        range("2024-02-29", "2024-02-29"),
+                        range("2024-03-01", "2024-03-01")),
+                ChunkedQueryEngine.plan(LocalDate.parse("2024-02-28"), LocalDate.parse("2024-03-01"),
+                        FetchProperties.Chunk.DAY));
+    }
+
+    @Test
+    void run_shouldReturnEveryChunkInOrder() {
+        engine = start(2, Duration.ofSeconds(10));
+        List<ChunkedQueryEngine.DayRange> chunks = ChunkedQueryEngine.plan(
+                LocalDate.parse("2024-01-01"), LocalDate.parse("2024-01-20"), FetchProperties.Chunk.DAY);
+
+        List<Integer> days = engine.run(chunks, chunk -> List.of(chunk.first().getDayOfMonth()));
+
+        assertEquals(20, days.size());
+        for (int i = 0; i < days.size(); i++) {
+            assertEquals(i + 1, days.get(i));
+        }
+    }
+
+    @Test
+    void run_shouldCancelOutstandingChunksOnTimeout() throws InterruptedException {
+        engine = start(1, Duration.ofMillis(300));
+        AtomicInteger started = new AtomicInteger();
+        AtomicBoolean interrupted = new AtomicBoolean();
+        CountDownLatch finished = new CountDownLatch(1);
+        List<ChunkedQueryEngine.DayRange> chunks = ChunkedQueryEngine.plan(
+                LocalDate.parse("2024-01-01"), LocalDate.parse("2024-01-03"), FetchProperties.Chunk.DAY);
+
+        QueryUnavailableException e = assertThrows(QueryUnavailableException.class, () -> engine.run(chunks, chunk -> {
+            started.incrementAndGet();
+            try {
+                Thread.sleep(10_000);
+            } catch (InterruptedException ex) {
+                interrupted.set(true);
+            } finally {
+                finished.countDown();
+            }
+            return List.of();
+        }));
+
+        assertTrue(e.getMessage().contains("did not finish"));
+        assertTrue(finished.await(5, TimeUnit.SECONDS));
+        assertTrue(interrupted.get());
+        // the queued chunks were dropped, not run
+        Thread.sleep(100);
+        assertEquals(1, started.get());
+    }
+
+    @Test
+    void run_shouldRethrowChunkFailures() {
+        engine = start(2, Duration.ofSeconds(10));
+        List<ChunkedQueryEngine.DayRange> chunks = ChunkedQueryEngine.plan(
+                LocalDate.parse("2024-01-01"), LocalDate.parse("2024-01-03"), FetchProperties.Chunk.DAY);
+
+        IllegalStateException e = assertThrows(IllegalStateException.class, () -> engine.run(chunks, chunk -> {
+            throw new IllegalStateException("chunk " + chunk.first() + " failed");
+        }));
+        assertEquals("chunk 2024-01-01 failed", e.getMessage());
+    }
+
+    private static ChunkedQueryEngine start(int parallelism, Duration timeout) {
+        PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+        when(transactionManager.getTransaction(any())).thenReturn(new SimpleTransactionStatus());
+        ChunkedQueryEngine engine = new ChunkedQueryEngine(
+                new FetchProperties(366, FetchProperties.Chunk.DAY, parallelism, 100, timeout,
+                true, new FetchProperties.Cache(false, 0, Duration.ZERO),
+                new FetchProperties.HotWindow(false, 2, 2880, Duration.ofMinutes(1))), transactionManager);
+        engine.start();
+        return engine;
+    }
+
+    private static ChunkedQueryEngine.DayRange range(String first, String last) {
+        return new ChunkedQueryEngine.DayRange(LocalDate.parse(first), LocalDate.parse(last));
+    }
+}
@@ -0,0 +1,304 @@
+package org.weather.metricsapi.service.fetch.v1;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.weather.metricsapi.config.FetchProperties;
+import org.weather.metricsapi.config.RollupProperties;
+import org.weather.metricsapi.dto.fetch.v1.Statistic;
+import org.weather.metricsapi.repository.MetricAggregate;
+import java.math.BigDecimal;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class FetchCacheTest {
+
+    private static final Instant NOW = Instant.parse("2025-03-10T12:00:00Z");
+    private static final LocalDate TODAY = LocalDate.parse("2025-03-10");
+
+    private final Clock clock = mock(Clock.class);
+    private SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private FetchCache cache;
+
+    @BeforeEach
+    void setUp() {
+        when(clock.instant()).thenReturn(NOW);
+        cache = cache(10);
+    }
+
+    private FetchCache cache(int maxEntries) {
+        return cache(new FetchProperties.Cache(true, maxEntries, Duration.ofSeconds(30)));
+    }
+
+    private FetchCache cache(FetchProperties.Cache cacheProps) {
+        FetchProperties props = new FetchProperties(366, FetchProperties.Chunk.MONTH, 4, 200, Duration.ofSeconds(30),
+                true, cacheProps, new FetchProperties.HotWindow(false, 2, 2880, Duration.ofMinutes(1)));
+        RollupProperties rollups = new RollupProperties(false, Duration.ofMinutes(10), Duration.ofMinutes(5));
+        return new FetchCache(props, rollups, clock, registry);
+    }
+
+    private static FetchCache.Key key(List<String> sensors, LocalDate start, LocalDate end) {
+        return FetchCache.Key.of(sensors, List.of("temperature"), Set.of(Statistic.AVERAGE), start, end);
+    }
+
+    private static Supplier<List<MetricAggregate>> loader(AtomicInteger calls) {
+        return () -> List.of(new MetricAggregate(1, "temperature", null, null,
+                BigDecimal.valueOf(calls.incrementAndGet()), 1));
+    }
+
+    @Test
+    void get_shouldAnswerTheSameNormalizedQueryFromTheCache() {
+        AtomicInteger calls = new AtomicInteger();
+        LocalDate day = LocalDate.parse("2025-01-01");
+
+        List<MetricAggregate> first = cache.get(FetchCache.Key.of(List.of("b", "a"), List.of("humidity", "temperature"),
+                Set.of(Statistic.MIN, Statistic.MAX), day, day), loader(calls));
+        List<MetricAggregate> second = cache.get(FetchCache.Key.of(List.of("a", "b", "a"), List.of("temperature", "humidity"),
+                Set.of(Statistic.MAX, Statistic.MIN), day, day), loader(calls));
+        cache.get(FetchCache.Key.of(List.of("a", "b"), List.of("temperature", "humidity"),
+                Set.of(Statistic.MAX), day, day), loader(calls));
+
+        assertSame(first, second);
+        assertEquals(2, calls.get());
+        assertEquals(1, registry.get("weather.fetch.cache.requests").tag("result", "hit").counter().count());
+        assertEquals(2, registry.get("weather.fetch.cache.requests").tag("result", "miss").counter().count());
+        assertEquals(2, registry.get("weather.fetch.cache.size").gauge().value());
+    }
+
+    @Test
+    void written_shouldDropOnlyEntriesCoveringAWrittenSensorAndDay() {
+        AtomicInteger calls = new AtomicInteger();
+        LocalDate day = LocalDate.parse("2025-01-15");
+        FetchCache.Key sameSensor = key(List.of("a"), day.minusDays(3), day);
+        FetchCache.Key otherSensor = key(List.of("b"), day.minusDays(3), day);
+        FetchCache.Key otherDays = key(List.of("a"), day.minusDays(3), day.minusDays(1));
+        FetchCache.Key allSensors = key(null, day, day.plusDays(3));
+        for (FetchCache.Key key : List.of(sameSensor, otherSensor, otherDays, allSensors)) {
+            cache.get(key, loader(calls));
+        }
+
+        cache.written(Map.of(day, Set.of("a")));
+        for (FetchCache.Key key : List.of(sameSensor, otherSensor, otherDays, allSensors)) {
+            cache.get(key, loader(calls));
+        }
+
+        assertEquals(6, calls.get());
+        assertEquals(2, registry.get("weather.fetch.cache.evictions").tag("cause", "write").counter().count());
+    }
+
+    @Test
+    void written_shouldWaitForTheWritingTransactionToCommit() {
+        AtomicInteger calls = new AtomicInteger();
+        LocalDate day = LocalDate.parse("2025-01-15");
+        FetchCache.Key key = key(List.of("a"), day, day);
+        cache.get(key, loader(calls));
+
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            cache.written(List.of(day));
+            cache.get(key, loader(calls));
+            assertEquals(1, calls.get());
+
+            TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        cache.get(key, loader(calls));
+        assertEquals(2, calls.get());
+    }
+
+    @Test
+    void get_shouldNotStoreAResultThatRacedAWrite() {
+        AtomicInteger calls = new AtomicInteger();
+        LocalDate day = LocalDate.parse("2025-01-15");
+        FetchCache.Key key = key(List.of("a"), day.minusDays(1), day);
+
+        cache.get(key, () -> {
+            cache.written(Map.of(day, Set.of("b")));
+            return loader(calls).get();
+        });
+        cache.get(key, loader(calls));
+        cache.get(key, loader(calls));
+
+        assertEquals(2, calls.get());
+    }
+
+    @Test
+    void get_shouldExpireLiveRangesButKeepSettledOnes() {
+        AtomicInteger calls = new AtomicInteger();
+        FetchCache.Key live = key(null, TODAY.minusDays(6), TODAY);
+        FetchCache.Key settled = key(null, TODAY.minusDays(7), TODAY.minusDays(1));
+        cache.get(live, loader(calls));
+        cache.get(settled, loader(calls));
+
+        when(clock.instant()).thenReturn(NOW.plus(Duration.ofDays(30)));
+        cache.get(live, loader(calls));
+        cache.get(settled, loader(calls));
+
+        assertEquals(3, calls.get());
+        assertEquals(1, registry.get("weather.fetch.cache.evictions").tag("cause", "expired").counter().count());
+    }
+
+    @Test
+    void get_shouldEvictTheLeastRecentlyUsedEntryBeyondMaxEntries() {
+        registry = new SimpleMeterRegistry();
+        cache = cache(3);
+        AtomicInteger calls = new AtomicInteger();
+        LocalDate day = LocalDate.parse("2025-01-01");
+        FetchCache.Key a = key(List.of("a"), day, day);
+        FetchCache.Key b = key(List.of("b"), day, day);
+        FetchCache.Key c = key(List.of("c"), day, day);
+        FetchCache.Key d = key(List.of("d"), day, day);
+        cache.get(a, loader(calls));
+        cache.get(b, loader(calls));
+        cache.get(c, loader(calls));
+        cache.get(a, loader(calls));
+
+        cache.get(d, loader(calls));
+        cache.get(a, loader(calls));
+        cache.get(b, loader(calls));
+
+        assertEquals(5, calls.get());
+        assertEquals(3, cache.size());
+        assertEquals(2, registry.get("weather.fetch.cache.evictions").tag("cause", "size").counter().count());
+    }
+
+    @Test
+    void removedBefore_shouldDropEntriesStartingBeforeTheDay() {
+        AtomicInteger calls = new AtomicInteger();
+        FetchCache.Key old = key(null, LocalDate.parse("2024-01-01"), LocalDate.parse("2024-02-01"));
+        FetchCache.Key recent = key(null, LocalDate.parse("2024-03-01"), LocalDate.parse("2024-04-01"));
+        cache.get(old, loader(calls));
+        cache.get(recent, loader(calls));
+
+        cache.removedBefore(LocalDate.parse("2024-03-01"));
+        cache.get(old, loader(calls));
+        cache.get(recent, loader(calls));
+
+        assertEquals(3, calls.get());
+    }
+
+    @Test
+    void get_shouldLetIdenticalConcurrentQueriesShareOneRead() throws Exception {
+        cache = cache(new FetchProperties.Cache(false, 0, Duration.ZERO));
+        AtomicInteger calls = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        FetchCache.Key key = key(null, TODAY.minusDays(1), TODAY);
+        Supplier<List<MetricAggregate>> slow = () -> {
+            await(release);
+            return loader(calls).get();
+        };
+
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<List<MetricAggregate>>> results = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                results.add(pool.submit(() -> cache.get(key, slow)));
+            }
+            awaitCoalesced(7);
+            release.countDown();
+
+            for (Future<List<MetricAggregate>> result : results) {
+                assertSame(results.get(0).get(5, TimeUnit.SECONDS), result.get(5, TimeUnit.SECONDS));
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+        assertEquals(1, calls.get());
+        assertEquals(1, registry.get("weather.fetch.cache.requests").tag("result", "miss").counter().count());
+    }
+
+    @Test
+    void get_shouldPassTheRunningQuerysFailureToThoseWaitingForIt() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        FetchCache.Key key = key(null, TODAY, TODAY);
+        IllegalStateException failure = new IllegalStateException("boom");
+
+        ExecutorService pool = Executors.newFixedThreadPool(2);
+        try {
+            Future<List<MetricAggregate>> first = pool.submit(() -> cache.get(key, () -> {
+                await(release);
+                throw failure;
+            }));
+            awaitMisses(1);
+            Future<List<MetricAggregate>> second = pool.submit(() -> cache.get(key, List::of));
+            awaitCoalesced(1);
+            release.countDown();
+
+            assertSame(failure, assertThrows(ExecutionException.class, () -> first.get(5, TimeUnit.SECONDS)).getCause());
+            assertSame(failure, assertThrows(ExecutionException.class, () -> second.get(5, TimeUnit.SECONDS)).getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    void written_shouldDetachTheRunningQuerySoLaterQueriesReadAgain() throws Exception {
+        AtomicInteger calls = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        FetchCache.Key key = key(List.of("a"), TODAY.minusDays(1), TODAY);
+
+        ExecutorService pool = Executors.newSingleThreadExecutor();
+        try {
+            Future<List<MetricAggregate>> running = pool.submit(() -> cache.get(key, () -> {
+                await(release);
+                return loader(calls).get();
+            }));
+            awaitMisses(1);
+
+            cache.written(Map.of(TODAY, Set.of("a")));
+            List<MetricAggregate> after = cache.get(key, loader(calls));
+            release.countDown();
+
+            assertNotSame(after, running.get(5, TimeUnit.SECONDS));
+        } finally {
+            pool.shutdownNow();
+        }
+        assertEquals(2, calls.get());
+        assertEquals(0, registry.get("weather.fetch.cache.requests").tag("result", "coalesced").counter().count());
+    }
+
+    private void awaitCoalesced(int count) throws InterruptedException {
+        awaitCount("coalesced", count);
+    }
+
+    private void awaitMisses(int count) throws InterruptedException {
+        awaitCount("miss", count);
+    }
+
+    private void awaitCount(String result, int count) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (registry.get("weather.fetch.cache.requests").tag("result", result).counter().count() < count) {
+            assertTrue(System.nanoTime() < deadline, "timed out waiting for " + count + " " + result);
+            Thread.sleep(5);
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            assertTrue(latch.await(5, TimeUnit.SECONDS));
+        } catch (InterruptedException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -1,17 +1,43 @@
 package org.weather.metricsapi.service.fetch.v1;
 
-import jakarta.persistence.EntityManager;
-import jakarta.persistence.Tuple;
-import jakarta.persistence.TypedQuery;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.weather.metricsapi.config.FetchProperties;
+import org.weather.metricsapi.config.RollupProperties;
+import org.weather.metricsapi.config.StorageProperties;
 import org.weather.metricsapi.dto.fetch.v1.FetchRequest;
 import org.weather.metricsapi.dto.fetch.v1.FetchResponse;
+import org.weather.metricsapi.dto.fetch.v1.Statistic;
+import org.weather.metricsapi.dto.update.v1.ReadingRules;
+import org.weather.metricsapi.exception.QueryUnavailableException;
+import org.weather.metricsapi.repository.DictionaryRepo;
+import org.weather.metricsapi.repository.HotWindowRepo;
+import org.weather.metricsapi.repository.MetricAggregate;
+import org.weather.metricsapi.repository.NarrowReadingRepo;
+import org.weather.metricsapi.repository.RollupRepo;
+import org.weather.metricsapi.repository.StreamingAggregateRepo;
+import org.weather.metricsapi.repository.WideReadingRepo;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
 import java.time.*;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.*;
 import static org.mockito.Mockito.*;
@@ -20,17 +46,40 @@ import static org.mockito.Mockito.*;
 class FetchServiceTest {
 
     @Mock
-    private EntityManager entityManager;
+    private NarrowReadingRepo narrowRepo;
 
     @Mock
-    private TypedQuery<Tuple> query;
+    private DictionaryRepo dictionary;
 
     @Mock
-    private Tuple tuple;
+    private WideReadingRepo wideRepo;
 
+    @Mock
+    private RollupRepo rollupRepo;
+
+    @Mock
+    private StreamingAggregateRepo streamingRepo;
+
+    @Mock
+    private ChunkedQueryEngine engine;
+
+    @Mock
+    private HotWindowRepo hotWindowRepo;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private final Map<String, Integer> sensors = new HashMap<>();
+    private final Map<String, Integer> metrics = new HashMap<>();
     private Clock clock;
     private FetchService fetchService;
 
+    private static final RollupProperties ROLLUPS_OFF =
+            new RollupProperties(false, Duration.ofMinutes(10), Duration.ofMinutes(5));
+    private static final FetchProperties FETCH =
+            new FetchProperties(366, FetchProperties.Chunk.MONTH, 4, 200, Duration.ofSeconds(30),
+                    true, new FetchProperties.Cache(false, 0, Duration.ZERO),
+                    new FetchProperties.HotWindow(false, 2, 2880, Duration.ofMinutes(1)));
     private static final LocalDate TEST_DATE = LocalDate.of(2025, 1, 15);
     private static final Instant TEST_INSTANT = TEST_DATE.atStartOfDay(ZoneId.of("UTC")).toInstant();
 
@@ -38,11 +87,87 @@ class FetchServiceTest {
     void setUp() {
         clock = Clock.fixed(TEST_INSTANT, ZoneId.of("UTC"));
 
-        fetchService = new FetchService(entityManager, clock);
+        fetchService = new FetchService(narrowRepo, dictionary, wideRepo, rollupRepo, streamingRepo,
+                new StorageProperties(StorageProperties.Write.NARROW, StorageProperties.Layout.NARROW),
+                ROLLUPS_OFF, FETCH, engine, cache(FETCH), hotWindow(FETCH), clock);
+
+        lenient().when(dictionary.findSensorKeys(anyCollection())).thenAnswer(inv -> {
+            Map<String, Integer> keys = new HashMap<>();
+            inv.<Collection<String>>getArgument(0).forEach(name -> keys.put(name, sensorKey(name)));
+            return keys;
+        });
+        lenient().when(dictionary.findMetricKeys(anyCollection())).thenAnswer(inv -> {
+            Map<String, Short> keys = new HashMap<>();
+            inv.<Collection<String>>getArgument(0).forEach(name -> keys.put(name, metricKey(name)));
+            return keys;
+        });
+        lenient().when(dictionary.sensorName(anyInt())).thenAnswer(inv -> name(sensors, inv.getArgument(0)));
+        lenient().when(dictionary.metricName(anyShort())).thenAnswer(inv -> name(metrics, inv.getArgument(0)));
+
+        lenient().when(engine.read(any())).thenAnswer(inv -> inv.<Supplier<?>>getArgument(0).get());
+        lenient().when(narrowRepo.aggregate(any(), any(), any(), any(), any())).thenReturn(List.of());
+    }
+
+    private FetchCache cache(FetchProperties fetch) {
+        return new FetchCache(fetch, ROLLUPS_OFF, clock, new SimpleMeterRegistry());
+    }
+
+    private HotWindow hotWindow(FetchProperties fetch) {
+        return new HotWindow(hotWindowRepo, fetch,
+                new StorageProperties(StorageProperties.Write.NARROW, StorageProperties.Layout.NARROW),
+                transactionManager, clock, new SimpleMeterRegistry());
+    }
 
-        lenient().when(entityManager.createQuery(anyString(), eq(Tuple.class))).thenReturn(query);
-        lenient().when(query.setParameter(anyString(), any())).thenReturn(query);
-        lenient().when(query.getResultList()).thenReturn(List.of());
+    /**
+     * A service whose hot window holds a temperature of 20.0 on the day before
+     * {@code TEST_DATE} and of 25.0 on {@code TEST_DATE}, both for sensor-001.
+     */
+    private FetchService hotService() {
+        FetchProperties hot = new FetchProperties(366, FetchProperties.Chunk.MONTH, 4, 200, Duration.ofSeconds(30),
+                true, new FetchProperties.Cache(false, 0, Duration.ZERO),
+                new FetchProperties.HotWindow(true, 2, 2880, Duration.ofMinutes(1)));
+        doAnswer(inv -> {
+            Instant from = inv.getArgument(0);
+            HotWindowRepo.ReadingHandler handler = inv.getArgument(3);
+            double value = from.equals(TEST_INSTANT) ? 25.0 : 20.0;
+            handler.reading(sensorKey("sensor-001"), from.plusSeconds(3600), ReadingRules.index("temperature"), value);
+            return null;
+        }).when(hotWindowRepo).forEachReading(any(), any(), eq(false), any());
+        HotWindow window = hotWindow(hot);
+        assertEquals(2, window.refresh());
+        return new FetchService(narrowRepo, dictionary, wideRepo, rollupRepo, streamingRepo,
+                new StorageProperties(StorageProperties.Write.NARROW, StorageProperties.Layout.NARROW),
+                ROLLUPS_OFF, hot, engine, cache(hot), window, clock);
+    }
+
+    @Test
+    void query_shouldAnswerEquivalentRequestsFromTheCacheUntilACoveredWrite() {
+        FetchProperties cached = new FetchProperties(366, FetchProperties.Chunk.MONTH, 4, 200, Duration.ofSeconds(30),
+                true, new FetchProperties.Cache(true, 100, Duration.ofSeconds(30)), FETCH.hotWindow());
+        FetchCache cache = cache(cached);
+        FetchService cachedService = new FetchService(narrowRepo, dictionary, wideRepo, rollupRepo, streamingRepo,
+                new StorageProperties(StorageProperties.Write.NARROW, StorageProperties.Layout.NARROW),
+                ROLLUPS_OFF, cached, engine, cache, hotWindow(cached), clock);
+        FetchRequest request = new FetchRequest(
+                List.of("sensor-001", "sensor-002"), List.of("temperature", "humidity"), "max",
+                TEST_DATE.minusDays(7), TEST_DATE);
+        FetchRequest reordered = new FetchRequest(
+                List.of("sensor-002", "sensor-001"), List.of("humidity", "temperature"), "max",
+                TEST_DATE.minusDays(7), TEST_DATE);
+
+        narrowReturns(new MetricAggregate(sensorKey("sensor-001"), "temperature", null, BigDecimal.valueOf(30.5), null, 10));
+
+        FetchResponse first = cachedService.query(request);
+        FetchResponse second = cachedService.query(reordered);
+
+        assertEquals(first.results(), second.results());
+        assertEquals(List.of("sensor-002", "sensor-001"), second.query().sensorId());
+        verify(narrowRepo, times(1)).aggregate(any(), any(), any(), any(), any());
+
+        cache.written(Map.of(TEST_DATE.minusDays(1), Set.of("sensor-002")));
+        cachedService.query(request);
+
+        verify(narrowRepo, times(2)).aggregate(any(), any(), any(), any(), any());
     }
 
     @Test
@@ -55,11 +180,7 @@ class FetchServiceTest {
                 TEST_DATE
         );
 
-        when(tuple.get("sensorId", String.class)).thenReturn("sensor-001");
-        when(tuple.get("metric", String.class)).thenReturn("temperature");
-        when(tuple.get("value", Double.class)).thenReturn(25.5);
-        when(tuple.get("dataPoints")).thenReturn(10);
-        when(query.getResultList()).thenReturn(List.of(tuple));
+        narrowReturns(new MetricAggregate(sensorKey("sensor-001"), "temperature", null, null, new BigDecimal("255"), 10));
 
         FetchResponse response = fetchService.query(request);
 
@@ -97,7 +218,7 @@ class FetchServiceTest {
                 List.of("sensor-001"),
                 List.of("temperature"),
                 "average",
-                TEST_DATE.minusDays(32),
+                TEST_DATE.minusDays(366),
                 TEST_DATE
         );
 
@@ -105,7 +226,7 @@ class FetchServiceTest {
                 IllegalArgumentException.class,
                 () -> fetchService.query(tooLong)
         );
-        assertTrue(exception2.getMessage().contains("Date range must not exceed 31 days"));
+        assertTrue(exception2.getMessage().contains("Date range must not exceed 366 days"));
     }
 
     @Test
@@ -135,19 +256,9 @@ class FetchServiceTest {
                 TEST_DATE
         );
 
-        Tuple tuple1 = mock(Tuple.class);
-        when(tuple1.get("sensorId", String.class)).thenReturn("sensor-001");
-        when(tuple1.get("metric", String.class)).thenReturn("temperature");
-        when(tuple1.get("value", Double.class)).thenReturn(30.0);
-        when(tuple1.get("dataPoints")).thenReturn(5);
-
-        Tuple tuple2 = mock(Tuple.class);
-        when(tuple2.get("sensorId", String.class)).thenReturn("sensor-002");
-        when(tuple2.get("metric", String.class)).thenReturn("temperature");
-        when(tuple2.get("value", Double.class)).thenReturn(28.0);
-        when(tuple2.get("dataPoints")).thenReturn(5);
-
-        when(query.getResultList()).thenReturn(List.of(tuple1, tuple2));
+        narrowReturns(
+                new MetricAggregate(sensorKey("sensor-001"), "temperature", null, BigDecimal.valueOf(30.0), null, 5),
+                new MetricAggregate(sensorKey("sensor-002"), "temperature", null, BigDecimal.valueOf(28.0), null, 5));
 
         FetchResponse response = fetchService.query(request);
 
@@ -167,8 +278,6 @@ class FetchServiceTest {
                 null
         );
 
-        when(query.getResultList()).thenReturn(List.of());
-
         FetchResponse response = fetchService.query(request);
 
         assertNotNull(response);
@@ -186,11 +295,8 @@ class FetchServiceTest {
                 TEST_DATE
         );
 
-        when(tuple.get("sensorId", String.class)).thenReturn("sensor-001");
-        when(tuple.get("metric", String.class)).thenReturn("temperature");
-        when(tuple.get("value", Double.class)).thenReturn(100.0);
-        when(tuple.get("dataPoints")).thenReturn(10);
-        when(query.getResultList()).thenReturn(List.of(tuple));
+        when(narrowRepo.aggregate(any(), isNull(), any(), any(), any())).thenReturn(List.of(
+                new MetricAggregate(sensorKey("sensor-001"), "temperature", null, null, new BigDecimal("100"), 10)));
 
         FetchResponse response = fetchService.query(request);
 
@@ -209,11 +315,7 @@ class FetchServiceTest {
                 TEST_DATE
         );
 
-        when(tuple.get("sensorId", String.class)).thenReturn("sensor-001");
-        when(tuple.get("metric", String.class)).thenReturn("temperature");
-        when(tuple.get("value", Double.class)).thenReturn(18.5);
-        when(tuple.get("dataPoints")).thenReturn(10);
-        when(query.getResultList()).thenReturn(List.of(tuple));
+        narrowReturns(new MetricAggregate(sensorKey("sensor-001"), "temperature", BigDecimal.valueOf(18.5), null, null, 10));
 
         FetchResponse response = fetchService.query(request);
 
@@ -233,19 +335,9 @@ class FetchServiceTest {
                 TEST_DATE
         );
 
-        Tuple tuple1 = mock(Tuple.class);
-        when(tuple1.get("sensorId", String.class)).thenReturn("sensor-001");
-        when(tuple1.get("metric", String.class)).thenReturn("temperature");
-        when(tuple1.get("value", Double.class)).thenReturn(25.5);
-        when(tuple1.get("dataPoints")).thenReturn(10);
-
-        Tuple tuple2 = mock(Tuple.class);
-        when(tuple2.get("sensorId", String.class)).thenReturn("sensor-001");
-        when(tuple2.get("metric", String.class)).thenReturn("humidity");
-        when(tuple2.get("value", Double.class)).thenReturn(65.0);
-        when(tuple2.get("dataPoints")).thenReturn(10);
-
-        when(query.getResultList()).thenReturn(List.of(tuple1, tuple2));
+        narrowReturns(
+                new MetricAggregate(sensorKey("sensor-001"), "temperature", null, null, new BigDecimal("255"), 10),
+                new MetricAggregate(sensorKey("sensor-001"), "humidity", null, null, new BigDecimal("650"), 10));
 
         FetchResponse response = fetchService.query(request);
 
@@ -271,6 +363,38 @@ class FetchServiceTest {
         assertEquals(20, response.query().totalDataPoints());
     }
 
+    @Test
+    void query_shouldCountDataPointsBeyondTheIntRange() {
+        // each more than an int can hold
+        narrowReturns(
+                new MetricAggregate(sensorKey("sensor-001"), "temperature", null, null, BigDecimal.ONE, 3_000_000_000L),
+                new MetricAggregate(sensorKey("sensor-002"), "temperature", null, null, BigDecimal.ONE, 3_000_000_000L));
+        FetchRequest request = new FetchRequest(null, List.of("temperature"), "sum", TEST_DATE, TEST_DATE);
+
+        FetchResponse response = fetchService.query(request);
+
+        assertEquals(3_000_000_000L, response.results().get(0).metrics().get("temperature").dataPoints());
+        assertEquals(6_000_000_000L, response.query().totalDataPoints());
+    }
+
+    @Test
+    void query_shouldNotQueryWhenNoRequestedSensorIsKnown() {
+        when(dictionary.findSensorKeys(anyCollection())).thenReturn(Map.of());
+        FetchRequest request = new FetchRequest(
+                List.of("sensor-unknown"),
+                List.of("temperature"),
+                "average",
+                TEST_DATE,
+                TEST_DATE
+        );
+
+        FetchResponse response = fetchService.query(request);
+
+        assertTrue(response.results().isEmpty());
+        assertEquals(0, response.query().totalDataPoints());
+        verifyNoInteractions(narrowRepo);
+    }
+
     @Test
     void query_shouldHandleEmptyResults() {
         FetchRequest request = new FetchRequest(
@@ -281,8 +405,6 @@ class FetchServiceTest {
                 TEST_DATE
         );
 
-        when(query.getResultList()).thenReturn(List.of());
-
         FetchResponse response = fetchService.query(request);
 
         assertNotNull(response);
@@ -290,4 +412,299 @@ class FetchServiceTest {
         assertEquals(0, response.query().totalSensors());
         assertEquals(0, response.query().totalDataPoints());
     }
-}
\ No newline at end of file
+
+    @Test
+    void query_shouldReadWideLayoutWhenConfigured() {
+        FetchService wideService = new FetchService(narrowRepo, dictionary, wideRepo, rollupRepo, streamingRepo,
+                new StorageProperties(StorageProperties.Write.WIDE, StorageProperties.Layout.WIDE),
+                ROLLUPS_OFF, FETCH, engine, cache(FETCH), hotWindow(FETCH), clock);
+        FetchRequest request = new FetchRequest(
+                List.of("sensor-001"),
+                List.of("temperature", "humidity", "unknownMetric"),
+                "max",
+                TEST_DATE.minusDays(1),
+                TEST_DATE
+        );
+        int key = sensorKey("sensor-001");
+
+        when(wideRepo.aggregate(eq(Set.of(Statistic.MAX)), anyCollection(), eq(List.of("temperature", "humidity")), any(), any()))
+                .thenReturn(List.of(
+                        new MetricAggregate(key, "temperature", null, new BigDecimal("30.5"), null, 12),
+                        new MetricAggregate(key, "humidity", null, new BigDecimal("80.0"), null, 10)));
+
+        FetchResponse response = wideService.query(request);
+
+        assertEquals(1, response.results().size());
+        assertEquals(30.5, response.results().get(0).metrics().get("temperature").value());
+        assertEquals(22, response.query().totalDataPoints());
+        verifyNoInteractions(narrowRepo);
+    }
+
+    @Test
+    void query_shouldCombineRollupsWithRawDaysForAverage() {
+        FetchService rollupService = new FetchService(narrowRepo, dictionary, wideRepo, rollupRepo, streamingRepo,
+                new StorageProperties(StorageProperties.Write.NARROW, StorageProperties.Layout.NARROW),
+                new RollupProperties(true, Duration.ofMinutes(10), Duration.ofMinutes(5)), FETCH, engine, cache(FETCH), hotWindow(FETCH), clock);
+        FetchRequest request = new FetchRequest(
+                List.of("sensor-001"),
+                List.of("temperature"),
+                "average",
+                TEST_DATE.minusDays(2),
+                TEST_DATE
+        );
+        int key = sensorKey("sensor-001");
+
+        Set<LocalDate> rolledUp = Set.of(TEST_DATE.minusDays(2), TEST_DATE.minusDays(1));
+        when(rollupRepo.rolledUpDays(TEST_DATE.minusDays(2), TEST_DATE)).thenReturn(rolledUp);
+        when(rollupRepo.aggregate(anyCollection(), anyCollection(), eq(rolledUp), eq(false)))
+                .thenReturn(List.of(new MetricAggregate(key, "temperature", null, null, new BigDecimal("200"), 8)));
+        narrowReturns(new MetricAggregate(key, "temperature", null, null, new BigDecimal("55"), 2));
+
+        FetchResponse response = rollupService.query(request);
+
+        FetchResponse.MetricStatistic stat = response.results().get(0).metrics().get("temperature");
+        assertEquals(25.5, stat.value());
+        assertEquals(10, stat.dataPoints());
+        // only today is read raw
+        verify(narrowRepo).aggregate(any(), any(), any(), eq(TEST_INSTANT), eq(TEST_INSTANT.plus(Duration.ofDays(1))));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void query_shouldSplitLongRangesIntoMonthChunksAndCombineThem() {
+        FetchRequest request = new FetchRequest(
+                List.of("sensor-001"),
+                List.of("temperature"),
+                "average",
+                LocalDate.of(2024, 11, 20),
+                TEST_DATE
+        );
+
+        when(engine.run(anyList(), any())).thenAnswer(inv -> {
+            Function<ChunkedQueryEngine.DayRange, List<MetricAggregate>> chunkQuery = inv.getArgument(1);
+            return inv.<List<ChunkedQueryEngine.DayRange>>getArgument(0).stream()
+                    .flatMap(chunk -> chunkQuery.apply(chunk).stream())
+                    .toList();
+        });
+        int key = sensorKey("sensor-001");
+        when(narrowRepo.aggregate(any(), any(), any(), any(), any())).thenReturn(
+                List.of(new MetricAggregate(key, "temperature", null, null, new BigDecimal("30"), 1)),
+                List.of(new MetricAggregate(key, "temperature", null, null, new BigDecimal("60"), 2)),
+                List.of(new MetricAggregate(key, "temperature", null, null, new BigDecimal("0"), 3)));
+
+        FetchResponse response = fetchService.query(request);
+
+        ArgumentCaptor<List<ChunkedQueryEngine.DayRange>> chunks = ArgumentCaptor.forClass(List.class);
+        verify(engine).run(chunks.capture(), any());
+        assertEquals(List.of(
+                new ChunkedQueryEngine.DayRange(LocalDate.of(2024, 11, 20), LocalDate.of(2024, 11, 30)),
+                new ChunkedQueryEngine.DayRange(LocalDate.of(2024, 12, 1), LocalDate.of(2024, 12, 31)),
+                new ChunkedQueryEngine.DayRange(LocalDate.of(2025, 1, 1), TEST_DATE)), chunks.getValue());
+        FetchResponse.MetricStatistic stat = response.results().get(0).metrics().get("temperature");
+        assertEquals(15.0, stat.value());
+        assertEquals(6, stat.dataPoints());
+    }
+
+    @Test
+    void query_shouldComputeSeveralStatisticsFromOneScan() {
+        FetchRequest request = new FetchRequest(
+                List.of("sensor-001"),
+                List.of("temperature"),
+                null,
+                List.of("min", "max", "average", "count"),
+                TEST_DATE.minusDays(1),
+                TEST_DATE
+        );
+
+        narrowReturns(new MetricAggregate(sensorKey("sensor-001"), "temperature",
+                BigDecimal.valueOf(12.5), BigDecimal.valueOf(31.0), new BigDecimal("210.5"), 10));
+
+        FetchResponse response = fetchService.query(request);
+
+        FetchResponse.MetricStatistic stat = response.results().get(0).metrics().get("temperature");
+        assertNull(stat.statistic());
+        assertNull(stat.value());
+        assertEquals(List.of("min", "max", "average", "count"), List.copyOf(stat.values().keySet()));
+        assertEquals(12.5, stat.values().get("min"));
+        assertEquals(31.0, stat.values().get("max"));
+        assertEquals(21.05, stat.values().get("average"));
+        assertEquals(10L, stat.values().get("count"));
+        assertEquals(List.of("min", "max", "average", "count"), response.query().statistics());
+        verify(narrowRepo, times(1)).aggregate(any(), any(), any(), any(), any());
+    }
+
+    @Test
+    void query_shouldRejectStatisticAndStatisticsTogether() {
+        FetchRequest request = new FetchRequest(
+                List.of("sensor-001"),
+                List.of("temperature"),
+                "min",
+                List.of("max"),
+                TEST_DATE.minusDays(1),
+                TEST_DATE
+        );
+
+        IllegalArgumentException exception = assertThrows(
+                IllegalArgumentException.class,
+                () -> fetchService.query(request)
+        );
+        assertEquals("Specify either statistic or statistics, not both", exception.getMessage());
+    }
+
+    @Test
+    void query_shouldAnswerARangeWithinTheHotWindowFromMemory() {
+        FetchService service = hotService();
+        FetchRequest request = new FetchRequest(List.of("sensor-001"), List.of("temperature"), null,
+                List.of("max", "average", "count"), TEST_DATE.minusDays(1), TEST_DATE);
+
+        FetchResponse response = service.query(request);
+
+        Map<String, Number> values = response.results().get(0).metrics().get("temperature").values();
+        assertEquals(25.0, values.get("max"));
+        assertEquals(22.5, values.get("average"));
+        assertEquals(2L, values.get("count"));
+        verifyNoInteractions(engine);
+        verifyNoInteractions(narrowRepo);
+    }
+
+    @Test
+    void query_shouldReadOnlyDaysBeforeTheHotWindowFromTheDatabase() {
+        FetchService service = hotService();
+        FetchRequest request = new FetchRequest(List.of("sensor-001"), List.of("temperature"), "max",
+                TEST_DATE.minusDays(3), TEST_DATE);
+
+        narrowReturns(new MetricAggregate(sensorKey("sensor-001"), "temperature", null, BigDecimal.valueOf(30.5), null, 10));
+
+        FetchResponse response = service.query(request);
+
+        assertEquals(30.5, response.results().get(0).metrics().get("temperature").value());
+        assertEquals(12, response.results().get(0).metrics().get("temperature").dataPoints());
+        verify(narrowRepo).aggregate(any(), any(), any(),
+                eq(TEST_INSTANT.minus(Duration.ofDays(3))), eq(TEST_INSTANT.minus(Duration.ofDays(1))));
+    }
+
+    @Test
+    void query_shouldRankByTheOrderMetricThenReadOnlyTheTopSensors() {
+        FetchRequest request = new FetchRequest(null, List.of("temperature", "humidity"), "max", null,
+                TEST_DATE.minusDays(1), TEST_DATE, new FetchRequest.OrderBy("temperature", null, "desc"), 2);
+        narrowAnswers(
+                new MetricAggregate(sensorKey("sensor-a"), "temperature", null, BigDecimal.valueOf(25.0), null, 4),
+                new MetricAggregate(sensorKey("sensor-b"), "temperature", null, BigDecimal.valueOf(31.0), null, 4),
+                new MetricAggregate(sensorKey("sensor-c"), "temperature", null, BigDecimal.valueOf(18.0), null, 4),
+                new MetricAggregate(sensorKey("sensor-a"), "humidity", null, BigDecimal.valueOf(60.0), null, 4),
+                new MetricAggregate(sensorKey("sensor-b"), "humidity", null, BigDecimal.valueOf(40.0), null, 4),
+                new MetricAggregate(sensorKey("sensor-c"), "humidity", null, BigDecimal.valueOf(80.0), null, 4));
+
+        FetchResponse response = fetchService.query(request);
+
+        assertEquals(List.of("sensor-b", "sensor-a"),
+                response.results().stream().map(FetchResponse.SensorResult::sensorId).toList());
+        assertEquals(40.0, response.results().get(0).metrics().get("humidity").value());
+        assertEquals(2, response.query().totalSensors());
+        assertEquals(16, response.query().totalDataPoints());
+        assertEquals(new FetchRequest.OrderBy("temperature", "max", "desc"), response.query().orderBy());
+        assertEquals(2, response.query().limit());
+        // the whole fleet for the ranking metric, then every metric for the two kept sensors
+        verify(narrowRepo).aggregate(any(), isNull(),
+                argThat(keys -> List.copyOf(keys).equals(List.of(metricKey("temperature")))), any(), any());
+        verify(narrowRepo).aggregate(any(), argThat(keys -> keys != null
+                && Set.copyOf(keys).equals(Set.of(sensorKey("sensor-a"), sensorKey("sensor-b")))), any(), any(), any());
+    }
+
+    @Test
+    void query_shouldRankAscendingByNameOnTiesFromASingleRead() {
+        FetchRequest request = new FetchRequest(null, List.of("temperature"), null, List.of("average"),
+                TEST_DATE.minusDays(1), TEST_DATE, new FetchRequest.OrderBy("temperature", "average", "asc"), null);
+        narrowAnswers(
+                new MetricAggregate(sensorKey("sensor-c"), "temperature", null, null, BigDecimal.valueOf(40.0), 2),
+                new MetricAggregate(sensorKey("sensor-b"), "temperature", null, null, BigDecimal.valueOf(50.0), 2),
+                new MetricAggregate(sensorKey("sensor-a"), "temperature", null, null, BigDecimal.valueOf(40.0), 2));
+
+        FetchResponse response = fetchService.query(request);
+
+        assertEquals(List.of("sensor-a", "sensor-c", "sensor-b"),
+                response.results().stream().map(FetchResponse.SensorResult::sensorId).toList());
+        assertEquals(25.0, response.results().get(2).metrics().get("temperature").values().get("average"));
+        assertNull(response.query().limit());
+        verify(narrowRepo, times(1)).aggregate(any(), any(), any(), any(), any());
+    }
+
+    @Test
+    void query_shouldRejectInvalidRankings() {
+        LocalDate start = TEST_DATE.minusDays(1);
+        Map<FetchRequest, String> invalid = Map.of(
+                new FetchRequest(null, List.of("temperature"), "max", null, start, TEST_DATE, null, 10),
+                "limit requires orderBy",
+                new FetchRequest(null, List.of("temperature"), "max", null, start, TEST_DATE,
+                        new FetchRequest.OrderBy("humidity", null, null), 10),
+                "orderBy.metric must be one of the requested metrics",
+                new FetchRequest(null, List.of("temperature"), "max", null, start, TEST_DATE,
+                        new FetchRequest.OrderBy("temperature", "min", null), 10),
+                "orderBy.statistic must be one of the requested statistics",
+                new FetchRequest(null, List.of("temperature"), null, List.of("min", "max"), start, TEST_DATE,
+                        new FetchRequest.OrderBy("temperature", null, null), 10),
+                "orderBy.statistic is required when several statistics are requested");
+
+        invalid.forEach((request, message) -> assertEquals(message,
+                assertThrows(IllegalArgumentException.class, () -> fetchService.query(request)).getMessage()));
+        verifyNoInteractions(narrowRepo);
+    }
+
+    @Test
+    void stream_shouldGiveUpOnceTheFetchTimeoutHasPassed() throws IOException {
+        FetchProperties quick = new FetchProperties(366, FetchProperties.Chunk.MONTH, 4, 200, Duration.ofMillis(50),
+                true, new FetchProperties.Cache(false, 0, Duration.ZERO), FETCH.hotWindow());
+        FetchService service = new FetchService(narrowRepo, dictionary, wideRepo, rollupRepo, streamingRepo,
+                new StorageProperties(StorageProperties.Write.NARROW, StorageProperties.Layout.NARROW),
+                ROLLUPS_OFF, quick, engine, cache(quick), hotWindow(quick), clock);
+        // a slow client: rows keep coming after the statement itself has returned
+        doAnswer(inv -> {
+            Consumer<MetricAggregate> consumer = inv.getArgument(6);
+            consumer.accept(new MetricAggregate(sensorKey("sensor-001"), "temperature", null, null, BigDecimal.ONE, 1));
+            Thread.sleep(100);
+            consumer.accept(new MetricAggregate(sensorKey("sensor-002"), "temperature", null, null, BigDecimal.ONE, 1));
+            return null;
+        }).when(streamingRepo).stream(any(), any(), any(), any(), any(), anyBoolean(), any());
+        FetchRequest request = new FetchRequest(null, List.of("temperature"), "sum", TEST_DATE.minusDays(1), TEST_DATE);
+
+        try (JsonGenerator generator = new ObjectMapper().findAndRegisterModules().getFactory()
+                .createGenerator(new ByteArrayOutputStream())) {
+            assertThrows(QueryUnavailableException.class, () -> service.stream(request, generator));
+        }
+        verify(engine).read(any());
+    }
+
+    private void narrowReturns(MetricAggregate... partials) {
+        when(narrowRepo.aggregate(any(), any(), any(), any(), any())).thenReturn(List.of(partials));
+    }
+
+    /**
+     * Answers every read with those of {@code partials} whose sensor and metric it asked for.
+     */
+    private void narrowAnswers(MetricAggregate... partials) {
+        when(narrowRepo.aggregate(any(), any(), any(), any(), any())).thenAnswer(inv -> {
+            Collection<Integer> sensorKeys = inv.getArgument(1);
+            Collection<Short> metricKeys = inv.getArgument(2);
+            return Arrays.stream(partials)
+                    .filter(p -> sensorKeys == null || sensorKeys.contains(p.sensorKey()))
+                    .filter(p -> metricKeys.contains(metricKey(p.metric())))
+                    .toList();
+        });
+    }
+
+    private int sensorKey(String sensorId) {
+        return sensors.computeIfAbsent(sensorId, name -> sensors.size() + 1);
+    }
+
+    private short metricKey(String metric) {
+        return metrics.computeIfAbsent(metric, name -> metrics.size() + 1).shortValue();
+    }
+
+    private static String name(Map<String, Integer> dictionary, Number key) {
+        return dictionary.entrySet().stream()
+                .filter(e -> e.getValue() == key.intValue())
+                .map(Map.Entry::getKey)
+                .findFirst()
+                .orElseThrow();
+    }
+}
@@ -0,0 +1,220 @@
+package org.weather.metricsapi.service.fetch.v1;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.weather.metricsapi.config.FetchProperties;
+import org.weather.metricsapi.config.StorageProperties;
+import org.weather.metricsapi.dto.fetch.v1.Statistic;
+import org.weather.metricsapi.dto.update.v1.ReadingRules;
+import org.weather.metricsapi.repository.HotWindowRepo;
+import org.weather.metricsapi.repository.MetricAggregate;
+import org.weather.metricsapi.util.QuantileSketch;
+import java.math.BigDecimal;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class HotWindowTest {
+
+    private static final LocalDate TODAY = LocalDate.of(2025, 1, 15);
+    private static final LocalDate YESTERDAY = TODAY.minusDays(1);
+    private static final int TEMPERATURE = ReadingRules.index("temperature");
+    private static final int HUMIDITY = ReadingRules.index("humidity");
+    private static final Set<Statistic> ALL = EnumSet.of(Statistic.MIN, Statistic.MAX, Statistic.SUM, Statistic.P50);
+
+    @Mock
+    private HotWindowRepo repo;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private final Clock clock = mock(Clock.class);
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    /** What the database holds, as the repository hands it out. */
+    private final List<Object[]> stored = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        lenient().when(clock.getZone()).thenReturn(ZoneOffset.UTC);
+        now(TODAY.atTime(12, 0).toInstant(ZoneOffset.UTC));
+        lenient().doAnswer(inv -> {
+            Instant from = inv.getArgument(0);
+            Instant to = inv.getArgument(1);
+            HotWindowRepo.ReadingHandler handler = inv.getArgument(3);
+            for (Object[] reading : stored) {
+                Instant ts = (Instant) reading[1];
+                if (!ts.isBefore(from) && ts.isBefore(to)) {
+                    handler.reading((int) reading[0], ts, (int) reading[2], (double) reading[3]);
+                }
+            }
+            return null;
+        }).when(repo).forEachReading(any(), any(), eq(false), any());
+    }
+
+    private void now(Instant instant) {
+        lenient().when(clock.instant()).thenReturn(instant);
+    }
+
+    private HotWindow window(int maxReadingsPerDay) {
+        FetchProperties fetch = new FetchProperties(366, FetchProperties.Chunk.MONTH, 4, 200, Duration.ofSeconds(30),
+                true, new FetchProperties.Cache(false, 0, Duration.ZERO),
+                new FetchProperties.HotWindow(true, 2, maxReadingsPerDay, Duration.ofMinutes(1)));
+        return new HotWindow(repo, fetch,
+                new StorageProperties(StorageProperties.Write.NARROW, StorageProperties.Layout.NARROW),
+                transactionManager, clock, registry);
+    }
+
+    private void store(int sensorKey, Instant ts, int metric, double value) {
+        stored.add(new Object[]{sensorKey, ts, metric, value});
+    }
+
+    private static Double[] temperature(double value) {
+        Double[] values = new Double[ReadingRules.metrics().size()];
+        values[TEMPERATURE] = value;
+        return values;
+    }
+
+    @Test
+    void read_shouldAggregateLikeTheDatabase() {
+        Instant ts = YESTERDAY.atTime(8, 0).toInstant(ZoneOffset.UTC);
+        store(1, ts, TEMPERATURE, 21.5);
+        store(1, ts.plusSeconds(60), TEMPERATURE, -3.25);
+        store(1, ts.plusSeconds(60), HUMIDITY, 40.0);
+        store(1, ts.plusSeconds(120), TEMPERATURE, 0.1);
+        store(2, ts, TEMPERATURE, 1013.25);
+        HotWindow window = window(2880);
+        window.refresh();
+
+        HotWindow.Read read = window.read(List.of(1), List.of("temperature"), ALL, YESTERDAY, TODAY);
+
+        assertTrue(read.covers(YESTERDAY, TODAY));
+        assertEquals(1, read.partials().size());
+        MetricAggregate partial = read.partials().get(0);
+        assertEquals(1, partial.sensorKey());
+        assertEquals("temperature", partial.metric());
+        assertEquals(-3.25, partial.min().doubleValue());
+        assertEquals(21.5, partial.max().doubleValue());
+        // 0.1 as numeric, not as the double nearest to it
+        assertEquals(0, new BigDecimal("18.35").compareTo(partial.sum()));
+        assertEquals(3, partial.dataPoints());
+        assertEquals(QuantileSketch.of(QuantileSketch.key(0.1), 1).quantile(0.5), partial.sketch().quantile(0.5));
+    }
+
+    @Test
+    void record_shouldNotCountAReadingAlsoLoadedFromTheDatabase() {
+        Instant ts = TODAY.atTime(10, 0).toInstant(ZoneOffset.UTC);
+        store(1, ts, TEMPERATURE, 20.0);
+        HotWindow window = window(2880);
+
+        window.record(1, ts, temperature(20.0));
+        window.record(1, ts.plusSeconds(300), temperature(24.0));
+        window.refresh();
+
+        MetricAggregate partial = window.read(null, List.of("temperature"), ALL, TODAY, TODAY).partials().get(0);
+        assertEquals(2, partial.dataPoints());
+        assertEquals(0, new BigDecimal("44").compareTo(partial.sum()));
+    }
+
+    @Test
+    void read_shouldOnlyAnswerDaysOnceLoaded() {
+        HotWindow window = window(2880);
+        window.record(1, TODAY.atTime(10, 0).toInstant(ZoneOffset.UTC), temperature(20.0));
+
+        assertEquals(Set.of(), window.read(null, List.of("temperature"), ALL, TODAY, TODAY).days());
+
+        window.refresh();
+
+        HotWindow.Read read = window.read(null, List.of("temperature"), ALL, YESTERDAY.minusDays(5), TODAY);
+        assertEquals(Set.of(YESTERDAY, TODAY), read.days());
+        assertFalse(read.covers(YESTERDAY.minusDays(5), TODAY));
+    }
+
+    @Test
+    void read_shouldLeaveUnknownMetricsToTheDatabase() {
+        HotWindow window = window(2880);
+        window.refresh();
+
+        assertEquals(Set.of(), window.read(null, List.of("temperature", "dewPoint"), ALL, TODAY, TODAY).days());
+    }
+
+    @Test
+    void written_shouldMakeTheDayColdUntilLoadedAgain() {
+        HotWindow window = window(2880);
+        window.refresh();
+        store(1, YESTERDAY.atTime(23, 0).toInstant(ZoneOffset.UTC), TEMPERATURE, 30.0);
+
+        window.written(List.of(YESTERDAY));
+
+        assertEquals(Set.of(TODAY), window.read(null, List.of("temperature"), ALL, YESTERDAY, TODAY).days());
+        assertEquals(1, window.refresh());
+        HotWindow.Read read = window.read(null, List.of("temperature"), ALL, YESTERDAY, TODAY);
+        assertTrue(read.covers(YESTERDAY, TODAY));
+        assertEquals(30.0, read.partials().get(0).max().doubleValue());
+    }
+
+    @Test
+    void record_shouldTurnADayOverToTheDatabaseWhenASensorHasTooManyReadings() {
+        HotWindow window = window(4);
+        window.refresh();
+        Instant ts = TODAY.atTime(10, 0).toInstant(ZoneOffset.UTC);
+        for (int i = 0; i < 4; i++) {
+            window.record(1, ts.plusSeconds(i), temperature(i));
+        }
+        // the same timestamp again is not a new reading
+        window.record(1, ts, temperature(9));
+        assertEquals(Set.of(YESTERDAY, TODAY), window.read(null, List.of("temperature"), ALL, YESTERDAY, TODAY).days());
+
+        window.record(1, ts.plusSeconds(4), temperature(4));
+
+        assertEquals(Set.of(YESTERDAY), window.read(null, List.of("temperature"), ALL, YESTERDAY, TODAY).days());
+        assertEquals(1.0, registry.get("weather.fetch.hot.overflows").counter().count());
+        assertEquals(0, window.refresh());
+    }
+
+    @Test
+    void refresh_shouldDropDaysThatLeftTheWindow() {
+        HotWindow window = window(2880);
+        window.record(1, YESTERDAY.atTime(10, 0).toInstant(ZoneOffset.UTC), temperature(20.0));
+        window.record(1, TODAY.atTime(10, 0).toInstant(ZoneOffset.UTC), temperature(22.0));
+        window.refresh();
+
+        now(TODAY.plusDays(1).atTime(0, 5).toInstant(ZoneOffset.UTC));
+        assertEquals(1, window.refresh());
+
+        HotWindow.Read read = window.read(null, List.of("temperature"), ALL, YESTERDAY, TODAY.plusDays(1));
+        assertEquals(Set.of(TODAY, TODAY.plusDays(1)), read.days());
+        assertEquals(1, read.partials().get(0).dataPoints());
+        assertEquals(22.0, read.partials().get(0).max().doubleValue());
+        // tomorrow's readings reuse the slot that held yesterday's
+        window.record(1, TODAY.plusDays(1).atTime(0, 1).toInstant(ZoneOffset.UTC), temperature(25.0));
+        assertEquals(2, window.read(null, List.of("temperature"), ALL, TODAY, TODAY.plusDays(1))
+                .partials().get(0).dataPoints());
+    }
+
+    @Test
+    void record_shouldIgnoreReadingsOutsideTheWindow() {
+        HotWindow window = window(2880);
+        window.refresh();
+
+        window.record(1, YESTERDAY.minusDays(1).atTime(10, 0).toInstant(ZoneOffset.UTC), temperature(20.0));
+
+        assertEquals(List.of(), window.read(null, List.of("temperature"), ALL, YESTERDAY.minusDays(1), TODAY).partials());
+    }
+}
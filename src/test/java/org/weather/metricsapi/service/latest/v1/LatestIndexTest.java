@@ -0,0 +1,150 @@
+package org.weather.metricsapi.service.latest.v1;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.weather.metricsapi.config.LatestProperties;
+import org.weather.metricsapi.config.StorageProperties;
+import org.weather.metricsapi.repository.LatestRepo;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verifyNoInteractions;
+
+class LatestIndexTest {
+
+    private static final Instant NOW = Instant.parse("2025-03-10T12:00:00Z");
+    private static final int TEMPERATURE = LatestIndex.position("temperature");
+    private static final int HUMIDITY = LatestIndex.position("humidity");
+    private static final int PRESSURE = LatestIndex.position("pressure");
+
+    private final LatestRepo repo = mock(LatestRepo.class);
+
+    private LatestIndex index(Duration lookback) {
+        return new LatestIndex(repo, new LatestProperties(lookback),
+                new StorageProperties(StorageProperties.Write.NARROW, StorageProperties.Layout.NARROW),
+                Clock.fixed(NOW, ZoneOffset.UTC), new SimpleMeterRegistry());
+    }
+
+    private static Double[] values(Double temperature, Double humidity, Double pressure) {
+        return new Double[]{temperature, humidity, pressure, null, null, null, null, null};
+    }
+
+    @Test
+    void position_shouldFollowTheMetricOrderAndRejectUnknownMetrics() {
+        assertEquals(0, TEMPERATURE);
+        assertEquals(2, PRESSURE);
+        assertEquals(-1, LatestIndex.position("snowfall"));
+    }
+
+    @Test
+    void record_shouldKeepTheNewestReadingOfEachMetric() {
+        LatestIndex index = index(Duration.ZERO);
+        index.record("s1", NOW, values(20.0, 50.0, 1000.0));
+        index.record("s1", NOW.plusSeconds(60), values(21.0, 55.0, null));
+        // committed later, read earlier: must not replace the newer values
+        index.record("s1", NOW.minusSeconds(60), values(19.0, 45.0, 990.0));
+
+        LatestIndex.Readings readings = index.get("s1");
+        assertEquals(NOW.plusSeconds(60), readings.ts(TEMPERATURE));
+        assertEquals(21.0, readings.value(TEMPERATURE));
+        assertEquals(55.0, readings.value(HUMIDITY));
+        assertEquals(NOW, readings.ts(PRESSURE));
+        assertEquals(1000.0, readings.value(PRESSURE));
+        assertNull(index.get("s2"));
+    }
+
+    @Test
+    void record_shouldLeaveReadingsAlreadyHandedOutUnchanged() {
+        LatestIndex index = index(Duration.ZERO);
+        index.record("s1", NOW, values(20.0, 50.0, null));
+        LatestIndex.Readings before = index.get("s1");
+
+        index.record("s1", NOW.plusSeconds(60), values(21.0, 55.0, null));
+
+        assertEquals(20.0, before.value(TEMPERATURE));
+        assertEquals(21.0, index.get("s1").value(TEMPERATURE));
+    }
+
+    @Test
+    void record_shouldKeepTheNewestReadingWhateverOrderConcurrentWritesLandIn() throws Exception {
+        LatestIndex index = index(Duration.ZERO);
+        int writers = 8;
+        int perWriter = 2_000;
+        ExecutorService pool = Executors.newFixedThreadPool(writers);
+        CountDownLatch go = new CountDownLatch(1);
+        try {
+            List<Future<?>> done = new ArrayList<>();
+            for (int w = 0; w < writers; w++) {
+                int writer = w;
+                done.add(pool.submit(() -> {
+                    go.await();
+                    for (int i = 0; i < perWriter; i++) {
+                        int n = i * writers + writer;
+                        index.record("s" + (n % 10), NOW.plusMillis(n), values((double) n, null, null));
+                    }
+                    return null;
+                }));
+            }
+            go.countDown();
+            for (Future<?> future : done) {
+                future.get();
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+
+        int last = writers * perWriter - 1;
+        for (int sensor = 0; sensor < 10; sensor++) {
+            int newest = last - ((last - sensor) % 10);
+            assertEquals(newest, index.get("s" + sensor).value(TEMPERATURE));
+            assertNull(index.get("s" + sensor).ts(HUMIDITY));
+        }
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void start_shouldLoadReadingsWithinTheLookback() {
+        doAnswer(inv -> {
+            Consumer<LatestRepo.Latest> action = inv.getArgument(2);
+            action.accept(new LatestRepo.Latest("s1", "temperature", NOW.minusSeconds(60), 20.0));
+            action.accept(new LatestRepo.Latest("s1", "pressure", NOW.minusSeconds(120), 1000.0));
+            action.accept(new LatestRepo.Latest("s2", "humidity", NOW.minusSeconds(30), 40.0));
+            return null;
+        }).when(repo).forEachLatest(eq(NOW.minus(Duration.ofDays(7))), eq(false), any(Consumer.class));
+        LatestIndex index = index(Duration.ofDays(7));
+        // a write committing while the index loads
+        index.record("s1", NOW, values(22.0, null, null));
+
+        index.start();
+
+        assertEquals(2, index.size());
+        assertEquals(22.0, index.get("s1").value(TEMPERATURE));
+        assertEquals(1000.0, index.get("s1").value(PRESSURE));
+        assertNull(index.get("s1").ts(HUMIDITY));
+        assertEquals(40.0, index.get("s2").value(HUMIDITY));
+    }
+
+    @Test
+    void start_shouldNotReadTheDatabaseWithoutALookback() {
+        LatestIndex index = index(Duration.ZERO);
+
+        index.start();
+
+        assertTrue(index.isRunning());
+        assertEquals(0, index.size());
+        verifyNoInteractions(repo);
+    }
+}
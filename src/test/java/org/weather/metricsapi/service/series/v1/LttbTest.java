@@ -0,0 +1,63 @@
+package org.weather.metricsapi.service.series.v1;
+
+import org.junit.jupiter.api.Test;
+import org.weather.metricsapi.dto.series.v1.SeriesResponse;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import static org.junit.jupiter.api.Assertions.*;
+
+class LttbTest {
+
+    private static final Instant START = Instant.parse("2024-01-01T00:00:00Z");
+
+    @Test
+    void keepsShortSeriesUnchanged() {
+        List<SeriesResponse.Point> points = series(new Double[]{1.0, null, 3.0});
+
+        assertSame(points, Lttb.downsample(points, 3));
+    }
+
+    @Test
+    void keepsEndpointsAndExtremes() {
+        Double[] values = new Double[1000];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = Math.sin(i / 50.0);
+        }
+        values[123] = 10.0;
+        values[777] = -10.0;
+        List<SeriesResponse.Point> points = series(values);
+
+        List<SeriesResponse.Point> sampled = Lttb.downsample(points, 40);
+
+        assertEquals(40, sampled.size());
+        assertEquals(points.get(0), sampled.get(0));
+        assertEquals(points.get(999), sampled.get(39));
+        assertTrue(sampled.contains(points.get(123)));
+        assertTrue(sampled.contains(points.get(777)));
+        for (int i = 1; i < sampled.size(); i++) {
+            assertTrue(sampled.get(i).ts().isAfter(sampled.get(i - 1).ts()));
+        }
+    }
+
+    @Test
+    void dropsEmptyBucketsWhenDownsampling() {
+        Double[] values = new Double[100];
+        for (int i = 0; i < values.length; i += 2) {
+            values[i] = (double) i;
+        }
+
+        List<SeriesResponse.Point> sampled = Lttb.downsample(series(values), 10);
+
+        assertEquals(10, sampled.size());
+        assertTrue(sampled.stream().allMatch(point -> point.value() != null));
+    }
+
+    private static List<SeriesResponse.Point> series(Double[] values) {
+        List<SeriesResponse.Point> points = new ArrayList<>(values.length);
+        for (int i = 0; i < values.length; i++) {
+            points.add(new SeriesResponse.Point(START.plusSeconds(60L * i), values[i], values[i] != null ? 1L : 0L));
+        }
+        return points;
+    }
+}
@@ -0,0 +1,128 @@
+package org.weather.metricsapi.service.series.v1;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.weather.metricsapi.config.StorageProperties;
+import org.weather.metricsapi.dto.series.v1.SeriesRequest;
+import org.weather.metricsapi.dto.series.v1.SeriesResponse;
+import org.weather.metricsapi.repository.DictionaryRepo;
+import org.weather.metricsapi.repository.SeriesRepo;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class SeriesServiceTest {
+
+    @Mock
+    private SeriesRepo seriesRepo;
+
+    @Mock
+    private DictionaryRepo dictionary;
+
+    private SeriesService seriesService;
+
+    private static final LocalDate START = LocalDate.of(2025, 1, 1);
+    private static final LocalDate END = LocalDate.of(2025, 1, 31);
+
+    @BeforeEach
+    void setUp() {
+        seriesService = new SeriesService(seriesRepo, dictionary,
+                new StorageProperties(StorageProperties.Write.NARROW, StorageProperties.Layout.NARROW),
+                Clock.fixed(Instant.parse("2025-02-01T00:00:00Z"), ZoneOffset.UTC));
+    }
+
+    @Test
+    void query_shouldDownsampleEachSeriesWithoutFillingGaps() {
+        when(dictionary.findSensorKeys(List.of("sensor-b", "sensor-a"))).thenReturn(Map.of("sensor-a", 1, "sensor-b", 2));
+        when(dictionary.findMetricKeys(List.of("temperature"))).thenReturn(Map.of("temperature", (short) 1));
+        when(dictionary.sensorName(1)).thenReturn("sensor-a");
+        when(dictionary.sensorName(2)).thenReturn("sensor-b");
+        when(dictionary.metricName((short) 1)).thenReturn("temperature");
+        // sensor-b sorts first by key here, but last by name
+        doAnswer(invocation -> {
+            SeriesRepo.BucketHandler handler = invocation.getArgument(8);
+            Instant start = START.atStartOfDay(ZoneOffset.UTC).toInstant();
+            for (int sensorKey : new int[] {2, 1}) {
+                for (int minute = 0; minute < 100; minute++) {
+                    handler.bucket(new SeriesRepo.Bucket(sensorKey, (short) 1,
+                            start.plus(minute * 7L, ChronoUnit.MINUTES), (double) (minute % 10), 2));
+                }
+            }
+            return null;
+        }).when(seriesRepo).buckets(any(), any(), any(), any(), any(), any(), anyBoolean(), anyBoolean(), any());
+
+        SeriesResponse response = seriesService.query(new SeriesRequest(List.of("sensor-b", "sensor-a"),
+                List.of("temperature"), "average", "1m", START, END, 10));
+
+        verify(seriesRepo).buckets(any(), any(), any(), any(), any(), any(), eq(false), eq(false), any());
+        assertEquals(List.of("sensor-a", "sensor-b"),
+                response.series().stream().map(SeriesResponse.Series::sensorId).toList());
+        for (SeriesResponse.Series series : response.series()) {
+            assertEquals(31 * 1440, series.buckets());
+            assertEquals(200L, series.dataPoints());
+            assertEquals(10, series.points().size());
+        }
+        assertEquals(400L, response.query().totalDataPoints());
+    }
+
+    @Test
+    void query_shouldRequireSensorsToDownsampleLongRanges() {
+        SeriesRequest request = new SeriesRequest(null, List.of("temperature"), "average", "1m", START, END, 100);
+
+        IllegalArgumentException ex = assertThrows(IllegalArgumentException.class,
+                () -> seriesService.query(request));
+
+        assertTrue(ex.getMessage().contains("requires sensorId"));
+        verifyNoInteractions(seriesRepo);
+    }
+
+    @Test
+    void query_shouldRejectRequestsOverTheBucketLimit() {
+        Map<String, Integer> sensors = new LinkedHashMap<>();
+        for (int i = 0; i < 23; i++) {
+            sensors.put("sensor-" + i, i);
+        }
+        when(dictionary.findSensorKeys(any())).thenReturn(sensors);
+        when(dictionary.findMetricKeys(List.of("temperature"))).thenReturn(Map.of("temperature", (short) 1));
+        SeriesRequest request = new SeriesRequest(List.copyOf(sensors.keySet()), List.of("temperature"),
+                "average", "1m", START, END, 100);
+
+        IllegalArgumentException ex = assertThrows(IllegalArgumentException.class,
+                () -> seriesService.query(request));
+
+        assertTrue(ex.getMessage().contains("more than " + SeriesService.MAX_REQUEST_BUCKETS + " buckets"));
+        verifyNoInteractions(seriesRepo);
+    }
+
+    @Test
+    void query_shouldStopReadingOnceAnUnfilteredRequestPassesTheBucketLimit() {
+        when(dictionary.findMetricKeys(List.of("temperature"))).thenReturn(Map.of("temperature", (short) 1));
+        lenient().when(dictionary.sensorName(anyInt())).thenAnswer(invocation -> "sensor-" + invocation.getArgument(0));
+        lenient().when(dictionary.metricName((short) 1)).thenReturn("temperature");
+        doAnswer(invocation -> {
+            SeriesRepo.BucketHandler handler = invocation.getArgument(8);
+            Instant start = START.atStartOfDay(ZoneOffset.UTC).toInstant();
+            for (int sensorKey = 0; ; sensorKey++) {
+                for (int hour = 0; hour < 24; hour++) {
+                    handler.bucket(new SeriesRepo.Bucket(sensorKey, (short) 1,
+                            start.plus(hour, ChronoUnit.HOURS), 1.0, 1));
+                }
+            }
+        }).when(seriesRepo).buckets(any(), any(), any(), any(), any(), any(), anyBoolean(), eq(true), any());
+
+        assertThrows(IllegalArgumentException.class, () -> seriesService.query(
+                new SeriesRequest(null, List.of("temperature"), "count", "1h", START, START, null)));
+    }
+}
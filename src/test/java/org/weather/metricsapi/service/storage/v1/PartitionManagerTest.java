@@ -0,0 +1,182 @@
+package org.weather.metricsapi.service.storage.v1;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.weather.metricsapi.config.PartitionProperties;
+import org.weather.metricsapi.repository.DictionaryRepo;
+import org.weather.metricsapi.repository.PartitionRepo;
+import org.weather.metricsapi.repository.PartitionRepo.Partition;
+import org.weather.metricsapi.repository.RollupRepo;
+import org.weather.metricsapi.service.fetch.v1.FetchCache;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.UUID;
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class PartitionManagerTest {
+
+    // long before any real data, so retention here never touches it
+    private static final Instant OLD = Instant.parse("1999-06-16T12:00:00Z");
+    private static final Instant OLD_WEEK = Instant.parse("1999-06-14T00:00:00Z");
+
+    @Autowired
+    private PartitionManager partitionManager;
+
+    @Autowired
+    private PartitionRepo repo;
+
+    @Autowired
+    private RollupRepo rollups;
+
+    @Autowired
+    private FetchCache fetchCache;
+
+    @Autowired
+    private DictionaryRepo dictionary;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @AfterEach
+    void cleanUp() {
+        for (String table : List.of("reading_values", "readings", "snapshots")) {
+            jdbcTemplate.update("delete from " + table + "_default where ts < '2000-01-01'");
+            for (Partition partition : repo.partitions(table)) {
+                if (partition.to().isBefore(Instant.parse("2000-01-01T00:00:00Z"))) {
+                    repo.detach(table, partition.name());
+                    repo.drop(partition.name());
+                }
+            }
+        }
+        jdbcTemplate.execute("drop table if exists reading_values_p19990614, readings_p19990614, snapshots_p19990614");
+        rollups.deleteBefore(LocalDate.of(2000, 1, 1));
+    }
+
+    @Test
+    void startup_shouldCreateCurrentAndUpcomingPartitions() {
+        Instant week = partitionManager.unitStart(Instant.now());
+        for (String table : List.of("snapshots", "reading_values", "readings")) {
+            List<Partition> partitions = repo.partitions(table);
+            for (int i = 0; i <= 4; i++) {
+                Instant start = week.plus(Duration.ofDays(7L * i));
+                assertTrue(partitions.stream().anyMatch(p -> p.from().equals(start)),
+                        table + " has no partition starting " + start);
+            }
+        }
+    }
+
+    @Test
+    void maintain_shouldMoveRowsOutOfDefaultPartitions() {
+        insertReading(OLD);
+        assertEquals(2, count("reading_values_default"));
+
+        partitionManager.maintain();
+
+        assertEquals(0, count("reading_values_default"));
+        assertEquals(0, count("snapshots_default"));
+        assertEquals(1, count("snapshots_p19990614"));
+        assertEquals(2, count("reading_values_p19990614"));
+        assertTrue(repo.partitions("readings").stream()
+                .anyMatch(p -> p.from().equals(OLD_WEEK) && p.to().equals(OLD_WEEK.plus(Duration.ofDays(7)))));
+    }
+
+    @Test
+    void maintain_shouldDropExpiredPartitions() {
+        insertReading(OLD);
+        rollups.rollUp(LocalDate.of(1999, 6, 16), false);
+        PartitionManager manager = manager(PartitionProperties.Expired.DROP);
+
+        manager.maintain();
+
+        for (String table : List.of("snapshots", "reading_values", "readings")) {
+            assertFalse(repo.exists(table + "_p19990614"), table + " partition should be dropped");
+        }
+        assertEquals(0, jdbcTemplate.queryForObject(
+                "select count(*) from snapshots where ts < '2000-01-01'", Integer.class));
+        assertEquals(0, jdbcTemplate.queryForObject(
+                "select count(*) from rollup_daily where day < '2000-01-01'", Integer.class));
+    }
+
+    @Test
+    void maintain_shouldDetachExpiredPartitionsForArchiving() {
+        insertReading(OLD);
+        PartitionManager manager = manager(PartitionProperties.Expired.DETACH);
+
+        manager.maintain();
+
+        assertEquals(2, count("reading_values_p19990614"));
+        assertEquals(0, jdbcTemplate.queryForObject(
+                "select count(*) from reading_values where ts < '2000-01-01'", Integer.class));
+        assertEquals(0, jdbcTemplate.queryForObject(
+                "select count(*) from pg_constraint where conrelid = 'reading_values_p19990614'::regclass "
+                        + "and contype = 'f'", Integer.class));
+    }
+
+    @Test
+    void fetchRange_shouldScanOnlyMatchingPartitions() {
+        Instant week = partitionManager.unitStart(Instant.now());
+        String plan = String.join("\n", jdbcTemplate.queryForList(
+                "explain select sensor_key, metric_key, avg(value), count(id) from reading_values "
+                        + "where ts >= ? and ts < ? group by sensor_key, metric_key",
+                String.class, week.atOffset(ZoneOffset.UTC), week.plus(Duration.ofDays(3)).atOffset(ZoneOffset.UTC)));
+
+        String partition = "reading_values_p" + week.atZone(ZoneOffset.UTC).toLocalDate().toString().replace("-", "");
+        assertTrue(plan.contains(partition), plan);
+        assertEquals(1, plan.split("reading_values_p", -1).length - 1, plan);
+        assertFalse(plan.contains("reading_values_default"), plan);
+    }
+
+    @Test
+    void gaps_shouldReturnUncoveredParts() {
+        Instant t0 = Instant.parse("2025-01-06T00:00:00Z");
+        List<Partition> existing = List.of(
+                new Partition("a", t0.plus(Duration.ofDays(1)), t0.plus(Duration.ofDays(2))),
+                new Partition("b", t0.plus(Duration.ofDays(4)), t0.plus(Duration.ofDays(9))));
+
+        List<Partition> gaps = PartitionManager.gaps(existing, t0, t0.plus(Duration.ofDays(7)));
+
+        assertEquals(List.of(
+                new Partition(null, t0, t0.plus(Duration.ofDays(1))),
+                new Partition(null, t0.plus(Duration.ofDays(2)), t0.plus(Duration.ofDays(4)))), gaps);
+        assertTrue(PartitionManager.gaps(existing, t0.plus(Duration.ofDays(4)), t0.plus(Duration.ofDays(9))).isEmpty());
+    }
+
+    private PartitionManager manager(PartitionProperties.Expired expired) {
+        PartitionProperties props = new PartitionProperties(true, PartitionProperties.Interval.WEEK, 0,
+                Duration.ofDays(30), expired, Duration.ofHours(1));
+        Clock clock = Clock.fixed(Instant.parse("1999-08-02T00:00:00Z"), ZoneOffset.UTC);
+        return new PartitionManager(repo, rollups, fetchCache, props, transactionManager, clock);
+    }
+
+    private void insertReading(Instant ts) {
+        UUID snapshot = UUID.randomUUID();
+        int sensorKey = dictionary.sensorKey("partition-test");
+        jdbcTemplate.update("insert into snapshots (id, sensor_id, ts) values (?, 'partition-test', ?)",
+                snapshot, ts.atOffset(ZoneOffset.UTC));
+        for (String metric : List.of("temperature", "humidity")) {
+            jdbcTemplate.update("insert into reading_values (id, snapshot_id, sensor_key, ts, metric_key, value) "
+                            + "values (?, ?, ?, ?, ?, 20)",
+                    UUID.randomUUID(), snapshot, sensorKey, ts.atOffset(ZoneOffset.UTC), dictionary.metricKey(metric));
+        }
+        jdbcTemplate.update("insert into readings (sensor_key, ts, temperature) values (?, ?, 20)",
+                sensorKey, ts.atOffset(ZoneOffset.UTC));
+    }
+
+    private int count(String table) {
+        return jdbcTemplate.queryForObject("select count(*) from " + table, Integer.class);
+    }
+}
@@ -0,0 +1,476 @@
+package org.weather.metricsapi.service.storage.v1;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.weather.metricsapi.config.FetchProperties;
+import org.weather.metricsapi.config.RollupProperties;
+import org.weather.metricsapi.config.StorageProperties;
+import org.weather.metricsapi.dto.fetch.v1.FetchRequest;
+import org.weather.metricsapi.dto.fetch.v1.FetchResponse;
+import org.weather.metricsapi.dto.update.v1.Metrics;
+import org.weather.metricsapi.dto.update.v1.ReadingRules;
+import org.weather.metricsapi.dto.update.v1.UpdateRequest;
+import org.weather.metricsapi.model.ReadingValue;
+import org.weather.metricsapi.model.Snapshot;
+import org.weather.metricsapi.repository.DictionaryRepo;
+import org.weather.metricsapi.repository.HotWindowRepo;
+import org.weather.metricsapi.repository.NarrowReadingRepo;
+import org.weather.metricsapi.repository.ReadingInsertRepo;
+import org.weather.metricsapi.repository.RollupRepo;
+import org.weather.metricsapi.repository.StreamingAggregateRepo;
+import org.weather.metricsapi.repository.WideReadingRepo;
+import org.weather.metricsapi.service.fetch.v1.ChunkedQueryEngine;
+import org.weather.metricsapi.service.fetch.v1.FetchCache;
+import org.weather.metricsapi.service.fetch.v1.FetchService;
+import org.weather.metricsapi.service.fetch.v1.HotWindow;
+import org.weather.metricsapi.service.update.v1.PendingUpdate;
+import org.weather.metricsapi.service.update.v1.UpdateService;
+import org.weather.metricsapi.util.QuantileSketch;
+import org.weather.metricsapi.util.UuidV7;
+import javax.sql.DataSource;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.sql.Connection;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Rollup-assisted fetches must return exactly what the raw path returns. The property test
+ * writes random readings into a few weeks of 2003, rolls up a random set of days and compares
+ * both paths, buffered, streamed, read in parallel day chunks and with the last days in the
+ * hot window, on random queries; a failure prints the seed and query
+ * to reproduce it.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+class RollupAggregatorTest {
+
+    private static final LocalDate FIRST_DAY = LocalDate.of(2003, 3, 1);
+    private static final int DAYS = 24;
+    private static final List<String> SENSORS = List.of("rollup-a", "rollup-b", "rollup-c");
+    private static final List<String> STATISTICS = List.of("min", "max", "sum", "average", "count", "median", "p90", "p99");
+    private static final long SEED = 20030301L;
+    private static final FetchProperties MONTH_CHUNKS =
+            new FetchProperties(366, FetchProperties.Chunk.MONTH, 4, 200, Duration.ofSeconds(30),
+                    true, new FetchProperties.Cache(false, 0, Duration.ZERO),
+                    new FetchProperties.HotWindow(false, 2, 2880, Duration.ofMinutes(1)));
+    private static final FetchProperties DAY_CHUNKS =
+            new FetchProperties(366, FetchProperties.Chunk.DAY, 4, 200, Duration.ofSeconds(30),
+                    true, new FetchProperties.Cache(false, 0, Duration.ZERO),
+                    new FetchProperties.HotWindow(false, 2, 2880, Duration.ofMinutes(1)));
+    // the last ten days of the data, so random ranges fall before, inside and across it
+    private static final FetchProperties HOT_DAYS =
+            new FetchProperties(366, FetchProperties.Chunk.MONTH, 4, 200, Duration.ofSeconds(30),
+                    true, new FetchProperties.Cache(false, 0, Duration.ZERO),
+                    new FetchProperties.HotWindow(true, 10, 2880, Duration.ofMinutes(1)));
+
+    @Autowired
+    private RollupRepo rollups;
+
+    @Autowired
+    private FetchCache fetchCache;
+
+    @Autowired
+    private HotWindow hotWindow;
+
+    @Autowired
+    private HotWindowRepo hotWindowRepo;
+
+    @Autowired
+    private ReadingInsertRepo insertRepo;
+
+    @Autowired
+    private WideReadingRepo wideRepo;
+
+    @Autowired
+    private StreamingAggregateRepo streamingRepo;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private DictionaryRepo dictionary;
+
+    @Autowired
+    private NarrowReadingRepo narrowRepo;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private UpdateService updateService;
+
+    private TransactionTemplate tx;
+    private ChunkedQueryEngine engine;
+
+    @BeforeEach
+    void setUp() {
+        tx = new TransactionTemplate(transactionManager);
+        engine = new ChunkedQueryEngine(DAY_CHUNKS, transactionManager);
+        engine.start();
+        cleanUp();
+    }
+
+    @AfterEach
+    void stopEngine() {
+        engine.stop();
+    }
+
+    @AfterEach
+    void cleanUp() {
+        jdbcTemplate.update("delete from readings where sensor_key in (select id from sensors where name like 'rollup-%')");
+        jdbcTemplate.update("delete from snapshots where sensor_id like 'rollup-%'");
+        jdbcTemplate.update("delete from rollup_hourly where bucket >= '2003-01-01' and bucket < '2004-01-01'");
+        jdbcTemplate.update("delete from rollup_daily where day >= '2003-01-01' and day < '2004-01-01'");
+        jdbcTemplate.update("delete from rollup_days where day >= '2003-01-01' and day < '2004-01-01'");
+    }
+
+    @Test
+    void query_shouldMatchRawPathForRandomRangesAndRollupCoverage() throws IOException {
+        Random random = new Random(SEED);
+        writeRandomReadings(random, FIRST_DAY, DAYS);
+
+        for (boolean wide : List.of(false, true)) {
+            StorageProperties storage = wide
+                    ? new StorageProperties(StorageProperties.Write.DUAL, StorageProperties.Layout.WIDE)
+                    : new StorageProperties(StorageProperties.Write.DUAL, StorageProperties.Layout.NARROW);
+            FetchService raw = fetchService(storage, false);
+            FetchService rolledUp = fetchService(storage, true);
+            FetchService chunked = new FetchService(narrowRepo, dictionary, wideRepo, rollups, streamingRepo,
+                    storage, new RollupProperties(true, Duration.ofMinutes(10), Duration.ofMinutes(5)),
+                    DAY_CHUNKS, engine, fetchCache, hotWindow, Clock.fixed(FIRST_DAY.atStartOfDay(ZoneOffset.UTC).toInstant(), ZoneOffset.UTC));
+            HotWindow window = new HotWindow(hotWindowRepo, HOT_DAYS, storage, transactionManager,
+                    Clock.fixed(FIRST_DAY.plusDays(DAYS - 1).atStartOfDay(ZoneOffset.UTC).toInstant(), ZoneOffset.UTC),
+                    new SimpleMeterRegistry());
+            assertEquals(10, window.refresh());
+            FetchService hot = new FetchService(narrowRepo, dictionary, wideRepo, rollups, streamingRepo,
+                    storage, new RollupProperties(true, Duration.ofMinutes(10), Duration.ofMinutes(5)),
+                    MONTH_CHUNKS, engine, fetchCache, window, Clock.fixed(FIRST_DAY.atStartOfDay(ZoneOffset.UTC).toInstant(), ZoneOffset.UTC));
+
+            for (int round = 0; round < 4; round++) {
+                // a different random set of sealed days each round, including none and all
+                jdbcTemplate.update("update rollup_days set rolled_at = null where day >= '2003-01-01' and day < '2004-01-01'");
+                double share = round / 3.0;
+                for (int d = 0; d < DAYS; d++) {
+                    LocalDate day = FIRST_DAY.plusDays(d);
+                    if (random.nextDouble() < share) {
+                        tx.executeWithoutResult(status -> rollups.rollUp(day, wide));
+                    }
+                }
+
+                for (int trial = 0; trial < 50; trial++) {
+                    FetchRequest request = randomRequest(random);
+                    String context = "seed=" + SEED + ", wide=" + wide + ", round=" + round + ", request=" + request;
+                    FetchResponse expected = raw.query(request);
+                    assertEquals(expected, rolledUp.query(request), context);
+                    assertEquals(expected, chunked.query(request), "day chunks, " + context);
+                    assertEquals(expected, hot.query(request), "hot window, " + context);
+                    assertEquals(objectMapper.readTree(objectMapper.writeValueAsString(expected)),
+                            objectMapper.readTree(stream(rolledUp, request)), "streamed, " + context);
+                }
+            }
+        }
+    }
+
+    @Test
+    void percentiles_shouldBeWithinDocumentedAccuracyOfExactValues() {
+        Random random = new Random(SEED);
+        writeRandomReadings(random, FIRST_DAY, DAYS);
+        for (int d = 0; d < DAYS; d += 2) {
+            LocalDate day = FIRST_DAY.plusDays(d);
+            tx.executeWithoutResult(status -> rollups.rollUp(day, false));
+        }
+        FetchService service = fetchService(
+                new StorageProperties(StorageProperties.Write.DUAL, StorageProperties.Layout.NARROW), true);
+        LocalDate end = FIRST_DAY.plusDays(DAYS - 1);
+        List<String> metrics = ReadingRules.metrics().stream().map(ReadingRules.MetricRule::metric).toList();
+
+        var response = service.query(new FetchRequest(SENSORS, metrics, null, List.of("p50", "p90", "p99"),
+                FIRST_DAY, end));
+
+        int checked = 0;
+        for (var sensor : response.results()) {
+            for (var stat : sensor.metrics().values()) {
+                for (String percentile : List.of("p50", "p90", "p99")) {
+                    double q = Integer.parseInt(percentile.substring(1)) / 100.0;
+                    double exact = jdbcTemplate.queryForObject(
+                            "select percentile_disc(?) within group (order by value) from reading_values "
+                                    + "where sensor_key = ? and metric_key = ? and ts >= ? and ts < ?",
+                            Double.class, q, dictionary.sensorKey(sensor.sensorId()), dictionary.metricKey(stat.metric()),
+                            FIRST_DAY.atStartOfDay(ZoneOffset.UTC).toOffsetDateTime(),
+                            end.plusDays(1).atStartOfDay(ZoneOffset.UTC).toOffsetDateTime());
+                    double estimate = stat.values().get(percentile).doubleValue();
+                    assertEquals(exact, estimate, Math.abs(exact) * QuantileSketch.ACCURACY * (1 + 1e-9) + 1e-9,
+                            sensor.sensorId() + " " + stat.metric() + " " + percentile);
+                    checked++;
+                }
+            }
+        }
+        assertEquals(SENSORS.size() * metrics.size() * 3, checked);
+    }
+
+    @Test
+    void lateWrites_shouldReopenTheirDayUntilRolledUpAgain() throws Exception {
+        Random random = new Random(SEED);
+        writeRandomReadings(random, FIRST_DAY, 3);
+        StorageProperties storage = new StorageProperties(StorageProperties.Write.DUAL, StorageProperties.Layout.NARROW);
+        RollupAggregator aggregator = new RollupAggregator(rollups,
+                new RollupProperties(true, Duration.ofMinutes(10), Duration.ofMinutes(5)), storage,
+                transactionManager, Clock.fixed(Instant.parse("2003-03-04T00:20:00Z"), ZoneOffset.UTC));
+        rollups.register(FIRST_DAY, FIRST_DAY.plusDays(2));
+
+        aggregator.aggregate();
+        assertEquals(Set.of(FIRST_DAY, FIRST_DAY.plusDays(1), FIRST_DAY.plusDays(2)),
+                rollups.rolledUpDays(FIRST_DAY, FIRST_DAY.plusDays(2)));
+
+        // as bulk import does: write into a rolled-up day and reopen it in the same transaction
+        try (Connection connection = dataSource.getConnection()) {
+            connection.setAutoCommit(false);
+            writeReading(connection, "rollup-a", FIRST_DAY.plusDays(1).atTime(12, 0, 1).toInstant(ZoneOffset.UTC), 5000.25);
+            rollups.invalidate(connection, List.of(FIRST_DAY.plusDays(1)));
+            connection.commit();
+        }
+        assertEquals(Set.of(FIRST_DAY, FIRST_DAY.plusDays(2)), rollups.rolledUpDays(FIRST_DAY, FIRST_DAY.plusDays(2)));
+
+        FetchRequest request = new FetchRequest(List.of("rollup-a"), List.of("temperature"), "max",
+                FIRST_DAY, FIRST_DAY.plusDays(2));
+        assertEquals(5000.25, fetchService(storage, true).query(request)
+                .results().get(0).metrics().get("temperature").value());
+
+        assertEquals(1, aggregator.aggregate());
+        assertEquals(fetchService(storage, false).query(request), fetchService(storage, true).query(request));
+    }
+
+    @Test
+    void lateIngest_shouldReopenItsDayUntilRolledUpAgain() {
+        Random random = new Random(SEED);
+        writeRandomReadings(random, FIRST_DAY, 3);
+        StorageProperties storage = new StorageProperties(StorageProperties.Write.DUAL, StorageProperties.Layout.NARROW);
+        RollupAggregator aggregator = new RollupAggregator(rollups,
+                new RollupProperties(true, Duration.ofMinutes(10), Duration.ofMinutes(5)), storage,
+                transactionManager, Clock.fixed(Instant.parse("2003-03-04T00:20:00Z"), ZoneOffset.UTC));
+        rollups.register(FIRST_DAY, FIRST_DAY.plusDays(2));
+        aggregator.aggregate();
+
+        // stamped on arrival, written long after the day was rolled up, as a backed-up buffer would
+        Metrics metrics = new Metrics(5000.25, 50.0, null, null, null, null, null, null);
+        updateService.ingestAll(List.of(new PendingUpdate(FIRST_DAY.plusDays(1).atTime(12, 0, 1).toInstant(ZoneOffset.UTC),
+                new UpdateRequest("rollup-a", metrics))));
+
+        assertEquals(Set.of(FIRST_DAY, FIRST_DAY.plusDays(2)), rollups.rolledUpDays(FIRST_DAY, FIRST_DAY.plusDays(2)));
+        FetchRequest request = new FetchRequest(List.of("rollup-a"), List.of("temperature"), "max",
+                FIRST_DAY, FIRST_DAY.plusDays(2));
+        assertEquals(fetchService(storage, false).query(request), fetchService(storage, true).query(request));
+        assertEquals(5000.25, fetchService(storage, true).query(request)
+                .results().get(0).metrics().get("temperature").value());
+
+        assertEquals(1, aggregator.aggregate());
+        assertEquals(fetchService(storage, false).query(request), fetchService(storage, true).query(request));
+    }
+
+    @Test
+    void wideBackfill_shouldReopenTheDaysItWroteInto() throws Exception {
+        Random random = new Random(SEED);
+        writeRandomReadings(random, FIRST_DAY, 3);
+        StorageProperties storage = new StorageProperties(StorageProperties.Write.DUAL, StorageProperties.Layout.WIDE);
+        RollupAggregator aggregator = new RollupAggregator(rollups,
+                new RollupProperties(true, Duration.ofMinutes(10), Duration.ofMinutes(5)), storage,
+                transactionManager, Clock.fixed(Instant.parse("2003-03-04T00:20:00Z"), ZoneOffset.UTC));
+        rollups.register(FIRST_DAY, FIRST_DAY.plusDays(2));
+        aggregator.aggregate();
+
+        // as an instance still writing only the narrow layout does, after the day was rolled up from the wide one
+        try (Connection connection = dataSource.getConnection()) {
+            writeReading(connection, "rollup-a", FIRST_DAY.plusDays(1).atTime(12, 0, 1).toInstant(ZoneOffset.UTC), 5000.25);
+        }
+        new WideBackfillService(wideRepo, rollups, storage, transactionManager, fetchCache, hotWindow)
+                .backfill(FIRST_DAY, FIRST_DAY.plusDays(2));
+
+        assertEquals(Set.of(FIRST_DAY, FIRST_DAY.plusDays(2)), rollups.rolledUpDays(FIRST_DAY, FIRST_DAY.plusDays(2)));
+        FetchRequest request = new FetchRequest(List.of("rollup-a"), List.of("temperature"), "max",
+                FIRST_DAY, FIRST_DAY.plusDays(2));
+        assertEquals(5000.25, fetchService(storage, true).query(request)
+                .results().get(0).metrics().get("temperature").value());
+
+        assertEquals(1, aggregator.aggregate());
+        assertEquals(fetchService(storage, false).query(request), fetchService(storage, true).query(request));
+    }
+
+    @Test
+    void aggregate_shouldLeaveDaysThatHaveNotSettled() {
+        StorageProperties storage = new StorageProperties(StorageProperties.Write.NARROW, StorageProperties.Layout.NARROW);
+        RollupAggregator aggregator = new RollupAggregator(rollups,
+                new RollupProperties(true, Duration.ofMinutes(10), Duration.ofMinutes(5)), storage,
+                transactionManager, Clock.fixed(Instant.parse("2003-03-03T00:05:00Z"), ZoneOffset.UTC));
+        rollups.register(FIRST_DAY, FIRST_DAY.plusDays(2));
+
+        aggregator.aggregate();
+
+        // 2 March ended five minutes ago, within the ten minute settle time
+        assertEquals(Set.of(FIRST_DAY), rollups.rolledUpDays(FIRST_DAY, FIRST_DAY.plusDays(2)));
+    }
+
+    private String stream(FetchService service, FetchRequest request) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(out)) {
+            tx.executeWithoutResult(status -> {
+                try {
+                    service.stream(request, generator);
+                } catch (IOException e) {
+                    throw new IllegalStateException(e);
+                }
+            });
+        }
+        return out.toString();
+    }
+
+        private FetchService fetchService(StorageProperties storage, boolean useRollups) {
+        return new FetchService(narrowRepo, dictionary, wideRepo, rollups, streamingRepo, storage,
+                new RollupProperties(useRollups, Duration.ofMinutes(10), Duration.ofMinutes(5)), MONTH_CHUNKS, engine, fetchCache, hotWindow,
+                Clock.fixed(FIRST_DAY.atStartOfDay(ZoneOffset.UTC).toInstant(), ZoneOffset.UTC));
+    }
+
+    private FetchRequest randomRequest(Random random) {
+        List<String> metrics = new ArrayList<>();
+        for (ReadingRules.MetricRule rule : ReadingRules.metrics()) {
+            if (random.nextInt(3) == 0) {
+                metrics.add(rule.metric());
+            }
+        }
+        if (metrics.isEmpty()) {
+            metrics.add("temperature");
+        }
+        List<String> sensors = null;
+        if (random.nextBoolean()) {
+            sensors = new ArrayList<>();
+            for (String sensor : SENSORS) {
+                if (random.nextBoolean()) {
+                    sensors.add(sensor);
+                }
+            }
+            sensors.add(SENSORS.get(random.nextInt(SENSORS.size())));
+        }
+        // ranges may start before and end after the data
+        LocalDate start = FIRST_DAY.plusDays(random.nextInt(DAYS + 4) - 2);
+        LocalDate end = start.plusDays(random.nextInt(Math.min(31, DAYS + 2)));
+        if (random.nextBoolean()) {
+            return new FetchRequest(sensors, metrics, STATISTICS.get(random.nextInt(STATISTICS.size())), start, end);
+        }
+        List<String> statistics = new ArrayList<>(STATISTICS);
+        Collections.shuffle(statistics, random);
+        return new FetchRequest(sensors, metrics, null, statistics.subList(0, random.nextInt(STATISTICS.size()) + 1),
+                start, end);
+    }
+
+    /**
+     * Writes readings in both layouts: a random number per sensor and day, at random seconds
+     * (midnight included), with random metrics sent and values of varying precision.
+     */
+    private void writeRandomReadings(Random random, LocalDate firstDay, int days) {
+        List<Snapshot> snapshots = new ArrayList<>();
+        List<ReadingValue> values = new ArrayList<>();
+        List<WideReadingRepo.Row> rows = new ArrayList<>();
+        for (String sensor : SENSORS) {
+            int sensorKey = dictionary.sensorKey(sensor);
+            for (int d = 0; d < days; d++) {
+                Instant dayStart = firstDay.plusDays(d).atStartOfDay(ZoneOffset.UTC).toInstant();
+                Set<Integer> seconds = new HashSet<>();
+                int readings = random.nextInt(4) == 0 ? 0 : random.nextInt(12) + 1;
+                if (random.nextBoolean()) {
+                    seconds.add(0);
+                }
+                while (seconds.size() < readings) {
+                    seconds.add(random.nextInt(86_400));
+                }
+                for (int second : seconds) {
+                    Instant ts = dayStart.plusSeconds(second);
+                    Double[] metrics = new Double[ReadingRules.metrics().size()];
+                    for (int m = 0; m < metrics.length; m++) {
+                        if (m < 2 || random.nextBoolean()) {
+                            metrics[m] = randomValue(random);
+                        }
+                    }
+                    Snapshot snapshot = new Snapshot();
+                    snapshot.setId(UuidV7.next());
+                    snapshot.setSensorId(sensor);
+                    snapshot.setTs(ts);
+                    snapshots.add(snapshot);
+                    for (int m = 0; m < metrics.length; m++) {
+                        if (metrics[m] != null) {
+                            values.add(value(snapshot, sensorKey, ReadingRules.metrics().get(m).metric(), metrics[m]));
+                        }
+                    }
+                    rows.add(new WideReadingRepo.Row(sensorKey, ts, ReadingRules.toMetrics(metrics)));
+                }
+            }
+        }
+        insertRepo.insertSnapshots(snapshots);
+        insertRepo.insertValues(values);
+        wideRepo.insert(rows);
+    }
+
+    private static double randomValue(Random random) {
+        return switch (random.nextInt(3)) {
+            case 0 -> random.nextInt(2000) / 10.0 - 50;
+            case 1 -> random.nextDouble() * 1000;
+            default -> Math.scalb(random.nextDouble(), random.nextInt(40) - 20);
+        };
+    }
+
+    private ReadingValue value(Snapshot snapshot, int sensorKey, String metric, double v) {
+        ReadingValue value = new ReadingValue();
+        value.setId(UuidV7.next());
+        value.setSnapshotId(snapshot.getId());
+        value.setSensorKey(sensorKey);
+        value.setTs(snapshot.getTs());
+        value.setMetricKey(dictionary.metricKey(metric));
+        value.setValue(v);
+        return value;
+    }
+
+    private void writeReading(Connection connection, String sensor, Instant ts, double temperature) throws Exception {
+        var snapshot = UuidV7.next();
+        int sensorKey = dictionary.sensorKey(sensor);
+        try (var insertSnapshot = connection.prepareStatement("insert into snapshots (id, sensor_id, ts) values (?, ?, ?)");
+             var insertValue = connection.prepareStatement("insert into reading_values "
+                     + "(id, snapshot_id, sensor_key, ts, metric_key, value) values (?, ?, ?, ?, ?, ?)")) {
+            insertSnapshot.setObject(1, snapshot);
+            insertSnapshot.setString(2, sensor);
+            insertSnapshot.setObject(3, ts.atOffset(ZoneOffset.UTC));
+            insertSnapshot.executeUpdate();
+            insertValue.setObject(1, UuidV7.next());
+            insertValue.setObject(2, snapshot);
+            insertValue.setInt(3, sensorKey);
+            insertValue.setObject(4, ts.atOffset(ZoneOffset.UTC));
+            insertValue.setShort(5, dictionary.metricKey("temperature"));
+            insertValue.setDouble(6, temperature);
+            insertValue.executeUpdate();
+        }
+    }
+}
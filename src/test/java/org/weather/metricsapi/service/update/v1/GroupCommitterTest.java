@@ -0,0 +1,218 @@
+package org.weather.metricsapi.service.update.v1;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.weather.metricsapi.config.IngestProperties;
+import org.weather.metricsapi.dto.update.v1.Metrics;
+import org.weather.metricsapi.dto.update.v1.UpdateRequest;
+import org.weather.metricsapi.dto.update.v1.UpdateResponse;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class GroupCommitterTest {
+
+    @Mock
+    private UpdateService updateService;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private GroupCommitter committer;
+    private ExecutorService callers;
+
+    @AfterEach
+    void tearDown() {
+        if (committer != null && committer.isRunning()) {
+            committer.stop();
+        }
+        if (callers != null) {
+            callers.shutdownNow();
+        }
+    }
+
+    private GroupCommitter newCommitter(int maxBatchSize, Duration maxWait) {
+        return newCommitter(maxBatchSize, maxWait, Duration.ofSeconds(5));
+    }
+
+    private GroupCommitter newCommitter(int maxBatchSize, Duration maxWait, Duration timeout) {
+        IngestProperties.Async async = new IngestProperties.Async(
+                false, 10, 10, Duration.ofMillis(200), Duration.ofMillis(50), Duration.ofSeconds(5));
+        IngestProperties.GroupCommit groupCommit = new IngestProperties.GroupCommit(
+                true, maxBatchSize, maxWait, timeout);
+        return new GroupCommitter(updateService, new IngestProperties(async, groupCommit, null),
+                transactionManager, registry);
+    }
+
+    private static UpdateRequest reading(String sensorId) {
+        return new UpdateRequest(sensorId, new Metrics(20.0, 50.0, null, null, null, null, null, null));
+    }
+
+    @Test
+    void ingest_shouldShareOneCommitAcrossConcurrentCallers() throws Exception {
+        committer = newCommitter(50, Duration.ofMillis(200));
+        committer.start();
+        callers = Executors.newFixedThreadPool(20);
+
+        List<Future<UpdateResponse>> responses = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            String sensorId = "sensor-" + i;
+            responses.add(callers.submit(() -> committer.ingest(Instant.now(), reading(sensorId))));
+        }
+
+        for (int i = 0; i < 20; i++) {
+            UpdateResponse response = responses.get(i).get();
+            assertEquals("sensor-" + i, response.sensorId());
+            assertEquals(2, response.savedCount());
+        }
+        verify(updateService, atMost(3)).ingestAll(anyList());
+        assertEquals(20.0, registry.get("weather.ingest.group-commit.size").summary().totalAmount());
+    }
+
+    @Test
+    void ingest_shouldCommitSingleCallerWithoutWaitingForAFullGroup() {
+        committer = newCommitter(50, Duration.ofMillis(2));
+        committer.start();
+
+        UpdateResponse response = committer.ingest(Instant.now(), reading(" sensor-solo "));
+
+        assertEquals("sensor-solo", response.sensorId());
+        verify(updateService, times(1)).ingestAll(anyList());
+    }
+
+    @Test
+    void commit_shouldIsolateFailingUpdate() {
+        committer = newCommitter(50, Duration.ofMillis(2));
+        GroupCommitter.Submission good = submission("sensor-good");
+        GroupCommitter.Submission bad = submission("sensor-bad");
+        lenient().when(updateService.ingestAll(List.of(good.update(), bad.update())))
+                .thenThrow(new IllegalStateException("duplicate key"));
+        lenient().when(updateService.ingestAll(List.of(bad.update())))
+                .thenThrow(new IllegalStateException("duplicate key"));
+
+        committer.commit(new ArrayList<>(List.of(good, bad)));
+
+        assertEquals("sensor-good", good.result().join().sensorId());
+        assertTrue(bad.result().isCompletedExceptionally());
+    }
+
+    @Test
+    void commit_shouldSkipCallersThatGaveUp() {
+        committer = newCommitter(50, Duration.ofMillis(2));
+        GroupCommitter.Submission kept = submission("sensor-kept");
+        GroupCommitter.Submission abandoned = submission("sensor-gone");
+        assertTrue(abandoned.withdraw());
+
+        committer.commit(new ArrayList<>(List.of(kept, abandoned)));
+
+        verify(updateService).ingestAll(List.of(kept.update()));
+    }
+
+    @Test
+    void ingest_shouldWaitForACommitThatStartedBeforeTheTimeout() throws Exception {
+        committer = newCommitter(50, Duration.ofMillis(2), Duration.ofMillis(100));
+        CountDownLatch writing = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        List<PendingUpdate> stored = new CopyOnWriteArrayList<>();
+        when(updateService.ingestAll(anyList())).thenAnswer(inv -> {
+            writing.countDown();
+            // held past the caller's timeout
+            release.await();
+            List<PendingUpdate> updates = inv.getArgument(0);
+            stored.addAll(updates);
+            return updates.size();
+        });
+        committer.start();
+        callers = Executors.newSingleThreadExecutor();
+
+        Future<UpdateResponse> response = callers.submit(() -> committer.ingest(Instant.now(), reading("sensor-slow")));
+        assertTrue(writing.await(5, TimeUnit.SECONDS));
+        Thread.sleep(300);
+        assertFalse(response.isDone());
+        release.countDown();
+
+        assertEquals("sensor-slow", response.get(5, TimeUnit.SECONDS).sensorId());
+        assertEquals(1, stored.size());
+        verify(updateService, times(1)).ingestAll(anyList());
+    }
+
+    @Test
+    void commit_shouldWriteInATransactionLimitedToTheTimeout() {
+        committer = newCommitter(50, Duration.ofMillis(2), Duration.ofSeconds(3));
+        GroupCommitter.Submission submission = submission("sensor-bounded");
+
+        committer.commit(new ArrayList<>(List.of(submission)));
+
+        ArgumentCaptor<TransactionDefinition> definition = ArgumentCaptor.forClass(TransactionDefinition.class);
+        verify(transactionManager).getTransaction(definition.capture());
+        assertEquals(3, definition.getValue().getTimeout());
+        verify(updateService).ingestAll(List.of(submission.update()));
+        assertEquals("sensor-bounded", submission.result().join().sensorId());
+    }
+
+    @Test
+    void stop_shouldWaitForACommitStillRunningAfterTheTimeout() throws Exception {
+        committer = newCommitter(50, Duration.ofMillis(2), Duration.ofMillis(100));
+        CountDownLatch writing = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(updateService.ingestAll(anyList())).thenAnswer(inv -> {
+            writing.countDown();
+            // a JDBC call does not return early on interrupt
+            while (true) {
+                try {
+                    release.await();
+                    return 1;
+                } catch (InterruptedException e) {
+                    // keep writing
+                }
+            }
+        });
+        committer.start();
+        callers = Executors.newFixedThreadPool(2);
+
+        Future<UpdateResponse> response = callers.submit(() -> committer.ingest(Instant.now(), reading("sensor-late")));
+        assertTrue(writing.await(5, TimeUnit.SECONDS));
+        Future<?> stopped = callers.submit(() -> committer.stop());
+        Thread.sleep(300);
+        assertFalse(stopped.isDone());
+        release.countDown();
+
+        stopped.get(5, TimeUnit.SECONDS);
+        assertEquals("sensor-late", response.get(5, TimeUnit.SECONDS).sensorId());
+        verify(transactionManager).commit(any());
+    }
+
+    @Test
+    void submission_shouldNotBeWithdrawnOnceClaimed() {
+        GroupCommitter.Submission claimed = submission("sensor-claimed");
+        assertTrue(claimed.claim());
+
+        assertFalse(claimed.withdraw());
+    }
+
+    private static GroupCommitter.Submission submission(String sensorId) {
+        return new GroupCommitter.Submission(
+                new PendingUpdate(Instant.now(), reading(sensorId)), new CompletableFuture<>());
+    }
+}
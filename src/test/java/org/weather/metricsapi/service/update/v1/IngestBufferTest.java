@@ -0,0 +1,143 @@
+package org.weather.metricsapi.service.update.v1;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.weather.metricsapi.config.IngestProperties;
+import org.weather.metricsapi.dto.update.v1.Metrics;
+import org.weather.metricsapi.dto.update.v1.UpdateAcceptedResponse;
+import org.weather.metricsapi.dto.update.v1.UpdateRequest;
+import org.weather.metricsapi.exception.IngestUnavailableException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class IngestBufferTest {
+
+    @Mock
+    private UpdateService updateService;
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private IngestBuffer buffer;
+
+    @AfterEach
+    void tearDown() {
+        if (buffer != null && buffer.isRunning()) {
+            buffer.stop();
+        }
+    }
+
+    private IngestBuffer newBuffer(int capacity, int flushSize, Duration flushInterval) {
+        IngestProperties.Async async = new IngestProperties.Async(
+                true, capacity, flushSize, flushInterval, Duration.ofMillis(10), Duration.ofSeconds(5));
+        IngestProperties.GroupCommit groupCommit = new IngestProperties.GroupCommit(
+                false, 256, Duration.ofMillis(2), Duration.ofSeconds(10));
+        return new IngestBuffer(updateService, new IngestProperties(async, groupCommit, null), registry);
+    }
+
+    private static UpdateRequest reading(String sensorId) {
+        return new UpdateRequest(sensorId, new Metrics(20.0, 50.0, 1000.0, null, null, null, null, null));
+    }
+
+    @Test
+    void enqueue_shouldAcknowledgeWithQueuedMetricCount() {
+        buffer = newBuffer(10, 10, Duration.ofSeconds(10));
+        buffer.start();
+
+        UpdateAcceptedResponse response = buffer.enqueue(Instant.now(), reading(" sensor-001 "));
+
+        assertEquals("sensor-001", response.sensorId());
+        assertEquals(3, response.queuedCount());
+    }
+
+    @Test
+    void flusher_shouldWriteQueuedReadingsInBatches() throws Exception {
+        CountDownLatch flushed = new CountDownLatch(2);
+        when(updateService.ingestAll(anyList())).thenAnswer(i -> {
+            flushed.countDown();
+            return 0;
+        });
+        buffer = newBuffer(100, 5, Duration.ofSeconds(10));
+        buffer.start();
+
+        for (int i = 0; i < 10; i++) {
+            buffer.enqueue(Instant.now(), reading("sensor-" + i));
+        }
+
+        assertTrue(flushed.await(5, TimeUnit.SECONDS));
+        buffer.stop();
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<PendingUpdate>> captor = ArgumentCaptor.forClass(List.class);
+        verify(updateService, times(2)).ingestAll(captor.capture());
+        assertEquals(5, captor.getAllValues().get(0).size());
+        assertEquals(2L, registry.get("weather.ingest.buffer.flush").timer().count());
+    }
+
+    @Test
+    void enqueue_shouldRejectWhenBufferIsFull() throws Exception {
+        CountDownLatch writing = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(updateService.ingestAll(anyList())).thenAnswer(i -> {
+            writing.countDown();
+            release.await();
+            return 0;
+        });
+        buffer = newBuffer(2, 1, Duration.ofMillis(10));
+        buffer.start();
+
+        try {
+            buffer.enqueue(Instant.now(), reading("sensor-001"));
+            assertTrue(writing.await(5, TimeUnit.SECONDS));
+            buffer.enqueue(Instant.now(), reading("sensor-002"));
+            buffer.enqueue(Instant.now(), reading("sensor-003"));
+
+            assertThrows(IngestUnavailableException.class,
+                    () -> buffer.enqueue(Instant.now(), reading("sensor-004")));
+            assertEquals(1.0, registry.get("weather.ingest.buffer.rejected").counter().count());
+            assertEquals(2.0, registry.get("weather.ingest.buffer.depth").gauge().value());
+        } finally {
+            release.countDown();
+        }
+    }
+
+    @Test
+    void stop_shouldDrainRemainingReadings() {
+        buffer = newBuffer(100, 50, Duration.ofSeconds(10));
+        buffer.start();
+        for (int i = 0; i < 7; i++) {
+            buffer.enqueue(Instant.now(), reading("sensor-" + i));
+        }
+
+        buffer.stop();
+
+        assertEquals(0, buffer.depth());
+        verify(updateService, atLeastOnce()).ingestAll(anyList());
+        assertThrows(IngestUnavailableException.class,
+                () -> buffer.enqueue(Instant.now(), reading("sensor-late")));
+    }
+
+    @Test
+    void flush_shouldFallBackToSingleWritesWhenBatchFails() {
+        buffer = newBuffer(10, 10, Duration.ofSeconds(10));
+        PendingUpdate good = new PendingUpdate(Instant.now(), reading("sensor-good"));
+        PendingUpdate bad = new PendingUpdate(Instant.now(), reading("sensor-bad"));
+        lenient().when(updateService.ingestAll(List.of(good, bad))).thenThrow(new IllegalStateException("duplicate key"));
+        lenient().when(updateService.ingestAll(List.of(bad))).thenThrow(new IllegalStateException("duplicate key"));
+
+        buffer.flush(List.of(good, bad));
+
+        verify(updateService).ingestAll(List.of(good));
+        assertEquals(1.0, registry.get("weather.ingest.buffer.failed").counter().count());
+    }
+}
@@ -0,0 +1,195 @@
+package org.weather.metricsapi.service.update.v1;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.weather.metricsapi.config.IngestProperties;
+import org.weather.metricsapi.dto.update.v1.StreamUpdateResponse;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class StreamIngestServiceTest {
+
+    private static final Instant NOW = Instant.parse("2025-01-01T12:00:00Z");
+
+    @Mock
+    private UpdateService updateService;
+
+    private final List<StreamIngestService> started = new ArrayList<>();
+
+    private StreamIngestService newService(int batchSize, int maxLineLength) {
+        return newService(batchSize, maxLineLength, Duration.ofMinutes(1));
+    }
+
+    private StreamIngestService newService(int batchSize, int maxLineLength, Duration flushInterval) {
+        IngestProperties.Stream stream = new IngestProperties.Stream(
+                batchSize, flushInterval, maxLineLength, 100);
+        StreamIngestService service = new StreamIngestService(updateService, new IngestProperties(null, null, stream),
+                new ObjectMapper(), Clock.fixed(NOW, ZoneOffset.UTC));
+        service.start();
+        started.add(service);
+        return service;
+    }
+
+    @AfterEach
+    void stopServices() {
+        started.forEach(StreamIngestService::stop);
+    }
+
+    private static ByteArrayInputStream body(String ndjson) {
+        return new ByteArrayInputStream(ndjson.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String line(String sensorId, double temperature) {
+        return "{\"sensorId\":\"" + sensorId + "\",\"metrics\":{\"temperature\":" + temperature
+                + ",\"humidity\":50.0}}\n";
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void ingest_shouldWriteInRollingBatches() throws Exception {
+        when(updateService.ingestAll(anyList())).thenAnswer(inv -> ((List<?>) inv.getArgument(0)).size() * 2);
+
+        StreamUpdateResponse response = newService(2, 4096).ingest(body(
+                line("sensor-001", 20.0) + line("sensor-002", 21.0) + line("sensor-003", 22.0)
+                        + line("sensor-004", 23.0) + line("sensor-005", 24.0)));
+
+        ArgumentCaptor<List<PendingUpdate>> batches = ArgumentCaptor.forClass(List.class);
+        verify(updateService, times(3)).ingestAll(batches.capture());
+        assertEquals(List.of(2, 2, 1), batches.getAllValues().stream().map(List::size).toList());
+        assertEquals("sensor-005", batches.getAllValues().get(2).get(0).request().sensorId());
+
+        assertEquals(5, response.linesRead());
+        assertEquals(5, response.accepted());
+        assertEquals(0, response.rejected());
+        assertEquals(10, response.savedCount());
+        assertEquals(3, response.batches());
+        assertNull(response.errors());
+    }
+
+    @Test
+    void ingest_shouldWriteTheLinesOfAnIdleOpenStreamAfterTheFlushInterval() throws Exception {
+        when(updateService.ingestAll(anyList())).thenReturn(2);
+        StreamIngestService service = newService(500, 4096, Duration.ofMillis(100));
+        PipedOutputStream client = new PipedOutputStream();
+        PipedInputStream body = new PipedInputStream(client);
+        CompletableFuture<StreamUpdateResponse> upload = CompletableFuture.supplyAsync(() -> {
+            try {
+                return service.ingest(body);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+
+        client.write(line("sensor-001", 20.0).getBytes(StandardCharsets.UTF_8));
+        client.flush();
+
+        // the body stays open, so only the flush timer can write the line
+        verify(updateService, timeout(1000)).ingestAll(argThat(updates -> updates.size() == 1));
+        assertFalse(upload.isDone());
+
+        client.close();
+        StreamUpdateResponse response = upload.get(5, TimeUnit.SECONDS);
+        assertEquals(1, response.accepted());
+        assertEquals(1, response.batches());
+        verify(updateService, times(1)).ingestAll(anyList());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void ingest_shouldGiveEachReadingADistinctIncreasingTimestamp() throws Exception {
+        when(updateService.ingestAll(anyList())).thenReturn(2);
+
+        newService(10, 4096).ingest(body(line("sensor-001", 20.0) + line("sensor-001", 21.0)));
+
+        ArgumentCaptor<List<PendingUpdate>> batch = ArgumentCaptor.forClass(List.class);
+        verify(updateService).ingestAll(batch.capture());
+        assertEquals(NOW, batch.getValue().get(0).serverTs());
+        assertEquals(NOW.plusNanos(1000), batch.getValue().get(1).serverTs());
+    }
+
+    @Test
+    void ingest_shouldReportRejectedLinesAndKeepGoing() throws Exception {
+        when(updateService.ingestAll(anyList())).thenReturn(4);
+
+        String ndjson = line("sensor-001", 20.0)
+                + "\n"
+                + "{\"sensorId\":\"sensor-002\",\"metrics\":{\"temperature\":150.0,\"humidity\":50.0}}\n"
+                + "{\"sensorId\":\"sensor-003\"}\n"
+                + "{\"sensorId\":\"sensor-004\",\"metrics\":{\"temperature\":\n"
+                + "{\"sensorId\":\"bad id\",\"metrics\":{\"temperature\":20.0,\"humidity\":50.0}}\n"
+                + "{\"sensorId\":\"sensor-005\",\"metrics\":{\"temperature\":\"warm\",\"humidity\":50.0}}\n"
+                + "{\"sensorId\":\"sensor-006\",\"metrics\":{\"temperature\":20.0,\"humidity\":50.0,\"aqi\":30,"
+                + "\"dewPoint\":1.0},\"firmware\":{\"version\":2}}\r\n"
+                + "x".repeat(300) + "\n";
+
+        StreamUpdateResponse response = newService(100, 200).ingest(body(ndjson));
+
+        assertEquals(8, response.linesRead());
+        assertEquals(2, response.accepted());
+        assertEquals(6, response.rejected());
+        assertEquals(4, response.savedCount());
+
+        List<StreamUpdateResponse.LineError> errors = response.errors();
+        assertEquals(3, errors.get(0).line());
+        assertEquals("metrics.temperature: temperature must not exceed 100°C", errors.get(0).message());
+        assertEquals("metrics: metrics object is required", errors.get(1).message());
+        assertTrue(errors.get(2).message().startsWith("invalid JSON"));
+        assertEquals("sensorId: sensorId must contain only alphanumeric characters, hyphens, and underscores",
+                errors.get(3).message());
+        assertEquals("metrics.temperature: must be a number", errors.get(4).message());
+        assertEquals(9, errors.get(5).line());
+        assertEquals("line exceeds 200 characters", errors.get(5).message());
+    }
+
+    @Test
+    void ingest_shouldRetryFailedBatchOneByOne() throws Exception {
+        when(updateService.ingestAll(anyList())).thenAnswer(inv -> {
+            List<PendingUpdate> batch = inv.getArgument(0);
+            if (batch.size() > 1 || batch.get(0).request().sensorId().equals("sensor-002")) {
+                throw new IllegalStateException("duplicate key");
+            }
+            return 2;
+        });
+
+        StreamUpdateResponse response = newService(10, 4096).ingest(body(
+                line("sensor-001", 20.0) + line("sensor-002", 21.0) + line("sensor-003", 22.0)));
+
+        verify(updateService, times(4)).ingestAll(anyList());
+        assertEquals(2, response.accepted());
+        assertEquals(1, response.rejected());
+        assertEquals(4, response.savedCount());
+        assertEquals(2, response.errors().get(0).line());
+        assertEquals("could not be stored: duplicate key", response.errors().get(0).message());
+    }
+
+    @Test
+    void ingest_shouldAcceptEmptyBody() throws Exception {
+        StreamUpdateResponse response = newService(10, 4096).ingest(body(""));
+
+        verifyNoInteractions(updateService);
+        assertEquals(0, response.linesRead());
+        assertEquals(0, response.batches());
+    }
+}
@@ -1,51 +1,111 @@
 package org.weather.metricsapi.service.update.v1;
 
+import jakarta.validation.Validation;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.ArgumentCaptor;
-import org.mockito.InjectMocks;
+import org.mockito.InOrder;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.weather.metricsapi.config.RollupProperties;
+import org.weather.metricsapi.config.StorageProperties;
+import org.weather.metricsapi.dto.update.v1.BatchUpdateResponse;
 import org.weather.metricsapi.dto.update.v1.Metrics;
+import org.weather.metricsapi.dto.update.v1.ReadingRules;
 import org.weather.metricsapi.dto.update.v1.UpdateRequest;
 import org.weather.metricsapi.dto.update.v1.UpdateResponse;
 import org.weather.metricsapi.model.ReadingValue;
 import org.weather.metricsapi.model.Snapshot;
-import org.weather.metricsapi.repository.ReadingValueRepo;
-import org.weather.metricsapi.repository.SnapshotRepo;
+import org.weather.metricsapi.repository.DictionaryRepo;
+import org.weather.metricsapi.repository.ReadingInsertRepo;
+import org.weather.metricsapi.repository.RollupRepo;
+import org.weather.metricsapi.repository.WideReadingRepo;
+import org.weather.metricsapi.service.fetch.v1.FetchCache;
+import org.weather.metricsapi.service.fetch.v1.HotWindow;
+import org.weather.metricsapi.service.latest.v1.LatestIndex;
+import java.time.Clock;
+import java.time.Duration;
 import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import static org.junit.jupiter.api.Assertions.*;
-import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.argThat;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
 class UpdateServiceTest {
 
     @Mock
-    private SnapshotRepo snapshotRepo;
+    private ReadingInsertRepo insertRepo;
 
     @Mock
-    private ReadingValueRepo valueRepo;
+    private WideReadingRepo wideRepo;
+
+    @Mock
+    private DictionaryRepo dictionary;
+
+    @Mock
+    private FetchCache fetchCache;
+
+    @Mock
+    private LatestIndex latestIndex;
+
+    @Mock
+    private HotWindow hotWindow;
+
+    @Mock
+    private RollupRepo rollupRepo;
 
-    @InjectMocks
     private UpdateService updateService;
 
+    // 2025-01-16 is rolled up from 00:10 on 2025-01-17
+    private static final RollupProperties ROLLUPS =
+            new RollupProperties(true, Duration.ofMinutes(10), Duration.ofMinutes(5));
+    private static final Clock CLOCK = Clock.fixed(Instant.parse("2025-01-17T00:10:00Z"), ZoneOffset.UTC);
+
+    @BeforeEach
+    void setUp() {
+        updateService = service(StorageProperties.Write.NARROW, StorageProperties.Layout.NARROW);
+        lenient().when(dictionary.sensorKey(anyString())).thenReturn(1);
+        lenient().when(dictionary.sensorKeys(anyCollection())).thenAnswer(inv -> {
+            Map<String, Integer> keys = new HashMap<>();
+            inv.<Collection<String>>getArgument(0).forEach(name -> keys.put(name, keys.size() + 1));
+            return keys;
+        });
+        lenient().when(dictionary.metricKey(anyString())).thenAnswer(inv -> metricKey(inv.getArgument(0)));
+    }
+
+    private UpdateService service(StorageProperties.Write write, StorageProperties.Layout read) {
+        return new UpdateService(insertRepo, wideRepo, dictionary,
+                Validation.buildDefaultValidatorFactory().getValidator(), new StorageProperties(write, read), fetchCache, latestIndex,
+                hotWindow, rollupRepo, ROLLUPS, CLOCK);
+    }
+
+    private static short metricKey(String metric) {
+        return (short) (ReadingRules.metrics().indexOf(ReadingRules.metric(metric)) + 1);
+    }
+
     @Test
     void ingest_shouldSaveSnapshotAndAllMetrics() {
         Instant ts = Instant.parse("2025-01-15T10:30:00Z");
         Metrics metrics = new Metrics(25.5, 65.0, 1013.25, 15.0, 180.0, 0.0, 5.0, 50.0);
         UpdateRequest request = new UpdateRequest("sensor-001", metrics);
 
-        when(snapshotRepo.save(any(Snapshot.class))).thenAnswer(i -> i.getArguments()[0]);
-        when(valueRepo.save(any(ReadingValue.class))).thenAnswer(i -> i.getArguments()[0]);
-
         UpdateResponse response = updateService.ingest(ts, request);
 
         assertEquals("sensor-001", response.sensorId());
         assertEquals(8, response.savedCount());
-        verify(snapshotRepo, times(1)).save(any(Snapshot.class));
-        verify(valueRepo, times(8)).save(any(ReadingValue.class));
+        verify(insertRepo, times(1)).insertSnapshots(argThat((List<Snapshot> s) -> s.size() == 1));
+        verify(insertRepo, times(1)).insertValues(argThat((List<ReadingValue> v) -> v.size() == 8));
     }
 
     @Test
@@ -54,13 +114,10 @@ class UpdateServiceTest {
         Metrics metrics = new Metrics(22.0, 50.0, null, null, null, null, null, null);
         UpdateRequest request = new UpdateRequest("sensor-002", metrics);
 
-        when(snapshotRepo.save(any(Snapshot.class))).thenAnswer(i -> i.getArguments()[0]);
-        when(valueRepo.save(any(ReadingValue.class))).thenAnswer(i -> i.getArguments()[0]);
-
         UpdateResponse response = updateService.ingest(ts, request);
 
         assertEquals(2, response.savedCount());
-        verify(valueRepo, times(2)).save(any(ReadingValue.class));
+        verify(insertRepo).insertValues(argThat((List<ReadingValue> v) -> v.size() == 2));
     }
 
     @Test
@@ -69,20 +126,153 @@ class UpdateServiceTest {
         Metrics metrics = new Metrics(25.0, 65.0, null, 15.0, null, null, 5.0, null);
         UpdateRequest request = new UpdateRequest("sensor-003", metrics);
 
-        ArgumentCaptor<ReadingValue> valueCaptor = ArgumentCaptor.forClass(ReadingValue.class);
-        when(snapshotRepo.save(any(Snapshot.class))).thenAnswer(i -> i.getArguments()[0]);
-        when(valueRepo.save(any(ReadingValue.class))).thenAnswer(i -> i.getArguments()[0]);
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<ReadingValue>> valueCaptor = ArgumentCaptor.forClass(List.class);
 
         updateService.ingest(ts, request);
 
-        verify(valueRepo, times(4)).save(valueCaptor.capture());
-        List<String> metricNames = valueCaptor.getAllValues().stream()
-                .map(ReadingValue::getMetric)
+        verify(insertRepo).insertValues(valueCaptor.capture());
+        List<Short> metricKeys = valueCaptor.getValue().stream()
+                .map(ReadingValue::getMetricKey)
                 .toList();
 
-        assertTrue(metricNames.contains("temperature"));
-        assertTrue(metricNames.contains("humidity"));
-        assertTrue(metricNames.contains("windSpeed"));
-        assertTrue(metricNames.contains("uvIndex"));
+        assertEquals(4, metricKeys.size());
+        assertTrue(metricKeys.contains(metricKey("temperature")));
+        assertTrue(metricKeys.contains(metricKey("humidity")));
+        assertTrue(metricKeys.contains(metricKey("windSpeed")));
+        assertTrue(metricKeys.contains(metricKey("uvIndex")));
+        assertTrue(valueCaptor.getValue().stream().allMatch(v -> v.getSensorKey() == 1));
+    }
+
+    @Test
+    void ingestAll_shouldInvalidateCachedFetchesForEachWrittenSensorAndDay() {
+        Metrics metrics = new Metrics(22.0, 50.0, null, null, null, null, null, null);
+
+        updateService.ingestAll(List.of(
+                new PendingUpdate(Instant.parse("2025-01-15T23:59:59Z"), new UpdateRequest("sensor-001", metrics)),
+                new PendingUpdate(Instant.parse("2025-01-16T00:00:01Z"), new UpdateRequest("sensor-001", metrics)),
+                new PendingUpdate(Instant.parse("2025-01-16T00:00:02Z"), new UpdateRequest("sensor-002", metrics))
+        ));
+
+        verify(fetchCache).written(Map.of(
+                LocalDate.parse("2025-01-15"), Set.of("sensor-001"),
+                LocalDate.parse("2025-01-16"), Set.of("sensor-001", "sensor-002")));
+    }
+
+    @Test
+    void ingestAll_shouldReopenOnlyDaysThatMayHaveBeenRolledUp() {
+        Metrics metrics = new Metrics(22.0, 50.0, null, null, null, null, null, null);
+
+        updateService.ingestAll(List.of(
+                new PendingUpdate(Instant.parse("2025-01-15T12:00:00Z"), new UpdateRequest("sensor-001", metrics)),
+                new PendingUpdate(Instant.parse("2025-01-16T23:59:59Z"), new UpdateRequest("sensor-002", metrics)),
+                new PendingUpdate(Instant.parse("2025-01-17T00:00:01Z"), new UpdateRequest("sensor-003", metrics))
+        ));
+
+        verify(rollupRepo).invalidate(Set.of(LocalDate.parse("2025-01-15"), LocalDate.parse("2025-01-16")));
+    }
+
+    @Test
+    void ingest_shouldNotTouchRollupsForADayThatHasNotSettled() {
+        updateService.ingest(Instant.parse("2025-01-17T00:09:59Z"),
+                new UpdateRequest("sensor-001", new Metrics(22.0, 50.0, null, null, null, null, null, null)));
+
+        verifyNoInteractions(rollupRepo);
+    }
+
+    @Test
+    void ingest_shouldRecordTheReadingInTheLatestIndex() {
+        Instant ts = Instant.parse("2025-01-15T10:30:00Z");
+
+        updateService.ingest(ts, new UpdateRequest("sensor-001", new Metrics(22.0, 50.0, 1000.0, null, null, null, null, null)));
+
+        verify(latestIndex).record("sensor-001", ts, new Double[]{22.0, 50.0, 1000.0, null, null, null, null, null});
+    }
+
+    @Test
+    void ingest_shouldRecordTheReadingInTheHotWindowBeforeDroppingCachedFetches() {
+        Instant ts = Instant.parse("2025-01-15T10:30:00Z");
+
+        updateService.ingest(ts, new UpdateRequest("sensor-001", new Metrics(22.0, null, null, null, null, null, null, 5.0)));
+
+        InOrder order = inOrder(hotWindow, fetchCache);
+        order.verify(hotWindow).record(1, ts, new Double[]{22.0, null, null, null, null, null, null, 5.0});
+        order.verify(fetchCache).written(Map.of(LocalDate.parse("2025-01-15"), Set.of("sensor-001")));
+    }
+
+    @Test
+    void ingestBatch_shouldSaveValidItemsAndRejectInvalidOnes() {
+        Instant ts = Instant.parse("2025-01-15T10:30:00Z");
+        List<UpdateRequest> items = List.of(
+                new UpdateRequest("sensor-001", new Metrics(25.0, 65.0, null, null, null, null, null, null)),
+                new UpdateRequest("sensor-002", new Metrics(150.0, 65.0, null, null, null, null, null, null)),
+                new UpdateRequest("sensor-003", new Metrics(20.0, 40.0, 1000.0, null, null, null, null, null))
+        );
+
+        BatchUpdateResponse response = updateService.ingestBatch(ts, items);
+
+        assertEquals(3, response.received());
+        assertEquals(2, response.saved());
+        assertEquals(1, response.rejected());
+        assertEquals("saved", response.results().get(0).status());
+        assertEquals("rejected", response.results().get(1).status());
+        assertTrue(response.results().get(1).errors().containsKey("metrics.temperature"));
+        assertEquals(3, response.results().get(2).savedCount());
+        verify(insertRepo, times(1)).insertSnapshots(argThat((List<Snapshot> s) -> s.size() == 2));
+        verify(insertRepo, times(1)).insertValues(argThat((List<ReadingValue> v) -> v.size() == 5));
+    }
+
+    @Test
+    void ingestBatch_shouldRejectDuplicateSensorsAndNullItems() {
+        Metrics metrics = new Metrics(25.0, 65.0, null, null, null, null, null, null);
+        List<UpdateRequest> items = Arrays.asList(
+                new UpdateRequest("sensor-001", metrics),
+                null,
+                new UpdateRequest(" sensor-001 ", metrics)
+        );
+
+        BatchUpdateResponse response = updateService.ingestBatch(Instant.now(), items);
+
+        assertEquals(1, response.saved());
+        assertEquals(2, response.rejected());
+        assertTrue(response.results().get(1).errors().containsKey("item"));
+        assertTrue(response.results().get(2).errors().containsKey("sensorId"));
+    }
+
+    @Test
+    void ingest_shouldWriteOnlyWideRowsInWideLayout() {
+        UpdateService service = service(StorageProperties.Write.WIDE, StorageProperties.Layout.WIDE);
+        Instant ts = Instant.parse("2025-01-15T10:30:00Z");
+        Metrics metrics = new Metrics(25.0, 65.0, null, 15.0, null, null, null, null);
+
+        UpdateResponse response = service.ingest(ts, new UpdateRequest("sensor-001", metrics));
+
+        assertEquals(3, response.savedCount());
+        verify(wideRepo).insert(List.of(new WideReadingRepo.Row(1, ts, metrics)));
+        verifyNoInteractions(insertRepo);
+    }
+
+    @Test
+    void ingestAll_shouldWriteBothLayoutsWhenDualWriting() {
+        UpdateService service = service(StorageProperties.Write.DUAL, StorageProperties.Layout.NARROW);
+        Instant ts = Instant.parse("2025-01-15T10:30:00Z");
+        Metrics metrics = new Metrics(25.0, 65.0, null, null, null, null, null, null);
+
+        int saved = service.ingestAll(List.of(
+                new PendingUpdate(ts, new UpdateRequest("sensor-001", metrics)),
+                new PendingUpdate(ts, new UpdateRequest("sensor-002", metrics))));
+
+        assertEquals(4, saved);
+        verify(insertRepo).insertSnapshots(argThat((List<Snapshot> s) -> s.size() == 2));
+        verify(insertRepo).insertValues(argThat((List<ReadingValue> v) -> v.size() == 4));
+        verify(wideRepo).insert(argThat((List<WideReadingRepo.Row> rows) -> rows.size() == 2));
+    }
+
+    @Test
+    void storageProperties_shouldRefuseReadingALayoutThatIsNotWritten() {
+        assertThrows(IllegalArgumentException.class,
+                () -> new StorageProperties(StorageProperties.Write.NARROW, StorageProperties.Layout.WIDE));
+        assertThrows(IllegalArgumentException.class,
+                () -> new StorageProperties(StorageProperties.Write.WIDE, StorageProperties.Layout.NARROW));
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,69 @@
+package org.weather.metricsapi.util;
+
+import org.junit.jupiter.api.Test;
+import java.util.Map;
+import static org.junit.jupiter.api.Assertions.*;
+
+class QuantileSketchTest {
+
+    private static final double GAMMA = (1 + QuantileSketch.ACCURACY) / (1 - QuantileSketch.ACCURACY);
+
+    @Test
+    void value_shouldBeWithinAccuracyOfEveryValueInTheBucket() {
+        for (int index = -1000; index <= 1000; index += 7) {
+            double value = QuantileSketch.value(index + 1100);
+            double lower = Math.pow(GAMMA, index - 1);
+            double upper = Math.pow(GAMMA, index);
+            assertTrue(Math.abs(value - lower) <= lower * QuantileSketch.ACCURACY * (1 + 1e-12), "index " + index);
+            assertTrue(Math.abs(value - upper) <= upper * QuantileSketch.ACCURACY * (1 + 1e-12), "index " + index);
+            assertEquals(-value, QuantileSketch.value(-(index + 1100)));
+        }
+        assertEquals(0.0, QuantileSketch.value(0));
+    }
+
+    @Test
+    void key_shouldMatchSketchKeyInTheDatabase() {
+        // as returned by sketch_key() in PostgreSQL
+        assertEquals(1100, QuantileSketch.key(1.0));
+        assertEquals(1254, QuantileSketch.key(21.5));
+        assertEquals(-1159, QuantileSketch.key(-3.25));
+        assertEquals(755, QuantileSketch.key(0.001));
+        assertEquals(1447, QuantileSketch.key(1013.25));
+        assertEquals(0, QuantileSketch.key(1e-10));
+    }
+
+    @Test
+    void key_shouldPickTheBucketHoldingTheValue() {
+        for (double v = 1e-6; v < 1e6; v *= 1.37) {
+            double value = QuantileSketch.value(QuantileSketch.key(v));
+            assertEquals(v, value, v * QuantileSketch.ACCURACY * (1 + 1e-12), "value " + v);
+            assertEquals(-QuantileSketch.key(v), QuantileSketch.key(-v));
+        }
+    }
+
+    @Test
+    void quantile_shouldFollowPercentileDiscRanks() {
+        // ten values: three negative, two zero, five positive
+        QuantileSketch sketch = QuantileSketch.of(Map.of(-1200, 3L, 0, 2L, 1150, 5L));
+
+        assertEquals(10, sketch.count());
+        assertEquals(QuantileSketch.value(-1200), sketch.quantile(0.0));
+        assertEquals(QuantileSketch.value(-1200), sketch.quantile(0.3));
+        assertEquals(0.0, sketch.quantile(0.31));
+        assertEquals(0.0, sketch.quantile(0.5));
+        assertEquals(QuantileSketch.value(1150), sketch.quantile(0.51));
+        assertEquals(QuantileSketch.value(1150), sketch.quantile(1.0));
+    }
+
+    @Test
+    void merge_shouldAddBucketCounts() {
+        QuantileSketch a = QuantileSketch.of(Map.of(1150, 2L, 1160, 1L));
+        QuantileSketch b = QuantileSketch.of(1160, 4);
+
+        QuantileSketch merged = a.merge(b);
+
+        assertEquals(QuantileSketch.of(Map.of(1150, 2L, 1160, 5L)), merged);
+        assertEquals(merged, b.merge(a));
+        assertEquals(3, a.count());
+    }
+}
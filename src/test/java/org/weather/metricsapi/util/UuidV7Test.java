@@ -0,0 +1,71 @@
+package org.weather.metricsapi.util;
+
+import org.junit.jupiter.api.Test;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import static org.junit.jupiter.api.Assertions.*;
+
+class UuidV7Test {
+
+    @Test
+    void next_shouldSetVersionVariantAndTimestamp() {
+        long before = System.currentTimeMillis();
+        UUID id = UuidV7.next();
+        long after = System.currentTimeMillis();
+
+        assertEquals(7, id.version());
+        assertEquals(2, id.variant());
+        // may run ahead of the clock only when many ids were generated in the same millisecond
+        assertTrue(UuidV7.timestampMillis(id) >= before);
+        assertTrue(UuidV7.timestampMillis(id) <= after + 1000);
+    }
+
+    @Test
+    void next_shouldBeStrictlyIncreasingAcrossThreads() throws Exception {
+        int threads = 4;
+        int perThread = 50_000;
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<List<UUID>>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                futures.add(pool.submit(() -> {
+                    List<UUID> ids = new ArrayList<>(perThread);
+                    for (int i = 0; i < perThread; i++) {
+                        ids.add(UuidV7.next());
+                    }
+                    return ids;
+                }));
+            }
+
+            Set<UUID> all = new HashSet<>();
+            for (Future<List<UUID>> future : futures) {
+                List<UUID> ids = future.get();
+                for (int i = 1; i < ids.size(); i++) {
+                    assertTrue(ids.get(i - 1).compareTo(ids.get(i)) < 0);
+                }
+                all.addAll(ids);
+            }
+            assertEquals(threads * perThread, all.size());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    void build_shouldCarrySequenceOverflowIntoTimestamp() {
+        long millis = 1_700_000_000_000L;
+        UUID last = UuidV7.build((millis << 12) | 0xFFF, 0);
+        UUID next = UuidV7.build(((millis << 12) | 0xFFF) + 1, 0);
+
+        assertEquals(millis, UuidV7.timestampMillis(last));
+        assertEquals(millis + 1, UuidV7.timestampMillis(next));
+        assertEquals(7, next.version());
+        assertTrue(last.compareTo(next) < 0);
+    }
+}